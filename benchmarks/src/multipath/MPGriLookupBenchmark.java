@@ -0,0 +1,110 @@
+package multipath;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/***********************************************************************************************************************
+* MP-GRI lookup table operations, which scan (and for updates, rewrite) mp_gri_lookup.txt on every call, measured
+* through the public MultipathOSCARSClient API. None of them calls OSCARS:
+* 	- listGroupMembers() of a group that does not exist, a scan of the whole table.
+* 	- groupReservations() removing a GRI which is not a member of the group: the group's entry is looked up
+* 	  (HelperMiscellaneous.getLongMPGri(), run by every MP query/cancel/modify) and the table rewritten with it
+* 	  unchanged (HelperGroup.updateGroupInLookupTable(), run by every group ADD/SUB).
+* The group sits in the middle of a table of numGroups two-member groups.
+*
+* The table is a temporary file, passed to the forked JVM as -Dmpc.mpGriLookupFile before Configuration is loaded,
+* so the configured lookup table is never touched.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MPGriLookupBenchmark
+{
+	@Param({"10000", "100000", "1000000"})
+	public int numGroups;
+
+	private File lookupTable;
+	private MultipathOSCARSClient client;
+	private ArrayList<String> missingGroup;
+	private ArrayList<String> removeNonMember;
+
+	@Setup
+	public void writeLookupTable() throws IOException
+	{
+		lookupTable = File.createTempFile("mp_gri_lookup", ".txt");
+		System.setProperty("mpc.mpGriLookupFile", lookupTable.getPath());
+
+		if(!lookupTable.getPath().equals(HelperMiscellaneous.mpLookupGRI))
+			throw new IllegalStateException("Configuration was loaded before the benchmark could point it at " + lookupTable);
+
+		try(BufferedWriter out = new BufferedWriter(new FileWriter(lookupTable)))
+		{
+			for(int g = 1; g <= numGroups; g++)
+				out.write(groupLine(g, 2) + "\n");
+		}
+
+		int middle = numGroups / 2;
+		client = new MultipathOSCARSClient("sim://es.net");
+
+		missingGroup = new ArrayList<String>();
+		missingGroup.add("MP-" + (numGroups + 1));
+
+		removeNonMember = new ArrayList<String>();
+		removeNonMember.add("MP-" + middle);
+		removeNonMember.add("es.net-0");		// In no group, so every invocation sees the same table
+	}
+
+	@TearDown
+	public void deleteLookupTable()
+	{
+		lookupTable.delete();
+		new File("temp.txt").delete();
+	}
+
+	/**
+	 * @return Long-format MP-GRI of group g, e.g. "MP-7_=_MP-7:_2_:es.net-14:es.net-15"
+	 */
+	private static String groupLine(int g, int numMembers)
+	{
+		StringBuilder line = new StringBuilder("MP-").append(g).append("_=_MP-").append(g).append(":_").append(numMembers).append("_:");
+
+		for(int m = 0; m < numMembers; m++)
+			line.append((m == 0) ? "" : ":").append("es.net-").append(numMembers * g + m);
+
+		return line.toString();
+	}
+
+	@Benchmark
+	public ArrayList<SubrequestTuple> listMissingGroup()
+	{
+		return client.listGroupMembers(missingGroup);
+	}
+
+	@Benchmark
+	public String removeFromGroup()
+	{
+		return client.groupReservations(removeNonMember, false, 0);
+	}
+}
@@ -0,0 +1,76 @@
+package service;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/***********************************************************************************************************************
+* Sorting the GRI lists shown in the GUI with GriComparator, against plain String ordering as a reference.
+* GRIs are spread over a few domains with numbers of mixed length, e.g. "es.net-7" ... "es.net-734512", in random order.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GriComparatorBenchmark
+{
+	private static final String[] domains = {"es.net", "al2s.net.internet2.edu", "geant.net", "nersc.gov"};
+
+	@Param({"10000", "100000", "1000000"})
+	public int numGris;
+
+	private String[] shuffledGris;
+	private final GriComparator comparator = new GriComparator();
+
+	@Setup
+	public void generateGris()
+	{
+		Random random = new Random(42);
+		shuffledGris = new String[numGris];
+
+		for(int g = 0; g < numGris; g++)
+			shuffledGris[g] = domains[random.nextInt(domains.length)] + "-" + (g + 1);
+
+		for(int g = numGris - 1; g > 0; g--)
+		{
+			int other = random.nextInt(g + 1);
+			String swap = shuffledGris[g];
+			shuffledGris[g] = shuffledGris[other];
+			shuffledGris[other] = swap;
+		}
+	}
+
+	@Benchmark
+	public String[] sortWithGriComparator()
+	{
+		String[] gris = shuffledGris.clone();
+		Arrays.sort(gris, comparator);
+
+		return gris;
+	}
+
+	@Benchmark
+	public String[] sortAlphabetically()
+	{
+		String[] gris = shuffledGris.clone();
+		Arrays.sort(gris);
+
+		return gris;
+	}
+}
@@ -0,0 +1,117 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+
+import datastructs.MPReservation;
+import topology.TopologyDiff;
+import topology.TopologyFixtures;
+import topology.TopologyIndex;
+
+/***********************************************************************************************************************
+* The JSON messages MultiPathReservationsServer sends over the WebSocket, serialized the way the server does it:
+* Jackson for sendJsonMessage() (one shared ObjectMapper), a new Gson per message for the unicast GRI list.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MessageSerializationBenchmark
+{
+	private static final String domainID = "es.net";
+
+	@Param({"10000", "100000"})
+	public int numGris;
+
+	@Param({"5000"})
+	public int numPorts;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private Object[] mpGris;
+	private List<String> unicastGris;
+	private Object[] topologyMessage;
+	private Object[] topologyDiffMessage;
+	private Object[] selectionMessage;
+
+	@Setup
+	public void buildMessages()
+	{
+		mpGris = new Object[numGris / 4];
+		for(int g = 0; g < mpGris.length; g++)
+			mpGris[g] = "MP-" + (g + 1);
+
+		unicastGris = new ArrayList<String>(numGris);
+		for(int g = 0; g < numGris; g++)
+			unicastGris.add(domainID + "-" + (g + 1));
+
+		TopologyIndex current = TopologyFixtures.index(domainID, numPorts);
+		TopologyIndex previous = TopologyFixtures.index(domainID, numPorts - 10 * TopologyFixtures.portsPerNode);
+
+		topologyMessage = new Object[] { new MultiPathReservationsServer.sendTopology(current.getDisplayNames(domainID)) };
+		topologyDiffMessage = new Object[] { new MultiPathReservationsServer.sendTopologyDiff(TopologyDiff.compute(previous, current)) };
+
+		// A user selecting 20 MP reservations of 4 subrequests each //
+		ArrayList<MPReservation> selection = new ArrayList<MPReservation>();
+		for(int s = 0; s < 20; s++)
+		{
+			MPReservation oneReservation = new MPReservation();
+			oneReservation.setMPGRI("MP-" + (s + 1));
+			oneReservation.setUniGris(new ArrayList<String>(unicastGris.subList(4 * s, 4 * s + 4)));
+			selection.add(oneReservation);
+		}
+
+		selectionMessage = new Object[] { new MultiPathReservationsServer.sendForSelected(selection) };
+	}
+
+	@Benchmark
+	public String mpGriList() throws JsonProcessingException
+	{
+		return mapper.writeValueAsString(mpGris);
+	}
+
+	@Benchmark
+	public String unicastGriList()
+	{
+		return new Gson().toJson(unicastGris);
+	}
+
+	@Benchmark
+	public String topology() throws JsonProcessingException
+	{
+		return mapper.writeValueAsString(topologyMessage);
+	}
+
+	@Benchmark
+	public String topologyDiff() throws JsonProcessingException
+	{
+		return mapper.writeValueAsString(topologyDiffMessage);
+	}
+
+	@Benchmark
+	public String selection() throws JsonProcessingException
+	{
+		return mapper.writeValueAsString(selectionMessage);
+	}
+}
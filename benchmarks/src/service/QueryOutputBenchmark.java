@@ -0,0 +1,152 @@
+package service;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.es.oscars.api.soap.gen.v06.PathInfo;
+import net.es.oscars.api.soap.gen.v06.ResDetails;
+import net.es.oscars.api.soap.gen.v06.ReservedConstraintType;
+import net.es.oscars.common.soap.gen.OSCARSFaultReport;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import datastructs.QueryResult;
+import multipath.PathCache;
+import multipath.SubrequestTuple;
+import topology.TopologyFixtures;
+
+/***********************************************************************************************************************
+* The two steps of sending the query result of every subrequest of an MP reservation to the GUI, through their public
+* API: the inter-node hops of the reserved path (PathCache, which parses each GRI's path once), and the streaming
+* serialization of the QueryResult onto a WebSocket writer (here one that discards its output). Cycles through
+* numReservations RESERVED reservations with hopsPerPath nodes on their path; one in ten also carries an OSCARS error
+* report.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QueryOutputBenchmark
+{
+	@Param({"10000"})
+	public int numReservations;
+
+	@Param({"4", "16"})
+	public int hopsPerPath;
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	private SubrequestTuple[] reservations;
+	private QueryResult[] results;
+	private int next;
+
+	@Setup
+	public void buildReservations()
+	{
+		reservations = new SubrequestTuple[numReservations];
+		long startTime = System.currentTimeMillis() / 1000;
+
+		for(int r = 0; r < numReservations; r++)
+		{
+			PathInfo pathInfo = new PathInfo();
+			pathInfo.setPathSetupMode("timer-automatic");
+			pathInfo.setPath(TopologyFixtures.path("es.net", r % 100, hopsPerPath));
+
+			ReservedConstraintType reservedConstraint = new ReservedConstraintType();
+			reservedConstraint.setBandwidth(100 + r % 900);
+			reservedConstraint.setStartTime(startTime + r);
+			reservedConstraint.setEndTime(startTime + r + 3600);
+			reservedConstraint.setPathInfo(pathInfo);
+
+			ResDetails details = new ResDetails();
+			details.setGlobalReservationId("es.net-" + (r + 1));
+			details.setStatus("RESERVED");
+			details.setReservedConstraint(reservedConstraint);
+
+			List<OSCARSFaultReport> errors = Collections.emptyList();
+
+			if(r % 10 == 0)
+			{
+				OSCARSFaultReport error = new OSCARSFaultReport();
+				error.setErrorMsg("Requested bandwidth not available on link " + (r % 100));
+				errors = Collections.singletonList(error);
+			}
+
+			reservations[r] = new SubrequestTuple(details, errors);
+		}
+
+		results = new QueryResult[numReservations];
+
+		for(int r = 0; r < numReservations; r++)
+		{
+			ResDetails details = reservations[r].getDetails();
+			ReservedConstraintType reservedConstraint = details.getReservedConstraint();
+			List<String> errorMessages = new ArrayList<String>();
+
+			for(OSCARSFaultReport oneError : reservations[r].getErrors())
+				errorMessages.add(oneError.getErrorMsg());
+
+			results[r] = new QueryResult(details.getGlobalReservationId(), details.getStatus(), reservedConstraint.getBandwidth(), reservedConstraint.getStartTime(), reservedConstraint.getEndTime(),
+											PathCache.fromDetails(details).getInterNodeHops(), errorMessages, false);
+		}
+	}
+
+	@Benchmark
+	public List<String> interNodeHops()
+	{
+		return PathCache.fromDetails(reservations[nextIndex()].getDetails()).getInterNodeHops();
+	}
+
+	@Benchmark
+	public void serializeUnicastQuery() throws IOException
+	{
+		try (JsonGenerator json = jsonFactory.createGenerator(new NullWriter()))
+		{
+			results[nextIndex()].writeTo(json);
+		}
+	}
+
+	private int nextIndex()
+	{
+		int index = next;
+		next = (next + 1) % reservations.length;
+
+		return index;
+	}
+
+	private static class NullWriter extends Writer
+	{
+		public void write(char[] buffer, int offset, int length)
+		{
+		}
+
+		public void flush()
+		{
+		}
+
+		public void close()
+		{
+		}
+	}
+}
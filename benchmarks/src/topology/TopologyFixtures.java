@@ -0,0 +1,155 @@
+package topology;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneDomainContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneHopContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneLinkContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneNodeContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlanePathContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlanePortContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneTopologyContent;
+
+/***********************************************************************************************************************
+* Synthetic TopoBridge answers for the benchmarks, shaped like the ESnet topology: 10 ports per node, one link per port,
+* each link connected to a port of a neighbouring node. Every other port leaves the link capacities to the port, like
+* the real topology does for most Ethernet ports.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public final class TopologyFixtures
+{
+	public static final int portsPerNode = 10;
+
+	private TopologyFixtures()
+	{
+	}
+
+	/**
+	 * @return A topology of one domain with numPorts ports (and as many links).
+	 */
+	public static CtrlPlaneTopologyContent topology(String domainID, int numPorts)
+	{
+		CtrlPlaneTopologyContent topology = new CtrlPlaneTopologyContent();
+		topology.setId(domainID);
+		topology.getDomain().add(domain(domainID, numPorts));
+
+		return topology;
+	}
+
+	/**
+	 * @return An index holding the given topology, as TopologyLoader would build it.
+	 */
+	public static TopologyIndex index(String domainID, int numPorts)
+	{
+		TopologyIndex index = new TopologyIndex();
+		TopologyLoader.addTopology(index, topology(domainID, numPorts));
+
+		return index;
+	}
+
+	private static CtrlPlaneDomainContent domain(String domainID, int numPorts)
+	{
+		CtrlPlaneDomainContent domain = new CtrlPlaneDomainContent();
+		domain.setId("urn:ogf:network:domain=" + domainID);
+
+		int numNodes = Math.max(2, (numPorts + portsPerNode - 1) / portsPerNode);
+
+		for(int n = 0; n < numNodes; n++)
+		{
+			CtrlPlaneNodeContent node = new CtrlPlaneNodeContent();
+			node.setId(domain.getId() + ":node=" + nodeName(n));
+
+			for(int p = 0; p < portsPerNode && n * portsPerNode + p < numPorts; p++)
+			{
+				CtrlPlanePortContent port = new CtrlPlanePortContent();
+				port.setId(node.getId() + ":port=" + portName(p));
+				port.setCapacity("10000000000");
+				port.setMaximumReservableCapacity("10000000000");
+				port.setMinimumReservableCapacity("1000000");
+				port.setGranularity("1000000");
+
+				CtrlPlaneLinkContent link = new CtrlPlaneLinkContent();
+				link.setId(port.getId() + ":link=" + linkName(p));
+				link.setRemoteLinkId(linkURN(domainID, (n + 1) % numNodes, p));
+
+				if(p % 2 == 1)
+				{
+					link.setCapacity("100000000000");
+					link.setMaximumReservableCapacity("80000000000");
+					link.setMinimumReservableCapacity("1000000");
+					link.setGranularity("1000000");
+				}
+
+				port.getLink().add(link);
+				node.getPort().add(port);
+			}
+
+			domain.getNode().add(node);
+		}
+
+		return domain;
+	}
+
+	/**
+	 * @return The path of a reservation crossing numNodes nodes of the fixture topology, entering and leaving each node.
+	 */
+	public static CtrlPlanePathContent path(String domainID, int firstNode, int numNodes)
+	{
+		CtrlPlanePathContent path = new CtrlPlanePathContent();
+		List<CtrlPlaneHopContent> hops = path.getHop();
+
+		for(int n = firstNode; n < firstNode + numNodes; n++)
+		{
+			hops.add(hop(linkURN(domainID, n, 0)));
+			hops.add(hop(linkURN(domainID, n, 1)));
+		}
+
+		return path;
+	}
+
+	/**
+	 * @return Link URNs of the fixture topology, e.g. to build GUI endpoint lists.
+	 */
+	public static List<String> linkURNs(String domainID, int numPorts)
+	{
+		List<String> urns = new ArrayList<String>(numPorts);
+
+		for(int p = 0; p < numPorts; p++)
+			urns.add(linkURN(domainID, p / portsPerNode, p % portsPerNode));
+
+		return urns;
+	}
+
+	private static CtrlPlaneHopContent hop(String linkURN)
+	{
+		CtrlPlaneLinkContent link = new CtrlPlaneLinkContent();
+		link.setId(linkURN);
+
+		CtrlPlaneHopContent hop = new CtrlPlaneHopContent();
+		hop.setLink(link);
+
+		return hop;
+	}
+
+	private static String linkURN(String domainID, int node, int port)
+	{
+		return "urn:ogf:network:domain=" + domainID + ":node=" + nodeName(node) + ":port=" + portName(port) + ":link=" + linkName(port);
+	}
+
+	private static String nodeName(int node)
+	{
+		return "rtr" + node + "-cr5";
+	}
+
+	private static String portName(int port)
+	{
+		return (port / 4) + "/" + (port % 4) + "/0";
+	}
+
+	private static String linkName(int port)
+	{
+		return "xe-" + (port / 4) + "_" + (port % 4) + "_0.0";
+	}
+}
@@ -0,0 +1,74 @@
+package topology;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneTopologyContent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/***********************************************************************************************************************
+* What every topology (re)load costs once TopoBridge has answered: flattening the CtrlPlane objects into a TopologyIndex,
+* building the GUI endpoint list from it, and diffing it against the previous snapshot.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TopologyFlatteningBenchmark
+{
+	private static final String domainID = "es.net";
+
+	@Param({"1000", "5000", "20000"})
+	public int numPorts;
+
+	private CtrlPlaneTopologyContent topology;
+	private TopologyIndex flattened;
+	private TopologyIndex previous;
+
+	@Setup
+	public void buildTopology()
+	{
+		topology = TopologyFixtures.topology(domainID, numPorts);
+
+		flattened = new TopologyIndex();
+		TopologyLoader.addTopology(flattened, topology);
+
+		// Same topology without its last node, so the diff finds TopologyFixtures.portsPerNode added links //
+		previous = TopologyFixtures.index(domainID, numPorts - TopologyFixtures.portsPerNode);
+	}
+
+	@Benchmark
+	public TopologyIndex flatten()
+	{
+		TopologyIndex index = new TopologyIndex();
+		TopologyLoader.addTopology(index, topology);
+
+		return index;
+	}
+
+	@Benchmark
+	public ArrayList<String> displayNames()
+	{
+		return flattened.getDisplayNames(domainID);
+	}
+
+	@Benchmark
+	public TopologyDiff diff()
+	{
+		return TopologyDiff.compute(previous, flattened);
+	}
+}
@@ -0,0 +1,140 @@
+package loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.CloseReason;
+import javax.websocket.DeploymentException;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+import javax.websocket.WebSocketContainer;
+
+/***********************************************************************************************************************
+* One WebSocket session to MultiPathReservationsServer, bound to one action.
+*
+* The server takes the action (and its parameters) from the session URL and performs it for every message received,
+* so an operator keeps one session per action it uses and "performs" an action by sending an empty message on it.
+* Every action used by the load test replies with exactly one message, and a session's messages are handled in order,
+* so replies are matched to requests first-in first-out.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class ActionConnection extends Endpoint
+{
+	private static final String closedMarker = "\u0000closed";
+
+	private final String action;
+	private final BlockingQueue<String> replies = new LinkedBlockingQueue<String>();
+	private Session session;
+	private int unanswered = 0;				// Requests that timed out, their replies are skipped when they arrive
+
+	/*********************************************************************************************************************************************************
+	* Opens the session and waits for the user state the server sends on every connect.
+	*
+	* @param container
+	* @param sessionURI, e.g. ws://localhost:8080/OSCARS_MPC/Reservations/loadtest-1?action=listMPGris
+	* @param action, For reporting.
+	* @param timeoutMillis, How long to wait for the connection and its greeting.
+	*********************************************************************************************************************************************************/
+	public ActionConnection(WebSocketContainer container, URI sessionURI, String action, long timeoutMillis) throws IOException, DeploymentException, TimeoutException, InterruptedException
+	{
+		this.action = action;
+
+		container.connectToServer(this, ClientEndpointConfig.Builder.create().build(), sessionURI);
+		awaitReply(timeoutMillis);		// userState
+	}
+
+	public String getAction()
+	{
+		return action;
+	}
+
+	public void onOpen(Session session, EndpointConfig config)
+	{
+		this.session = session;
+
+		session.addMessageHandler(new MessageHandler.Whole<String>()
+		{
+			public void onMessage(String message)
+			{
+				replies.add(message);
+			}
+		});
+	}
+
+	public void onClose(Session session, CloseReason closeReason)
+	{
+		replies.add(closedMarker);
+	}
+
+	public void onError(Session session, Throwable thr)
+	{
+		replies.add(closedMarker);
+	}
+
+	/*********************************************************************************************************************************************************
+	* Performs the session's action once.
+	*
+	* @param timeoutMillis
+	* @return The server's reply.
+	* @throws TimeoutException if there was no reply in time. The late reply is skipped by later calls.
+	* @throws IOException if the session is closed.
+	*********************************************************************************************************************************************************/
+	public String perform(long timeoutMillis) throws IOException, TimeoutException, InterruptedException
+	{
+		session.getBasicRemote().sendText("");
+
+		return awaitReply(timeoutMillis);
+	}
+
+	public boolean isOpen()
+	{
+		return session != null && session.isOpen();
+	}
+
+	public void close()
+	{
+		try
+		{
+			if(session != null)
+				session.close();
+		}
+		catch(IOException e)
+		{
+		}
+	}
+
+	private String awaitReply(long timeoutMillis) throws IOException, TimeoutException, InterruptedException
+	{
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		while(true)
+		{
+			String reply = replies.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+			if(reply == null)
+			{
+				unanswered++;
+				throw new TimeoutException(action + ": no reply after " + timeoutMillis + "ms");
+			}
+
+			if(reply == closedMarker)
+			{
+				replies.add(closedMarker);		// Fail every later call too
+				throw new IOException(action + ": session closed by the server");
+			}
+
+			if(unanswered == 0)
+				return reply;
+
+			unanswered--;		// Late reply to a request that already timed out
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/***********************************************************************************************************************
+* Weighted mix of the MultiPathReservationsServer actions an operator performs, e.g.
+*
+* 		listMPGris=40,listUniGRIs=20,listForSelectedMPGRI=20,queryMPReservation=15,createMPReservation=5
+*
+* Weights are relative; an action with weight 0 (or left out) is never performed.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class ActionMix
+{
+	public static final List<String> supportedActions = Collections.unmodifiableList(Arrays.asList(
+		"listMPGris", "listUniGRIs", "listForSelectedMPGRI", "queryMPReservation", "createMPReservation"));
+
+	public static final String defaultMix = "listMPGris=40,listUniGRIs=20,listForSelectedMPGRI=20,queryMPReservation=15,createMPReservation=5";
+
+	private final List<String> actions = new ArrayList<String>();
+	private final List<Integer> cumulativeWeights = new ArrayList<Integer>();
+	private int totalWeight = 0;
+
+	/**
+	 * @throws IllegalArgumentException on unknown actions, malformed weights or an empty mix.
+	 */
+	public ActionMix(String mix)
+	{
+		for(String oneEntry : mix.split(","))
+		{
+			String[] actionWeight = oneEntry.trim().split("=");
+
+			if(actionWeight.length != 2 || !supportedActions.contains(actionWeight[0]))
+				throw new IllegalArgumentException("Bad action mix entry '" + oneEntry + "', expected <action>=<weight> with action one of " + supportedActions);
+
+			int weight = Integer.parseInt(actionWeight[1]);
+
+			if(weight <= 0)
+				continue;
+
+			totalWeight += weight;
+			actions.add(actionWeight[0]);
+			cumulativeWeights.add(totalWeight);
+		}
+
+		if(totalWeight == 0)
+			throw new IllegalArgumentException("Action mix '" + mix + "' does not contain any action");
+	}
+
+	/**
+	 * @return Every action with a non-zero weight.
+	 */
+	public List<String> getActions()
+	{
+		return actions;
+	}
+
+	public boolean contains(String action)
+	{
+		return actions.contains(action);
+	}
+
+	/**
+	 * @return An action drawn according to the weights.
+	 */
+	public String next()
+	{
+		int draw = ThreadLocalRandom.current().nextInt(totalWeight);
+
+		for(int a = 0; a < actions.size(); a++)
+		{
+			if(draw < cumulativeWeights.get(a))
+				return actions.get(a);
+		}
+
+		return actions.get(actions.size() - 1);
+	}
+
+	public String toString()
+	{
+		StringBuilder mix = new StringBuilder();
+
+		for(int a = 0; a < actions.size(); a++)
+		{
+			int weight = cumulativeWeights.get(a) - ((a == 0) ? 0 : cumulativeWeights.get(a - 1));
+			mix.append((a == 0) ? "" : ",").append(actions.get(a)).append('=').append(weight);
+		}
+
+		return mix.toString();
+	}
+}
@@ -0,0 +1,84 @@
+package loadtest;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import metrics.LatencyHistogram;
+
+/***********************************************************************************************************************
+* Latencies and outcomes of one action across all operators. Shared by the operator threads.
+*
+* An action is:
+* 	- ok:		The server replied (for creates: with a GRI).
+* 	- rejected:	The server replied but did not do the work (a create without GRI: OSCARS unavailable or bulkhead full).
+* 	- timeout:	No reply within the timeout.
+* 	- error:	The session failed (closed by the server, connection lost).
+* Latencies of ok and rejected actions are recorded.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class ActionStats
+{
+	private final String action;
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder timeouts = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+
+	public ActionStats(String action)
+	{
+		this.action = action;
+	}
+
+	public String getAction()
+	{
+		return action;
+	}
+
+	public void recordReply(long latencyNanos, boolean accepted)
+	{
+		latencies.recordNanos(latencyNanos);
+
+		if(!accepted)
+			rejected.increment();
+	}
+
+	public void recordTimeout()
+	{
+		timeouts.increment();
+	}
+
+	public void recordError()
+	{
+		errors.increment();
+	}
+
+	public LatencyHistogram getLatencies()
+	{
+		return latencies;
+	}
+
+	public long getReplies()
+	{
+		return latencies.getCount();
+	}
+
+	public long getOk()
+	{
+		return latencies.getCount() - rejected.sum();
+	}
+
+	public long getRejected()
+	{
+		return rejected.sum();
+	}
+
+	public long getTimeouts()
+	{
+		return timeouts.sum();
+	}
+
+	public long getErrors()
+	{
+		return errors.sum();
+	}
+}
@@ -0,0 +1,345 @@
+package loadtest;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.websocket.ContainerProvider;
+import javax.websocket.WebSocketContainer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import metrics.LatencyHistogram;
+
+/***********************************************************************************************************************
+* Load generator for MultiPathReservationsServer: opens the WebSocket sessions of N concurrent operators, has them
+* replay an action mix at a target rate for a fixed time, and reports throughput and latency percentiles per action.
+*
+* Usage (or scripts/loadTest.sh with the same options):
+*
+* 		java -jar loadtest.jar [--url ws://localhost:8080/OSCARS_MPC] [--operators 10] [--duration 60] [--rampup 10]
+* 							   [--rate 0] [--mix listMPGris=40,...] [--timeout 60] [--report loadtest-report.txt]
+* 							   [--src "ALBU : port-1 : link1"] [--dst "WASH : port-1 : link1"] [--bandwidth 25]
+* 							   [--paths 2] [--length +0:1:0] [--seed 4]
+*
+* 	- rate:		Actions per second over all operators, 0 to send each operator's next action as soon as the last is answered.
+* 	- mix:		See ActionMix.
+* 	- src/dst:	Endpoints of created reservations, in GUI display format.
+* 	- length:	Duration of created reservations, '+days:hours:minutes'.
+* 	- seed:		Reservations created before the test if queries/selections are in the mix and none exist yet.
+*
+* To test one MPC instance without a real IDC, run it against the OSCARS simulator, e.g. start Tomcat with
+* CATALINA_OPTS="-Dmpc.oscarsURL=sim://es.net -Dmpc.topoBridgeURL=sim://es.net -Dmpc.pollIntervalMillis=200".
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class LoadTest
+{
+	private static final int maxLoggedFailures = 20;
+
+	private String serverURL = "ws://localhost:8080/OSCARS_MPC";
+	private int operators = 10;
+	private int durationSeconds = 60;
+	private int rampUpSeconds = 10;
+	private double rate = 0;
+	private ActionMix mix = new ActionMix(ActionMix.defaultMix);
+	private long timeoutMillis = 60000;
+	private String reportFile = "loadtest-report.txt";
+	private String source = "ALBU : port-1 : link1";
+	private String destination = "WASH : port-1 : link1";
+	private int bandwidth = 25;
+	private int paths = 2;
+	private String duration = "+0:1:0";
+	private int seedReservations = 4;
+
+	private final Map<String, ActionStats> stats = new LinkedHashMap<String, ActionStats>();
+	private final AtomicInteger failures = new AtomicInteger();
+	private List<String> mpGRIs = Collections.emptyList();
+	private long endNanos;
+
+	public static void main(String[] args) throws Exception
+	{
+		LoadTest test = new LoadTest();
+
+		try
+		{
+			test.parseArguments(args);
+		}
+		catch(IllegalArgumentException e)
+		{
+			System.err.println(e.getMessage());
+			System.err.println("Usage: see loadtest.LoadTest");
+			System.exit(2);
+		}
+
+		String report = test.run();
+
+		System.out.println(report);
+
+		try(PrintWriter out = new PrintWriter(new FileWriter(test.reportFile)))
+		{
+			out.print(report);
+		}
+
+		System.out.println("Report written to " + test.reportFile);
+		System.exit(0);		// The WebSocket container's threads are not daemons
+	}
+
+	private void parseArguments(String[] args)
+	{
+		for(int a = 0; a < args.length; a += 2)
+		{
+			if(a + 1 >= args.length)
+				throw new IllegalArgumentException("Missing value for " + args[a]);
+
+			String value = args[a + 1];
+
+			switch(args[a])
+			{
+				case "--url":		serverURL = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;	break;
+				case "--operators":	operators = Integer.parseInt(value);		break;
+				case "--duration":	durationSeconds = Integer.parseInt(value);	break;
+				case "--rampup":	rampUpSeconds = Integer.parseInt(value);	break;
+				case "--rate":		rate = Double.parseDouble(value);			break;
+				case "--mix":		mix = new ActionMix(value);					break;
+				case "--timeout":	timeoutMillis = Long.parseLong(value) * 1000;	break;
+				case "--report":	reportFile = value;							break;
+				case "--src":		source = value;								break;
+				case "--dst":		destination = value;						break;
+				case "--bandwidth":	bandwidth = Integer.parseInt(value);		break;
+				case "--paths":		paths = Integer.parseInt(value);			break;
+				case "--length":	duration = value;							break;
+				case "--seed":		seedReservations = Integer.parseInt(value);	break;
+				default:			throw new IllegalArgumentException("Unknown option " + args[a]);
+			}
+		}
+
+		if(operators < 1 || durationSeconds < 1)
+			throw new IllegalArgumentException("--operators and --duration must be at least 1");
+	}
+
+	/*********************************************************************************************************************************************************
+	* Runs the whole test: finds (or creates) reservations to query, starts the operators, waits for them to finish.
+	*
+	* @return The report.
+	*********************************************************************************************************************************************************/
+	private String run() throws Exception
+	{
+		WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+		container.setDefaultMaxSessionIdleTimeout(0);
+
+		stats.put("connect", new ActionStats("connect"));
+		for(String oneAction : mix.getActions())
+			stats.put(oneAction, new ActionStats(oneAction));
+
+		prepareReservations(container);
+
+		System.out.println("Load test of " + serverURL + ": " + operators + " operators, " + durationSeconds + "s (+" + rampUpSeconds + "s ramp-up), "
+				+ ((rate > 0) ? rate + " actions/s" : "closed loop") + ", mix " + mix);
+
+		long startNanos = System.nanoTime();
+		long intervalNanos = (rate > 0) ? (long)(operators * 1e9 / rate) : 0;
+		endNanos = startNanos + TimeUnit.SECONDS.toNanos(rampUpSeconds + durationSeconds);
+
+		ExecutorService operatorThreads = Executors.newFixedThreadPool(operators);
+
+		for(int o = 0; o < operators; o++)
+		{
+			long operatorStart = startNanos + TimeUnit.SECONDS.toNanos(rampUpSeconds) * o / operators;
+			operatorThreads.execute(new VirtualOperator(this, container, o + 1, operatorStart, intervalNanos));
+		}
+
+		operatorThreads.shutdown();
+
+		while(!operatorThreads.awaitTermination(10, TimeUnit.SECONDS))
+		{
+			long elapsedSeconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos);
+			System.out.println("  " + elapsedSeconds + "s: " + totalReplies() + " replies, " + failures.get() + " failures");
+
+			// Operators stuck waiting on replies past the end of the test (plus one timeout) are abandoned //
+			if(System.nanoTime() > endNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) + TimeUnit.SECONDS.toNanos(10))
+			{
+				operatorThreads.shutdownNow();
+				break;
+			}
+		}
+
+		return report(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Makes sure there are MP reservations for queries and selections to work on.
+	 */
+	private void prepareReservations(WebSocketContainer container) throws Exception
+	{
+		if(!mix.contains("queryMPReservation") && !mix.contains("listForSelectedMPGRI"))
+			return;
+
+		mpGRIs = listMPGRIs(container);
+
+		if(mpGRIs.isEmpty() && seedReservations > 0)
+		{
+			System.out.println("No MP reservations yet, creating " + seedReservations + " from " + source + " to " + destination);
+
+			ActionConnection creator = new ActionConnection(container, URI.create(serverURL + "/Reservations/loadtest-setup?action=createMPReservation"
+					+ "&src=" + VirtualOperator.encode(source) + "&dst=" + VirtualOperator.encode(destination)
+					+ "&start=now&end=" + VirtualOperator.encode(duration) + "&bandwidth=" + bandwidth + "&paths=" + paths), "createMPReservation", timeoutMillis);
+
+			for(int s = 0; s < seedReservations; s++)
+				creator.perform(timeoutMillis);
+
+			creator.close();
+			mpGRIs = listMPGRIs(container);
+		}
+
+		if(mpGRIs.isEmpty())
+			throw new IllegalStateException("There are no MP reservations to query or select, create some or use --seed");
+	}
+
+	private List<String> listMPGRIs(WebSocketContainer container) throws Exception
+	{
+		ActionConnection lister = new ActionConnection(container, URI.create(serverURL + "/Reservations/loadtest-setup?action=listMPGris"), "listMPGris", timeoutMillis);
+
+		try
+		{
+			List<String> gris = new ArrayList<String>();
+
+			for(JsonNode oneGRI : new ObjectMapper().readTree(lister.perform(timeoutMillis)))
+				gris.add(oneGRI.asText());
+
+			return gris;
+		}
+		finally
+		{
+			lister.close();
+		}
+	}
+
+	/*********************************************************************************************************************************************************
+	* Formats the results: one line per action with its outcomes, throughput and latency percentiles (in ms).
+	*
+	* @param elapsedNanos, Wall time of the test, including ramp-up.
+	*********************************************************************************************************************************************************/
+	private String report(long elapsedNanos)
+	{
+		double elapsedSeconds = elapsedNanos / 1e9;
+		StringBuilder report = new StringBuilder();
+
+		report.append("MPC load test report, ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date())).append('\n');
+		report.append("server=").append(serverURL).append(" operators=").append(operators).append(" duration=").append(durationSeconds)
+			  .append("s rampup=").append(rampUpSeconds).append("s rate=").append((rate > 0) ? Double.toString(rate) : "closed-loop")
+			  .append(" timeout=").append(timeoutMillis / 1000).append("s\n");
+		report.append("mix=").append(mix).append('\n');
+		report.append(String.format("elapsed=%.1fs, %d MP reservations to query/select%n%n", elapsedSeconds, mpGRIs.size()));
+
+		report.append(String.format("%-22s %8s %8s %8s %8s %9s %9s %9s %9s %9s %9s %9s%n",
+				"action", "ok", "rejected", "timeout", "error", "ops/s", "mean", "p50", "p90", "p99", "p99.9", "max"));
+
+		for(ActionStats oneAction : stats.values())
+		{
+			LatencyHistogram latencies = oneAction.getLatencies();
+			long replies = oneAction.getReplies();
+
+			report.append(String.format("%-22s %8d %8d %8d %8d %9.2f %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+					oneAction.getAction(), oneAction.getOk(), oneAction.getRejected(), oneAction.getTimeouts(), oneAction.getErrors(),
+					replies / elapsedSeconds,
+					(replies == 0) ? 0.0 : latencies.getSumMicros() / 1000.0 / replies,
+					latencies.getQuantileMicros(0.50) / 1000.0, latencies.getQuantileMicros(0.90) / 1000.0,
+					latencies.getQuantileMicros(0.99) / 1000.0, latencies.getQuantileMicros(0.999) / 1000.0,
+					latencies.getMaxMicros() / 1000.0));
+		}
+
+		report.append(String.format("%nLatencies in ms, %s. ok/rejected/timeout/error: see loadtest.ActionStats.%n",
+				(rate > 0) ? "from the scheduled send time" : "from the send time"));
+
+		return report.toString();
+	}
+
+	private long totalReplies()
+	{
+		long replies = 0;
+
+		for(ActionStats oneAction : stats.values())
+			replies += oneAction.getReplies();
+
+		return replies;
+	}
+
+	void logFailure(String failure)
+	{
+		int count = failures.incrementAndGet();
+
+		if(count <= maxLoggedFailures)
+			System.err.println("  " + failure);
+		else if(count == maxLoggedFailures + 1)
+			System.err.println("  (further failures are only counted)");
+	}
+
+	ActionStats getStats(String action)
+	{
+		return stats.get(action);
+	}
+
+	ActionMix getMix()
+	{
+		return mix;
+	}
+
+	List<String> getMPGRIs()
+	{
+		return mpGRIs;
+	}
+
+	long getEndNanos()
+	{
+		return endNanos;
+	}
+
+	long getTimeoutMillis()
+	{
+		return timeoutMillis;
+	}
+
+	String getServerURL()
+	{
+		return serverURL;
+	}
+
+	String getSource()
+	{
+		return source;
+	}
+
+	String getDestination()
+	{
+		return destination;
+	}
+
+	String getDuration()
+	{
+		return duration;
+	}
+
+	int getBandwidth()
+	{
+		return bandwidth;
+	}
+
+	int getPaths()
+	{
+		return paths;
+	}
+}
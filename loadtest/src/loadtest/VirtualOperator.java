@@ -0,0 +1,198 @@
+package loadtest;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.websocket.WebSocketContainer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/***********************************************************************************************************************
+* One simulated operator: a user with its own sessions to MultiPathReservationsServer, performing actions drawn from
+* the ActionMix until the test ends.
+*
+* With a target rate, actions are scheduled at fixed intervals and latency is measured from the scheduled time, so an
+* operator that falls behind a slow server reports the queueing delay instead of silently lowering the rate. Without a
+* target rate (closed loop) the next action is sent as soon as the previous one is answered.
+*
+* Queries and selections are made on an MP-GRI picked at random from the existing reservations when the operator
+* connects, since the server reads the GRI from the session URL.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class VirtualOperator implements Runnable
+{
+	private static final ObjectMapper mapper = new ObjectMapper();
+
+	private final LoadTest test;
+	private final WebSocketContainer container;
+	private final String username;
+	private final long startNanos;
+	private final long intervalNanos;			// 0 for closed loop
+
+	private final Map<String, ActionConnection> connections = new HashMap<String, ActionConnection>();
+
+	public VirtualOperator(LoadTest test, WebSocketContainer container, int operator, long startNanos, long intervalNanos)
+	{
+		this.test = test;
+		this.container = container;
+		this.username = "loadtest-" + operator;
+		this.startNanos = startNanos;
+		this.intervalNanos = intervalNanos;
+	}
+
+	public void run()
+	{
+		try
+		{
+			sleepUntil(startNanos);		// Ramp-up
+
+			for(String oneAction : test.getMix().getActions())
+				connect(oneAction);
+
+			long scheduled = System.nanoTime();
+
+			while(scheduled < test.getEndNanos() && !Thread.currentThread().isInterrupted())
+			{
+				if(intervalNanos > 0)
+					sleepUntil(scheduled);
+				else
+					scheduled = System.nanoTime();
+
+				perform(test.getMix().next(), scheduled);
+
+				scheduled += intervalNanos;
+			}
+		}
+		catch(InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			for(ActionConnection oneConnection : connections.values())
+				oneConnection.close();
+		}
+	}
+
+	/**
+	 * Opens the session of one action, counting a failure as an error of that action.
+	 */
+	private void connect(String action) throws InterruptedException
+	{
+		long sent = System.nanoTime();
+
+		try
+		{
+			connections.put(action, new ActionConnection(container, sessionURI(action), action, test.getTimeoutMillis()));
+			test.getStats("connect").recordReply(System.nanoTime() - sent, true);
+		}
+		catch(TimeoutException te)
+		{
+			test.getStats("connect").recordTimeout();
+		}
+		catch(Exception e)
+		{
+			test.getStats("connect").recordError();
+			test.logFailure(username + " could not connect " + action + ": " + e);
+		}
+	}
+
+	private void perform(String action, long scheduled) throws InterruptedException
+	{
+		ActionStats stats = test.getStats(action);
+		ActionConnection connection = connections.get(action);
+
+		if(connection == null || !connection.isOpen())
+		{
+			stats.recordError();
+			connections.remove(action);
+			connect(action);		// Try again for the next time this action comes up
+			return;
+		}
+
+		try
+		{
+			String reply = connection.perform(test.getTimeoutMillis());
+			stats.recordReply(System.nanoTime() - scheduled, isAccepted(action, reply));
+		}
+		catch(TimeoutException te)
+		{
+			stats.recordTimeout();
+		}
+		catch(IOException e)
+		{
+			stats.recordError();
+			test.logFailure(username + " " + action + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return Did the server do the work? Only creates can be turned away with a reply.
+	 */
+	private static boolean isAccepted(String action, String reply)
+	{
+		if(!action.equals("createMPReservation"))
+			return true;
+
+		try
+		{
+			JsonNode created = mapper.readTree(reply).get(0);
+			return created != null && !created.path("gri").asText("").isEmpty();
+		}
+		catch(IOException e)
+		{
+			return false;
+		}
+	}
+
+	private URI sessionURI(String action)
+	{
+		StringBuilder uri = new StringBuilder(test.getServerURL()).append("/Reservations/").append(username).append("?action=").append(action);
+
+		if(action.equals("queryMPReservation") || action.equals("listForSelectedMPGRI"))
+		{
+			List<String> mpGRIs = test.getMPGRIs();
+			uri.append("&MPGRI=").append(encode(mpGRIs.get(ThreadLocalRandom.current().nextInt(mpGRIs.size()))));
+		}
+		else if(action.equals("createMPReservation"))
+		{
+			uri.append("&src=").append(encode(test.getSource()))
+			   .append("&dst=").append(encode(test.getDestination()))
+			   .append("&start=now&end=").append(encode(test.getDuration()))
+			   .append("&bandwidth=").append(test.getBandwidth())
+			   .append("&paths=").append(test.getPaths());
+		}
+
+		return URI.create(uri.toString());
+	}
+
+	static String encode(String value)
+	{
+		try
+		{
+			return URLEncoder.encode(value, "UTF-8");
+		}
+		catch(UnsupportedEncodingException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void sleepUntil(long nanoTime) throws InterruptedException
+	{
+		long remaining = nanoTime - System.nanoTime();
+
+		if(remaining > 0)
+			TimeUnit.NANOSECONDS.sleep(remaining);
+	}
+}
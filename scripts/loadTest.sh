@@ -0,0 +1,17 @@
+#!/bin/sh
+# usage: loadTest.sh [--url ws://localhost:8080/OSCARS_MPC] [--operators N] [--duration s] [--rate actions/s] [--mix ...] ...
+#
+# Runs the MultiPathReservationsServer load generator (see loadtest/src/loadtest/LoadTest.java for all options).
+# Build it first:  mvn install && mvn -f loadtest/pom.xml package
+#
+# To load-test without a real IDC, start the MPC's Tomcat against the OSCARS simulator:
+#   CATALINA_OPTS="-Dmpc.oscarsURL=sim://es.net -Dmpc.topoBridgeURL=sim://es.net -Dmpc.pollIntervalMillis=200" catalina.sh run
+
+LOADTEST_JAR="$(dirname "$0")/../loadtest/target/loadtest.jar"
+
+if [ ! -f "$LOADTEST_JAR" ]; then
+	echo "$LOADTEST_JAR not found, build it with: mvn install && mvn -f loadtest/pom.xml package"
+	exit 1
+fi
+
+exec java ${LOADTEST_OPTS:--Xmx1g} -jar "$LOADTEST_JAR" "$@"
@@ -24,7 +24,7 @@ CREATE TABLE IF NOT EXISTS users (
 
 CREATE TABLE IF NOT EXISTS userState (	
 	id		INT NOT NULL AUTO_INCREMENT,
-	username	TEXT NOT NULL,
+	username	TEXT NOT NULL, UNIQUE INDEX USING BTREE(username(20)),
 	showAll		BOOLEAN NOT NULL,
 	selection	TEXT,
 	PRIMARY KEY (id),
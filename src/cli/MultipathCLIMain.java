@@ -1,19 +1,24 @@
 package cli;
 import java.io.File;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.log4j.PropertyConfigurator;
 
+import logging.Log;
+
 import net.es.oscars.api.soap.gen.v06.ResDetails;
 import net.es.oscars.utils.config.ConfigHelper;
 
 import multipath.AnycastHandler;
 import multipath.MultipathOSCARSClient;
+import multipath.ReservationColumns;
 import multipath.SubrequestTuple;
 import config.Configuration;
+import request.ReservationRequest;
+import request.ReservationRequestParser;
+import request.ValidationResult;
 
 /**
  * @author Jeremy, some portions trimmed down and re-purposed from OSCARS api test file IDCTest.java
@@ -27,10 +32,12 @@ import config.Configuration;
 public class MultipathCLIMain 
 {
 	private static MultipathOSCARSClient multipathClient;
+	private static final ReservationRequestParser requestParser = new ReservationRequestParser(Configuration.topologyDomain);
 	
 	public static void main(String args[])
 	{
 		PropertyConfigurator.configure("lib/log4j.properties");	// Eliminate Logger warnings.
+		Log.configureConsole();									// Print MPC status messages as they used to be
 		
 		String oscarsURL = Configuration.oscarsURL;	//Where is the instance of OSCARS this client will use?
 		
@@ -110,9 +117,13 @@ public class MultipathCLIMain
 		
 		if(!start.equals("") && !end.equals(""))
 		{
-			long[] times = parseTimes(start, end);
-			startTime = times[0];
-			endTime = times[1];
+			ValidationResult<long[]> times = requestParser.parseTimes(start, end);
+			
+			if(!times.isValid())
+				die(String.join("\n", times.getErrors()));
+			
+			startTime = times.getValue()[0];
+			endTime = times.getValue()[1];
 		}
 		
 		multipathClient.modifyMPReservation(gri, description, bandwidth, startTime, endTime);
@@ -121,12 +132,15 @@ public class MultipathCLIMain
 	/* Invoke listUnicastByStatus call in MultipathOSCARSClient, and prints output appropriately */	
 	private static void invokeListUnicast(ArrayList<String> statusesToList)
 	{
-		List<ResDetails> listResults = multipathClient.listUnicastByStatus(statusesToList);
+		ReservationColumns listResults = multipathClient.listUnicastColumns(statusesToList);
+		
+		if(listResults == null)
+			die("Error listing reservations.");
 		
-		for(ResDetails oneListItem : listResults)
+		for(int row = 0; row < listResults.size(); row++)
 		{
-			System.out.println("\nGRI: " + oneListItem.getGlobalReservationId());
-			System.out.println("Status: " + oneListItem.getStatus());
+			System.out.println("\nGRI: " + listResults.getGri(row));
+			System.out.println("Status: " + listResults.getStatus(row));
 		}
 	}
 	
@@ -187,19 +201,22 @@ public class MultipathCLIMain
 		
 		boolean isSrcTagged = true;
 		boolean isDstTagged = true;
-				
-		long[] startAndEndTimes = parseTimes(startTime, endTime);
-		long startTimestamp = startAndEndTimes[0];
-		long endTimestamp = startAndEndTimes[1];
 		
-		if(destURN.contains("node=anycast"))
+		ValidationResult<ReservationRequest> parsed = requestParser.parse(description, sourceURN, destURN, startTime, endTime, String.valueOf(bandwidth), String.valueOf(mpNumPaths));
+		
+		if(!parsed.isValid())
+			die(String.join("\n", parsed.getErrors()));
+		
+		ReservationRequest request = parsed.getValue();
+		
+		if(request.isAnycast())
 		{
 			AnycastHandler handler = new AnycastHandler(multipathClient);
-			gri = handler.handleAnycastRequest(description, sourceURN, isSrcTagged, srcVLAN, destURN, isDstTagged, destVLAN, bandwidth, pathSetupMode, startTimestamp, endTimestamp, mpNumPaths);
+			gri = handler.handleAnycastRequest(request.getDescription(), request.getSource().toString(), isSrcTagged, srcVLAN, request.getDestination().toString(), isDstTagged, destVLAN, request.getBandwidth(), pathSetupMode, request.getStartTime(), request.getEndTime(), request.getNumDisjointPaths());
 		}
 		else
 		{
-			gri = multipathClient.createMPReservation(description, sourceURN, isSrcTagged, srcVLAN, destURN, isDstTagged, destVLAN, bandwidth, pathSetupMode, startTimestamp, endTimestamp, mpNumPaths);
+			gri = multipathClient.createMPReservation(request.getDescription(), request.getSource().toString(), isSrcTagged, srcVLAN, request.getDestination().toString(), isDstTagged, destVLAN, request.getBandwidth(), pathSetupMode, request.getStartTime(), request.getEndTime(), request.getNumDisjointPaths());
 		}
 		return gri;
 		
@@ -328,88 +345,6 @@ public class MultipathCLIMain
 	}
 	
 	
-	/* Convert readable date string-format to long-format compatible with OSCARS */	
-	private static long[] parseTimes(String start_time, String end_time) 
-	{     
-        Long startTime = 0L;
-        Long endTime = 0L;
-        
-        SimpleDateFormat date = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-        
-        // Convert start time into Long format for OSCARS to read //
-        if (start_time == null || start_time.equals("now")) 
-        {
-        	startTime = System.currentTimeMillis()/1000;
-        } 
-        else if(start_time.equals(""))
-        {
-        	; // Do nothing -- Let MultipathOSCARSClient deal with this (for modify)
-        }
-        else 
-        {
-            try 
-            {
-                startTime = date.parse(start_time.trim()).getTime()/1000;
-            } 
-            catch (java.text.ParseException ex) 
-            {
-                System.err.println("Error parsing start date: "+ ex.getMessage());
-                System.exit(-1);
-            }
-        }
-
-        // Convert end time into Long format for OSCARS to read //
-        if (end_time == null || end_time.equals("")) 
-        {
-            ;	// Do nothing -- Let MultipathOSCARSClient deal with this
-        } 
-        else if (end_time.startsWith("+"))		// Offset from start time 
-        {
-            String[] hm = end_time.substring(1).split("\\:");
-            
-            if (hm.length != 3) 
-            {
-            	System.err.println("Error parsing end date.");
-                System.exit(-1);
-            } 
-            
-            try 
-            {
-                Integer seconds = Integer.valueOf(hm[0])*3600*24; 	//days
-                seconds += Integer.valueOf(hm[1])*3600; 			// hours
-                seconds += Integer.valueOf(hm[2])*60; 				// minutes
-                
-                if (seconds < 60) 
-                {
-                	System.err.println("Duration must be > 60 sec");System.exit(-1);
-                }
-                
-                endTime = startTime + seconds;
-            } 
-            catch (NumberFormatException ex) 
-            {
-            	System.err.println("Error parsing end date format: "+ex.getMessage());
-            	System.exit(-1);
-            }
-        } 
-        else 	// regular end-time specification
-        {
-            try 
-            {
-                endTime = date.parse(end_time.trim()).getTime()/1000;
-            } 
-            catch (java.text.ParseException ex) 
-            {
-                System.err.println("Error parsing emd date: "+ex.getMessage());
-                System.exit(-1);
-            }
-        }
-        
-        long[] startEnd = {startTime.longValue(), endTime.longValue()};
-        
-        return startEnd;
-	}
-	
 	/* Parses the YAML file for invokeCreateMPReservation()
 	 * - More values might be listed in the YAML file, but this method gets only those necessary for basic Multipath reservation creation.
 	 * - Values parsed: 
@@ -0,0 +1,85 @@
+package concurrency;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import logging.Log;
+
+/***********************************************************************************************************************
+* Runs the tasks given to it one at a time and in order, on the threads of another executor. Used to hand the
+* messages of one WebSocket session to a shared executor while keeping replies in the order the messages arrived.
+*
+* No thread is held while the queue is empty. A task that throws is logged and does not stop the tasks after it.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class SerialExecutor implements Executor
+{
+	private static final Log log = Log.forClass(SerialExecutor.class);
+
+	private final Executor executor;
+	private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();		// Guarded by this
+	private boolean draining = false;										// Guarded by this
+
+	public SerialExecutor(Executor executor)
+	{
+		this.executor = executor;
+	}
+
+	public void execute(Runnable task)
+	{
+		synchronized(this)
+		{
+			tasks.add(task);
+
+			if(draining)
+				return;
+
+			draining = true;
+		}
+
+		try
+		{
+			executor.execute(this::drain);
+		}
+		catch(RuntimeException e)
+		{
+			synchronized(this)
+			{
+				tasks.clear();
+				draining = false;
+			}
+
+			throw e;
+		}
+	}
+
+	private void drain()
+	{
+		while(true)
+		{
+			Runnable next;
+
+			synchronized(this)
+			{
+				next = tasks.poll();
+
+				if(next == null)
+				{
+					draining = false;
+					return;
+				}
+			}
+
+			try
+			{
+				next.run();
+			}
+			catch(RuntimeException e)
+			{
+				log.error("Task failed: {}", e.getMessage(), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package concurrency;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import config.Configuration;
+import logging.Log;
+
+/***********************************************************************************************************************
+* Creates the executors that run blocking work: OSCARS calls of parallel subrequests, the *Async() operations, group
+* operations, subrequest polling and WebSocket message handling.
+*
+* On Java 21 and later (with Configuration.virtualThreads on) every task gets its own virtual thread, so thousands of
+* tasks blocked on OSCARS cost almost no platform threads. Otherwise, e.g. on Java 8, the same calls return the fixed
+* pools of daemon platform threads used before. Virtual threads are reached through reflection, so the code still
+* builds and runs on Java 8; the java21 Maven profile only changes the bytecode target.
+*
+* Note that OSCARS calls remain limited by Configuration.oscarsClientPoolSize however many threads wait for a client,
+* and that (before Java 24) a virtual thread blocking inside a synchronized block, e.g. on queryOutputLock, still holds
+* on to its carrier thread.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public final class TaskExecutors
+{
+	private static final Log log = Log.forClass(TaskExecutors.class);
+
+	private static final Method ofVirtual = lookup("java.lang.Thread", "ofVirtual");
+	private static final Method builderName = lookup("java.lang.Thread$Builder", "name", String.class, long.class);
+	private static final Method builderFactory = lookup("java.lang.Thread$Builder", "factory");
+	private static final Method newThreadPerTaskExecutor = lookup("java.util.concurrent.Executors", "newThreadPerTaskExecutor", ThreadFactory.class);
+
+	private static final boolean useVirtualThreads = Configuration.virtualThreads && ofVirtual != null && builderName != null && builderFactory != null && newThreadPerTaskExecutor != null;
+
+	static
+	{
+		if(useVirtualThreads)
+			log.info("Blocking OSCARS work runs on virtual threads");
+		else if(Configuration.virtualThreads)
+			log.info("Virtual threads are not available on Java {}, blocking OSCARS work runs on platform thread pools", System.getProperty("java.version"));
+	}
+
+	private TaskExecutors()
+	{
+	}
+
+	/**
+	 * @return Do the executors of this class run tasks on virtual threads?
+	 */
+	public static boolean isVirtual()
+	{
+		return useVirtualThreads;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Executor for blocking tasks.
+	*
+	* @param name, Name of the threads (virtual threads are numbered, e.g. "mpc-async-12")
+	* @param platformThreads, Size of the fixed pool of daemon threads used when virtual threads are not
+	* @return A virtual-thread-per-task executor, or a fixed pool of platformThreads daemon threads. Either must be shut down when no longer used,
+	* 		  unless it lives as long as the JVM.
+	*********************************************************************************************************************************************************/
+	public static ExecutorService newBlockingExecutor(String name, int platformThreads)
+	{
+		if(useVirtualThreads)
+		{
+			try
+			{
+				Object builder = builderName.invoke(ofVirtual.invoke(null), name + "-", 0L);
+				ThreadFactory factory = (ThreadFactory) builderFactory.invoke(builder);
+
+				return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+			}
+			catch(ReflectiveOperationException | RuntimeException e)
+			{
+				log.warn("Could not create virtual-thread executor {}, using platform threads: {}", name, e.toString());
+			}
+		}
+
+		return Executors.newFixedThreadPool(platformThreads, r ->
+		{
+			Thread platformThread = new Thread(r, name);
+			platformThread.setDaemon(true);
+			return platformThread;
+		});
+	}
+
+	private static Method lookup(String className, String methodName, Class<?>... parameterTypes)
+	{
+		try
+		{
+			return Class.forName(className).getMethod(methodName, parameterTypes);
+		}
+		catch(ReflectiveOperationException e)
+		{
+			return null;		// Not there before Java 21
+		}
+	}
+}
@@ -16,8 +16,58 @@ import net.es.oscars.client.OSCARSClientException;
 ***********************************************************************************************/
 public class Configuration 
 {
-	public final static String oscarsURL = "http://localhost:9001/OSCARS";
-	public final static String topoBridgeURL = "http://localhost:9019/topoBridge";
+	// Either may be overridden with -Dmpc.oscarsURL / -Dmpc.topoBridgeURL, e.g. "sim://es.net" to run against simulator.OSCARSSimulator //
+	public final static String oscarsURL = System.getProperty("mpc.oscarsURL", "http://localhost:9001/OSCARS");
+	public final static String topoBridgeURL = System.getProperty("mpc.topoBridgeURL", "http://localhost:9019/topoBridge");
+	public final static long pollIntervalMillis = Long.getLong("mpc.pollIntervalMillis", 5000);	// How often reservation status is polled while waiting on OSCARS
+	public final static int pollMaxFailures = 12;					// Consecutive failed queries (e.g. circuit open) before a polled subrequest is given up as UNKNOWN
+	public final static long pollTimeoutMillis = 1800000;			// Longest wait for a polled subrequest to reach a final state before it is given up as UNKNOWN
+	
+	// Defaults of the in-process OSCARS/TopoBridge stand-in, each overridable as a "sim://" URL parameter (see simulator.SimulatorSettings) //
+	public final static int simulatorNodes = 100;					// Nodes in the synthetic topology
+	public final static int simulatorEdgePortsPerNode = 5;			// Customer-facing ports per node (port-1..port-N)
+	public final static int simulatorLinkCapacityMbps = 10000;		// Reservable bandwidth of every link
+	public final static long simulatorCallMillis = 20;				// Median latency of every API call
+	public final static double simulatorCallJitter = 0.5;			// Spread of the (log-normal) latency distributions, 0 for fixed latencies
+	public final static long simulatorPathCalcMillis = 2000;		// Median time a reservation spends in INPATHCALCULATION
+	public final static long simulatorSetupMillis = 1000;			// Median time spent in INSETUP/INTEARDOWN/INMODIFY
+	public final static long simulatorCancelMillis = 500;			// Median time spent in INCANCEL
+	public final static double simulatorFailureRate = 0;			// Fraction of reservations that end up FAILED even though a path exists
+	public final static double simulatorFaultRate = 0;				// Fraction of calls answered with an OSCARSFaultMessage
+	public final static double simulatorErrorRate = 0;				// Fraction of calls failing in the transport (OSCARSClientException)
+	
+	// Pool of OSCARSClient (CXF proxy) instances shared by every MultipathOSCARSClient, one proxy per concurrent call //
+	public final static int oscarsClientPoolSize = Integer.getInteger("mpc.oscarsClientPoolSize", 8);	// Maximum number of OSCARS calls in flight at once
+	public final static int oscarsClientPoolMinIdle = 1;			// Clients created up front
+	public final static int oscarsClientBorrowTimeoutSeconds = 30;	// How long a call waits for a free client before failing
+	public final static int oscarsClientMaxAgeSeconds = 3600;		// Clients are rebuilt after this long
+	
+	// HTTP transport of every OSCARS and TopoBridge client (see transport.TransportTuner) //
+	public final static boolean transportKeepAlive = true;			// Reuse connections between calls
+	public final static boolean transportGzip = true;				// Ask for gzip-compressed replies
+	public final static boolean transportAllowChunking = true;		// Send requests with chunked transfer-encoding
+	public final static long transportConnectTimeoutMillis = 10000;
+	public final static long oscarsReceiveTimeoutMillis = 120000;		// A single OSCARS call never blocks its thread longer than this
+	public final static long topoBridgeReceiveTimeoutMillis = 180000;	// getTopology() replies are the largest payloads
+	
+	// Failing fast while OSCARS/TopoBridge are unhealthy (see transport.CircuitBreaker) //
+	public final static int circuitBreakerFailureThreshold = 5;	// Consecutive transport failures before calls are rejected
+	public final static int circuitBreakerOpenSeconds = 30;		// How long calls are rejected before a single probe call is let through
+	
+	// Concurrent OSCARS operations allowed per kind across all sessions (see service.Bulkhead) //
+	public final static int bulkheadCreateLimit = 4;
+	public final static int bulkheadQueryLimit = 16;
+	public final static int bulkheadListLimit = 4;
+	public final static int bulkheadCancelLimit = 4;
+	public final static long bulkheadWaitMillis = 2000;			// How long a request waits for a free slot before it is turned away
+	public final static int queryOutputCacheSize = 256;			// Query results kept to answer from while OSCARS is unavailable
+	
+	// Blocking work (subrequest fan-out, *Async() operations, polling, WebSocket messages) runs on virtual threads on Java 21+, see concurrency.TaskExecutors //
+	public final static boolean virtualThreads = Boolean.parseBoolean(System.getProperty("mpc.virtualThreads", "true"));	// -Dmpc.virtualThreads=false forces the platform pools
+	
+	// Platform threads of the MultipathOSCARSClient *Async() methods when virtual threads are not used. Waiting on OSCARS holds no thread (see multipath.SubrequestPoller) //
+	public final static int asyncThreads = 8;					// Individual OSCARS calls of asynchronous operations
+	public final static int asyncGroupThreads = 2;				// Group operations, which still poll on their thread
 			
 	public final static String keystoreClient = "/srv/LocalRepository/OSCARS_MPC/WebContent/WEB-INF/certs/client.jks";
 	public final static String keystoreClientUser = "mykey";
@@ -28,14 +78,36 @@ public class Configuration
 	
 	// Default OSCARS topology to use in GUI src/destination displays //
 	public final static String topologyDomain = "es.net";
+
+	// All OSCARS topologies loaded for the GUI src/destination displays (must include topologyDomain) //
+	public final static String[] topologyDomains = {"es.net"};
+	public final static int topologyLoaderThreads = 4;		// Maximum number of domains fetched from TopoBridge in parallel
+	public final static int topologyRefreshSeconds = 300;	// How often the topology is re-fetched and diffed against the previous snapshot
+	
+	// Number of anycast destinations evaluated (reserved, measured and cancelled) at the same time //
+	public final static int anycastParallelism = 4;
+	// Number of top-ranked anycast destinations probed in OSCARS when the topology ranking alone is not decisive (0 = always reserve the top-ranked one) //
+	public final static int anycastProbeCandidates = 2;
+	
+	// Number of reservations whose parsed reserved path is kept in memory (multipath.PathCache) //
+	public final static int pathCacheSize = 1024;
+	
+	// Tracing of user-level operations (trace package), viewable at /admin/traces //
+	public final static int traceBufferSize = 200;		// Finished traces kept in memory
+	public final static int traceMaxSpans = 2000;		// Spans kept per trace, later spans are only counted
 	
 	// There is really no reason to change these variables //
 	public final static String queryOutputFile = "/srv/LocalRepository/OSCARS_MPC/WebContent/WEB-INF/mp_query_out.txt";
 	public final static String mpGriTrackerFile = "/srv/LocalRepository/OSCARS_MPC/WebContent/WEB-INF/WEB-INF/mp_gri_tracker.txt";
-	public final static String mpGriLookupFile = "/srv/LocalRepository/OSCARS_MPC/WebContent/WEB-INF/mp_gri_lookup.txt";
+	public final static String mpGriLookupFile = System.getProperty("mpc.mpGriLookupFile", "/srv/LocalRepository/OSCARS_MPC/WebContent/WEB-INF/mp_gri_lookup.txt");	// -Dmpc.mpGriLookupFile, e.g. for a scratch table
 	public final static String mysqlLocation = "jdbc:mysql://localhost:3306";
 	public final static String mysqlUser = "mpcAdmin";
 	public final static String mysqlPassword ="mpcAdminPASS";
+
+	// Per-user UI state (userState table) is written behind: changes are coalesced in memory and flushed in batches //
+	public final static int userStateFlushSeconds = 10;		// How often dirty user states are written to MySQL
+	public final static int userStateCacheSize = 256;		// Number of disconnected users whose state is kept in memory for fast reconnects
+
 	/**
 	 * Constructor - Only needs to be called in MultipathOSCARSClient.		
 	 */
@@ -0,0 +1,45 @@
+package data.models;
+
+/**
+ * In-memory copy of one row of the mpcUsersDB.userState table.
+ * The selection is the comma-separated list of MP-GRIs the user currently has selected in the UI.
+ */
+public class UserState {
+
+	private String username;
+	private boolean showAll;
+	private String selection;
+
+	public UserState(String username)
+	{
+		this.username = username;
+		this.showAll = false;
+		this.selection = "";
+	}
+
+	public UserState(String username, boolean showAll, String selection)
+	{
+		this.username = username;
+		this.showAll = showAll;
+		this.selection = (selection == null) ? "" : selection;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+	public void setUsername(String username) {
+		this.username = username;
+	}
+	public boolean isShowAll() {
+		return showAll;
+	}
+	public void setShowAll(boolean showAll) {
+		this.showAll = showAll;
+	}
+	public String getSelection() {
+		return selection;
+	}
+	public void setSelection(String selection) {
+		this.selection = selection;
+	}
+}
@@ -0,0 +1,130 @@
+package datastructs;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/***********************************************************************************************************************
+* Query result of one unicast reservation (or MP subrequest), as sent to the browser, which renders it.
+*
+* Serialized with writeTo() straight onto the WebSocket writer:
+*
+* 	{"gri":"es.net-12","status":"ACTIVE","bandwidth":100,"startTime":1420070400,"endTime":1420074000,
+* 	 "hops":["urn:ogf:network:domain=es.net:node=ALBU:port=...:link=..", ...],"errors":[],"stale":false}
+*
+* bandwidth, startTime and endTime (epoch seconds) are only written for reservations with a reserved constraint.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class QueryResult
+{
+	public static final String unavailableStatus = "OSCARS_UNAVAILABLE";	// Status of a placeholder result: OSCARS can't be asked and there is nothing cached
+
+	private final String gri;
+	private final String status;
+	private final int bandwidth;				// Mbps, -1 if nothing is reserved
+	private final long startTime;
+	private final long endTime;
+	private final List<String> hops;			// URN of the first hop and of every hop entering a new node
+	private final List<String> errors;			// OSCARS error messages
+	private final boolean stale;				// From the cache, OSCARS could not be asked
+
+	public QueryResult(String gri, String status, int bandwidth, long startTime, long endTime, List<String> hops, List<String> errors, boolean stale)
+	{
+		this.gri = gri;
+		this.status = status;
+		this.bandwidth = bandwidth;
+		this.startTime = startTime;
+		this.endTime = endTime;
+		this.hops = hops;
+		this.errors = errors;
+		this.stale = stale;
+	}
+
+	/**
+	 * @return Placeholder for a GRI OSCARS can't be asked about and which was never queried before.
+	 */
+	public static QueryResult unavailable(String gri)
+	{
+		return new QueryResult(gri, unavailableStatus, -1, -1, -1, Collections.<String>emptyList(), Collections.<String>emptyList(), true);
+	}
+
+	/**
+	 * @return This result, marked as served from the cache.
+	 */
+	public QueryResult asStale()
+	{
+		return stale ? this : new QueryResult(gri, status, bandwidth, startTime, endTime, hops, errors, true);
+	}
+
+	public void writeTo(JsonGenerator json) throws IOException
+	{
+		json.writeStartObject();
+		json.writeStringField("gri", gri);
+		json.writeStringField("status", status);
+
+		if(bandwidth != -1)
+		{
+			json.writeNumberField("bandwidth", bandwidth);
+			json.writeNumberField("startTime", startTime);
+			json.writeNumberField("endTime", endTime);
+		}
+
+		writeStrings(json, "hops", hops);
+		writeStrings(json, "errors", errors);
+		json.writeBooleanField("stale", stale);
+		json.writeEndObject();
+	}
+
+	private static void writeStrings(JsonGenerator json, String name, List<String> values) throws IOException
+	{
+		json.writeArrayFieldStart(name);
+
+		for(String oneValue : values)
+			json.writeString(oneValue);
+
+		json.writeEndArray();
+	}
+
+	public String getGri()
+	{
+		return gri;
+	}
+
+	public String getStatus()
+	{
+		return status;
+	}
+
+	public int getBandwidth()
+	{
+		return bandwidth;
+	}
+
+	public long getStartTime()
+	{
+		return startTime;
+	}
+
+	public long getEndTime()
+	{
+		return endTime;
+	}
+
+	public List<String> getHops()
+	{
+		return hops;
+	}
+
+	public List<String> getErrors()
+	{
+		return errors;
+	}
+
+	public boolean isStale()
+	{
+		return stale;
+	}
+}
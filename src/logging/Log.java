@@ -0,0 +1,111 @@
+package logging;
+
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+
+/***********************************************************************************************************************
+* Thin wrapper around a log4j Logger with "{}" placeholders, so that messages are only built when their level is
+* enabled. Status text that used to be concatenated on every call (even with silentQuery set) now costs a level check.
+*
+* 	log.info("[cancelReservation] gri = {}, status = {}", gri, cancelResponse.getStatus());
+* 	log.error("Error writing MP-GRI to '{}'", mpLookupGRI, e);		// A trailing Throwable is logged with its stack trace
+*
+* Every MPC logger sits under the "mpc" logger (e.g. "mpc.multipath.MultipathOSCARSClient"), which log4j.xml sends
+* through an AsyncAppender, so request threads never wait on the console. Structured fields (trace, op, gri) come from
+* the log4j MDC, see LogContext.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public final class Log
+{
+	public static final String rootName = "mpc";
+
+	private final Logger logger;
+
+	private Log(Logger logger)
+	{
+		this.logger = logger;
+	}
+
+	public static Log forClass(Class<?> owner)
+	{
+		return new Log(Logger.getLogger(rootName + "." + owner.getName()));
+	}
+
+	/*********************************************************************************************************************************************************
+	* Sends every MPC log message at DEBUG and above straight to stdout, without timestamps or fields.
+	* Used by the command line tools, whose output is the log itself.
+	*********************************************************************************************************************************************************/
+	public static void configureConsole()
+	{
+		Logger mpcLogger = Logger.getLogger(rootName);
+		mpcLogger.removeAllAppenders();
+		mpcLogger.addAppender(new ConsoleAppender(new PatternLayout("%m%n"), ConsoleAppender.SYSTEM_OUT));
+		mpcLogger.setLevel(Level.DEBUG);
+		mpcLogger.setAdditivity(false);
+	}
+
+	public boolean isTraceEnabled()
+	{
+		return logger.isTraceEnabled();
+	}
+
+	public boolean isDebugEnabled()
+	{
+		return logger.isDebugEnabled();
+	}
+
+	public boolean isInfoEnabled()
+	{
+		return logger.isInfoEnabled();
+	}
+
+	public void trace(String message, Object... args)
+	{
+		log(Level.TRACE, message, args);
+	}
+
+	public void debug(String message, Object... args)
+	{
+		log(Level.DEBUG, message, args);
+	}
+
+	public void info(String message, Object... args)
+	{
+		log(Level.INFO, message, args);
+	}
+
+	public void warn(String message, Object... args)
+	{
+		log(Level.WARN, message, args);
+	}
+
+	public void error(String message, Object... args)
+	{
+		log(Level.ERROR, message, args);
+	}
+
+	private void log(Level level, String message, Object[] args)
+	{
+		if(!logger.isEnabledFor(level))
+			return;
+
+		StringBuilder formatted = new StringBuilder(message.length() + 16 * args.length);
+		int nextArg = 0;
+		int copiedUpTo = 0;
+
+		for(int placeholder = message.indexOf("{}"); placeholder >= 0 && nextArg < args.length; placeholder = message.indexOf("{}", copiedUpTo))
+		{
+			formatted.append(message, copiedUpTo, placeholder).append(args[nextArg++]);
+			copiedUpTo = placeholder + 2;
+		}
+
+		formatted.append(message, copiedUpTo, message.length());
+
+		Throwable thrown = (nextArg < args.length && args[args.length - 1] instanceof Throwable) ? (Throwable)args[args.length - 1] : null;
+
+		logger.log(Log.class.getName(), level, formatted.toString(), thrown);
+	}
+}
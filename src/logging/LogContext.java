@@ -0,0 +1,71 @@
+package logging;
+
+import org.apache.log4j.MDC;
+
+/***********************************************************************************************************************
+* Structured fields attached to every log message of the current thread, through the log4j MDC. log4j.xml prints them
+* as "trace=... op=... gri=...". The trace field is maintained by trace.Tracer.
+*
+* 	LogContext fields = LogContext.with(LogContext.op, "cancel").and(LogContext.gri, gri);
+*
+* 	try
+* 	{
+* 		...
+* 	}
+* 	finally
+* 	{
+* 		fields.close();
+* 	}
+*
+* Closing the context puts back whatever values the fields had before, so contexts nest.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public final class LogContext implements AutoCloseable
+{
+	public static final String trace = "trace";
+	public static final String op = "op";
+	public static final String gri = "gri";
+
+	private final LogContext outer;
+	private final String key;
+	private final Object previousValue;
+
+	private LogContext(LogContext outer, String key, Object value)
+	{
+		this.outer = outer;
+		this.key = key;
+		this.previousValue = MDC.get(key);
+
+		put(key, value);
+	}
+
+	public static LogContext with(String key, Object value)
+	{
+		return new LogContext(null, key, value);
+	}
+
+	public LogContext and(String key, Object value)
+	{
+		return new LogContext(this, key, value);
+	}
+
+	public void close()
+	{
+		put(key, previousValue);
+
+		if(outer != null)
+			outer.close();
+	}
+
+	/**
+	 * Sets a field directly; null removes it.
+	 */
+	public static void put(String key, Object value)
+	{
+		if(value == null)
+			MDC.remove(key);
+		else
+			MDC.put(key, value);
+	}
+}
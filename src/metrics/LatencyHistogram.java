@@ -0,0 +1,122 @@
+package metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/***********************************************************************************************************************
+* Lock-free latency histogram with HDR-style log-linear buckets.
+*
+* Latencies are recorded in microseconds. Values below 8us get a bucket each; above that, every power of two is split
+* into 8 equal sub-buckets, so any recorded value is known to within 12.5% while the whole range from 1us to days fits
+* in a few hundred buckets. Recording is a bucket-index computation and two atomic adds, cheap enough to time every
+* OSCARS call.
+*
+* Quantiles are computed from the buckets on demand (see MetricsRegistry / the /metrics servlet).
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class LatencyHistogram
+{
+	private static final int subBucketBits = 3;
+	private static final int subBuckets = 1 << subBucketBits;
+	private static final int numBuckets = (64 - subBucketBits + 1) * subBuckets;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(numBuckets);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sumMicros = new LongAdder();
+	private final AtomicLong maxMicros = new AtomicLong();
+
+	public void recordNanos(long nanos)
+	{
+		recordMicros(TimeUnit.NANOSECONDS.toMicros(nanos));
+	}
+
+	public void recordMicros(long micros)
+	{
+		if(micros < 0)
+			micros = 0;
+
+		buckets.incrementAndGet(bucketIndex(micros));
+		count.increment();
+		sumMicros.add(micros);
+
+		if(micros > maxMicros.get())
+			maxMicros.accumulateAndGet(micros, Math::max);
+	}
+
+	public long getCount()
+	{
+		return count.sum();
+	}
+
+	public long getSumMicros()
+	{
+		return sumMicros.sum();
+	}
+
+	public long getMaxMicros()
+	{
+		return maxMicros.get();
+	}
+
+	/*********************************************************************************************************************************************************
+	* Estimates the given quantile from the buckets.
+	*
+	* @param quantile, 0.0 to 1.0
+	* @return The midpoint of the bucket holding the quantile, in microseconds (0 if nothing was recorded).
+	*********************************************************************************************************************************************************/
+	public long getQuantileMicros(double quantile)
+	{
+		long total = 0;
+		long[] snapshot = new long[numBuckets];
+
+		for(int b = 0; b < numBuckets; b++)
+		{
+			snapshot[b] = buckets.get(b);
+			total += snapshot[b];
+		}
+
+		if(total == 0)
+			return 0;
+
+		long rank = Math.max(1, (long)Math.ceil(quantile * total));
+		long seen = 0;
+
+		for(int b = 0; b < numBuckets; b++)
+		{
+			seen += snapshot[b];
+
+			if(seen >= rank)
+				return Math.min((lowerBound(b) + lowerBound(b + 1) - 1) / 2, getMaxMicros());
+		}
+
+		return getMaxMicros();
+	}
+
+	static int bucketIndex(long micros)
+	{
+		if(micros < subBuckets)
+			return (int)micros;
+
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		int subBucket = (int)(micros >>> (exponent - subBucketBits)) & (subBuckets - 1);
+
+		return (exponent - subBucketBits + 1) * subBuckets + subBucket;
+	}
+
+	static long lowerBound(int index)
+	{
+		if(index < subBuckets)
+			return index;
+
+		int exponent = index / subBuckets + subBucketBits - 1;
+		long subBucket = index % subBuckets;
+
+		if(exponent >= 63)
+			return Long.MAX_VALUE;
+
+		return (subBuckets + subBucket) << (exponent - subBucketBits);
+	}
+}
@@ -0,0 +1,198 @@
+package metrics;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/***********************************************************************************************************************
+* JVM-wide registry of the MPC's latency histograms, written out by the /metrics servlet in the Prometheus
+* text exposition format.
+*
+* Histograms are grouped in families (e.g. "mpc_oscars_call_seconds"), each holding one histogram per label set
+* (e.g. op="queryReservation",outcome="success"), created on first use, so instrumented code just asks for the
+* histogram it wants to update:
+* 	- recordOSCARSCall(), called by MultipathOSCARSClient.invoke() for every OSCARS call
+* 	- recordOperation(), end-to-end timers of the MPC's own operations (multipath create, anycast, group)
+*
+* Histograms are exported as Prometheus summaries (quantiles, _sum and _count, in seconds) plus a _max gauge.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class MetricsRegistry
+{
+	public static final String oscarsCallFamily = "mpc_oscars_call_seconds";
+	public static final String operationFamily = "mpc_operation_seconds";
+
+	// Outcomes of an MPC operation //
+	public static final String outcomeSuccess = "success";		// Every requested path reserved
+	public static final String outcomePartial = "partial";		// Some of the requested paths reserved
+	public static final String outcomeFailed = "failed";		// No path reserved
+	public static final String outcomeAccepted = "accepted";	// Accepted by OSCARS, whose path computation had not finished when the operation returned
+
+	private static final double[] quantiles = {0.5, 0.9, 0.99, 0.999};
+
+	private static final Map<String, Family> histogramFamilies = new ConcurrentSkipListMap<String, Family>();
+
+	static
+	{
+		histogramFamilies.put(oscarsCallFamily, new Family(oscarsCallFamily, "Latency of OSCARS API calls by operation and outcome (success, fault, error, rejected)."));
+		histogramFamilies.put(operationFamily, new Family(operationFamily, "End-to-end latency of MPC operations (createMP, createUnicast, anycast, group) by outcome (success, partial, failed, accepted)."));
+	}
+
+	/**
+	 * The histograms of one family, by label set.
+	 */
+	private static class Family
+	{
+		final String name;
+		final String help;
+		final Map<String, LatencyHistogram> byLabels = new ConcurrentSkipListMap<String, LatencyHistogram>();
+
+		Family(String name, String help)
+		{
+			this.name = name;
+			this.help = help;
+		}
+	}
+
+	private MetricsRegistry()
+	{
+	}
+
+	/*********************************************************************************************************************************************************
+	* Times one OSCARS call.
+	*
+	* @param operation, OSCARS operation, e.g. "createReservation"
+	* @param outcome, "success", "fault" (OSCARS answered with a fault), "error" (client/transport failure) or "rejected" (circuit open / pool exhausted)
+	* @param nanos, Duration of the call
+	*********************************************************************************************************************************************************/
+	public static void recordOSCARSCall(String operation, String outcome, long nanos)
+	{
+		histogram(oscarsCallFamily, null, labels("op", operation, "outcome", outcome)).recordNanos(nanos);
+	}
+
+	/*********************************************************************************************************************************************************
+	* Times one MPC operation from its start until now.
+	*
+	* @param operation, "createMP", "createUnicast", "anycast" or "group"
+	* @param startNanos, System.nanoTime() when the operation started
+	* @param outcome, One of the outcome* constants, see outcomeOf()
+	*********************************************************************************************************************************************************/
+	public static void recordOperation(String operation, long startNanos, String outcome)
+	{
+		histogram(operationFamily, null, labels("op", operation, "outcome", outcome)).recordNanos(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * @return The outcome of an operation which reserved reservedPaths of requestedPaths paths, as counted from the statuses of its subrequests.
+	 */
+	public static String outcomeOf(int reservedPaths, int requestedPaths)
+	{
+		if(reservedPaths <= 0)
+			return outcomeFailed;
+
+		return (reservedPaths < requestedPaths) ? outcomePartial : outcomeSuccess;
+	}
+
+	/**
+	 * @param help, Description of the family, only used if this call creates it.
+	 * @return The histogram of the given family and label set, created on first use.
+	 */
+	public static LatencyHistogram histogram(String family, String help, String labels)
+	{
+		return histogramFamilies.computeIfAbsent(family, f -> new Family(f, help)).byLabels.computeIfAbsent(labels, l -> new LatencyHistogram());
+	}
+
+	/**
+	 * Builds a label set from name/value pairs, e.g. labels("op", "cancelReservation") gives op="cancelReservation".
+	 */
+	public static String labels(String... namesAndValues)
+	{
+		StringBuilder labels = new StringBuilder();
+
+		for(int i = 0; i + 1 < namesAndValues.length; i += 2)
+		{
+			if(labels.length() > 0)
+				labels.append(',');
+
+			labels.append(namesAndValues[i]).append("=\"");
+
+			String value = (namesAndValues[i+1] == null) ? "" : namesAndValues[i+1];
+
+			for(int c = 0; c < value.length(); c++)
+			{
+				char oneChar = value.charAt(c);
+
+				if(oneChar == '\\' || oneChar == '"')
+					labels.append('\\').append(oneChar);
+				else if(oneChar == '\n')
+					labels.append("\\n");
+				else
+					labels.append(oneChar);
+			}
+
+			labels.append('"');
+		}
+
+		return labels.toString();
+	}
+
+	/*********************************************************************************************************************************************************
+	* Writes every histogram in the Prometheus text exposition format.
+	*********************************************************************************************************************************************************/
+	public static void writeTo(PrintWriter out)
+	{
+		for(Family oneFamily : histogramFamilies.values())
+		{
+			writeHeader(out, oneFamily.name, oneFamily.help, "summary");
+
+			for(Map.Entry<String, LatencyHistogram> oneEntry : oneFamily.byLabels.entrySet())
+			{
+				String labels = oneEntry.getKey();
+				LatencyHistogram histogram = oneEntry.getValue();
+
+				for(double oneQuantile : quantiles)
+				{
+					String quantileLabels = (labels.isEmpty() ? "" : labels + ",") + "quantile=\"" + oneQuantile + "\"";
+					writeSample(out, oneFamily.name, quantileLabels, toSeconds(histogram.getQuantileMicros(oneQuantile)));
+				}
+
+				writeSample(out, oneFamily.name + "_sum", labels, toSeconds(histogram.getSumMicros()));
+				writeSample(out, oneFamily.name + "_count", labels, histogram.getCount());
+			}
+
+			writeHeader(out, oneFamily.name + "_max", "Largest value recorded in " + oneFamily.name + ".", "gauge");
+
+			for(Map.Entry<String, LatencyHistogram> oneEntry : oneFamily.byLabels.entrySet())
+				writeSample(out, oneFamily.name + "_max", oneEntry.getKey(), toSeconds(oneEntry.getValue().getMaxMicros()));
+		}
+	}
+
+	public static void writeHeader(PrintWriter out, String name, String help, String type)
+	{
+		if(help != null)
+			out.println("# HELP " + name + " " + help);
+
+		out.println("# TYPE " + name + " " + type);
+	}
+
+	public static void writeSample(PrintWriter out, String name, String labels, double value)
+	{
+		out.print(name);
+
+		if(labels != null && !labels.isEmpty())
+			out.print("{" + labels + "}");
+
+		out.print(' ');
+
+		if(value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15)
+			out.println((long)value);
+		else
+			out.println(value);
+	}
+
+	private static double toSeconds(long micros)
+	{
+		return micros / 1000000.0;
+	}
+}
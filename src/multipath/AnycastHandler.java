@@ -1,183 +1,422 @@
 package multipath;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import net.es.oscars.api.soap.gen.v06.PathInfo;
+import net.es.oscars.api.soap.gen.v06.ResDetails;
+
+import config.Configuration;
+import logging.Log;
+import metrics.MetricsRegistry;
+import trace.Span;
+import trace.Tracer;
+import topology.AnycastRanker;
+import topology.TopologyGraph;
+import topology.Urn;
 
 
 public class AnycastHandler {
 
-	MultipathOSCARSClient multipathClient;
+	private static final Log log = Log.forClass(AnycastHandler.class);
 	
+	MultipathOSCARSClient multipathClient;
+
 	public AnycastHandler(MultipathOSCARSClient multipathClient)
 	{
 		this.multipathClient = multipathClient;
 	}
-	
-	public String handleAnycastRequest(String description, String sourceURN, boolean isSrcTagged, String srcVLAN, String destURN, boolean isDstTagged, String destVLAN, Integer bandwidth, String pathSetupMode, long startTimestamp, long endTimestamp, Integer mpNumPaths)
+
+	/**
+	 * Outcome of reserving, measuring and cancelling a MP reservation to one anycast destination
+	 */
+	static class CandidateResult
 	{
-		String currentGRI = "";
+		final int position;				// Position of the destination in the anycast set, breaks ties in favour of earlier destinations
+		final String destURN;
+		int numSuccessfulPaths = 0;
+		int hopTotal = 0;				// Sum of hops across all successful paths
+		boolean contended = false;		// Was another probe holding capacity from the same source while this one was reserved?
+
+		CandidateResult(int position, String destURN)
+		{
+			this.position = position;
+			this.destURN = destURN;
+		}
+
 		/**
-		 * Determine number of anycast destinations in set
+		 * Criteria:
+		 * 	(1) Highest Number of Paths
+		 * 	(2) Lowest Number of Hops
 		 */
-		int anycastDestCount = 1;
-		for(int i = 0; i < destURN.length(); i++)
+		boolean isBetterThan(CandidateResult other)
 		{
-			if(destURN.charAt(i) == ',')
-				anycastDestCount++;
+			if(other == null)
+				return true;
+			if(numSuccessfulPaths != other.numSuccessfulPaths)
+				return numSuccessfulPaths > other.numSuccessfulPaths;
+			if(hopTotal != other.hopTotal)
+				return hopTotal < other.hopTotal;
+
+			return position < other.position;
 		}
+	}
+
+	public String handleAnycastRequest(String description, String sourceURN, boolean isSrcTagged, String srcVLAN, String destURN, boolean isDstTagged, String destVLAN, Integer bandwidth, String pathSetupMode, long startTimestamp, long endTimestamp, Integer mpNumPaths)
+	{
+		long startNanos = System.nanoTime();
+		Span span = Tracer.startTrace("anycast").set("destinations", destURN).set("paths", mpNumPaths);
+		String gri = null;
 		
+		try
+		{
+			gri = reserveBestDestination(description, sourceURN, isSrcTagged, srcVLAN, destURN, isDstTagged, destVLAN, bandwidth, pathSetupMode, startTimestamp, endTimestamp, mpNumPaths);
+			return gri;
+		}
+		finally
+		{
+			MetricsRegistry.recordOperation("anycast", startNanos, MultipathOSCARSClient.createOutcome(gri, mpNumPaths, MultipathOSCARSClient.countReservedPaths(multipathClient.getLastMPQuery())));
+			span.set("gri", gri).end();
+		}
+	}
+	
+	private String reserveBestDestination(String description, String sourceURN, boolean isSrcTagged, String srcVLAN, String destURN, boolean isDstTagged, String destVLAN, Integer bandwidth, String pathSetupMode, long startTimestamp, long endTimestamp, Integer mpNumPaths)
+	{
 		/**
-		 * Variables for determining how many requests are successful / number of successful paths in each request
+		 * Determine the anycast destination set
 		 */
-		boolean[] successfulRequests = new boolean[anycastDestCount];
-		int numSuccessfulRequests = 0;
-		boolean flexible = true;
-		int[] numSuccessfulPathsPerRequest = new int[anycastDestCount];
-		
+		List<String> candidates = parseCandidates(destURN);
+
 		/**
 		 * Only do this if there is more than one destination in the anycast set
 		 */
-		if(anycastDestCount > 1)
+		if(candidates.size() > 1)
 		{
-			ArrayList<ArrayList<SubrequestTuple>> anycastRequests = new ArrayList<ArrayList<SubrequestTuple>>();
-		
+			List<String> candidatesToProbe = candidates;
+			CandidateResult rankedWinner = null;		// Paths OSCARS reserved to the topology's winner, if it was reserved directly but fell short
+			int minimumHopTotal = mpNumPaths * 2;		// Every path has at least its source and destination hop
+			
 			/**
-			 * Perform a MP reservation for each destination in the Anycast Destination Set, take metrics (hops), then cancel the reservation
+			 * Rank the destinations on the cached topology first. If the ranking is decisive, reserve the winner directly, otherwise only probe the top few.
 			 */
-			for(int currentDestPos = 0; currentDestPos < anycastDestCount; currentDestPos++)
+			TopologyGraph graph = multipathClient.getTopologyGraph();
+			
+			if(graph != null)
 			{
-				currentGRI = multipathClient.createMPReservation(description, sourceURN, isSrcTagged, srcVLAN, destURN, isDstTagged, destVLAN, bandwidth, pathSetupMode, startTimestamp, endTimestamp, mpNumPaths);
+				List<AnycastRanker.Ranking> rankings;
+				Span rankSpan = Tracer.startSpan("pce:anycastRank").set("candidates", candidates.size());
 				
-				ArrayList<SubrequestTuple> queryResults = multipathClient.getLastMPQuery();
-				
-				/**
-				 * Determine the number of successful paths in this request
-				 */
-				for(int v = 0; v < queryResults.size();v++)
+				try
 				{
-					if(!queryResults.get(v).getAllDetails().get(0).getStatus().equals("FAILED"))
-					{
-						numSuccessfulPathsPerRequest[currentDestPos]++;
-					}
+					rankings = AnycastRanker.rank(graph, sourceURN, candidates, mpNumPaths, bandwidth);
+				}
+				finally
+				{
+					rankSpan.end();
 				}
 				
-				/**
-				 * Only do this if the correct number of paths have been successfully routed, or if flexibility is allowed
-				 */
-				if(numSuccessfulPathsPerRequest[currentDestPos] == mpNumPaths || (numSuccessfulPathsPerRequest[currentDestPos] > 0 && flexible))
+				AnycastRanker.Ranking top = rankings.get(0);
+				
+				if(top.isKnown() && top.getNumPaths() > 0)
 				{
-					successfulRequests[currentDestPos] = true;
-					numSuccessfulRequests++;
-					ArrayList<PathInfo> tempList = new ArrayList<PathInfo>();
-					for(int y = 0; y < numSuccessfulPathsPerRequest[currentDestPos]; y++)
+					List<String> rankedCandidates = new ArrayList<String>();
+					for(AnycastRanker.Ranking oneRanking : rankings)
+						rankedCandidates.add(oneRanking.getDestURN());
+					
+					boolean isDecisive = top.getNumPaths() == mpNumPaths && top.isStrictlyBetterThan(rankings.get(1));
+					
+					if(isDecisive || Configuration.anycastProbeCandidates <= 0)
 					{
-						tempList.add(queryResults.get(y).getAllDetails().get(0).getReservedConstraint().getPathInfo());
+						log.info("The best Destination (ranked on topology): {}", top.getDestURN());
+						String griFromOSCARS = multipathClient.createMPReservation(description, sourceURN, isSrcTagged, srcVLAN, top.getDestURN(), isDstTagged, destVLAN, bandwidth, pathSetupMode, startTimestamp, endTimestamp, mpNumPaths);
+						
+						if(griFromOSCARS != null && !griFromOSCARS.equals(""))
+						{
+							// A GRI is returned even if some or all of its subrequests failed, so count the paths actually reserved //
+							rankedWinner = measureReservation(multipathClient, griFromOSCARS, new CandidateResult(-1, top.getDestURN()));
+							
+							if(rankedWinner.numSuccessfulPaths >= mpNumPaths)
+								return griFromOSCARS;
+							
+							log.info("Only {} of {} paths reserved to the ranked destination {}, probing the others", rankedWinner.numSuccessfulPaths, mpNumPaths, top.getDestURN());
+							multipathClient.cancelMPReservation(griFromOSCARS);
+						}
+						
+						// OSCARS disagreed with the topology, probe the other destinations in ranked order //
+						candidatesToProbe = rankedCandidates.subList(1, rankedCandidates.size());
 					}
-					anycastRequests.add(currentDestPos, queryResults);
-				}
-				else
-				{
-					successfulRequests[currentDestPos] = false;
+					else
+					{
+						candidatesToProbe = rankedCandidates.subList(0, Math.min(Configuration.anycastProbeCandidates, rankedCandidates.size()));
+					}
+					
+					// No destination can do better than the best path set the topology allows //
+					if(top.getNumPaths() == mpNumPaths)
+						minimumHopTotal = top.getHopTotal();
 				}
-				//System.out.println("The old destURN is " + destURN);
-				destURN = removeDestination(currentGRI, destURN);
-				//System.out.println("The new destURN is " + destURN);
-				multipathClient.cancelMPReservation(currentGRI);
 			}
-		
+			
 			/**
-			 * Compare performed MP requests, select "best" based on hop count (sum across all paths in that MP reservation) and number of successful paths
+			 * Perform a MP reservation for each remaining destination in the Anycast Destination Set, take metrics (hops), then cancel the reservation
 			 */
-			int[] hopTotalsPerMPRequest = new int[anycastDestCount];
-			int bestRequest = 0;
+			CandidateResult best = null;
+			
+			if(!candidatesToProbe.isEmpty())
+				best = evaluateCandidates(candidatesToProbe, minimumHopTotal, description, sourceURN, isSrcTagged, srcVLAN, isDstTagged, destVLAN, bandwidth, pathSetupMode, startTimestamp, endTimestamp, mpNumPaths);
+			
+			// The ranked winner still wins if no probed destination reserves more paths (position -1 wins ties) //
+			if(rankedWinner != null && rankedWinner.numSuccessfulPaths > 0 && rankedWinner.isBetterThan(best))
+				best = rankedWinner;
 
-			if(numSuccessfulRequests > 0)
+			if(best == null)
 			{
-				/**
-				 * Get Hop counts
-				 */
-				for(int z= 0;z < anycastDestCount;z++)
+				log.warn("No destination in the anycast set could be reached.");
+				return "";
+			}
+
+			/**
+			 * Create a final MP reservation for the "best" destination
+			 */
+			log.info("The best Destination: {}", best.destURN);
+			return multipathClient.createMPReservation(description, sourceURN, isSrcTagged, srcVLAN, best.destURN, isDstTagged, destVLAN, bandwidth, pathSetupMode, startTimestamp, endTimestamp, mpNumPaths);
+		}
+		else
+		{
+			return multipathClient.createMPReservation(description, sourceURN, isSrcTagged, srcVLAN, candidates.get(0), isDstTagged, destVLAN, bandwidth, pathSetupMode, startTimestamp, endTimestamp, mpNumPaths);
+		}
+	}
+
+	/**
+	 * Evaluates every destination concurrently, at most Configuration.anycastParallelism at a time. Each evaluation has its own MultipathOSCARSClient,
+	 * so no request state is shared between them, and borrows OSCARS proxies from the same shared OSCARSClientPool. Destinations which have not started yet are skipped as soon as one destination reaches all mpNumPaths
+	 * paths with the fewest hops possible, since no other destination can beat it.
+	 *
+	 * Every probe starts at the same source, so concurrent probes compete for its capacity. A destination which fell short of mpNumPaths while another probe
+	 * was in flight is probed again on its own afterwards (in anycast set order, unless the best so far can no longer be beaten), so that it is judged on the
+	 * capacity a sequential evaluation would have seen.
+	 *
+	 * @param minimumHopTotal, Lower bound on the hop total of any destination
+	 * @return The best destination, or null if no destination had a successful path
+	 */
+	private CandidateResult evaluateCandidates(List<String> candidates, int minimumHopTotal, final String description, final String sourceURN, final boolean isSrcTagged, final String srcVLAN, final boolean isDstTagged, final String destVLAN,
+												final Integer bandwidth, final String pathSetupMode, final long startTimestamp, final long endTimestamp, final Integer mpNumPaths)
+	{
+		ExecutorService evaluators = Executors.newFixedThreadPool(Math.min(candidates.size(), Configuration.anycastParallelism));
+		CompletionService<CandidateResult> completedEvaluations = new ExecutorCompletionService<CandidateResult>(evaluators);
+		List<Future<CandidateResult>> pendingEvaluations = new ArrayList<Future<CandidateResult>>();
+
+		Set<CandidateResult> inFlight = new HashSet<CandidateResult>();
+		List<CandidateResult> contendedShortfalls = new ArrayList<CandidateResult>();
+
+		CandidateResult best = null;
+		boolean stoppedEarly = false;
+
+		for(int position = 0; position < candidates.size(); position++)
+		{
+			final int thisPosition = position;
+			final String thisDestURN = candidates.get(position);
+
+			pendingEvaluations.add(completedEvaluations.submit(Tracer.wrap(() -> evaluateCandidate(thisPosition, thisDestURN, inFlight, description, sourceURN, isSrcTagged, srcVLAN, isDstTagged, destVLAN, bandwidth, pathSetupMode, startTimestamp, endTimestamp, mpNumPaths))));
+		}
+
+		try
+		{
+			// Cancelled evaluations are also handed back by the CompletionService, so exactly one take() per submitted evaluation //
+			for(int outstanding = candidates.size(); outstanding > 0; outstanding--)
+			{
+				CandidateResult result;
+
+				try
 				{
-						if(successfulRequests[z])
-						{
-							for(int u = 0; u < numSuccessfulPathsPerRequest[z]; u++)
-							{
-								hopTotalsPerMPRequest[z] += anycastRequests.get(z).get(u).getAllDetails().get(0).getReservedConstraint().getPathInfo().getPath().getHop().size();
-							}
-							//System.out.println("Hops: " + hopTotalsPerMPRequest[z] + " in " + numSuccessfulPathsPerRequest[z] + " Paths to " + parseDestination(multipathClient.convertPathToString(anycastRequests.get(z).get(0).getGroupGRI())));
-						}
+					result = completedEvaluations.take().get();
 				}
-				/**
-				 * Find best request --
-				 * Criteria: 
-				 * 	(1) Highest Number of Paths
-				 * 	(2) Lowest Number of Hops
-				 */
-				for(int h = 1; h < anycastDestCount; h++)
+				catch(CancellationException ce)
 				{
-					if(numSuccessfulPathsPerRequest[h] > numSuccessfulPathsPerRequest[bestRequest])
-					{
-						bestRequest = h;
-					}
-					else if(hopTotalsPerMPRequest[h] < hopTotalsPerMPRequest[bestRequest] && numSuccessfulPathsPerRequest[h] == numSuccessfulPathsPerRequest[bestRequest])
-					{
-						bestRequest = h;
-					}
+					continue;
+				}
+				catch(ExecutionException ee)
+				{
+					log.warn("Anycast destination could not be evaluated: {}", ee.getCause());
+					continue;
+				}
+
+				log.debug("Anycast destination {}: {} path(s), {} hop(s)", result.destURN, result.numSuccessfulPaths, result.hopTotal);
+
+				if(result.contended && result.numSuccessfulPaths < mpNumPaths)
+					contendedShortfalls.add(result);
+
+				if(result.numSuccessfulPaths > 0 && result.isBetterThan(best))
+					best = result;
+
+				if(!stoppedEarly && result.numSuccessfulPaths == mpNumPaths && result.hopTotal <= minimumHopTotal)
+				{
+					// Evaluations already running still finish, so that their reservations are cancelled //
+					stoppedEarly = true;
+					for(Future<CandidateResult> oneEvaluation : pendingEvaluations)
+						oneEvaluation.cancel(false);
 				}
-			
-				/**
-				 * Create a final MP reservation for the "best" destination
-				 */
-
-				String bestRequestPath = multipathClient.convertPathToString(anycastRequests.get(bestRequest).get(0).getGroupGRI());
-				destURN = parseDestination(bestRequestPath);
-				System.out.println("The best Destination: " + destURN);
-				currentGRI = multipathClient.createMPReservation(description, sourceURN, isSrcTagged, srcVLAN, destURN, isDstTagged, destVLAN, bandwidth, pathSetupMode, startTimestamp, endTimestamp, mpNumPaths);
 			}
-			return currentGRI;
 		}
-		else
+		catch(InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			evaluators.shutdown();
+		}
+
+		// Every concurrent probe has been cancelled by now, probe the destinations that may have lost out to them one at a time //
+		contendedShortfalls.sort((first, second) -> Integer.compare(first.position, second.position));
+
+		for(CandidateResult oneShortfall : contendedShortfalls)
 		{
-			return multipathClient.createMPReservation(description, sourceURN, isSrcTagged, srcVLAN, destURN, isDstTagged, destVLAN, bandwidth, pathSetupMode, startTimestamp, endTimestamp, mpNumPaths);
+			if(Thread.currentThread().isInterrupted() || (best != null && best.numSuccessfulPaths == mpNumPaths && best.hopTotal <= minimumHopTotal))
+				break;
+
+			log.debug("Anycast destination {} was probed alongside others, probing it again on its own", oneShortfall.destURN);
+
+			CandidateResult result = evaluateCandidate(oneShortfall.position, oneShortfall.destURN, null, description, sourceURN, isSrcTagged, srcVLAN, isDstTagged, destVLAN, bandwidth, pathSetupMode, startTimestamp, endTimestamp, mpNumPaths);
+
+			if(result.numSuccessfulPaths > 0 && result.isBetterThan(best))
+				best = result;
 		}
+
+		return best;
 	}
-	
-		/**
-		 * Returns the destination URN from a path
-		 * @param path
-		 * @return
-		 */
-	private String parseDestination(String path)
+
+	/**
+	 * Reserves mpNumPaths paths to a single destination, records the number of successful paths and their hop count, then cancels the reservation.
+	 *
+	 * @param inFlight, Probes currently holding reservations, shared by concurrent evaluations to mark each other contended. Null for a probe run on its own.
+	 */
+	private CandidateResult evaluateCandidate(int position, String candidateURN, Set<CandidateResult> inFlight, String description, String sourceURN, boolean isSrcTagged, String srcVLAN, boolean isDstTagged, String destVLAN, Integer bandwidth, String pathSetupMode, long startTimestamp, long endTimestamp, Integer mpNumPaths)
 	{
-		int lastSemi = path.length()-1;
-		//System.out.println("The path: " + path);
-		int secondLastSemi = path.lastIndexOf(";", lastSemi - 1);
-		return path.substring(secondLastSemi + 1, path.length()-1);
+		Span span = Tracer.startSpan("evaluate").set("destination", candidateURN);
+		CandidateResult result = new CandidateResult(position, candidateURN);
+
+		if(inFlight != null)
+		{
+			synchronized(inFlight)
+			{
+				inFlight.add(result);
+
+				if(inFlight.size() > 1)
+				{
+					for(CandidateResult oneProbe : inFlight)
+						oneProbe.contended = true;
+				}
+			}
+		}
+
+		try
+		{
+			MultipathOSCARSClient candidateClient = new MultipathOSCARSClient(Configuration.oscarsURL);
+			candidateClient.setTopologyGraph(multipathClient.getTopologyGraph());
+
+			String candidateGRI = candidateClient.createMPReservation(description, sourceURN, isSrcTagged, srcVLAN, candidateURN, isDstTagged, destVLAN, bandwidth, pathSetupMode, startTimestamp, endTimestamp, mpNumPaths);
+
+			if(candidateGRI == null || candidateGRI.equals(""))
+				return result;
+
+			measureReservation(candidateClient, candidateGRI, result);
+
+			candidateClient.cancelMPReservation(candidateGRI);
+
+			return result;
+		}
+		finally
+		{
+			if(inFlight != null)
+			{
+				synchronized(inFlight)
+				{
+					inFlight.remove(result);
+				}
+			}
+
+			span.end();
+		}
 	}
-	
+
+	/**
+	 * Determines the number of successful paths of a reservation just made by client.createMPReservation(), and their hops
+	 *
+	 * @param result, Filled in and returned
+	 */
+	private static CandidateResult measureReservation(MultipathOSCARSClient client, String gri, CandidateResult result)
+	{
+		ArrayList<SubrequestTuple> queryResults = client.getLastMPQuery();
+
+		// Unicast reservations are not polled by createMPReservation(), wait for this one here //
+		if(queryResults.isEmpty())
+		{
+			client.convertPathToString(gri);
+			queryResults = client.getLastMPQuery();
+		}
+
+		for(SubrequestTuple oneResult : queryResults)
+		{
+			ResDetails details = oneResult.getAllDetails().get(0);
+
+			if(!MultipathOSCARSClient.isSuccessfulStatus(details.getStatus()))
+				continue;
+
+			result.numSuccessfulPaths++;
+
+			PathCache.CachedPath reservedPath = PathCache.fromDetails(details);
+
+			if(reservedPath != null)
+				result.hopTotal += reservedPath.getHopCount();
+		}
+
+		return result;
+	}
+
 	/**
-	 * Removes the Destination from the Anycast Destination Set
+	 * Expands the Anycast Destination Set into one unicast URN per destination
 	 *  Unicast --> urn:ogf:network:domain=es.net:node=DENV:port=port-4:link=link1
 		Anycast --> urn:ogf:network:domain=es.net:node=anycast(DENV-4,SUNN-5,PNWG-4,ELPA-3):port=anycast:link=link1
+	 * @param destURN
+	 * @return The unicast destination URNs, or just destURN if it is not an anycast URN
 	 */
-	private String removeDestination(String currentGRI, String currentDestURN)
+	static List<String> parseCandidates(String destURN)
 	{
-		String thisPath = multipathClient.convertPathToString(currentGRI);
-		String routedDestUrn = parseDestination(thisPath);
+		List<String> candidates = new ArrayList<String>();
 
-		String currentNode = routedDestUrn.substring(routedDestUrn.indexOf("node="), routedDestUrn.indexOf(":port="));
-		currentNode = currentNode.substring(5);
-		
-		String currentPort = routedDestUrn.substring(routedDestUrn.indexOf("port="), routedDestUrn.indexOf(":link="));
-		currentPort = currentPort.substring(10);
-		
-		String searchDestUrn = currentNode + '-' + currentPort;
+		Urn anycastURN = Urn.parse(destURN);
+		String destinationSet = (anycastURN == null) ? "" : anycastURN.getNodeID();
+		int setStart = destinationSet.indexOf("anycast(");
+		int setEnd = destinationSet.lastIndexOf(')');
 
-		currentDestURN = currentDestURN.replace(searchDestUrn + ',', "");
-		currentDestURN = currentDestURN.replace(searchDestUrn, "");
-		
-		return currentDestURN;
+		if(setStart != 0 || setEnd < 0)
+		{
+			candidates.add(destURN);
+			return candidates;
+		}
+
+		for(String oneDestination : destinationSet.substring(8, setEnd).split(","))
+		{
+			oneDestination = oneDestination.trim();
+			int portSeparator = oneDestination.lastIndexOf('-');
+
+			if(portSeparator <= 0)
+				continue;
+
+			candidates.add(Urn.of(anycastURN.getDomainID(), oneDestination.substring(0, portSeparator), "port-" + oneDestination.substring(portSeparator + 1), anycastURN.getLinkID()).toString());
+		}
+
+		if(candidates.isEmpty())
+			candidates.add(destURN);
+
+		return candidates;
 	}
 }
-
@@ -0,0 +1,19 @@
+package multipath;
+
+import net.es.oscars.client.OSCARSClientException;
+
+/***********************************************************************************************************************
+* Thrown by MultipathOSCARSClient.invoke() instead of calling OSCARS while its circuit breaker is open.
+* Callers that already handle OSCARSClientException need no changes; callers with cached data can catch this to serve it.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class CircuitOpenException extends OSCARSClientException
+{
+	private static final long serialVersionUID = 1L;
+
+	public CircuitOpenException(String message)
+	{
+		super(message);
+	}
+}
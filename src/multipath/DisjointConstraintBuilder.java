@@ -0,0 +1,151 @@
+package multipath;
+
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+import net.es.oscars.api.soap.gen.v06.OptionalConstraintType;
+import net.es.oscars.api.soap.gen.v06.OptionalConstraintValue;
+import net.es.oscars.api.soap.gen.v06.ResCreateContent;
+
+/***********************************************************************************************************************
+* Accumulates the links of already reserved paths and turns them into the single BASIC_MULTIPATH_SERVICE constraint that
+* tells the modified OSCARS PCE which links the next subrequest must avoid.
+*
+* Previously every reserved path was sent as a constraint of its own and the constraints were re-added for every new
+* subrequest, so the source and destination links (and any link already shared) appeared once per path and the create
+* message grew with the square of the number of paths. Here:
+* 	- Links are deduplicated by their LinkIdRegistry ID, so each link is sent at most once.
+* 	- applyTo() replaces any BASIC_MULTIPATH_SERVICE constraints already in the request, so reusing a ResCreateContent
+*     for several subrequests never accumulates constraints.
+*
+* The constraint value keeps the format of a single path (';'-terminated link IDs), which the PCE already understands.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class DisjointConstraintBuilder
+{
+	public static final String CATEGORY = "BASIC_MULTIPATH_SERVICE";
+
+	private final BitSet seenLinks = new BitSet();
+	private int[] links = new int[32];			// LinkIdRegistry IDs in the order they were first added
+	private int numLinks = 0;
+
+	/**
+	 * Adds every link of a reserved path.
+	 */
+	public DisjointConstraintBuilder addPath(PathCache.CachedPath path)
+	{
+		for(int h = 0; h < path.getHopCount(); h++)
+			addLink(path.getHopLink(h));
+
+		return this;
+	}
+
+	/**
+	 * Adds every link of a ';'-separated path String, as returned by MultipathOSCARSClient.convertPathToString().
+	 */
+	public DisjointConstraintBuilder addPath(String pathString)
+	{
+		for(String oneLink : pathString.split(";"))
+		{
+			if(!oneLink.isEmpty())
+				addLink(LinkIdRegistry.intern(oneLink));
+		}
+
+		return this;
+	}
+
+	/**
+	 * Adds the links of an existing BASIC_MULTIPATH_SERVICE constraint. Constraints of other categories are ignored.
+	 */
+	public DisjointConstraintBuilder addConstraint(OptionalConstraintType constraint)
+	{
+		if(isDisjointConstraint(constraint) && constraint.getValue() != null && constraint.getValue().getStringValue() != null)
+			addPath(constraint.getValue().getStringValue());
+
+		return this;
+	}
+
+	public boolean isEmpty()
+	{
+		return numLinks == 0;
+	}
+
+	/**
+	 * @return Number of distinct links to avoid.
+	 */
+	public int size()
+	{
+		return numLinks;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Builds the constraint of all links added so far.
+	*
+	* @return One BASIC_MULTIPATH_SERVICE constraint, or null if no links have been added.
+	*********************************************************************************************************************************************************/
+	public OptionalConstraintType build()
+	{
+		if(numLinks == 0)
+			return null;
+
+		StringBuilder value = new StringBuilder();
+
+		for(int l = 0; l < numLinks; l++)
+			value.append(LinkIdRegistry.urn(links[l])).append(';');
+
+		OptionalConstraintValue optValue = new OptionalConstraintValue();
+		optValue.setStringValue(value.toString());
+
+		OptionalConstraintType constraint = new OptionalConstraintType();
+		constraint.setCategory(CATEGORY);
+		constraint.setValue(optValue);
+
+		return constraint;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Replaces the BASIC_MULTIPATH_SERVICE constraints of a request with the single constraint of all links added so far.
+	* Optional constraints of other categories are left untouched.
+	*
+	* @param createRequest
+	*********************************************************************************************************************************************************/
+	public void applyTo(ResCreateContent createRequest)
+	{
+		List<OptionalConstraintType> constraints = createRequest.getOptionalConstraint();
+
+		for(Iterator<OptionalConstraintType> it = constraints.iterator(); it.hasNext();)
+		{
+			if(isDisjointConstraint(it.next()))
+				it.remove();
+		}
+
+		OptionalConstraintType constraint = build();
+
+		if(constraint != null)
+			constraints.add(constraint);
+	}
+
+	public static boolean isDisjointConstraint(OptionalConstraintType constraint)
+	{
+		return CATEGORY.equals(constraint.getCategory());
+	}
+
+	private void addLink(int link)
+	{
+		if(seenLinks.get(link))
+			return;
+
+		seenLinks.set(link);
+
+		if(numLinks == links.length)
+		{
+			int[] grown = new int[links.length * 2];
+			System.arraycopy(links, 0, grown, 0, numLinks);
+			links = grown;
+		}
+
+		links[numLinks++] = link;
+	}
+}
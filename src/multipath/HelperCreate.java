@@ -1,5 +1,8 @@
 package multipath;
 
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneHopContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlanePathContent;
+
 import net.es.oscars.api.soap.gen.v06.Layer2Info;
 import net.es.oscars.api.soap.gen.v06.PathInfo;
 import net.es.oscars.api.soap.gen.v06.ResCreateContent;
@@ -97,4 +100,29 @@ public class HelperCreate
         
         return createRequest;
 	}
+	
+	/*********************************************************************************************************************************************************
+	* Adds an explicit path to a ResCreateContent built by constructResCreateContent(). OSCARS will try to reserve exactly this path instead of 
+	* computing one itself.
+	* 
+	* @param createRequest
+	* @param hopURNs, Link URNs of the path in order, from the source link to the destination link.
+	*********************************************************************************************************************************************************/
+	protected void addPathHint(ResCreateContent createRequest, String[] hopURNs)
+	{
+		CtrlPlanePathContent path = new CtrlPlanePathContent();
+		path.setId("userPath");
+		
+		for(int h = 0; h < hopURNs.length; h++)
+		{
+			CtrlPlaneHopContent hop = new CtrlPlaneHopContent();
+			hop.setId("hop" + h);
+			hop.setLinkIdRef(hopURNs[h]);
+			path.getHop().add(hop);
+		}
+		
+		PathInfo pathInfo = createRequest.getUserRequestConstraint().getPathInfo();
+		pathInfo.setPathType("strict");
+		pathInfo.setPath(path);
+	}
 }
@@ -10,14 +10,8 @@ import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
 
-import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneHopContent;
-import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneLinkContent;
-import org.ogf.schema.network.topology.ctrlplane.CtrlPlanePathContent;
-
 import net.es.oscars.api.soap.gen.v06.CreateReply;
 import net.es.oscars.api.soap.gen.v06.OptionalConstraintType;
-import net.es.oscars.api.soap.gen.v06.OptionalConstraintValue;
-import net.es.oscars.api.soap.gen.v06.PathInfo;
 import net.es.oscars.api.soap.gen.v06.ResCreateContent;
 import net.es.oscars.api.soap.gen.v06.ResDetails;
 import net.es.oscars.api.soap.gen.v06.ReservedConstraintType;
@@ -25,6 +19,8 @@ import net.es.oscars.api.soap.gen.v06.UserRequestConstraintType;
 import net.es.oscars.client.OSCARSClientException;
 import net.es.oscars.common.soap.gen.OSCARSFaultMessage;
 
+import logging.Log;
+
 /***********************************************************************************************************************
 * This class provides helper methods needed for MultipathOSCARSClient method groupReservations() to work appropriately.
 * This class exists solely to provide a higher layer of modularity and keep MultipathOSCARSClient.java clean.
@@ -33,6 +29,8 @@ import net.es.oscars.common.soap.gen.OSCARSFaultMessage;
 ***********************************************************************************************************************/
 public class HelperGroup 
 {
+	private static final Log log = Log.forClass(HelperGroup.class);
+	
     private static final String mpLookupGRI = MultipathOSCARSClient.mpLookupGRI;	// File which acts as the MP-GRI lookup table
 
 	private HelperMiscellaneous miscHelper = new HelperMiscellaneous();	// Provides access to Miscellaneous helper methods
@@ -47,6 +45,15 @@ public class HelperGroup
 	* @param updatedGRI
 	*********************************************************************************************************************************************************/
 	private String updateGroupInLookupTable(String updatedGRI)
+	{
+		// The table is rewritten through temp.txt, no other client may read or append to it meanwhile //
+		synchronized(MultipathOSCARSClient.griFileLock)
+		{
+			return rewriteLookupTable(updatedGRI);
+		}
+	}
+	
+	private String rewriteLookupTable(String updatedGRI)
 	{
 		boolean isExistingGroup = false;
 		String shortGRI = miscHelper.getShortMPGri(updatedGRI);
@@ -75,12 +82,12 @@ public class HelperGroup
 	            {
  	            	if(updatedGRI.contains("_0_"))
  	            	{
- 	            		System.out.println("MP group is now empty, deleting superfluous MP_GRI: " + shortGRI);
+ 	            		log.info("MP group is now empty, deleting superfluous MP_GRI: {}", shortGRI);
  	            		returnGRI = "EMPTY";
  	            	}
  	            	else
  	            	{
- 	            		System.out.println("UPDATING GROUP: " + shortGRI);
+ 	            		log.info("UPDATING GROUP: {}", shortGRI);
  	            		griOutp.write(updatedGRI + "\n");
  	            		returnGRI = shortGRI;
  	            	}
@@ -120,8 +127,7 @@ public class HelperGroup
         }
        	catch(Exception e)
        	{
-       		System.err.println("Problem adding group MP-GRI to \'mp_gri_lookup.txt\'. Operation failed, group not added.");
-       		e.printStackTrace();
+       		log.error("Problem adding group MP-GRI to 'mp_gri_lookup.txt'. Operation failed, group not added.", e);
        		System.exit(-1);
        	}
 		
@@ -155,7 +161,7 @@ public class HelperGroup
 			 originalReservation = queryResults.get(0).getDetails();
 		else
 		{
-			System.err.println("GRI is not valid");
+			log.error("GRI is not valid");
 			return gri;
 		}
 
@@ -164,7 +170,7 @@ public class HelperGroup
 		// No point in duplicating a reservation if it is FAILED, FINISHED, CANCELLED, etc. //
 		if(!(originalStatus.contains("ACTIVE") || originalStatus.contains("RESERVED")))
 		{
-			System.err.println("The original GRI status is: " + originalStatus + ". Cannot \"clone\" this GRI.");
+			log.error("The original GRI status is: {}. Cannot \"clone\" this GRI.", originalStatus);
 			return gri;
 		}
 			
@@ -189,41 +195,26 @@ public class HelperGroup
 		
 		disjointReservation = createHelper.constructResCreateContent(description, srcUrn, isSrcTagged, srcTag, destUrn, isDestTagged, destTag, bandwidth, pathSetupMode, startTimestamp, endTimestamp);
 		
-		// OptionalConstraints of original unicast reservation //
+		// Links to avoid: those already avoided by the original unicast reservation, plus its own reserved path //
+		DisjointConstraintBuilder previousPaths = new DisjointConstraintBuilder();
+		
 		for(OptionalConstraintType oneOptConst : unicastOptConst)
 		{
-			if(oneOptConst.getCategory().equals("BASIC_MULTIPATH_SERVICE"))
-			{
-				disjointReservation.getOptionalConstraint().add(oneOptConst);
-			}
+			previousPaths.addConstraint(oneOptConst);
 		}
 		
-		// ReservedConstraints of original unicast reservation //
 		if(unicastResConst != null)
 		{
-			PathInfo unicastPathInfo = unicastResConst.getPathInfo();
-	        CtrlPlanePathContent unicastPath = unicastPathInfo.getPath();
-	        List<CtrlPlaneHopContent> unicastHops = unicastPath.getHop();
-	        String previousPath = "";
-	        
-	        for(CtrlPlaneHopContent ctrlHop : unicastHops) 
-	        {
-	        	CtrlPlaneLinkContent link = ctrlHop.getLink();
-	                     
-	        	previousPath += link.getId() + ";";
-        	}
-	        
-	        OptionalConstraintType previousOpt = new OptionalConstraintType();
-   	        previousOpt.setCategory("BASIC_MULTIPATH_SERVICE");
-   	        OptionalConstraintValue previousOptValue = new OptionalConstraintValue();
-   	        previousOptValue.setStringValue(previousPath);
-   	        previousOpt.setValue(previousOptValue);
-   	        
-   	        disjointReservation.getOptionalConstraint().add(previousOpt);
+			PathCache.CachedPath unicastPath = PathCache.fromDetails(originalReservation);
+			
+			if(unicastPath != null)
+				previousPaths.addPath(unicastPath);
 		}
 		
+		previousPaths.applyTo(disjointReservation);
+		
 		String returnGRI = createAdditionalReservations(disjointReservation, mpClient, gri, numPathsToAdd);
-		System.out.println("[MPDuplication] of GRI " + gri + " complete.");
+		log.info("[MPDuplication] of GRI {} complete.", gri);
 		
 		return returnGRI;
 	}
@@ -243,49 +234,37 @@ public class HelperGroup
 	private String createAdditionalReservations(ResCreateContent newReservation, MultipathOSCARSClient mpClient, String originalUnicastGRI, int numPathsToAdd)
 	{
 		int requestNum = 0;
-		ArrayList<OptionalConstraintType> allPreviousPaths = new ArrayList<OptionalConstraintType>();
+		DisjointConstraintBuilder previousPaths = new DisjointConstraintBuilder();
 		String updatedGroup = "";
 		
 		for(OptionalConstraintType existingDisjointPath : newReservation.getOptionalConstraint())
 		{
-			if(newReservation.getOptionalConstraint() != null)
-				allPreviousPaths.add(existingDisjointPath);
+			previousPaths.addConstraint(existingDisjointPath);
 		}
 		
 		for(int req = 0; req < numPathsToAdd; req++)
 		{
-			// Do this unless it is the first disjoint-path added
-			if(req > 0)
-			{
-				for(OptionalConstraintType previousPath: allPreviousPaths)
-				{
-					newReservation.getOptionalConstraint().add(previousPath);
-				}
-			}
+			// Replaces the previous iteration's constraint, newReservation is reused for every disjoint-path added //
+			previousPaths.applyTo(newReservation);
 			
 			try
 			{
-				CreateReply oneCreateResponse = mpClient.oscarsClient.createReservation(newReservation);
+				CreateReply oneCreateResponse = mpClient.invoke("createReservation", client -> client.createReservation(newReservation));
 				String newResGRI = oneCreateResponse.getGlobalReservationId();
 				        		    	    
 			    requestNum++;
 			     
 			    // Take the current path and convert it to a String of the hops, and then add the path String to the list of OptionalConstraints //
-			    System.out.println("Polling Multipath subrequest (" + requestNum + " of " + numPathsToAdd + ") for status. Please wait a moment...");
+			    log.debug("Polling Multipath subrequest ({} of {}) for status. Please wait a moment...", requestNum, numPathsToAdd);
 			    String thisPath = mpClient.convertPathToString(oneCreateResponse.getGlobalReservationId());
 			        
 			    if(thisPath == null)
 			    {
-			       	System.out.println("Only " + requestNum + " of the desired " + numPathsToAdd + " disjoint paths could be reserved.");
+			       	log.warn("Only {} of the desired {} disjoint paths could be reserved.", requestNum, numPathsToAdd);
 			        break;
 			    }
 						    
-			    OptionalConstraintType previousPath = new OptionalConstraintType();
-			    previousPath.setCategory("BASIC_MULTIPATH_SERVICE");
-			    OptionalConstraintValue optValue = new OptionalConstraintValue();
-			    optValue.setStringValue(thisPath);
-			    previousPath.setValue(optValue);
-				allPreviousPaths.add(previousPath);
+			    previousPaths.addPath(thisPath);
 				
 				String thisGroup = isUnicastPartOfGroup(originalUnicastGRI); // Find out if original unicast GRI is part of a group
 
@@ -296,11 +275,11 @@ public class HelperGroup
 					thisMPGRI = miscHelper.getMPGri(thisMPGRI);
 					thisGroup += "MP-" + thisMPGRI.intValue() + "_=_MP-" + thisMPGRI.intValue() + ":_1_:" + originalUnicastGRI;
 					
-					System.out.println("Combining GRI " + originalUnicastGRI + " and " + newResGRI + " into new MP group: " + thisGroup.substring(0, thisGroup.indexOf("_=_")));
+					log.info("Combining GRI {} and {} into new MP group: {}", originalUnicastGRI, newResGRI, thisGroup.substring(0, thisGroup.indexOf("_=_")));
 				}
 				else
 				{
-					System.out.println("Adding new reservation to group " + thisGroup);
+					log.info("Adding new reservation to group {}", thisGroup);
 				}
 				
 				// Update group MP-GRI to include the new reservation //
@@ -308,8 +287,8 @@ public class HelperGroup
 				updatedGroup = thisGroup.substring(0, thisGroup.indexOf(":_")+2) + numMembers + "_:" + thisGroup.substring(thisGroup.indexOf("_:")+2) + ":" + newResGRI;
 				updateGroupInLookupTable(updatedGroup);						 // Add new request to that group 
 			}
-			catch(OSCARSFaultMessage ofm){ ofm.printStackTrace(); }
-			catch(OSCARSClientException oce){ oce.printStackTrace(); }
+			catch(OSCARSFaultMessage ofm){ log.error("[MPDuplication] of GRI {} failed: {}", originalUnicastGRI, ofm.getMessage(), ofm); }
+			catch(OSCARSClientException oce){ log.error("[MPDuplication] of GRI {} failed: {}", originalUnicastGRI, oce.getMessage(), oce); }
 		}
 		
 		return updatedGroup;
@@ -349,7 +328,7 @@ public class HelperGroup
 	            }
 	        }
 		}
-		catch(Exception e){ e.printStackTrace(); }
+		catch(Exception e){ log.error("Problem reading 'mp_gri_lookup.txt'", e); }
 		
         return longFormatGRI;
 	}
@@ -376,7 +355,7 @@ public class HelperGroup
 				
 		if(allSubrequests.get(0).getAllDetails().get(0).getStatus().equals("GROUP DOES NOT EXIST!"))
 		{
-			System.err.println("The specified MP-GRI does not exist. Cannot creat a new path.");
+			log.error("The specified MP-GRI does not exist. Cannot creat a new path.");
 			return groupGRI;
 		}
 		
@@ -388,11 +367,11 @@ public class HelperGroup
 		
 		// Identify the last subrequest GRI in the group -- This subrequest necessarily contains OptionalConstraints detailing paths of all other members in the group. //
 		String lastSubrequestGRI = mpResDetails.get(mpResDetails.size()-1).getGlobalReservationId();
-		System.out.println("Last subrequest of Group " + groupGRI + " is " + lastSubrequestGRI + ". Cloning " + lastSubrequestGRI + ".");
+		log.info("Last subrequest of Group {} is {}. Cloning {}.", groupGRI, lastSubrequestGRI, lastSubrequestGRI);
 		
 		// Duplicate the last member of the group in order to create a new link-disjoint member //
 		String returnGRI = duplicateUnicast(lastSubrequestGRI, mpClient, numPathsToAdd);
-		System.out.println("[MPGroupAddition] to GRI " + miscHelper.getShortMPGri(returnGRI) + " complete.");
+		log.info("[MPGroupAddition] to GRI {} complete.", miscHelper.getShortMPGri(returnGRI));
 		
 		return returnGRI;
 	}
@@ -420,12 +399,12 @@ public class HelperGroup
     	
     	if(longGRI == null)
     	{
-    		System.err.println("\nError: All Group GRIs must begin with string \"MP\"");
+    		log.error("Error: All Group GRIs must begin with string \"MP\"");
     		return null;
     	}
     	else if(longGRI.contains(":_0_:"))
     	{
-    		System.err.println("\nError: No such Group GRI");
+    		log.error("Error: No such Group GRI");
     		return null;
     	}
     	
@@ -460,7 +439,7 @@ public class HelperGroup
     		    	
     	String returnGRI = updateGroupInLookupTable(updatedGRI);
     	
-    	System.out.println("[MPGroupSubtraction] from GRI " + miscHelper.getShortMPGri(updatedGRI) + " complete.");
+    	log.info("[MPGroupSubtraction] from GRI {} complete.", miscHelper.getShortMPGri(updatedGRI));
     	return returnGRI;
 	}
 	
@@ -498,7 +477,7 @@ public class HelperGroup
 	        File originalFile = new File(originalFileName);
 	        originalFile.delete();
         }
-		catch(Exception e){ e.printStackTrace(); }
+		catch(Exception e){ log.error("Problem copying {} to {}", originalFileName, copyFileName, e); }
 	}
 
 }
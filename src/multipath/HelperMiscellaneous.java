@@ -7,6 +7,8 @@ import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.InputStreamReader;
 
+import logging.Log;
+
 /***********************************************************************************************************************
 * This class provides helper methods needed for various MultipathOSCARSClient methods to work appropriately.
 * This class exists solely to provide a higher layer of modularity and keep MultipathOSCARSClient.java clean.
@@ -15,6 +17,8 @@ import java.io.InputStreamReader;
 ***********************************************************************************************************************/
 public class HelperMiscellaneous 
 {
+	private static final Log log = Log.forClass(HelperMiscellaneous.class);
+	
 	public static final String mpQueryOut = MultipathOSCARSClient.mpQueryOut;	// File containing subrequest statuses for queried MP reservations.
     public static final String mpLookupGRI = MultipathOSCARSClient.mpLookupGRI;	// File which acts as the MP-GRI lookup table
     public static final String mpTrackerGRI = MultipathOSCARSClient.mpTrackerGRI; // File containing tracker for next MP-GRI number
@@ -69,8 +73,7 @@ public class HelperMiscellaneous
                	}
             	catch(Exception e)
             	{
-            		System.err.println("Problem looking up MP-GRI in \'mp_gri_lookup.txt\'");
-            		System.err.println(originalGRI + " is not a valid MP-GRI, cannot Query.");
+            		log.error("Problem looking up MP-GRI in 'mp_gri_lookup.txt': {} is not a valid MP-GRI, cannot Query.", originalGRI, e);
             		System.exit(-1);
             	}
            	}
@@ -169,8 +172,7 @@ public class HelperMiscellaneous
 	        }
         	catch(Exception e)
         	{
-        		System.err.println("Problem looking up MP-GRI in \'mp_gri_lookup.txt\'");
-        		e.printStackTrace();
+        		log.error("Problem looking up MP-GRI in 'mp_gri_lookup.txt'", e);
         		System.exit(-1);
         	}
 			
@@ -185,6 +187,8 @@ public class HelperMiscellaneous
 	*********************************************************************************************************************************************************/
 	protected Integer getMPGri(Integer thisMPGri)
 	{		
+		synchronized(MultipathOSCARSClient.griFileLock)
+		{
 		try
     	{
     		int thisGri;
@@ -218,8 +222,9 @@ public class HelperMiscellaneous
             	
             	thisMPGri = new Integer(0);
     		}
-    		catch(Exception e2){e2.printStackTrace();}
+    		catch(Exception e2){ log.error("Problem creating {}", mpTrackerGRI, e2); }
     	}
+		}
 		
 		return thisMPGri + 1;
 	}
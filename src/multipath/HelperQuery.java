@@ -25,6 +25,8 @@ import net.es.oscars.api.soap.gen.v06.ReservedConstraintType;
 import net.es.oscars.api.soap.gen.v06.UserRequestConstraintType;
 import net.es.oscars.common.soap.gen.OSCARSFaultReport;
 
+import logging.Log;
+
 /***********************************************************************************************************************
 * This class provides helper methods needed for MultipathOSCARSClient method queryMPReservation() to work appropriately.
 * This class exists solely to provide a higher layer of modularity and keep MultipathOSCARSClient.java clean.
@@ -34,6 +36,7 @@ import net.es.oscars.common.soap.gen.OSCARSFaultReport;
 public class HelperQuery 
 {
 	private static final String mpQueryOut = MultipathOSCARSClient.mpQueryOut;	// File containing subrequest statuses for queried MP reservations.
+	private static final Log log = Log.forClass(HelperQuery.class);
 	
 	    	
 	/*********************************************************************************************************************************************************
@@ -103,11 +106,11 @@ public class HelperQuery
 		}
 		catch (IOException e) 
 		{
-			e.printStackTrace();
+			log.error("Error writing query output to '{}'", mpQueryOut, e);
 		}
 		catch(Exception e)
 		{
-			e.printStackTrace();
+			log.error("Error writing query output for {}", gri, e);
 			System.exit(-1);
 		}
 	}
@@ -163,7 +166,7 @@ public class HelperQuery
 			fstream.close();
 		
 		}
-		catch(IOException e){ e.printStackTrace(); }
+		catch(IOException e){ log.error("Error reading query output from '{}'", mpQueryOut, e); }
 		
 		return allSubrequests;
 	}
@@ -179,10 +182,15 @@ public class HelperQuery
     *********************************************************************************************************************************************************/
     protected void printResDetails(ResDetails resDetails) 
     {
-        System.out.println("\nGRI: " + resDetails.getGlobalReservationId());
-        System.out.println("Login: " + resDetails.getLogin());
-        System.out.println("Description: " + resDetails.getDescription());
-        System.out.println("Status: " + resDetails.getStatus().toString());
+    	if(!log.isInfoEnabled())
+    		return;
+    	
+    	StringBuilder output = new StringBuilder();
+    	
+        output.append("\nGRI: ").append(resDetails.getGlobalReservationId()).append('\n');
+        output.append("Login: " + resDetails.getLogin()).append('\n');
+        output.append("Description: " + resDetails.getDescription()).append('\n');
+        output.append("Status: " + resDetails.getStatus().toString()).append('\n');
         
         UserRequestConstraintType userConstraint = resDetails.getUserRequestConstraint();
         ReservedConstraintType reservedConstraint = resDetails.getReservedConstraint();
@@ -193,9 +201,9 @@ public class HelperQuery
 
         if (reservedConstraint !=  null) 
         {
-            System.out.println("startTime: " + new Date(reservedConstraint.getStartTime()*1000).toString());
-            System.out.println("endTime: " + new Date(reservedConstraint.getEndTime()*1000).toString());
-            System.out.println("bandwidth: " + Integer.toString(reservedConstraint.getBandwidth()));
+            output.append("startTime: " + new Date(reservedConstraint.getStartTime()*1000).toString()).append('\n');
+            output.append("endTime: " + new Date(reservedConstraint.getEndTime()*1000).toString()).append('\n');
+            output.append("bandwidth: " + Integer.toString(reservedConstraint.getBandwidth())).append('\n');
             
             pathInfo=reservedConstraint.getPathInfo();
             pathType = "reserved";
@@ -204,17 +212,18 @@ public class HelperQuery
         {            
             if (userConstraint != null) 
             {
-            	System.out.println("startTime: " + new Date(userConstraint.getStartTime()*1000).toString());
-                System.out.println("endTime: " + new Date(userConstraint.getEndTime()*1000).toString());
-                System.out.println("bandwidth: " + Integer.toString(userConstraint.getBandwidth()));
+            	output.append("startTime: " + new Date(userConstraint.getStartTime()*1000).toString()).append('\n');
+                output.append("endTime: " + new Date(userConstraint.getEndTime()*1000).toString()).append('\n');
+                output.append("bandwidth: " + Integer.toString(userConstraint.getBandwidth())).append('\n');
                 
                 pathInfo=userConstraint.getPathInfo();
                 pathType="requested";
-                System.out.println("no path reserved, using requested path ");
+                output.append("no path reserved, using requested path ").append('\n');
             }
             else
             {
-                System.out.println("invalid reservation, no reserved or requested path");
+                output.append("invalid reservation, no reserved or requested path");
+                log.info("{}", output);
                 return;
             }
         }
@@ -227,7 +236,7 @@ public class HelperQuery
             
             if (hops.size() > 0) 
             {
-                System.out.println("Hops in " + pathType + " path are:");
+                output.append("Hops in " + pathType + " path are:").append('\n');
             
                 for ( CtrlPlaneHopContent ctrlHop : hops ) 
                 {
@@ -248,12 +257,12 @@ public class HelperQuery
                             }
                         }
                         
-                        System.out.println(link.getId() + " vlanRange: " + vlanRangeAvail);
+                        output.append(link.getId() + " vlanRange: " + vlanRangeAvail).append('\n');
                     } 
                     else 
                     {
                         String id = ctrlHop.getLinkIdRef();
-                        System.out.println(id);
+                        output.append(id).append('\n');
                     }
                 }
             }
@@ -268,23 +277,24 @@ public class HelperQuery
                     {
                         vlanRange = layer2Info.getSrcVtag().getValue();
                     }
-                    System.out.println("Source urn: " + layer2Info.getSrcEndpoint() + " vlanTag:" + vlanRange);
+                    output.append("Source urn: " + layer2Info.getSrcEndpoint() + " vlanTag:" + vlanRange).append('\n');
                     
                     vlanRange = "any";
                     if (layer2Info.getDestVtag() != null) 
                     {
                         vlanRange = layer2Info.getDestVtag().getValue();
                     }
-                    System.out.println("Destination urn: " + layer2Info.getDestEndpoint() + " vlanTag:" + vlanRange);
+                    output.append("Destination urn: " + layer2Info.getDestEndpoint() + " vlanTag:" + vlanRange).append('\n');
                 }
             }
         } 
         else 
         {
-            System.out.println("no path information in " + pathType + " constraint");
+            output.append("no path information in " + pathType + " constraint").append('\n');
         }
+        
+        log.info("{}", output);
     }
-
    
     
     /*********************************************************************************************************************************************************
@@ -303,6 +313,9 @@ public class HelperQuery
     *********************************************************************************************************************************************************/
     protected void printMPResDetails(String gri , ArrayList<QueryResContent> allQueries, ArrayList<ResDetails> allResDetails, ArrayList<List<OSCARSFaultReport>> allReports)
     {
+    	if(!log.isInfoEnabled())
+    		return;
+    	
     	String allOutput = "\n\n[queryMultipathReservation]   gri= " + gri + " complete.\n";
     	int mpID = -1;
     	
@@ -389,7 +402,7 @@ public class HelperQuery
        		}
   		}
     
-    	System.out.println(allOutput);
+    	log.info("{}", allOutput);
     }
     
     /*********************************************************************************************************************************************************
@@ -0,0 +1,91 @@
+package multipath;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import topology.Urn;
+
+/***********************************************************************************************************************
+* JVM-wide intern table that gives every hop link URN seen in a reserved path a small int ID.
+*
+* - The same URN always maps to the same ID, however it is spelled (see Urn.parse()), so cached paths can store their
+*   hops as int[] and compare them without touching the Strings again.
+* - The node of each link ('domain:node') is taken from its Urn once, when the link is first interned,
+*   and is itself interned to an int ID. Two hops are on the same node iff their node IDs are equal.
+* - IDs are never reused or released. The registry only grows with the number of distinct links in the network.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class LinkIdRegistry
+{
+	private static final Map<String, Integer> linkIDs = new HashMap<String, Integer>();
+	private static final List<String> linkURNs = new ArrayList<String>();
+	private static final List<Integer> linkNodes = new ArrayList<Integer>();
+
+	private static final Map<String, Integer> nodeIDs = new HashMap<String, Integer>();
+
+	private LinkIdRegistry()
+	{
+	}
+
+	/*********************************************************************************************************************************************************
+	* Returns the ID of the given link URN, assigning the next free ID if it has not been seen before.
+	*
+	* @param linkURN, Hop link URN as reported in a reserved path.
+	* @return Link ID
+	*********************************************************************************************************************************************************/
+	public static synchronized int intern(String linkURN)
+	{
+		Integer link = linkIDs.get(linkURN);
+
+		if(link != null)
+			return link;
+
+		Urn urn = Urn.parse(linkURN);
+		String canonicalURN = (urn == null) ? linkURN : urn.toString();		// Shared with the topology and every other holder of this URN
+
+		// Another spelling of a link already interned gets its ID, and is remembered so it is not parsed again //
+		link = linkIDs.get(canonicalURN);
+
+		if(link == null)
+		{
+			link = linkURNs.size();
+			linkIDs.put(canonicalURN, link);
+			linkURNs.add(canonicalURN);
+			linkNodes.add(internNode((urn == null) ? linkURN : urn.getDomainID() + ":" + urn.getNodeID()));
+		}
+
+		linkIDs.put(linkURN, link);
+
+		return link;
+	}
+
+	public static synchronized String urn(int link)
+	{
+		return linkURNs.get(link);
+	}
+
+	/**
+	 * @return ID of the node owning the given link.
+	 */
+	public static synchronized int node(int link)
+	{
+		return linkNodes.get(link);
+	}
+
+	// Hops that are not link URNs (should not happen in a reserved path) are treated as a node of their own //
+	private static int internNode(String nodeName)
+	{
+		Integer node = nodeIDs.get(nodeName);
+
+		if(node != null)
+			return node;
+
+		int newNode = nodeIDs.size();
+		nodeIDs.put(nodeName, newNode);
+
+		return newNode;
+	}
+}
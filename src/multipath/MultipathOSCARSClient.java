@@ -2,17 +2,36 @@ package multipath;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-
-import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneHopContent;
-import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneLinkContent;
-import org.ogf.schema.network.topology.ctrlplane.CtrlPlanePathContent;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 import net.es.oscars.api.soap.gen.v06.*;
 import net.es.oscars.client.*;
 import net.es.oscars.common.soap.gen.*;
 
+import concurrency.TaskExecutors;
 import config.Configuration;
+import logging.Log;
+import logging.LogContext;
+import metrics.MetricsRegistry;
+import topology.DisjointPathSolver;
+import topology.TopologyGraph;
+import trace.Span;
+import trace.Tracer;
+import transport.CircuitBreaker;
 
 /** MULTIPATH SUMMARY **
  *  
@@ -30,13 +49,25 @@ import config.Configuration;
  **/						
 public class MultipathOSCARSClient
 {
+	private static final Log log = Log.forClass(MultipathOSCARSClient.class);
+	
     protected static final String mpQueryOut = Configuration.queryOutputFile;		// File containing subrequest statuses for queried MP reservations.
     protected static final String mpLookupGRI = Configuration.mpGriLookupFile;		// File which acts as the MP-GRI lookup table
     protected static final String mpTrackerGRI = Configuration.mpGriTrackerFile;	// File which provides persistent ID for next MP-GRI
     
+    // The files above are shared by every MultipathOSCARSClient in the JVM. Anything that writes a file and reads it back must hold its lock throughout. //
+    protected static final Object queryOutputLock = new Object();		// mp_query_out.txt
+    protected static final Object griFileLock = new Object();			// mp_gri_tracker.txt, mp_gri_lookup.txt
+    
 	public boolean silentQuery = false;		// Used to suppress distracting query output when the user is not directly intending to query
 	
-	protected OSCARSClient oscarsClient;
+	// OSCARS calls of the *Async() methods. Their subrequests are polled by the SubrequestPoller, not on these threads //
+	private static final ExecutorService asyncExecutor = TaskExecutors.newBlockingExecutor("mpc-async", Configuration.asyncThreads);
+	private static final ExecutorService groupExecutor = TaskExecutors.newBlockingExecutor("mpc-async-group", Configuration.asyncGroupThreads);
+	
+	private String oscarsURL;
+	private OSCARSClientPool clientPool;		// Shared by every MultipathOSCARSClient of the same OSCARS URL, see invoke()
+	private CircuitBreaker oscarsBreaker;		// Shared by every MultipathOSCARSClient of the same OSCARS URL
 	
 	private HelperCreate createHelper = new HelperCreate();				// Provides access to createMPReservation() helper methods
 	private HelperQuery queryHelper = new HelperQuery();				// Provides access to queryMPReservation() helper methods
@@ -51,11 +82,28 @@ public class MultipathOSCARSClient
 	
 	private ArrayList<SubrequestTuple> globalDesiredInfo = new ArrayList<SubrequestTuple>();
 	
+	private TopologyGraph topologyGraph;		// Cached topology used to precompute disjoint paths. If null, OSCARS computes every path sequentially.
+	
 	public ArrayList<SubrequestTuple> getLastMPQuery()
 	{
 		return globalDesiredInfo;
 	}
 	
+	/*********************************************************************************************************************************************************
+	* Supplies the topology used by createMPReservation() to compute all disjoint paths locally and submit them together.
+	* 
+	* @param graph, Current topology graph, or null to always let OSCARS compute the paths one at a time.
+	*********************************************************************************************************************************************************/
+	public void setTopologyGraph(TopologyGraph graph)
+	{
+		topologyGraph = graph;
+	}
+	
+	public TopologyGraph getTopologyGraph()
+	{
+		return topologyGraph;
+	}
+	
 	/*********************************************************************************************************************************************************
 	* Constructor - Establishes connection with OSCARS and handles WS-Security issues
 	* 
@@ -65,38 +113,123 @@ public class MultipathOSCARSClient
 	{		
 		@SuppressWarnings("unused")
 		Configuration config  = new Configuration();		// Sets up the necessary security for connecting to OSCARS services
-			    	
+		
+		this.oscarsURL = oscarsURL;
+		clientPool = OSCARSClientPool.forURL(oscarsURL);	// Connect to OSCARS
+		oscarsBreaker = CircuitBreaker.forName("oscars:" + oscarsURL);
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Makes one OSCARS API call on a client borrowed from the pool, so that concurrent callers (parallel subrequests, anycast evaluations, several
+	* sessions) never share a CXF proxy. Every OSCARS call in this package goes through here.
+	* 
+	* While OSCARS is failing, the "oscars" CircuitBreaker is open and calls fail immediately with a CircuitOpenException instead of tying up a thread
+	* until the receive timeout.
+	* 
+	* Every call is timed into MetricsRegistry under its operation name and outcome (success, fault, error, rejected), and recorded as an
+	* "oscars:<operation>" span of the current trace, if any.
+	* 
+	* @param operation, Name of the OSCARS operation, e.g. "queryReservation"
+	* @param call, The call to make on the borrowed client
+	* @return Whatever the call returns
+	* @throws OSCARSFaultMessage, Fault reported by OSCARS
+	* @throws OSCARSClientException, If the circuit is open, no client is available or the call failed in the client/transport. The client is then discarded from the pool.
+	*********************************************************************************************************************************************************/
+	protected <T> T invoke(String operation, OSCARSCall<T> call) throws OSCARSFaultMessage, OSCARSClientException
+	{
+		long startNanos = System.nanoTime();
+		Span span = Tracer.startSpan("oscars:" + operation);
+		
+		if(!oscarsBreaker.allowRequest())
+		{
+			MetricsRegistry.recordOSCARSCall(operation, "rejected", System.nanoTime() - startNanos);
+			span.set("outcome", "rejected").end();
+			throw new CircuitOpenException("OSCARS is unavailable, " + operation + "() not attempted (circuit open)");
+		}
+		
+		OSCARSClientPool.PooledClient pooled;
+		
 		try
-        {
-			oscarsClient = new OSCARSClient(oscarsURL);		// Connect to OSCARS
-    		    		
-    		System.out.println("OSCARS Connection successfully established!");
-        }
-        catch(OSCARSClientException ce) 
-        {
-        	System.err.println("OSCARSClientException thrown trying to initialize OSCARSClient");
-        	ce.printStackTrace();
-        }
-    	catch(Exception e)
-    	{
-    		System.err.println("Exception thrown trying to initialize OSCARSClient");
-    		e.printStackTrace();
-    	}
+		{
+			pooled = clientPool.borrow();
+		}
+		catch(OSCARSClientException | RuntimeException e)
+		{
+			oscarsBreaker.recordAbandoned();
+			MetricsRegistry.recordOSCARSCall(operation, "rejected", System.nanoTime() - startNanos);
+			span.set("outcome", "rejected").end();
+			throw e;
+		}
+		
+		String outcome = "error";
+		span.set("poolWaitMs", (System.nanoTime() - startNanos) / 1000000);
+		
+		try
+		{
+			T result = call.call(pooled.getClient());
+			outcome = "success";
+			
+			return result;
+		}
+		catch(OSCARSFaultMessage fm)
+		{
+			outcome = "fault";		// OSCARS answered, it just didn't like the request
+			throw fm;
+		}
+		finally
+		{
+			long elapsedNanos = System.nanoTime() - startNanos;
+			
+			// Whatever was thrown, a call that got no answer must count against OSCARS, or a half-open breaker would wait for its probe forever //
+			if(outcome.equals("error"))
+			{
+				oscarsBreaker.recordFailure();
+				pooled.invalidate();
+			}
+			else
+				oscarsBreaker.recordSuccess();
+			
+			clientPool.release(pooled);
+			MetricsRegistry.recordOSCARSCall(operation, outcome, elapsedNanos);		// Includes any wait for a pooled client
+			span.set("outcome", outcome).end();
+			log.trace("oscars op={} outcome={} latencyMs={}", operation, outcome, elapsedNanos / 1000000);
+		}
 	}
 	
+	/**
+	 * @return false while the OSCARS circuit breaker is rejecting calls, i.e. callers should fall back to cached data.
+	 */
+	public boolean isOSCARSAvailable()
+	{
+		return oscarsBreaker.isAvailable();
+	}
+	
+	public CircuitBreaker getCircuitBreaker()
+	{
+		return oscarsBreaker;
+	}
+	
+	public OSCARSClientPool getClientPool()
+	{
+		return clientPool;
+	}
 	
 	
 	/*********************************************************************************************************************************************************
 	* Queries a specific GRI to get its path information. Then that path information is converted to a String which is returned to the calling function.
 	* The calling function can then use the path string as an OptionalConstraint for future reservations.
+	* If the path of this GRI is already in the PathCache it is returned without querying OSCARS again (and is not added to getLastMPQuery()).
 	* 
 	* @param gri
-	* @return String representation of this GRI's reserved path
+	* @return String representation of this GRI's reserved path, or null if it has none or the thread was interrupted while waiting for it.
 	**********************************************************************************************************************************************************/	
 	public String convertPathToString(String gri)
 	{
-		String thisPath = "";	
         SubrequestTuple completedReservation;
+        PathCache.CachedPath cachedPath = PathCache.get(gri);
+        
+        if(cachedPath != null)
+        	return cachedPath.toPathString();
         
 		isPartOfMultipathPoll = true;
 		silentQuery = true;
@@ -104,38 +237,28 @@ public class MultipathOSCARSClient
 		silentQuery = false;
 		isPartOfMultipathPoll = false;
 		
+		if(completedReservation == null)
+			return null;								// Interrupted before the reservation reached a final state
+		
 		globalDesiredInfo.add(completedReservation);	// Copy to global list for easier access without re-querying
 		        
-        ResDetails oneReservationDetails = completedReservation.getAllDetails().get(0);
-        ReservedConstraintType oneReservationConstraint = oneReservationDetails.getReservedConstraint();
-        PathInfo oneReservationPathInfo = null;
-        CtrlPlanePathContent oneReservationPath = null;
-        List<CtrlPlaneHopContent> hops;
-         
-        if(oneReservationConstraint == null)
-        {
-        	return null;
-        }
-        	
-        oneReservationPathInfo = oneReservationConstraint.getPathInfo();
-        oneReservationPath = oneReservationPathInfo.getPath();
-        	  	         
-        if(oneReservationPath != null) 
-        {
-        	hops = oneReservationPath.getHop();
-            
-        	if(hops.size() > 0) 
-        	{
-        		for(CtrlPlaneHopContent ctrlHop : hops) 
-        		{
-        			CtrlPlaneLinkContent link = ctrlHop.getLink();
-                     
-        			thisPath += link.getId() + ";";
-        		}
-        	}
-        }
-
-        return thisPath;
+        return pathToString(completedReservation.getAllDetails().get(0));
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Converts the reserved path of a queried reservation into a String of its hops. The parsed path is kept in the PathCache.
+	* 
+	* @param oneReservationDetails
+	* @return ';'-terminated list of the hop link IDs, or null if the reservation has no reserved path (i.e. it failed).
+	**********************************************************************************************************************************************************/	
+	private String pathToString(ResDetails oneReservationDetails)
+	{
+		PathCache.CachedPath reservedPath = PathCache.fromDetails(oneReservationDetails);
+		
+		if(reservedPath == null)
+			return null;
+		
+		return reservedPath.toPathString();
 	}
 	
 	
@@ -169,21 +292,72 @@ public class MultipathOSCARSClient
 	* @return GRI of created reservation
 	**********************************************************************************************************************************************************/
 	public String createMPReservation(String description, String srcUrn, boolean isSrcTagged, String srcTag, String destUrn, boolean isDestTagged, String destTag, int bandwidth, String pathSetupMode, long startTimestamp, long endTimestamp, int numDisjointPaths)
+	{
+		String operation = (numDisjointPaths > 1) ? "createMP" : "createUnicast";
+		long startNanos = System.nanoTime();
+		Span span = Tracer.startTrace(operation).set("paths", numDisjointPaths).set("destination", destUrn);
+		String gri = null;
+		
+		LogContext fields = LogContext.with(LogContext.op, operation);
+		
+		try
+		{
+			gri = reserveDisjointPaths(description, srcUrn, isSrcTagged, srcTag, destUrn, isDestTagged, destTag, bandwidth, pathSetupMode, startTimestamp, endTimestamp, numDisjointPaths);
+			return gri;
+		}
+		finally
+		{
+			MetricsRegistry.recordOperation(operation, startNanos, createOutcome(gri, numDisjointPaths, countReservedPaths(globalDesiredInfo)));
+			span.set("gri", gri).end();
+			fields.close();
+		}
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Outcome of a create, as recorded by MetricsRegistry. A unicast reservation is only "accepted": OSCARS computes its path after createReservation()
+	* returns, and createMPReservation() does not wait for it.
+	* 
+	* @param gri, GRI the create returned
+	* @param numDisjointPaths, Number of paths requested
+	* @param reservedPaths, Number of subrequests which reached a successful status, see countReservedPaths()
+	*********************************************************************************************************************************************************/
+	static String createOutcome(String gri, int numDisjointPaths, int reservedPaths)
+	{
+		if(gri == null || gri.equals(""))
+			return MetricsRegistry.outcomeFailed;
+		
+		if(numDisjointPaths <= 1)
+			return MetricsRegistry.outcomeAccepted;
+		
+		return MetricsRegistry.outcomeOf(reservedPaths, numDisjointPaths);
+	}
+	
+	/**
+	 * @return Number of subrequests in queryResults (e.g. getLastMPQuery()) which reached a successful status.
+	 */
+	static int countReservedPaths(List<SubrequestTuple> queryResults)
+	{
+		int reservedPaths = 0;
+		
+		for(SubrequestTuple oneResult : queryResults)
+		{
+			if(isSuccessfulStatus(oneResult.getAllDetails().get(0).getStatus()))
+				reservedPaths++;
+		}
+		
+		return reservedPaths;
+	}
+	
+	private String reserveDisjointPaths(String description, String srcUrn, boolean isSrcTagged, String srcTag, String destUrn, boolean isDestTagged, String destTag, int bandwidth, String pathSetupMode, long startTimestamp, long endTimestamp, int numDisjointPaths)
 	{
 		String griToReturn = "";
     	    	        
         ArrayList<ResCreateContent> allResCreateContents = new ArrayList<ResCreateContent>();
         ArrayList<CreateReply> allCreateReplies = new ArrayList<CreateReply>();
         globalDesiredInfo = new ArrayList<SubrequestTuple>();
-        FileWriter griStream;
-   		BufferedWriter outGri;
    		Integer thisMPGri = new Integer(0);
    		int requestNum = 0;
    		
-   		String mpOutput = "";
-    	String workingGriMP = "";  
-    	String shortGriMP = "";
-    	
     	String resourceShortageNotice = "";
     	
     	int disjointPaths = numDisjointPaths;
@@ -195,7 +369,26 @@ public class MultipathOSCARSClient
 	   		{
 	   			thisMPGri = miscHelper.getMPGri(thisMPGri);
 	   				        		        	
-	     		List<OptionalConstraintType> allPreviousPaths = new ArrayList<OptionalConstraintType>();
+	     		DisjointConstraintBuilder previousPaths = new DisjointConstraintBuilder();		// Links of every path reserved so far, sent as one deduplicated constraint
+	     		
+	     		// If the topology is known, compute all disjoint paths locally and submit them together. Any path OSCARS rejects is then found sequentially below. //
+	     		int[][] hintedPaths = computeDisjointPaths(srcUrn, destUrn, bandwidth, numDisjointPaths);
+	     		
+	     		if(hintedPaths != null)
+	     		{
+	     			requestNum = createHintedSubrequests(hintedPaths, description, srcUrn, isSrcTagged, srcTag, destUrn, isDestTagged, destTag, bandwidth, pathSetupMode, startTimestamp, endTimestamp, allResCreateContents, allCreateReplies, previousPaths);
+	     			
+	     			if(Thread.currentThread().isInterrupted())
+	     			{
+	     				log.warn("Multipath reservation abandoned: interrupted while reserving its precomputed disjoint paths.");
+	     				return griToReturn;
+	     			}
+	     			
+	     			disjointPaths = numDisjointPaths - requestNum;
+	     			
+	     			if(disjointPaths > 0)
+	     				log.info("{} of {} precomputed disjoint paths reserved, computing the remaining paths sequentially.", requestNum, numDisjointPaths);
+	     		}
 		   		
 		    	//Submit createReservation request to OSCARS for EACH subrequest
 		   		while(disjointPaths > 0)
@@ -206,25 +399,19 @@ public class MultipathOSCARSClient
 		   			// Do this unless it is the first path reserved
 		   			if(requestNum > 0)
 		   			{                                
-		        		for(int opt = 0; opt < allPreviousPaths.size(); opt++)
-		        		{
-		        			oneResCreateContent.getOptionalConstraint().add(allPreviousPaths.get(opt));
-		        		}
+		        		previousPaths.applyTo(oneResCreateContent);
 		   			}
 		   			
 		   			CreateReply oneCreateResponse;
-					oneCreateResponse = oscarsClient.createReservation(oneResCreateContent);
+					oneCreateResponse = invoke("createReservation", client -> client.createReservation(oneResCreateContent));
 
 		   			allCreateReplies.add(oneCreateResponse);
-		
-		   	        workingGriMP = workingGriMP + oneCreateResponse.getGlobalReservationId() + ":";		// Update the MP-GRI with the subrequest GRI
-		   	        
 					
 		   	        requestNum++;
 		   	        disjointPaths--;
 		   			
 		   	        // Take the current path and convert it to a String of the hops, and then add the path String to the list of OptionalConstraints //
-		   	        System.out.println("Polling Multipath subrequest (" + requestNum + " of " + numDisjointPaths + ") for status. Please wait a moment...");
+		   	        log.debug("Polling Multipath subrequest ({} of {}) for status. Please wait a moment...", requestNum, numDisjointPaths);
 
 		   	        String thisPath = convertPathToString(oneCreateResponse.getGlobalReservationId());
 		   	        		   	        
@@ -233,7 +420,7 @@ public class MultipathOSCARSClient
 		   	        	resourceShortageNotice = "\n** Only " + (requestNum-1) + " of the desired " + numDisjointPaths + " disjoint paths could be reserved!\n";
 		   	        	resourceShortageNotice += "** This Multipath GRI consists of " + requestNum + " unicast subrequest GRIs."; 
 		   	        			
-		   	        	System.out.println(resourceShortageNotice);
+		   	        	log.warn("{}", resourceShortageNotice);
 		   	        	break;
 		   	        }
 		   	        
@@ -242,63 +429,18 @@ public class MultipathOSCARSClient
 		   	        /**Should have no effect on a Multipath Unicast Request**/
 					if(requestNum == 1)
 					{
-						int lastSemi = thisPath.length()-1;
-						int secondLastSemi = thisPath.lastIndexOf(";", lastSemi - 1);
-						destUrn = thisPath.substring(secondLastSemi + 1, thisPath.length()-1);
+						String reservedDestination = PathCache.fromDetails(globalDesiredInfo.get(globalDesiredInfo.size()-1).getAllDetails().get(0)).getDestination();
+						
+						if(reservedDestination != null)
+							destUrn = reservedDestination;
 					}		
 					/***MULTIPATH + ANYCAST***/
 					
-		   	        OptionalConstraintType previousPath = new OptionalConstraintType();
-		   	        previousPath.setCategory("BASIC_MULTIPATH_SERVICE");
-		   	        OptionalConstraintValue optValue = new OptionalConstraintValue();
-		   	        optValue.setStringValue(thisPath);
-		   	        previousPath.setValue(optValue);
-		 			allPreviousPaths.add(previousPath);
+		 			previousPaths.addPath(thisPath);
 		   	        // //
 		   		}
 		        
-		   		mpOutput = "\n[createMultipathReservation]  complete.\nWorking MP-Gri = ";
-	        	workingGriMP = "MP-" + (thisMPGri.intValue()) + ":_" + requestNum + "_:";
-	        	shortGriMP = "MP-" + (thisMPGri.intValue());
-
-	        	for(int res = 0; res < allResCreateContents.size(); res++)
-	        	{
-	        		CreateReply oneReply = allCreateReplies.get(res);
-	        		System.out.println("\n[createReservation]  " + (res+1) + " of " + requestNum + "\nGRI = " + oneReply.getGlobalReservationId() + "\nstatus=" + oneReply.getStatus());
-	        		
-	        		workingGriMP += oneReply.getGlobalReservationId() + ":";
-	        	}
-	        		
-	        	workingGriMP = workingGriMP.substring(0, workingGriMP.length()-1);	// Handles trailing colon in MP-GRI string //
-	        	mpOutput = mpOutput + shortGriMP;
-	        	mpOutput = mpOutput + resourceShortageNotice;
-	        	System.out.println(mpOutput);   
-
-		   		try
-	        	{
-	        		//Add entry into MP-GRI lookup table for this request.
-	        		if(workingGriMP.contains("MP-0:")) 		//Clear the GRI lookup file if the MP-GRIs have been reset. Prevents duplicate IDs in lookup table.
-	        		{
-	        			griStream = new FileWriter(mpLookupGRI);
-	        		}
-	        		else
-	        		{
-	        			griStream = new FileWriter(mpLookupGRI, true); // Otherwise append to existing lookup file
-	        		}
-	        		
-	        		outGri = new BufferedWriter(griStream);
-	        		outGri.write(shortGriMP + "_=_" + workingGriMP + "\n");		//Maps short GRI to working GRI
-	        		        		
-	        		outGri.close();
-	        		griStream.close();
-	        	}
-	        	catch(Exception e)
-	        	{
-	        		System.err.println("Error Writing MP-GRI to \'" + mpLookupGRI + "\'.");
-	        		e.printStackTrace();
-	        	}
-		        		    			    		
-	    		griToReturn = shortGriMP;
+		   		griToReturn = recordMPGri(thisMPGri.intValue(), requestNum, allCreateReplies, resourceShortageNotice);
 
 	   		}
 	   		// Traditional Unicast //
@@ -306,20 +448,337 @@ public class MultipathOSCARSClient
 	    	{
 	    		ResCreateContent createRequest = createHelper.constructResCreateContent(description, srcUrn, isSrcTagged, srcTag, destUrn, isDestTagged, destTag, bandwidth, pathSetupMode, startTimestamp, endTimestamp);
 	    		
-	    		CreateReply createResponse = oscarsClient.createReservation(createRequest);		// Submit createReservation() request to OSCARS for unicast reservation
+	    		CreateReply createResponse = invoke("createReservation", client -> client.createReservation(createRequest));		// Submit createReservation() request to OSCARS for unicast reservation
 	   		
-	   			System.out.println("\n[createReservation]  gri= " + createResponse.getGlobalReservationId() + "\ntransactionId=" + createResponse.getMessageProperties().getGlobalTransactionId() + "\nstatus=" + createResponse.getStatus());
+	   			log.info("\n[createReservation]  gri= {}\ntransactionId={}\nstatus={}", createResponse.getGlobalReservationId(), createResponse.getMessageProperties().getGlobalTransactionId(), createResponse.getStatus());
 	   			
 	   			griToReturn = createResponse.getGlobalReservationId();
 	   		} 
 
 	    }
-    	catch (OSCARSFaultMessage e1) {e1.printStackTrace();} 
-    	catch (OSCARSClientException e1) {e1.printStackTrace();}
+    	catch (OSCARSFaultMessage e1) {log.error("[createReservation] failed: {}", e1.getMessage(), e1);} 
+    	catch (OSCARSClientException e1) {log.error("[createReservation] failed: {}", e1.getMessage(), e1);}
 		   		
    		return griToReturn;
 	}
 	
+	/*********************************************************************************************************************************************************
+	* Assigns the short MP-GRI of a created Multipath reservation and adds its entry to the MP-GRI lookup table.
+	* 
+	* @param thisMPGri, ID from the MP-GRI tracker
+	* @param requestNum, Number of subrequests in the group
+	* @param allCreateReplies, Replies to the createReservation() of each subrequest
+	* @param resourceShortageNotice, Printed with the summary if fewer paths than requested were reserved
+	* @return Short MP-GRI, e.g. "MP-12"
+	*********************************************************************************************************************************************************/
+	private String recordMPGri(int thisMPGri, int requestNum, List<CreateReply> allCreateReplies, String resourceShortageNotice)
+	{
+		String mpOutput = "\n[createMultipathReservation]  complete.\nWorking MP-Gri = ";
+		String workingGriMP = "MP-" + thisMPGri + ":_" + requestNum + "_:";
+		String shortGriMP = "MP-" + thisMPGri;
+		
+		for(int res = 0; res < allCreateReplies.size(); res++)
+		{
+			CreateReply oneReply = allCreateReplies.get(res);
+			log.info("\n[createReservation]  {} of {}\nGRI = {}\nstatus={}", res+1, requestNum, oneReply.getGlobalReservationId(), oneReply.getStatus());
+			
+			workingGriMP += oneReply.getGlobalReservationId() + ":";
+		}
+		
+		workingGriMP = workingGriMP.substring(0, workingGriMP.length()-1);	// Handles trailing colon in MP-GRI string //
+		mpOutput = mpOutput + shortGriMP;
+		mpOutput = mpOutput + resourceShortageNotice;
+		log.info("{}", mpOutput);
+		
+		synchronized(griFileLock)
+		{
+			try
+			{
+				FileWriter griStream;
+				
+				//Add entry into MP-GRI lookup table for this request.
+				if(workingGriMP.contains("MP-0:")) 		//Clear the GRI lookup file if the MP-GRIs have been reset. Prevents duplicate IDs in lookup table.
+				{
+					griStream = new FileWriter(mpLookupGRI);
+				}
+				else
+				{
+					griStream = new FileWriter(mpLookupGRI, true); // Otherwise append to existing lookup file
+				}
+				
+				BufferedWriter outGri = new BufferedWriter(griStream);
+				outGri.write(shortGriMP + "_=_" + workingGriMP + "\n");		//Maps short GRI to working GRI
+				
+				outGri.close();
+				griStream.close();
+			}
+			catch(Exception e)
+			{
+				log.error("Error Writing MP-GRI to \'{}\'.", mpLookupGRI, e);
+			}
+		}
+		
+		return shortGriMP;
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Computes numDisjointPaths link-disjoint paths between srcUrn and destUrn on the cached topology graph.
+	* 
+	* @return The edge paths (see DisjointPathSolver), or null if there is no topology graph, an endpoint is not a link in it, or no path was found.
+	*********************************************************************************************************************************************************/
+	private int[][] computeDisjointPaths(String srcUrn, String destUrn, int bandwidth, int numDisjointPaths)
+	{
+		TopologyGraph graph = topologyGraph;
+		
+		if(graph == null)
+			return null;
+		
+		int srcLink = graph.linkID(srcUrn);
+		int dstLink = graph.linkID(destUrn);
+		
+		if(srcLink < 0 || dstLink < 0)
+			return null;
+		
+		Span span = Tracer.startSpan("pce:disjointPaths");
+		int[][] paths;
+		
+		try
+		{
+			paths = DisjointPathSolver.solve(graph, graph.linkNode(srcLink), graph.linkNode(dstLink), numDisjointPaths, bandwidth);
+			span.set("pathsFound", paths.length);
+		}
+		finally
+		{
+			span.end();
+		}
+		
+		return (paths.length > 0) ? paths : null;
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Submits one subrequest per precomputed path, all at once, each with its path as an explicit hint, and then polls them all together until they reach
+	* a final state. Subrequests which OSCARS reserves are added to the lists passed in, exactly as the sequential loop in createMPReservation() would have.
+	* 
+	* @param hintedPaths, Edge paths from computeDisjointPaths()
+	* @param allResCreateContents, Updated with the reserved subrequests
+	* @param allCreateReplies, Updated with the reserved subrequests
+	* @param previousPaths, Updated with the links of each reserved path
+	* @return Number of subrequests reserved
+	*********************************************************************************************************************************************************/
+	private int createHintedSubrequests(int[][] hintedPaths, String description, String srcUrn, boolean isSrcTagged, String srcTag, String destUrn, boolean isDestTagged, String destTag, int bandwidth, String pathSetupMode, long startTimestamp, long endTimestamp,
+											ArrayList<ResCreateContent> allResCreateContents, ArrayList<CreateReply> allCreateReplies, DisjointConstraintBuilder previousPaths)
+	{
+		TopologyGraph graph = topologyGraph;
+		int srcLink = graph.linkID(srcUrn);
+		int dstLink = graph.linkID(destUrn);
+		int numReserved = 0;
+		
+		ExecutorService submitter = TaskExecutors.newBlockingExecutor("mpc-subrequests", hintedPaths.length);
+		List<Future<CreateReply>> pendingCreates = new ArrayList<Future<CreateReply>>();
+		List<String> submittedGris = new ArrayList<String>();
+		
+		try
+		{
+			// Submit every subrequest without waiting for the previous one //
+			List<ResCreateContent> hintedContents = new ArrayList<ResCreateContent>();
+			
+			for(int[] onePath : hintedPaths)
+			{
+				final ResCreateContent oneResCreateContent = createHelper.constructResCreateContent(description, srcUrn, isSrcTagged, srcTag, destUrn, isDestTagged, destTag, bandwidth, pathSetupMode, startTimestamp, endTimestamp);
+				createHelper.addPathHint(oneResCreateContent, graph.toHopURNs(srcLink, onePath, dstLink));
+				
+				hintedContents.add(oneResCreateContent);
+				pendingCreates.add(submitter.submit(Tracer.wrap(() -> invoke("createReservation", client -> client.createReservation(oneResCreateContent)))));
+			}
+			
+			List<ResCreateContent> submittedContents = new ArrayList<ResCreateContent>();
+			List<CreateReply> submittedReplies = new ArrayList<CreateReply>();
+			
+			for(int p = 0; p < pendingCreates.size(); p++)
+			{
+				try
+				{
+					CreateReply oneCreateResponse = pendingCreates.get(p).get();
+					
+					submittedContents.add(hintedContents.get(p));
+					submittedReplies.add(oneCreateResponse);
+					submittedGris.add(oneCreateResponse.getGlobalReservationId());
+				}
+				catch(ExecutionException ee)
+				{
+					log.error("Precomputed path {} of {} was rejected by OSCARS: {}", p+1, hintedPaths.length, ee.getCause().getMessage());
+				}
+			}
+			
+			if(submittedGris.isEmpty())
+				return 0;
+			
+			log.debug("Polling {} Multipath subrequests for status. Please wait a moment...", submittedGris.size());
+			
+			Map<String, SubrequestTuple> finalStates = pollUntilFinal(submittedGris);
+			
+			for(int p = 0; p < submittedGris.size(); p++)
+			{
+				SubrequestTuple oneResult = finalStates.get(submittedGris.get(p));
+				String thisPath = isSuccessfulStatus(oneResult.getDetails().getStatus()) ? pathToString(oneResult.getDetails()) : null;
+				
+				if(thisPath == null)
+				{
+					log.info("Precomputed path for {} could not be reserved (status: {})", submittedGris.get(p), oneResult.getDetails().getStatus());
+					continue;
+				}
+				
+				ArrayList<ResDetails> oneDetails = new ArrayList<ResDetails>();
+				ArrayList<List<OSCARSFaultReport>> oneErrors = new ArrayList<List<OSCARSFaultReport>>();
+				oneDetails.add(oneResult.getDetails());
+				oneErrors.add(oneResult.getErrors());
+				globalDesiredInfo.add(new SubrequestTuple(submittedGris.get(p), oneDetails, oneErrors));
+				
+				allResCreateContents.add(submittedContents.get(p));
+				allCreateReplies.add(submittedReplies.get(p));
+				previousPaths.addPath(thisPath);
+				numReserved++;
+			}
+		}
+		catch(InterruptedException ie)
+		{
+			// None of these subrequests is part of an MP-GRI yet, so cancel them rather than leave them reserved //
+			submitter.shutdownNow();
+			cancelAbandonedSubrequests(submittedGris, pendingCreates);
+			Thread.currentThread().interrupt();
+			
+			return 0;
+		}
+		finally
+		{
+			submitter.shutdownNow();
+		}
+		
+		return numReserved;
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Cancels the subrequests createHintedSubrequests() submitted before it was interrupted: those it has a GRI for, and those whose createReservation()
+	* has completed since. The interrupt is cleared while OSCARS is called, the caller restores it.
+	* 
+	* @param submittedGris, GRIs already collected
+	* @param pendingCreates, Every createReservation() submitted
+	*********************************************************************************************************************************************************/
+	private void cancelAbandonedSubrequests(List<String> submittedGris, List<Future<CreateReply>> pendingCreates)
+	{
+		Set<String> abandonedGris = new LinkedHashSet<String>(submittedGris);
+		
+		Thread.interrupted();
+		
+		for(Future<CreateReply> onePending : pendingCreates)
+		{
+			if(!onePending.isDone() || onePending.isCancelled())
+				continue;
+			
+			try
+			{
+				abandonedGris.add(onePending.get().getGlobalReservationId());
+			}
+			catch(InterruptedException | ExecutionException e)
+			{
+				// Rejected by OSCARS, nothing to cancel //
+			}
+		}
+		
+		log.warn("Interrupted while reserving precomputed paths, cancelling {} submitted subrequests", abandonedGris.size());
+		
+		for(String oneGri : abandonedGris)
+			cancelMPReservation(oneGri);
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Waits until a set of unicast subrequests all reach a final state. They are polled together with every other subrequest being waited on for this
+	* OSCARS, see SubrequestPoller. Unlike subrequestPoll(), this does not go through queryMPReservation() and does not touch mp_query_out.txt.
+	* 
+	* The poller gives up on a GRI it cannot query or which never becomes final, so the wait is bounded; should a future still not complete by then
+	* (e.g. the poller thread is stuck), the GRI is reported as UNKNOWN.
+	* 
+	* @param gris
+	* @return Final ResDetails and errors of each GRI, as unicast SubrequestTuples
+	*********************************************************************************************************************************************************/
+	private Map<String, SubrequestTuple> pollUntilFinal(List<String> gris) throws InterruptedException
+	{
+		Map<String, CompletableFuture<SubrequestTuple>> pending = new HashMap<String, CompletableFuture<SubrequestTuple>>();
+		Map<String, SubrequestTuple> finalStates = new HashMap<String, SubrequestTuple>();
+		SubrequestPoller poller = SubrequestPoller.forURL(oscarsURL);
+		
+		// Time spent here is OSCARS' path computation and commit of the subrequests, as seen from the MPC //
+		Span span = Tracer.startSpan("poll").set("subrequests", gris.size());
+		
+		try
+		{
+			for(String oneGri : gris)
+				pending.put(oneGri, poller.awaitFinal(oneGri));
+			
+			// The poller's own timeout, plus a few rounds for it to notice //
+			long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Configuration.pollTimeoutMillis + 3 * Configuration.pollIntervalMillis);
+			
+			for(String oneGri : gris)
+			{
+				try
+				{
+					finalStates.put(oneGri, pending.get(oneGri).get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS));
+				}
+				catch(ExecutionException ee)
+				{
+					throw new IllegalStateException("Poller futures are never completed exceptionally", ee);
+				}
+				catch(TimeoutException te)
+				{
+					log.warn("Gave up waiting for {} to reach a final state, reporting it as UNKNOWN", oneGri);
+					
+					ResDetails details = new ResDetails();
+					details.setGlobalReservationId(oneGri);
+					details.setStatus("UNKNOWN");
+					finalStates.put(oneGri, new SubrequestTuple(details, new ArrayList<OSCARSFaultReport>()));
+				}
+			}
+		}
+		finally
+		{
+			span.end();
+		}
+		
+		return finalStates;
+	}
+	
+	static boolean isSuccessfulStatus(String status)
+	{
+		return status.contains("ACTIVE") || status.contains("RESERVED") || status.contains("FINISHED");
+	}
+	
+	static boolean isFinalStatus(String status)
+	{
+		return isSuccessfulStatus(status) || status.contains("FAILED") || status.contains("UNKNOWN") || status.contains("CANCELLED") || status.contains("BAD_GRI");
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Queries a reservation and reads back the subrequest statuses written to mp_query_out.txt, holding the file's lock so that no other client's query
+	* can overwrite the file in between.
+	* 
+	* @param gri
+	* @param silent, Suppress query output?
+	* @return Status of each subrequest, as read by HelperQuery.readQueryOutput()
+	*********************************************************************************************************************************************************/
+	private ArrayList<SubrequestTuple> querySubrequestStatuses(String gri, boolean silent)
+	{
+		synchronized(queryOutputLock)
+		{
+			boolean wasSilent = silentQuery;
+			
+			silentQuery = silent;
+			queryMPReservation(gri);
+			silentQuery = wasSilent;
+			
+			return queryHelper.readQueryOutput();
+		}
+	}
+	
 	/*********************************************************************************************************************************************************
 	* Controller method to perform a query. 
 	* The method queryMPRes does the actual query work. 
@@ -334,12 +793,15 @@ public class MultipathOSCARSClient
 	{
 		ArrayList<SubrequestTuple> desiredQueryInfo = new ArrayList<SubrequestTuple>();
 							
-		// Start with a fresh Query output file for every request //
-		File queryFile = new File(mpQueryOut);
-		if(queryFile.exists())
-			queryFile.delete();
-		
-		queryMPRes(gri, desiredQueryInfo);
+		synchronized(queryOutputLock)
+		{
+			// Start with a fresh Query output file for every request //
+			File queryFile = new File(mpQueryOut);
+			if(queryFile.exists())
+				queryFile.delete();
+			
+			queryMPRes(gri, desiredQueryInfo);
+		}
 	/*	
 		System.out.println("WHATS IN IT?: " + desiredQueryInfo.get(0).getGroupGRI());
 		System.out.println("SOURCE SIZE = " + desiredQueryInfo.size());
@@ -411,7 +873,7 @@ public class MultipathOSCARSClient
                    	
                    	try
                    	{
-                   		queryResponse = oscarsClient.queryReservation(oneMPGRI);		// Call queryReservation() in OSCARS
+                   		queryResponse = invoke("queryReservation", client -> client.queryReservation(oneMPGRI));		// Call queryReservation() in OSCARS
 
                        	details = queryResponse.getReservationDetails();    // Actual ResDetails for this unicast subrequest                	              	
                        	queryException = new Exception("OK");				// Dummy Exception for this unicast subrequest
@@ -438,13 +900,13 @@ public class MultipathOSCARSClient
                    	if(!silentQuery)
                    	{
 	                   	if(queryResponse != null)
-	                   		System.out.println("\n[queryReservation]  " + (mpID) + " of " + numDests + "\nGRI = " + details.getGlobalReservationId() + "\nStatus: " + details.getStatus().toString());
+	                   		log.info("\n[queryReservation]  {} of {}\nGRI = {}\nStatus: {}", mpID, numDests, details.getGlobalReservationId(), details.getStatus().toString());
 	                   	else
-	              			System.out.println("\n[queryReservation]  " + (mpID) + " of " + numDests + "\nGRI = " + details.getGlobalReservationId() + "\nStatus: " + queryException.getMessage());
+	              			log.info("\n[queryReservation]  {} of {}\nGRI = {}\nStatus: {}", mpID, numDests, details.getGlobalReservationId(), queryException.getMessage());
 	                   	
 	                   	if (faultReports != null && !faultReports.isEmpty()) 
                    		{
-                   			System.err.println(queryHelper.printFaultDetails(faultReports));
+                   			log.error("{}", queryHelper.printFaultDetails(faultReports));
                    		}
                    	}
                	} //end-for             	
@@ -472,7 +934,7 @@ public class MultipathOSCARSClient
 
                 queryRequest.setGlobalReservationId(gri);
                	
-                queryResponse = oscarsClient.queryReservation(queryRequest);		// Call queryReservation() in OSCARS 
+                queryResponse = invoke("queryReservation", client -> client.queryReservation(queryRequest));		// Call queryReservation() in OSCARS 
                 
                 details = queryResponse.getReservationDetails();
                               
@@ -485,22 +947,22 @@ public class MultipathOSCARSClient
                	
                	if (faultReports != null && !faultReports.isEmpty()) 
                	{
-               		System.err.println(queryHelper.printFaultDetails(faultReports));
+               		log.error("{}", queryHelper.printFaultDetails(faultReports));
                	}
             }
                
     	} // end-try
    		catch(OSCARSClientException ce) 
    		{
-   			ce.printStackTrace();
+   			log.error("[queryReservation] gri = {} failed: {}", gri, ce.getMessage(), ce);
    		}    	
         catch(OSCARSFaultMessage fm) 
         {
-            fm.printStackTrace();
+            log.error("[queryReservation] gri = {} failed: {}", gri, fm.getMessage(), fm);
         }
    		catch(Exception e)
    		{
-   			e.printStackTrace();
+   			log.error("[queryReservation] gri = {} failed: {}", gri, e.getMessage(), e);
    		}
     	
     	return true;
@@ -537,27 +999,23 @@ public class MultipathOSCARSClient
 	        	int numDests = 0;
 	                          	
 	           	// Must query first to make sure subrequest can be safely cancelled, special behavior required for sub-groups
-	        	silentQuery = true;		// Suppress query output
-	        	queryMPReservation(gri);
-	        	silentQuery = false;
-	        	
-	        	ArrayList<SubrequestTuple> allSubrequests = queryHelper.readQueryOutput();
+	        	ArrayList<SubrequestTuple> allSubrequests = querySubrequestStatuses(gri, true);
 	        	
 	        	numDests = allSubrequests.size();
 	        	for(SubrequestTuple oneSubrequest : allSubrequests)
 	        	{   
 	        		if(!silentQuery)
 	        		{
-	        			System.out.println("\n[cancelReservation]  " + (++mpID) + " of " + numDests);
-	        			System.out.println("GRI = " + oneSubrequest.getGRI());
+	        			log.info("\n[cancelReservation]  {} of {}", ++mpID, numDests);
+	        			log.info("GRI = {}", oneSubrequest.getGRI());
 	        		}
 	        		
 	        		if(oneSubrequest.getStatus().equals("BAD_GRI"))
 	        		{
 	        			if(!silentQuery)
 	        			{
-	        				System.out.println("-- CANNOT CANCEL THIS SUBREQUEST");                       				
-	        				System.out.println("---> Because: Current subrequest GRI is invalid!  Skipping...");
+	        				log.info("-- CANNOT CANCEL THIS SUBREQUEST");                       				
+	        				log.info("---> Because: Current subrequest GRI is invalid!  Skipping...");
 	        			}
 	        			
 	        			continue;
@@ -568,26 +1026,27 @@ public class MultipathOSCARSClient
 	                	CancelResReply cancelResponse;
 	                	
 	                	cancelRequest.setGlobalReservationId(oneSubrequest.getGRI());
+	                	PathCache.invalidate(oneSubrequest.getGRI());
 	                	
 	                	try
 	                	{
-	                		cancelResponse = oscarsClient.cancelReservation(cancelRequest);	// Submit cancelReservation() request to OSCARS
+	                		cancelResponse = invoke("cancelReservation", client -> client.cancelReservation(cancelRequest));	// Submit cancelReservation() request to OSCARS
 	                	}
 	                	catch(OSCARSFaultMessage fm) 
 	                    {
 	                		if(!silentQuery)
-	                			System.err.println("Error: " + fm.getMessage());
+	                			log.error("Error: {}", fm.getMessage());
 	                		
 	                    	continue;
 	                    }
 	                	
 	                	if(!silentQuery)
-	                		System.out.println("Status = " + cancelResponse.getStatus());
+	                		log.info("Status = {}", cancelResponse.getStatus());
 	        		}
 				} //End-For
 	        	
 	        	if(!silentQuery)
-	        		System.out.println("\n[cancelMultipathPath] for gri = " + shortGRI + " complete.");
+	        		log.info("\n[cancelMultipathPath] for gri = {} complete.", shortGRI);
 	        } //End-If(isMultipath)
 	        
 	        // Traditional unicast cancelReservation()
@@ -601,27 +1060,28 @@ public class MultipathOSCARSClient
 	        	CancelResReply cancelResponse = null;
 	        	
 	        	cancelRequest.setGlobalReservationId(gri);
+	        	PathCache.invalidate(gri);
 	        	
 	        	try
 	        	{
-	        		cancelResponse = oscarsClient.cancelReservation(cancelRequest);	// Submit cancelReservation() request to OSCARS
+	        		cancelResponse = invoke("cancelReservation", client -> client.cancelReservation(cancelRequest));	// Submit cancelReservation() request to OSCARS
 	        		
 	        		if(!silentQuery)
-		        		System.out.println("[cancelReservation] gri = " + gri + ", status = " + cancelResponse.getStatus());
+		        		log.info("[cancelReservation] gri = {}, status = {}", gri, cancelResponse.getStatus());
 	        	}
 	        	catch(OSCARSFaultMessage fm) 
                 {
-           			System.err.println("[cancelReservation] gri = " + gri + ", Error: " + fm.getMessage());
+           			log.error("[cancelReservation] gri = {}, Error: {}", gri, fm.getMessage());
                 }
 	        }
 		}
    		catch(OSCARSClientException ce) 
    		{
-   			ce.printStackTrace();
+   			log.error("[cancelReservation] gri = {} failed: {}", gri, ce.getMessage(), ce);
    		}    	
    		catch(Exception e)
    		{
-   			e.printStackTrace();
+   			log.error("[cancelReservation] gri = {} failed: {}", gri, e.getMessage(), e);
    		}            	
 	}
 
@@ -667,6 +1127,8 @@ public class MultipathOSCARSClient
 		
 		modify.setGlobalReservationId(gri);
 	    modify.setUserRequestConstraint(userConstraint);
+	    
+	    PathCache.invalidate(gri);		// OSCARS may re-route the modified reservation
 		
         return modify;
 	}
@@ -709,19 +1171,18 @@ public class MultipathOSCARSClient
 	        	int numDests = 0;
 	                          	
 	        	// Query MP-GRI first to make sure subrequests can be safely modified, special behavior necessary for sub-groups
-	        	queryMPReservation(gri);
-	        	ArrayList<SubrequestTuple> allSubrequests = queryHelper.readQueryOutput();
+	        	ArrayList<SubrequestTuple> allSubrequests = querySubrequestStatuses(gri, silentQuery);
 	        		        	
 	        	numDests = allSubrequests.size();
 	        	for(SubrequestTuple oneSubrequest : allSubrequests)
 	        	{        			        		
-	        		System.out.println("\n[modifyReservation]  " + (++mpID) + " of " + numDests);
-	        		System.out.println("GRI = " + oneSubrequest.getGRI());
+	        		log.info("\n[modifyReservation]  {} of {}", ++mpID, numDests);
+	        		log.info("GRI = {}", oneSubrequest.getGRI());
 	        		
 	        		if(oneSubrequest.getStatus().equals("BAD_GRI"))
 	        		{
-	        			System.out.println("-- CANNOT MODIFY THIS SUBREQUEST");                       				
-	        			System.out.println("---> Because: Current subrequest GRI is invalid!  Skipping...");
+	        			log.info("-- CANNOT MODIFY THIS SUBREQUEST");                       				
+	        			log.info("---> Because: Current subrequest GRI is invalid!  Skipping...");
 	        			continue;
 	        		}
 	        		else
@@ -731,19 +1192,19 @@ public class MultipathOSCARSClient
 	                		                	
 	                	try
 	                	{
-	                		modifyResponse = oscarsClient.modifyReservation(modifyRequest);	// Submit modifyReservation() request to OSCARS
+	                		modifyResponse = invoke("modifyReservation", client -> client.modifyReservation(modifyRequest));	// Submit modifyReservation() request to OSCARS
 	                	}
 	                	catch(OSCARSFaultMessage fm) 
 	                    {
-	                    	System.err.println("Error: " + fm.getMessage());
+	                    	log.error("Error: {}", fm.getMessage());
 	                    	continue;
 	                    }
 	                	
-	                	System.out.println("Status = " + modifyResponse.getStatus());
+	                	log.info("Status = {}", modifyResponse.getStatus());
 	        		}
 				} //End-For
 	        	
-	        	System.out.println("\n[modifyMultipathReservation] for gri = " + shortGRI + " complete.");
+	        	log.info("\n[modifyMultipathReservation] for gri = {} complete.", shortGRI);
 	        } //End-If(isMultipath)
 	        
 	        // Traditional Unicast modifyReservation()
@@ -755,22 +1216,22 @@ public class MultipathOSCARSClient
 	        	ModifyResContent unicastModifyRequest = constructModifyResContent(gri, description, bandwidth, startTimestamp, endTimestamp);
 	        	ModifyResReply unicastModifyResponse;
 	        		        	
-	        	unicastModifyResponse = oscarsClient.modifyReservation(unicastModifyRequest);	// Submit modifyReservation() request to OSCARS
+	        	unicastModifyResponse = invoke("modifyReservation", client -> client.modifyReservation(unicastModifyRequest));	// Submit modifyReservation() request to OSCARS
 	        	
-	        	System.out.println("[modifyReservation] gri = " + gri + ", status = " + unicastModifyResponse.getStatus());
+	        	log.info("[modifyReservation] gri = {}, status = {}", gri, unicastModifyResponse.getStatus());
 	        }
        	}
    		catch(OSCARSClientException ce) 
    		{
-   			ce.printStackTrace();
+   			log.error("[modifyReservation] gri = {} failed: {}", gri, ce.getMessage(), ce);
    		}    	
         catch(OSCARSFaultMessage fm) 
         {
-        	System.err.println("Error: " + fm.getMessage());
+        	log.error("Error: {}", fm.getMessage());
         }
    		catch(Exception e)
    		{
-   			e.printStackTrace();
+   			log.error("[modifyReservation] gri = {} failed: {}", gri, e.getMessage(), e);
    		}
 	}
 	
@@ -807,20 +1268,19 @@ public class MultipathOSCARSClient
 	        	int numDests = 0;
 	                          	
 	        	// Query MP-GRI first to make sure subrequests can be safely setup, special behavior necessary for sub-groups
-	        	queryMPReservation(gri);
-	        	ArrayList<SubrequestTuple> allSubrequests = queryHelper.readQueryOutput();
+	        	ArrayList<SubrequestTuple> allSubrequests = querySubrequestStatuses(gri, silentQuery);
 	        	
 	        	numDests = allSubrequests.size();
 	        	for(SubrequestTuple oneSubrequest : allSubrequests)
 	        	{        		
-	        		System.out.println("\n[setupPath]  " + (++mpID) + " of " + numDests);
-	        		System.out.println("GRI = " + oneSubrequest.getGRI());
+	        		log.info("\n[setupPath]  {} of {}", ++mpID, numDests);
+	        		log.info("GRI = {}", oneSubrequest.getGRI());
 	        		
 	        		// Do not process special cases //
 	        		if(oneSubrequest.getStatus().equals("BAD_GRI"))
 	        		{
-	        			System.out.println("-- CANNOT CREATE PATH FOR THIS SUBREQUEST");                       				
-	        			System.out.println("---> Because: Current subrequest GRI is invalid!  Skipping...");
+	        			log.info("-- CANNOT CREATE PATH FOR THIS SUBREQUEST");                       				
+	        			log.info("---> Because: Current subrequest GRI is invalid!  Skipping...");
 	        			continue;
 	        		}
 	        		else
@@ -832,19 +1292,19 @@ public class MultipathOSCARSClient
 	                	
 	                	try
 	                	{
-	                		setupResponse = oscarsClient.createPath(setupRequest);	// Submit createPath() request to OSCARS
+	                		setupResponse = invoke("createPath", client -> client.createPath(setupRequest));	// Submit createPath() request to OSCARS
 	                	}
 	                	catch(OSCARSFaultMessage fm) 
 	                    {
-	                    	System.err.println("Error: " + fm.getMessage());
+	                    	log.error("Error: {}", fm.getMessage());
 	                    	continue;
 	                    }
 	                	
-	                	System.out.println("Status = " + setupResponse.getStatus());
+	                	log.info("Status = {}", setupResponse.getStatus());
 	        		}
 				} //End-For
 	        	
-	        	System.out.println("\n[setupMultipathPath] for gri = " + shortGRI + " complete.");
+	        	log.info("\n[setupMultipathPath] for gri = {} complete.", shortGRI);
 	        } //End-If(isMultipath)
 	        
 	        // Traditional Unicast createPath()
@@ -858,22 +1318,22 @@ public class MultipathOSCARSClient
 	        	
 	        	unicastSetupRequest.setGlobalReservationId(gri);
 	        	
-	        	unicastSetupResponse = oscarsClient.createPath(unicastSetupRequest);		// Submit createPath() request to OSCARS
+	        	unicastSetupResponse = invoke("createPath", client -> client.createPath(unicastSetupRequest));		// Submit createPath() request to OSCARS
 	        	
-	        	System.out.println("[setupPath] gri = " + gri + ", status = " + unicastSetupResponse.getStatus());
+	        	log.info("[setupPath] gri = {}, status = {}", gri, unicastSetupResponse.getStatus());
 	        }
        	}
    		catch(OSCARSClientException ce) 
    		{
-   			ce.printStackTrace();
+   			log.error("[setupPath] gri = {} failed: {}", gri, ce.getMessage(), ce);
    		}    	
         catch(OSCARSFaultMessage fm) 
         {
-        	System.err.println("Error: " + fm.getMessage());
+        	log.error("Error: {}", fm.getMessage());
         }
    		catch(Exception e)
    		{
-   			e.printStackTrace();
+   			log.error("[setupPath] gri = {} failed: {}", gri, e.getMessage(), e);
    		}
 	}
 
@@ -910,19 +1370,18 @@ public class MultipathOSCARSClient
 	        	int numDests = 0;
 	                          	
 	        	// Query MP-GRI first to make sure subrequests can be safely tornDown, special behavior necessary for sub-groups
-	        	queryMPReservation(gri);
-	        	ArrayList<SubrequestTuple> allSubrequests = queryHelper.readQueryOutput();
+	        	ArrayList<SubrequestTuple> allSubrequests = querySubrequestStatuses(gri, silentQuery);
 	        	
 	        	numDests = allSubrequests.size();
 	        	for(SubrequestTuple oneSubrequest : allSubrequests)
 	        	{        		
-	        		System.out.println("\n[teardownPath]  " + (++mpID) + " of " + numDests);
-	        		System.out.println("GRI = " + oneSubrequest.getGRI());
+	        		log.info("\n[teardownPath]  {} of {}", ++mpID, numDests);
+	        		log.info("GRI = {}", oneSubrequest.getGRI());
 	        		
 	        		if(oneSubrequest.getStatus().equals("BAD_GRI"))
 	        		{
-	        			System.out.println("-- CANNOT TEARDOWN PATH FOR THIS SUBREQUEST");                       				
-	        			System.out.println("---> Because: Current subrequest GRI is invalid!  Skipping...");
+	        			log.info("-- CANNOT TEARDOWN PATH FOR THIS SUBREQUEST");                       				
+	        			log.info("---> Because: Current subrequest GRI is invalid!  Skipping...");
 	        			continue;
 	        		}
 	        		else
@@ -934,19 +1393,19 @@ public class MultipathOSCARSClient
 	                	
 	                	try
 	                	{
-	                		teardownResponse = oscarsClient.teardownPath(teardownRequest);	// Submit teardownPath() request to OSCARS
+	                		teardownResponse = invoke("teardownPath", client -> client.teardownPath(teardownRequest));	// Submit teardownPath() request to OSCARS
 	                	}
 	                	catch(OSCARSFaultMessage fm) 
 	                    {
-	                    	System.err.println("Error: " + fm.getMessage());
+	                    	log.error("Error: {}", fm.getMessage());
 	                    	continue;
 	                    }
 	                	
-	                	System.out.println("Status = " + teardownResponse.getStatus());
+	                	log.info("Status = {}", teardownResponse.getStatus());
 	        		}
 				} //End-For
 	        	
-	        	System.out.println("\n[teardownMultipathPath] for gri = " + shortGRI + " complete.");
+	        	log.info("\n[teardownMultipathPath] for gri = {} complete.", shortGRI);
 	        } //End-If(isMultipath)
 	        
 	        // Traditional Unicast teardownPath()
@@ -960,22 +1419,22 @@ public class MultipathOSCARSClient
 	        	
 	        	unicastTeardownRequest.setGlobalReservationId(gri);
 	        	
-	        	unicastTeardownResponse = oscarsClient.teardownPath(unicastTeardownRequest);		// Submit teardownPath() request to OSCARS
+	        	unicastTeardownResponse = invoke("teardownPath", client -> client.teardownPath(unicastTeardownRequest));		// Submit teardownPath() request to OSCARS
 	        	
-	        	System.out.println("[teardownPath] gri = " + gri + ", status = " + unicastTeardownResponse.getStatus());
+	        	log.info("[teardownPath] gri = {}, status = {}", gri, unicastTeardownResponse.getStatus());
 	        }
        	}
    		catch(OSCARSClientException ce) 
    		{
-   			ce.printStackTrace();
+   			log.error("[teardownPath] gri = {} failed: {}", gri, ce.getMessage(), ce);
    		}    	
         catch(OSCARSFaultMessage fm) 
         {
-        	System.err.println("Error: " + fm.getMessage());
+        	log.error("Error: {}", fm.getMessage());
         }
    		catch(Exception e)
    		{
-   			e.printStackTrace();
+   			log.error("[teardownPath] gri = {} failed: {}", gri, e.getMessage(), e);
    		}
 	}
 	
@@ -987,6 +1446,28 @@ public class MultipathOSCARSClient
 	* @param numAdditionalDisjoint, The number of link-disjoint paths to add to the group specified by groupGRI. Only applicable if adding.
 	*********************************************************************************************************************************************************/
 	public String groupReservations(ArrayList<String> gris, boolean add, int numAdditionalDisjoint)
+	{
+		long startNanos = System.nanoTime();
+		Span span = Tracer.startTrace("group").set("add", add).set("gris", gris);
+		String groupGRI = null;
+		
+		LogContext fields = LogContext.with(LogContext.op, "group");
+		
+		try
+		{
+			groupGRI = performGroupOperation(gris, add, numAdditionalDisjoint);
+			return groupGRI;
+		}
+		finally
+		{
+			// The paths a group operation adds are created, and recorded, by createMPReservation() //
+			MetricsRegistry.recordOperation("group", startNanos, (groupGRI == null || groupGRI.equals("")) ? MetricsRegistry.outcomeFailed : MetricsRegistry.outcomeSuccess);
+			span.set("gri", groupGRI).end();
+			fields.close();
+		}
+	}
+	
+	private String performGroupOperation(ArrayList<String> gris, boolean add, int numAdditionalDisjoint)
 	{
 		if(gris.size() == 0)
 			return null;
@@ -1007,12 +1488,12 @@ public class MultipathOSCARSClient
 	       		lookupWriter.close();
 	       		lookupStream.close();
 			}
-			catch(IOException e){ e.printStackTrace(); }
+			catch(IOException e){ log.error("Error creating \'{}\'", mpLookupGRI, e); }
 		}
 		
 		if(!groupGRI.contains("MP-") && !add)
 		{
-			System.err.println("Remove operation cannot be performed on a unicast GRI.");
+			log.error("Remove operation cannot be performed on a unicast GRI.");
 			return null;
 		}
 		else if(!add)	// Remove GRIs from MP-GRI group
@@ -1030,17 +1511,466 @@ public class MultipathOSCARSClient
 		
 	}
 
+	/*********************************************************************************************************************************************************
+	* Asynchronous createMPReservation(). Returns at once; OSCARS calls run on a small shared pool and every subrequest is waited on through the
+	* SubrequestPoller, so no thread is held while OSCARS computes and commits paths. Subrequests are created exactly as createMPReservation() does:
+	* precomputed paths together, then the remaining paths one at a time, each avoiding the links of those reserved before it.
+	* 
+	* Unlike the blocking method, this one does not update getLastMPQuery() and can be called concurrently on the same instance.
+	* 
+	* @return Future of the (MP-)GRI of the created reservation. It completes exceptionally with the OSCARSFaultMessage or OSCARSClientException of a
+	* 		   failed createReservation() call, where createMPReservation() would have returned "".
+	*********************************************************************************************************************************************************/
+	public CompletableFuture<String> createMPReservationAsync(String description, String srcUrn, boolean isSrcTagged, String srcTag, String destUrn, boolean isDestTagged, String destTag, int bandwidth, String pathSetupMode, long startTimestamp, long endTimestamp, int numDisjointPaths)
+	{
+		String operation = (numDisjointPaths > 1) ? "createMP" : "createUnicast";
+		long startNanos = System.nanoTime();
+		Span span = Tracer.startTrace(operation).set("paths", numDisjointPaths).set("destination", destUrn).set("async", true);
+		Executor stages = asyncStages(operation, span, asyncExecutor);
+		
+		Function<String, ResCreateContent> contentTo = destination -> createHelper.constructResCreateContent(description, srcUrn, isSrcTagged, srcTag, destination, isDestTagged, destTag, bandwidth, pathSetupMode, startTimestamp, endTimestamp);
+		CompletableFuture<AsyncCreate> mpCreate = null;
+		CompletableFuture<String> gri;
+		
+		if(numDisjointPaths > 1)
+		{
+			mpCreate = CompletableFuture.supplyAsync(() -> new AsyncCreate(miscHelper.getMPGri(0).intValue(), numDisjointPaths, destUrn), stages)
+					.thenCompose(create -> reserveHintedAsync(create, srcUrn, bandwidth, contentTo, stages))
+					.thenCompose(create -> reserveNextPathAsync(create, contentTo, stages));
+			gri = mpCreate.thenApplyAsync(create -> recordMPGri(create.mpGri, create.replies.size(), create.replies, create.resourceShortageNotice), stages);
+		}
+		else
+		{
+			gri = invokeAsync("createReservation", client -> client.createReservation(contentTo.apply(destUrn)), stages).thenApply(createResponse ->
+			{
+				log.info("\n[createReservation]  gri= {}\ntransactionId={}\nstatus={}", createResponse.getGlobalReservationId(), createResponse.getMessageProperties().getGlobalTransactionId(), createResponse.getStatus());
+				return createResponse.getGlobalReservationId();
+			});
+		}
+		
+		CompletableFuture<AsyncCreate> created = mpCreate;
+		
+		return gri.whenComplete((createdGri, error) ->
+		{
+			if(error != null)
+				log.error("[createReservation] failed: {}", unwrap(error).getMessage(), unwrap(error));
+			
+			int reservedPaths = (created != null && error == null) ? created.join().getReservedPaths() : 0;
+			MetricsRegistry.recordOperation(operation, startNanos, createOutcome(createdGri, numDisjointPaths, reservedPaths));
+			span.set("gri", createdGri).end();
+		});
+	}
+	
+	/**
+	 * Progress of one createMPReservationAsync(), handed from stage to stage.
+	 */
+	private static class AsyncCreate
+	{
+		final int mpGri;
+		final int numDisjointPaths;
+		final List<CreateReply> replies = new ArrayList<CreateReply>();			// Subrequests of the group
+		final DisjointConstraintBuilder previousPaths = new DisjointConstraintBuilder();
+		String destUrn;								// Set to the destination of the first path, see MULTIPATH + ANYCAST in reserveDisjointPaths()
+		String resourceShortageNotice = "";
+		boolean exhausted = false;					// A path could not be reserved, stop trying
+		
+		AsyncCreate(int mpGri, int numDisjointPaths, String destUrn)
+		{
+			this.mpGri = mpGri;
+			this.numDisjointPaths = numDisjointPaths;
+			this.destUrn = destUrn;
+		}
+		
+		/**
+		 * @return Number of subrequests reserved. Once exhausted, the last subrequest of the group is the one which failed.
+		 */
+		int getReservedPaths()
+		{
+			return exhausted ? replies.size() - 1 : replies.size();
+		}
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Asynchronous createHintedSubrequests(): submits one subrequest per precomputed path at once and adds those OSCARS reserves to create, in path order.
+	*********************************************************************************************************************************************************/
+	private CompletableFuture<AsyncCreate> reserveHintedAsync(AsyncCreate create, String srcUrn, int bandwidth, Function<String, ResCreateContent> contentTo, Executor stages)
+	{
+		int[][] hintedPaths = computeDisjointPaths(srcUrn, create.destUrn, bandwidth, create.numDisjointPaths);
+		
+		if(hintedPaths == null)
+			return CompletableFuture.completedFuture(create);
+		
+		TopologyGraph graph = topologyGraph;
+		int srcLink = graph.linkID(srcUrn);
+		int dstLink = graph.linkID(create.destUrn);
+		SubrequestPoller poller = SubrequestPoller.forURL(oscarsURL);
+		
+		List<CompletableFuture<CreateReply>> reserved = new ArrayList<CompletableFuture<CreateReply>>();	// Completed with null if the path was not reserved
+		String[] reservedPaths = new String[hintedPaths.length];
+		
+		for(int p = 0; p < hintedPaths.length; p++)
+		{
+			final int pathNum = p;
+			final ResCreateContent oneResCreateContent = contentTo.apply(create.destUrn);
+			createHelper.addPathHint(oneResCreateContent, graph.toHopURNs(srcLink, hintedPaths[p], dstLink));
+			
+			reserved.add(invokeAsync("createReservation", client -> client.createReservation(oneResCreateContent), stages)
+					.thenCompose(createReply -> poller.awaitFinal(createReply.getGlobalReservationId()).thenApplyAsync(result ->
+					{
+						String status = result.getDetails().getStatus();
+						reservedPaths[pathNum] = isSuccessfulStatus(status) ? pathToString(result.getDetails()) : null;
+						
+						if(reservedPaths[pathNum] == null)
+						{
+							log.info("Precomputed path for {} could not be reserved (status: {})", createReply.getGlobalReservationId(), status);
+							return null;
+						}
+						
+						return createReply;
+					}, stages))
+					.exceptionally(error ->
+					{
+						log.error("Precomputed path {} of {} was rejected by OSCARS: {}", pathNum+1, hintedPaths.length, unwrap(error).getMessage());
+						return null;
+					}));
+		}
+		
+		return CompletableFuture.allOf(reserved.toArray(new CompletableFuture<?>[reserved.size()])).thenApplyAsync(allDone ->
+		{
+			for(int p = 0; p < reserved.size(); p++)
+			{
+				CreateReply oneReply = reserved.get(p).join();
+				
+				if(oneReply == null)
+					continue;
+				
+				create.replies.add(oneReply);
+				create.previousPaths.addPath(reservedPaths[p]);
+			}
+			
+			if(create.replies.size() < create.numDisjointPaths)
+				log.info("{} of {} precomputed disjoint paths reserved, computing the remaining paths sequentially.", create.replies.size(), create.numDisjointPaths);
+			
+			return create;
+		}, stages);
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Asynchronous form of the sequential loop of reserveDisjointPaths(): reserves one more path avoiding every path reserved so far, waits for it on the
+	* SubrequestPoller, and continues with the next until numDisjointPaths are reserved or a path cannot be.
+	*********************************************************************************************************************************************************/
+	private CompletableFuture<AsyncCreate> reserveNextPathAsync(AsyncCreate create, Function<String, ResCreateContent> contentTo, Executor stages)
+	{
+		if(create.exhausted || create.replies.size() >= create.numDisjointPaths)
+			return CompletableFuture.completedFuture(create);
+		
+		ResCreateContent oneResCreateContent = contentTo.apply(create.destUrn);
+		
+		if(!create.replies.isEmpty())
+			create.previousPaths.applyTo(oneResCreateContent);
+		
+		return invokeAsync("createReservation", client -> client.createReservation(oneResCreateContent), stages)
+				.thenCompose(oneCreateResponse ->
+				{
+					create.replies.add(oneCreateResponse);
+					log.debug("Polling Multipath subrequest ({} of {}) for status. Please wait a moment...", create.replies.size(), create.numDisjointPaths);
+					
+					return SubrequestPoller.forURL(oscarsURL).awaitFinal(oneCreateResponse.getGlobalReservationId());
+				})
+				.thenComposeAsync(result ->
+				{
+					int requestNum = create.replies.size();
+					String thisPath = pathToString(result.getDetails());
+					
+					if(thisPath == null)
+					{
+						create.resourceShortageNotice = "\n** Only " + (requestNum-1) + " of the desired " + create.numDisjointPaths + " disjoint paths could be reserved!\n";
+						create.resourceShortageNotice += "** This Multipath GRI consists of " + requestNum + " unicast subrequest GRIs.";
+						create.exhausted = true;
+						
+						log.warn("{}", create.resourceShortageNotice);
+						return CompletableFuture.completedFuture(create);
+					}
+					
+					// Anycast: route every following path to the destination OSCARS chose for the first one //
+					if(requestNum == 1)
+					{
+						String reservedDestination = PathCache.fromDetails(result.getDetails()).getDestination();
+						
+						if(reservedDestination != null)
+							create.destUrn = reservedDestination;
+					}
+					
+					create.previousPaths.addPath(thisPath);
+					
+					return reserveNextPathAsync(create, contentTo, stages);
+				}, stages);
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Asynchronous queryMPReservation(). The subrequests of an MP-GRI are queried concurrently. Nothing is printed and mp_query_out.txt is not written.
+	* 
+	* @param gri, unicast or MP GRI to query
+	* @return Future of the same list queryMPReservation() returns. For a unicast GRI it completes exceptionally if the query fails; subrequests of an
+	* 		   MP-GRI which cannot be queried are reported as BAD_GRI, as by queryMPReservation().
+	*********************************************************************************************************************************************************/
+	public CompletableFuture<ArrayList<SubrequestTuple>> queryMPReservationAsync(String gri)
+	{
+		return queryMPReservationAsync(gri, null);
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Streaming queryMPReservationAsync(): also hands each subrequest's result to listener as soon as its reply arrives, so the first result of a large
+	* group is available after one OSCARS round trip rather than after the slowest one. Every listener call happens before the future completes.
+	* 
+	* @param gri, unicast or MP GRI to query
+	* @param listener, Told about every subrequest, may be null
+	*********************************************************************************************************************************************************/
+	public CompletableFuture<ArrayList<SubrequestTuple>> queryMPReservationAsync(String gri, SubrequestListener listener)
+	{
+		Span span = Tracer.startSpan("query").set("gri", gri).set("async", true);
+		Executor stages = asyncStages("query", span, asyncExecutor);
+		
+		return CompletableFuture.supplyAsync(() -> miscHelper.getRegularMPGri(gri), stages)
+				.thenCompose(mpGRI -> queryResolvedAsync(gri, mpGRI, listener, stages))
+				.whenComplete((queryInformation, error) -> span.end());
+	}
+	
+	private CompletableFuture<ArrayList<SubrequestTuple>> queryResolvedAsync(String gri, String mpGRI, SubrequestListener listener, Executor stages)
+	{
+		ArrayList<SubrequestTuple> queryInformation = new ArrayList<SubrequestTuple>();
+		
+		// Traditional Unicast query //
+		if(gri.equals(mpGRI) && !mpGRI.contains("MP"))
+		{
+			QueryResContent queryRequest = new QueryResContent();
+			queryRequest.setGlobalReservationId(gri);
+			
+			return invokeAsync("queryReservation", client -> client.queryReservation(queryRequest), stages).thenApply(queryResponse ->
+			{
+				SubrequestTuple result = new SubrequestTuple(queryResponse.getReservationDetails(), queryResponse.getErrorReport());
+				
+				notifyListener(listener, 0, 1, result);
+				queryInformation.add(result);
+				return queryInformation;
+			});
+		}
+		
+		// Multipath Query -- every subrequest queried at once //
+		List<CompletableFuture<SubrequestTuple>> queries = new ArrayList<CompletableFuture<SubrequestTuple>>();
+		ArrayList<QueryResContent> allMPGRI = queryHelper.buildAllQueryResContents(mpGRI);
+		
+		for(int q = 0; q < allMPGRI.size(); q++)
+		{
+			final int index = q;
+			final QueryResContent oneMPGRI = allMPGRI.get(q);
+			
+			queries.add(invokeAsync("queryReservation", client -> client.queryReservation(oneMPGRI), stages).handle((queryResponse, error) ->
+			{
+				SubrequestTuple result;
+				
+				if(queryResponse != null)
+				{
+					result = new SubrequestTuple(queryResponse.getReservationDetails(), queryResponse.getErrorReport());
+				}
+				else
+				{
+					ResDetails details = new ResDetails();
+					details.setGlobalReservationId(oneMPGRI.getGlobalReservationId());
+					details.setStatus("BAD_GRI");
+					result = new SubrequestTuple(details, new ArrayList<OSCARSFaultReport>());
+				}
+				
+				notifyListener(listener, index, allMPGRI.size(), result);
+				return result;
+			}));
+		}
+		
+		return CompletableFuture.allOf(queries.toArray(new CompletableFuture<?>[queries.size()])).thenApply(allDone ->
+		{
+			ArrayList<ResDetails> allResDetails = new ArrayList<ResDetails>();
+			ArrayList<List<OSCARSFaultReport>> allFaultReports = new ArrayList<List<OSCARSFaultReport>>();
+			
+			for(CompletableFuture<SubrequestTuple> oneQuery : queries)
+			{
+				allResDetails.add(oneQuery.join().getDetails());
+				allFaultReports.add(oneQuery.join().getErrors());
+			}
+			
+			queryInformation.add(new SubrequestTuple(miscHelper.getShortMPGri(mpGRI), allResDetails, allFaultReports));
+			return queryInformation;
+		});
+	}
+	
+	private static void notifyListener(SubrequestListener listener, int index, int count, SubrequestTuple result)
+	{
+		if(listener == null)
+			return;
+		
+		try
+		{
+			listener.onSubrequest(index, count, result);
+		}
+		catch(RuntimeException e)
+		{
+			log.error("Subrequest listener failed on {}: {}", result.getDetails().getGlobalReservationId(), e.getMessage(), e);
+		}
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Asynchronous cancelMPReservation(). The subrequests of an MP-GRI are queried, then every valid one is cancelled concurrently.
+	* 
+	* @param gri, unicast or MP GRI to cancel
+	* @return Future completed once OSCARS has answered every cancelReservation(); it does not wait for the subrequests to reach CANCELLED.
+	* 		   Rejected cancels are logged, as by cancelMPReservation(). Completes exceptionally only if the MP-GRI could not be queried.
+	*********************************************************************************************************************************************************/
+	public CompletableFuture<Void> cancelMPReservationAsync(String gri)
+	{
+		Span span = Tracer.startSpan("cancel").set("gri", gri).set("async", true);
+		Executor stages = asyncStages("cancel", span, asyncExecutor);
+		
+		return CompletableFuture.supplyAsync(() -> miscHelper.getRegularMPGri(gri), stages)
+				.thenCompose(mpGRI ->
+				{
+					if(gri.equals(mpGRI) && !mpGRI.contains("MP"))
+						return cancelSubrequestAsync(gri, stages);
+					
+					return queryResolvedAsync(gri, mpGRI, null, stages).thenCompose(queryInformation ->
+					{
+						List<CompletableFuture<Void>> cancels = new ArrayList<CompletableFuture<Void>>();
+						
+						for(ResDetails oneSubrequest : queryInformation.get(0).getAllDetails())
+						{
+							if(oneSubrequest.getStatus().equals("BAD_GRI"))
+								log.info("[cancelReservation] gri = {} skipped: Current subrequest GRI is invalid!", oneSubrequest.getGlobalReservationId());
+							else
+								cancels.add(cancelSubrequestAsync(oneSubrequest.getGlobalReservationId(), stages));
+						}
+						
+						return CompletableFuture.allOf(cancels.toArray(new CompletableFuture<?>[cancels.size()]));
+					});
+				})
+				.whenComplete((done, error) -> span.end());
+	}
+	
+	private CompletableFuture<Void> cancelSubrequestAsync(String gri, Executor stages)
+	{
+		CancelResContent cancelRequest = new CancelResContent();
+		cancelRequest.setGlobalReservationId(gri);
+		PathCache.invalidate(gri);
+		
+		return invokeAsync("cancelReservation", client -> client.cancelReservation(cancelRequest), stages).handle((cancelResponse, error) ->
+		{
+			if(error != null)
+				log.error("[cancelReservation] gri = {}, Error: {}", gri, unwrap(error).getMessage());
+			else
+				log.info("[cancelReservation] gri = {}, status = {}", gri, cancelResponse.getStatus());
+			
+			return null;
+		});
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Asynchronous groupReservations(). The group operation runs on its own MultipathOSCARSClient (HelperGroup changes the state of the client it is
+	* given) on a separate small pool. Adding paths to a group still waits for each new path on that pool's thread, as HelperGroup creates them one at
+	* a time through the blocking methods.
+	* 
+	* @return Future of what groupReservations() returns.
+	*********************************************************************************************************************************************************/
+	public CompletableFuture<String> groupReservationsAsync(ArrayList<String> gris, boolean add, int numAdditionalDisjoint)
+	{
+		ArrayList<String> groupGris = new ArrayList<String>(gris);
+		TopologyGraph graph = topologyGraph;
+		
+		// supplyAsync() submits from this thread, so wrap() puts the group trace under the current span, if any //
+		return CompletableFuture.supplyAsync(() ->
+		{
+			MultipathOSCARSClient groupClient = new MultipathOSCARSClient(oscarsURL);
+			groupClient.setTopologyGraph(graph);		// New disjoint paths are precomputed on the same topology as this client's
+			
+			return groupClient.groupReservations(groupGris, add, numAdditionalDisjoint);
+		}, task -> groupExecutor.execute(Tracer.wrap(task)));
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Makes one OSCARS call through invoke() on the given executor.
+	* 
+	* @return Future of the result, completed exceptionally with the OSCARSFaultMessage or OSCARSClientException thrown by invoke().
+	*********************************************************************************************************************************************************/
+	private <T> CompletableFuture<T> invokeAsync(String operation, OSCARSCall<T> call, Executor stages)
+	{
+		return CompletableFuture.supplyAsync(() ->
+		{
+			try
+			{
+				return invoke(operation, call);
+			}
+			catch(OSCARSFaultMessage | OSCARSClientException e)
+			{
+				throw new CompletionException(e);
+			}
+		}, stages);
+	}
+	
+	/**
+	 * @return The exception a failed stage threw, rather than the CompletionException wrapping it.
+	 */
+	private static Throwable unwrap(Throwable error)
+	{
+		return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+	}
+	
+	/*********************************************************************************************************************************************************
+	* Executor for the stages of one asynchronous operation: runs them on pool, inside span and with the operation name in the log context. Detaches span
+	* from the calling thread, it is ended by whichever thread completes the operation.
+	*********************************************************************************************************************************************************/
+	private static Executor asyncStages(String operation, Span span, Executor pool)
+	{
+		Executor traced = Tracer.within(span, pool);
+		Tracer.detach(span);
+		
+		return task -> traced.execute(() ->
+		{
+			LogContext fields = LogContext.with(LogContext.op, operation);
+			
+			try
+			{
+				task.run();
+			}
+			finally
+			{
+				fields.close();
+			}
+		});
+	}
+	
 	/*********************************************************************************************************************************************************
 	* Polls (Queries) a Multipath subrequest reservation set every 5 seconds until it reaches a final state.
 	* - Final states: {ACTIVE, RESERVED, FINISHED, FAILED, CANCELLED, UNKNOWN}
 	* - Successful states: {ACTIVE, RESERVED, FINISHED}
 	* 
 	* @param mpGRI
-	* @return SubrequetTuple objects for the subrequest, containing GRI, and Status, etc.
+	* @return SubrequetTuple objects for the subrequest, containing GRI, and Status, etc. Null if the thread was interrupted first.
 	*********************************************************************************************************************************************************/
 	private SubrequestTuple subrequestPoll(String mpGRI)
+	{
+		// Time spent here is OSCARS' path computation and commit of the subrequest, as seen from the MPC //
+		Span span = Tracer.startSpan("poll").set("gri", mpGRI);
+		
+		try
+		{
+			return pollSubrequest(mpGRI, span);
+		}
+		finally
+		{
+			span.end();
+		}
+	}
+	
+	private SubrequestTuple pollSubrequest(String mpGRI, Span span)
 	{
 		boolean firstPoll = true;
+		int rounds = 0;
 		
     	while(true)
 		{
@@ -1049,21 +1979,27 @@ public class MultipathOSCARSClient
     		
     		if(!firstPoll)
     		{
-    			System.out.println(" - Still polling, please wait a moment...");
+    			log.debug(" - Still polling, please wait a moment...");
     		}
 						
 			try
 			{
-				Thread.sleep(5000);		//Poll for request status every 5 seconds.
+				Thread.sleep(Configuration.pollIntervalMillis);		//Poll for request status (every 5 seconds by default).
+			}
+			catch(InterruptedException e)
+			{
+				log.warn("Interrupted while polling {}, giving up on it", mpGRI);
+				Thread.currentThread().interrupt();		// Leave it for the caller to see
+				return null;
 			}
-			catch(Exception e){ e.printStackTrace(); }
 
 			silentQuery = true;	// Turn off unnecessary query output messages
 			queryResults = queryMPReservation(mpGRI);	// Perform the query
 			silentQuery = false;
 						    									            	
         	status = queryResults.get(0).getAllDetails().get(0).getStatus();
-        	System.out.println("STATUS = " + status);							            			
+        	log.debug("STATUS = {}", status);
+        	span.set("rounds", ++rounds).set("status", status);							            			
         	if(status.contains("ACTIVE") || status.contains("RESERVED") || status.contains("FINISHED"))
         	{
         		// This unicast request was successful. //
@@ -1106,14 +2042,21 @@ public class MultipathOSCARSClient
     	    	
     	while(true)
 		{
-			System.out.println("\n - Polling Multipath request for status. Please wait a moment...\n");
+			log.debug("\n - Polling Multipath request for status. Please wait a moment...\n");
 			
 			try
 			{
-				Thread.sleep(5000);		//Poll for request status every 5 seconds.
+				Thread.sleep(Configuration.pollIntervalMillis);		//Poll for request status (every 5 seconds by default).
+			}
+			catch(InterruptedException e)
+			{
+				log.warn("Interrupted while polling {}, giving up on it", mpGRI);
+				Thread.currentThread().interrupt();		// Leave it for the caller to see
+				break;									// Subrequests not yet in a final state are left as last polled
 			}
-			catch(Exception e){ e.printStackTrace(); }
 
+			synchronized(queryOutputLock)
+			{
 			silentQuery = true;	// Turn off unnecessary query output messages
 			queryMPReservation(mpGRI);	// Perform the query
 			silentQuery = false;
@@ -1162,7 +2105,8 @@ public class MultipathOSCARSClient
         		in.close();
         		fstream.close();
         	}
-        	catch (Exception e){System.err.println("Error: " + e.getMessage());}
+        	catch (Exception e){log.error("Error: {}", e.getMessage());}
+			}
         
         	if(finishedRequests == mpNumPaths)
         		break;
@@ -1184,11 +2128,42 @@ public class MultipathOSCARSClient
 	* @return A list of all GRIs matching the passed in statuses.
 	*********************************************************************************************************************************************************/
 	public List<ResDetails> listUnicastByStatus(ArrayList<String> statusesToList)
+	{
+		List<ResDetails> statusesToReturn = new ArrayList<ResDetails>();		// List of ResDetails for each GRI to be returned
+		
+		return listUnicast(statusesToList, statusesToReturn::addAll) ? statusesToReturn : null;
+	}
+	
+	/*********************************************************************************************************************************************************
+	* listUnicastByStatus() for list views, which only need a few values of each reservation. Every listReservations() reply is projected into a 
+	* ReservationColumns as soon as it arrives, so the full ResDetails of the listed reservations never stay live together.
+	*  
+	* @param statusesToList, List of status Strings. All GRIs matching statuses in this parameter will be returned.
+	* @return The listed reservations, or null if the list call failed.
+	*********************************************************************************************************************************************************/
+	public ReservationColumns listUnicastColumns(ArrayList<String> statusesToList)
+	{
+		ReservationColumns listed = new ReservationColumns();
+		
+		if(!listUnicast(statusesToList, listed::addAll))
+			return null;
+		
+		listed.trimToSize();
+		
+		return listed;
+	}
+	
+	/**
+	 * Sends the listReservations() calls of listUnicastByStatus(), handing each reply's ResDetails to replyHandler.
+	 * 
+	 * @return Was at least the first reply handled? (As before, a failed FAILED listing still returns the other statuses.)
+	 */
+	private boolean listUnicast(ArrayList<String> statusesToList, Consumer<List<ResDetails>> replyHandler)
 	{
 		boolean includesFAILED = false;					// Has the user also requested FAILED statuses?
+		boolean listed = false;							// Has the first reply been handled?
 		ListRequest listRequest = new ListRequest();
 		ListReply listResponse = new ListReply();
-		List<ResDetails> statusesToReturn = null;		// List of ResDetails for each GRI to be returned
 		
 		// Just make it easier for the user //
 		if(statusesToList.contains("ALL"))
@@ -1229,30 +2204,32 @@ public class MultipathOSCARSClient
 				
 		try
 		{
-			listResponse = oscarsClient.listReservations(listRequest); 		// Invoke the listReservations call in OSCARS
-			statusesToReturn = listResponse.getResDetails();
+			final ListRequest allStatusesRequest = listRequest;
+			listResponse = invoke("listReservations", client -> client.listReservations(allStatusesRequest)); 		// Invoke the listReservations call in OSCARS
+			replyHandler.accept(listResponse.getResDetails());
+			listed = true;
 			
 			// Now get the FAILED statuses too //
 			if(includesFAILED)
 			{
-				listRequest = new ListRequest();
-				listRequest.getResStatus().add(OSCARSClient.STATUS_FAILED);
-				listResponse = oscarsClient.listReservations(listRequest);	// Invoke the listReservations call in OSCARS
+				final ListRequest failedRequest = new ListRequest();
+				failedRequest.getResStatus().add(OSCARSClient.STATUS_FAILED);
+				listResponse = invoke("listReservations", client -> client.listReservations(failedRequest));	// Invoke the listReservations call in OSCARS
 				
-				statusesToReturn.addAll(listResponse.getResDetails());		// Add all listed ResDetails to return list.
+				replyHandler.accept(listResponse.getResDetails());		// Add all listed ResDetails to return list.
 			}
 			
 		}
 		catch(OSCARSFaultMessage fm) 
 		{
-			System.err.println("Error: " + fm.getMessage());
+			log.error("Error: {}", fm.getMessage());
 	    }
 		catch(OSCARSClientException ce) 
 		{
-			System.err.println("Error: " + ce.getMessage());
+			log.error("Error: {}", ce.getMessage());
 	    }
 		
-		return statusesToReturn;
+		return listed;
 	}
 	
 	
@@ -1291,7 +2268,7 @@ public class MultipathOSCARSClient
     	}
     	catch(IOException e)
     	{ 
-    		e.printStackTrace(); 
+    		log.error("Error reading \'{}\'", mpLookupGRI, e);
     	}
 			
 		// Get results for ALL groups in the system -- Makes the listing easier for end-users //
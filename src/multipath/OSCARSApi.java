@@ -0,0 +1,43 @@
+package multipath;
+
+import net.es.oscars.api.soap.gen.v06.CancelResContent;
+import net.es.oscars.api.soap.gen.v06.CancelResReply;
+import net.es.oscars.api.soap.gen.v06.CreatePathContent;
+import net.es.oscars.api.soap.gen.v06.CreatePathResponseContent;
+import net.es.oscars.api.soap.gen.v06.CreateReply;
+import net.es.oscars.api.soap.gen.v06.ListReply;
+import net.es.oscars.api.soap.gen.v06.ListRequest;
+import net.es.oscars.api.soap.gen.v06.ModifyResContent;
+import net.es.oscars.api.soap.gen.v06.ModifyResReply;
+import net.es.oscars.api.soap.gen.v06.QueryResContent;
+import net.es.oscars.api.soap.gen.v06.QueryResReply;
+import net.es.oscars.api.soap.gen.v06.ResCreateContent;
+import net.es.oscars.api.soap.gen.v06.TeardownPathContent;
+import net.es.oscars.api.soap.gen.v06.TeardownPathResponseContent;
+import net.es.oscars.client.OSCARSClientException;
+import net.es.oscars.common.soap.gen.OSCARSFaultMessage;
+
+/***********************************************************************************************************************
+* The OSCARS API operations used by the MPC, with the signatures of net.es.oscars.client.OSCARSClient.
+*
+* Implemented by TunedOSCARSClient (a real OSCARS IDC) and simulator.OSCARSSimulator (an in-process stand-in). Which one
+* OSCARSClientPool hands out depends on the OSCARS URL.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public interface OSCARSApi
+{
+	CreateReply createReservation(ResCreateContent createRequest) throws OSCARSFaultMessage, OSCARSClientException;
+
+	QueryResReply queryReservation(QueryResContent queryRequest) throws OSCARSFaultMessage, OSCARSClientException;
+
+	ListReply listReservations(ListRequest listRequest) throws OSCARSFaultMessage, OSCARSClientException;
+
+	CancelResReply cancelReservation(CancelResContent cancelRequest) throws OSCARSFaultMessage, OSCARSClientException;
+
+	ModifyResReply modifyReservation(ModifyResContent modifyRequest) throws OSCARSFaultMessage, OSCARSClientException;
+
+	CreatePathResponseContent createPath(CreatePathContent setupRequest) throws OSCARSFaultMessage, OSCARSClientException;
+
+	TeardownPathResponseContent teardownPath(TeardownPathContent teardownRequest) throws OSCARSFaultMessage, OSCARSClientException;
+}
@@ -0,0 +1,16 @@
+package multipath;
+
+import net.es.oscars.client.OSCARSClientException;
+import net.es.oscars.common.soap.gen.OSCARSFaultMessage;
+
+/***********************************************************************************************************************
+* One OSCARS API call, made on whichever pooled client (OSCARS or simulator) MultipathOSCARSClient.invoke() lends it.
+*
+* The call must not keep a reference to the client after it returns.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public interface OSCARSCall<T>
+{
+	T call(OSCARSApi client) throws OSCARSFaultMessage, OSCARSClientException;
+}
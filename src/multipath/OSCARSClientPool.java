@@ -0,0 +1,287 @@
+package multipath;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.es.oscars.client.OSCARSClientException;
+
+import config.Configuration;
+import logging.Log;
+import simulator.OSCARSSimulator;
+
+/***********************************************************************************************************************
+* Bounded pool of ready-to-use OSCARSClient instances for one OSCARS URL.
+*
+* An OSCARSClient wraps a CXF proxy with WS-Security interceptors, which is not safe to use from several threads at once.
+* Building one is expensive (WSDL fetch, keystore setup), so instead of one client per MultipathOSCARSClient:
+* 	- At most Configuration.oscarsClientPoolSize clients exist per URL. A thread borrows one for a single call and returns it
+*     straight after, so a client is only ever used by one thread at a time.
+* 	- Borrowers wait up to Configuration.oscarsClientBorrowTimeoutSeconds for a client when all of them are in use.
+* 	- Configuration.oscarsClientPoolMinIdle clients are created up front, the rest on demand.
+* 	- Health checks: a client whose call failed in the transport (OSCARSClientException or a runtime exception from CXF)
+*     is discarded instead of returned, and clients older than Configuration.oscarsClientMaxAgeSeconds are replaced on borrow.
+*     OSCARS faults (OSCARSFaultMessage) are answers from a healthy connection and do not affect the client.
+* 	- Utilization (in use, peak, waits, creations, discards) is kept for monitoring, see toString().
+*
+* Use MultipathOSCARSClient.invoke() rather than borrowing directly.
+* For a "sim://" URL every pooled client is the same simulator.OSCARSSimulator, so the pool only bounds concurrency.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class OSCARSClientPool
+{
+	private static final Log log = Log.forClass(OSCARSClientPool.class);
+	
+	/*********************************************************************************************************************************************************
+	* A client on loan from the pool. Must be handed back with OSCARSClientPool.release() exactly once.
+	*********************************************************************************************************************************************************/
+	public static class PooledClient
+	{
+		private final OSCARSApi client;
+		private final long createdAt = System.currentTimeMillis();
+		private boolean healthy = true;
+
+		PooledClient(OSCARSApi client)
+		{
+			this.client = client;
+		}
+
+		public OSCARSApi getClient()
+		{
+			return client;
+		}
+
+		/**
+		 * Marks the client as broken so that it is discarded when it is released.
+		 */
+		public void invalidate()
+		{
+			healthy = false;
+		}
+
+		boolean isHealthy()
+		{
+			return healthy && (System.currentTimeMillis() - createdAt) < Configuration.oscarsClientMaxAgeSeconds * 1000L;
+		}
+	}
+
+	private static final Map<String, OSCARSClientPool> pools = new ConcurrentHashMap<String, OSCARSClientPool>();
+
+	private final String oscarsURL;
+	private final int maxSize;
+	private final LinkedBlockingDeque<PooledClient> idleClients = new LinkedBlockingDeque<PooledClient>();
+	private final Semaphore permits;			// One permit per client that may be on loan
+
+	private final AtomicInteger inUse = new AtomicInteger();
+	private final AtomicInteger peakInUse = new AtomicInteger();
+	private final AtomicLong borrows = new AtomicLong();
+	private final AtomicLong waits = new AtomicLong();				// Borrows that found every client in use
+	private final AtomicLong waitNanos = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong discarded = new AtomicLong();
+
+	/*********************************************************************************************************************************************************
+	* Returns the shared pool of the given OSCARS URL, creating it on first use.
+	*
+	* @param oscarsURL
+	*********************************************************************************************************************************************************/
+	public static OSCARSClientPool forURL(String oscarsURL)
+	{
+		return pools.computeIfAbsent(oscarsURL, url -> new OSCARSClientPool(url, Configuration.oscarsClientPoolSize, Configuration.oscarsClientPoolMinIdle));
+	}
+
+	public static Collection<OSCARSClientPool> getAll()
+	{
+		return Collections.unmodifiableCollection(pools.values());
+	}
+
+	/*********************************************************************************************************************************************************
+	* Drops every pooled client. Called when the web app shuts down.
+	*********************************************************************************************************************************************************/
+	public static void shutdownAll()
+	{
+		for(OSCARSClientPool onePool : pools.values())
+			onePool.idleClients.clear();
+
+		pools.clear();
+	}
+
+	OSCARSClientPool(String oscarsURL, int maxSize, int minIdle)
+	{
+		this.oscarsURL = oscarsURL;
+		this.maxSize = maxSize;
+		this.permits = new Semaphore(maxSize, true);
+
+		for(int c = 0; c < Math.min(minIdle, maxSize); c++)
+		{
+			try
+			{
+				idleClients.offer(createClient());
+			}
+			catch(OSCARSClientException ce)
+			{
+				log.error("OSCARSClientException thrown trying to initialize OSCARSClient", ce);
+				break;
+			}
+		}
+	}
+
+	/*********************************************************************************************************************************************************
+	* Borrows a client, waiting up to Configuration.oscarsClientBorrowTimeoutSeconds if all clients are in use.
+	*
+	* @return A client for the exclusive use of the calling thread.
+	* @throws OSCARSClientException If no client became available in time or a new client could not be created.
+	*********************************************************************************************************************************************************/
+	public PooledClient borrow() throws OSCARSClientException
+	{
+		borrows.incrementAndGet();
+
+		if(!permits.tryAcquire())
+		{
+			long waitStart = System.nanoTime();
+			waits.incrementAndGet();
+
+			try
+			{
+				boolean acquired = permits.tryAcquire(Configuration.oscarsClientBorrowTimeoutSeconds, TimeUnit.SECONDS);
+				waitNanos.addAndGet(System.nanoTime() - waitStart);
+
+				if(!acquired)
+				{
+					timeouts.incrementAndGet();
+					throw new OSCARSClientException("No OSCARSClient available for " + oscarsURL + " after " + Configuration.oscarsClientBorrowTimeoutSeconds + "s (" + maxSize + " in use)");
+				}
+			}
+			catch(InterruptedException ie)
+			{
+				Thread.currentThread().interrupt();
+				throw new OSCARSClientException("Interrupted while waiting for an OSCARSClient");
+			}
+		}
+
+		try
+		{
+			PooledClient pooled;
+
+			// Replace idle clients which have outlived their maximum age //
+			while((pooled = idleClients.pollFirst()) != null && !pooled.isHealthy())
+				discarded.incrementAndGet();
+
+			if(pooled == null)
+				pooled = createClient();
+
+			int nowInUse = inUse.incrementAndGet();
+			peakInUse.accumulateAndGet(nowInUse, Math::max);
+
+			return pooled;
+		}
+		catch(OSCARSClientException | RuntimeException e)
+		{
+			permits.release();
+			throw e;
+		}
+	}
+
+	/*********************************************************************************************************************************************************
+	* Returns a borrowed client. Healthy clients go back to the front of the idle queue (so the most recently used, warmest connection is reused first),
+	* invalidated ones are discarded.
+	*
+	* @param pooled
+	*********************************************************************************************************************************************************/
+	public void release(PooledClient pooled)
+	{
+		inUse.decrementAndGet();
+
+		if(pooled.isHealthy())
+			idleClients.offerFirst(pooled);
+		else
+			discarded.incrementAndGet();
+
+		permits.release();
+	}
+
+	public String getURL()
+	{
+		return oscarsURL;
+	}
+
+	public int getMaxSize()
+	{
+		return maxSize;
+	}
+
+	public int getInUse()
+	{
+		return inUse.get();
+	}
+
+	public int getIdle()
+	{
+		return idleClients.size();
+	}
+
+	public int getPeakInUse()
+	{
+		return peakInUse.get();
+	}
+
+	public long getBorrows()
+	{
+		return borrows.get();
+	}
+
+	public long getWaits()
+	{
+		return waits.get();
+	}
+
+	public long getWaitMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(waitNanos.get());
+	}
+
+	public long getTimeouts()
+	{
+		return timeouts.get();
+	}
+
+	public long getCreated()
+	{
+		return created.get();
+	}
+
+	public long getDiscarded()
+	{
+		return discarded.get();
+	}
+
+	public String toString()
+	{
+		return "OSCARSClientPool[" + oscarsURL + "] inUse=" + getInUse() + "/" + maxSize + " idle=" + getIdle() + " peak=" + getPeakInUse() + " borrows=" + getBorrows()
+				+ " waits=" + getWaits() + " waitMs=" + getWaitMillis() + " timeouts=" + getTimeouts() + " created=" + getCreated() + " discarded=" + getDiscarded();
+	}
+
+	private PooledClient createClient() throws OSCARSClientException
+	{
+		OSCARSApi client;
+		
+		if(OSCARSSimulator.isSimulatorURL(oscarsURL))
+			client = OSCARSSimulator.forURL(oscarsURL);		// In-process stand-in, shared by every pooled "client"
+		else
+			client = new TunedOSCARSClient(oscarsURL);		// Connect to OSCARS
+		
+		created.incrementAndGet();
+
+		log.info("OSCARS Connection successfully established!");
+
+		return new PooledClient(client);
+	}
+}
@@ -0,0 +1,188 @@
+package multipath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneHopContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlanePathContent;
+
+import net.es.oscars.api.soap.gen.v06.ResDetails;
+import net.es.oscars.api.soap.gen.v06.ReservedConstraintType;
+
+import config.Configuration;
+
+/***********************************************************************************************************************
+* Per-GRI cache of parsed reserved paths.
+*
+* Reserved paths were re-queried and re-parsed from their hop Strings every time they were needed (path constraints,
+* anycast hop counts, query output). Instead, the first time a reservation's path is seen it is parsed once into a
+* CachedPath, which keeps its hops as an int[] of LinkIdRegistry IDs and derives everything else from it:
+* 	- The ';'-terminated hop String used for path constraints
+* 	- The destination URN (last hop) and the hop count
+* 	- The node sequence, i.e. the hops at which the path enters a new node
+*
+* Only reservations whose path can no longer change on its own (RESERVED/ACTIVE/FINISHED) are cached. Cancelling or
+* modifying a reservation through MultipathOSCARSClient invalidates its entry. The least-recently-used entries are
+* dropped once Configuration.pathCacheSize reservations are cached.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class PathCache
+{
+	/*********************************************************************************************************************************************************
+	* Immutable reserved path of one unicast reservation.
+	*********************************************************************************************************************************************************/
+	public static class CachedPath
+	{
+		private final int[] hopLinks;				// LinkIdRegistry IDs, in path order
+		private final int[] nodeBoundaries;			// Indices into hopLinks of the first hop and of every hop on a different node than the hop before it
+		private volatile String pathString;			// Built on first use
+
+		CachedPath(int[] hopLinks)
+		{
+			this.hopLinks = hopLinks;
+
+			int[] boundaries = new int[hopLinks.length];
+			int numBoundaries = 0;
+
+			for(int h = 0; h < hopLinks.length; h++)
+			{
+				if(h == 0 || LinkIdRegistry.node(hopLinks[h]) != LinkIdRegistry.node(hopLinks[h - 1]))
+					boundaries[numBoundaries++] = h;
+			}
+
+			nodeBoundaries = new int[numBoundaries];
+			System.arraycopy(boundaries, 0, nodeBoundaries, 0, numBoundaries);
+		}
+
+		public int getHopCount()
+		{
+			return hopLinks.length;
+		}
+
+		public int getHopLink(int hop)
+		{
+			return hopLinks[hop];
+		}
+
+		public String getHopURN(int hop)
+		{
+			return LinkIdRegistry.urn(hopLinks[hop]);
+		}
+
+		/**
+		 * @return URN of the last hop, or null if the path has no hops.
+		 */
+		public String getDestination()
+		{
+			return (hopLinks.length == 0) ? null : getHopURN(hopLinks.length - 1);
+		}
+
+		/**
+		 * @return URN of the first hop and of every hop that enters a new node, in order.
+		 */
+		public List<String> getInterNodeHops()
+		{
+			List<String> hops = new ArrayList<String>(nodeBoundaries.length);
+
+			for(int h : nodeBoundaries)
+				hops.add(getHopURN(h));
+
+			return hops;
+		}
+
+		/**
+		 * @return ';'-terminated list of the hop link IDs, as used by DisjointConstraintBuilder.addPath().
+		 */
+		public String toPathString()
+		{
+			String built = pathString;
+
+			if(built == null)
+			{
+				StringBuilder path = new StringBuilder();
+
+				for(int link : hopLinks)
+					path.append(LinkIdRegistry.urn(link)).append(';');
+
+				built = path.toString();
+				pathString = built;
+			}
+
+			return built;
+		}
+	}
+
+	private static final Map<String, CachedPath> cachedPaths = Collections.synchronizedMap(new LinkedHashMap<String, CachedPath>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry<String, CachedPath> eldest)
+		{
+			return size() > Configuration.pathCacheSize;
+		}
+	});
+
+	private PathCache()
+	{
+	}
+
+	/**
+	 * @return The cached path of the given GRI, or null if it is not cached.
+	 */
+	public static CachedPath get(String gri)
+	{
+		return cachedPaths.get(gri);
+	}
+
+	/*********************************************************************************************************************************************************
+	* Returns the path of a queried reservation, parsing and caching it if this GRI has not been seen yet.
+	*
+	* @param details, Query result of one unicast reservation.
+	* @return The reserved path, or null if the reservation has no reserved path (i.e. it failed).
+	*********************************************************************************************************************************************************/
+	public static CachedPath fromDetails(ResDetails details)
+	{
+		String gri = details.getGlobalReservationId();
+		CachedPath path = (gri == null) ? null : cachedPaths.get(gri);
+
+		if(path != null)
+			return path;
+
+		ReservedConstraintType reservedConstraint = details.getReservedConstraint();
+
+		if(reservedConstraint == null)
+			return null;
+
+		CtrlPlanePathContent reservedPath = (reservedConstraint.getPathInfo() == null) ? null : reservedConstraint.getPathInfo().getPath();
+		List<CtrlPlaneHopContent> hops = (reservedPath == null) ? Collections.<CtrlPlaneHopContent>emptyList() : reservedPath.getHop();
+
+		int[] hopLinks = new int[hops.size()];
+
+		for(int h = 0; h < hopLinks.length; h++)
+			hopLinks[h] = LinkIdRegistry.intern(hops.get(h).getLink().getId());
+
+		path = new CachedPath(hopLinks);
+
+		if(gri != null && isSettled(details.getStatus()))
+			cachedPaths.put(gri, path);
+
+		return path;
+	}
+
+	/**
+	 * Drops the cached path of a reservation whose path may be about to change.
+	 */
+	public static void invalidate(String gri)
+	{
+		cachedPaths.remove(gri);
+	}
+
+	private static boolean isSettled(String status)
+	{
+		return status != null && (status.contains("RESERVED") || status.contains("ACTIVE") || status.contains("FINISHED"));
+	}
+}
@@ -0,0 +1,264 @@
+package multipath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.es.oscars.api.soap.gen.v06.Layer2Info;
+import net.es.oscars.api.soap.gen.v06.PathInfo;
+import net.es.oscars.api.soap.gen.v06.ResDetails;
+import net.es.oscars.api.soap.gen.v06.ReservedConstraintType;
+import net.es.oscars.api.soap.gen.v06.UserRequestConstraintType;
+
+/***********************************************************************************************************************
+* Compact projection of a list of unicast reservations, kept column by column in primitive arrays.
+*
+* A listReservations() reply carries the full ResDetails graph of every reservation (constraints, path info, every hop),
+* while the list views only need a few values of each. add() extracts them while the reply is processed, so the reply
+* can be dropped right away. Per reservation only about 40 bytes are kept, instead of kilobytes of JAXB objects:
+* 	- GRI: the index of its prefix in a small table plus its number, e.g. "es.net" and 12 for "es.net-12". GRIs not
+* 	  of the form <prefix>-<number> are kept whole in the prefix table, with number -1.
+* 	- Status: ReservationStatus ordinal
+* 	- Bandwidth (Mbps), start and end time (epoch seconds): reserved values, or the requested ones if nothing is
+* 	  reserved, -1 if neither is reported
+* 	- Source and destination: LinkIdRegistry IDs of the endpoint URNs, -1 if not reported
+*
+* A list is filled by a single thread and is treated as read-only once it has been published.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class ReservationColumns
+{
+	private final List<String> griPrefixes = new ArrayList<String>();
+	private final Map<String, Integer> griPrefixIndex = new HashMap<String, Integer>();
+
+	private int size = 0;
+	private int[] griPrefix;
+	private long[] griNumber;
+	private byte[] status;
+	private int[] bandwidth;
+	private long[] startTime;
+	private long[] endTime;
+	private int[] source;
+	private int[] destination;
+
+	public ReservationColumns()
+	{
+		this(1024);
+	}
+
+	public ReservationColumns(int initialCapacity)
+	{
+		allocate(Math.max(initialCapacity, 16));
+	}
+
+	/**
+	 * Projects one listed reservation onto a new row.
+	 */
+	public void add(ResDetails details)
+	{
+		if(size == status.length)
+			allocate(Math.max(16, size + (size >> 1)));
+
+		setGri(size, details.getGlobalReservationId());
+		status[size] = (byte) ReservationStatus.fromString(details.getStatus()).ordinal();
+
+		ReservedConstraintType reserved = details.getReservedConstraint();
+		UserRequestConstraintType requested = details.getUserRequestConstraint();
+
+		if(reserved != null)
+		{
+			bandwidth[size] = reserved.getBandwidth();
+			startTime[size] = reserved.getStartTime();
+			endTime[size] = reserved.getEndTime();
+		}
+		else if(requested != null)
+		{
+			bandwidth[size] = requested.getBandwidth();
+			startTime[size] = requested.getStartTime();
+			endTime[size] = requested.getEndTime();
+		}
+		else
+		{
+			bandwidth[size] = -1;
+			startTime[size] = -1;
+			endTime[size] = -1;
+		}
+
+		Layer2Info endpoints = layer2Info((requested != null) ? requested.getPathInfo() : null);
+
+		if(endpoints == null)
+			endpoints = layer2Info((reserved != null) ? reserved.getPathInfo() : null);
+
+		source[size] = (endpoints == null || endpoints.getSrcEndpoint() == null) ? -1 : LinkIdRegistry.intern(endpoints.getSrcEndpoint());
+		destination[size] = (endpoints == null || endpoints.getDestEndpoint() == null) ? -1 : LinkIdRegistry.intern(endpoints.getDestEndpoint());
+
+		size++;
+	}
+
+	/**
+	 * Projects every reservation of a listReservations() reply.
+	 */
+	public void addAll(List<ResDetails> allDetails)
+	{
+		for(ResDetails oneDetails : allDetails)
+			add(oneDetails);
+	}
+
+	/**
+	 * Releases the unused capacity of every column, once the list is complete.
+	 */
+	public void trimToSize()
+	{
+		if(size < status.length)
+			allocate(size);
+	}
+
+	public int size()
+	{
+		return size;
+	}
+
+	public String getGri(int row)
+	{
+		String prefix = griPrefixes.get(griPrefix[row]);
+
+		return (griNumber[row] < 0) ? prefix : prefix + "-" + griNumber[row];
+	}
+
+	/**
+	 * @return The GRIs of every row, in row order.
+	 */
+	public ArrayList<String> getGris()
+	{
+		ArrayList<String> gris = new ArrayList<String>(size);
+
+		for(int row = 0; row < size; row++)
+			gris.add(getGri(row));
+
+		return gris;
+	}
+
+	public ReservationStatus getStatus(int row)
+	{
+		return ReservationStatus.fromOrdinal(status[row]);
+	}
+
+	public int getBandwidth(int row)
+	{
+		return bandwidth[row];
+	}
+
+	public long getStartTime(int row)
+	{
+		return startTime[row];
+	}
+
+	public long getEndTime(int row)
+	{
+		return endTime[row];
+	}
+
+	/**
+	 * @return LinkIdRegistry ID of the source endpoint, -1 if unknown.
+	 */
+	public int getSource(int row)
+	{
+		return source[row];
+	}
+
+	/**
+	 * @return LinkIdRegistry ID of the destination endpoint, -1 if unknown.
+	 */
+	public int getDestination(int row)
+	{
+		return destination[row];
+	}
+
+	public String getSourceURN(int row)
+	{
+		return (source[row] < 0) ? null : LinkIdRegistry.urn(source[row]);
+	}
+
+	public String getDestinationURN(int row)
+	{
+		return (destination[row] < 0) ? null : LinkIdRegistry.urn(destination[row]);
+	}
+
+	private void setGri(int row, String gri)
+	{
+		if(gri == null)
+			gri = "";
+
+		int separator = gri.lastIndexOf('-');
+		long number = parseNumber(gri, separator + 1);
+		String prefix = (number < 0) ? gri : gri.substring(0, separator);
+
+		Integer prefixIndex = griPrefixIndex.get(prefix);
+
+		if(prefixIndex == null)
+		{
+			prefixIndex = griPrefixes.size();
+			griPrefixes.add(prefix);
+			griPrefixIndex.put(prefix, prefixIndex);
+		}
+
+		griPrefix[row] = prefixIndex;
+		griNumber[row] = number;
+	}
+
+	// Only numbers that print back to exactly the same digits, i.e. no sign, no leading zeros and no overflow //
+	private static long parseNumber(String gri, int start)
+	{
+		int digits = gri.length() - start;
+
+		if(start == 0 || digits < 1 || digits > 18 || (gri.charAt(start) == '0' && digits > 1))
+			return -1;
+
+		long number = 0;
+
+		for(int c = start; c < gri.length(); c++)
+		{
+			char digit = gri.charAt(c);
+
+			if(digit < '0' || digit > '9')
+				return -1;
+
+			number = number * 10 + (digit - '0');
+		}
+
+		return number;
+	}
+
+	private static Layer2Info layer2Info(PathInfo pathInfo)
+	{
+		return (pathInfo == null) ? null : pathInfo.getLayer2Info();
+	}
+
+	private void allocate(int capacity)
+	{
+		if(griPrefix == null)
+		{
+			griPrefix = new int[capacity];
+			griNumber = new long[capacity];
+			status = new byte[capacity];
+			bandwidth = new int[capacity];
+			startTime = new long[capacity];
+			endTime = new long[capacity];
+			source = new int[capacity];
+			destination = new int[capacity];
+			return;
+		}
+
+		griPrefix = Arrays.copyOf(griPrefix, capacity);
+		griNumber = Arrays.copyOf(griNumber, capacity);
+		status = Arrays.copyOf(status, capacity);
+		bandwidth = Arrays.copyOf(bandwidth, capacity);
+		startTime = Arrays.copyOf(startTime, capacity);
+		endTime = Arrays.copyOf(endTime, capacity);
+		source = Arrays.copyOf(source, capacity);
+		destination = Arrays.copyOf(destination, capacity);
+	}
+}
@@ -0,0 +1,42 @@
+package multipath;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/***********************************************************************************************************************
+* Statuses OSCARS reports for a unicast reservation, named exactly as OSCARS spells them (see OSCARSClient.STATUS_*).
+* Any status OSCARS may add later maps to UNKNOWN.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public enum ReservationStatus
+{
+	ACCEPTED, ACTIVE, CANCELLED, COMMITTED, FAILED, FINISHED, INCANCEL, INCOMMIT, INMODIFY, INPATHCALCULATION, INSETUP, INTEARDOWN, OK, PATHCALCULATED, RESERVED, UNKNOWN;
+
+	private static final ReservationStatus[] byOrdinal = values();
+	private static final Map<String, ReservationStatus> byName = new HashMap<String, ReservationStatus>();
+
+	static
+	{
+		for(ReservationStatus oneStatus : byOrdinal)
+			byName.put(oneStatus.name(), oneStatus);
+	}
+
+	/**
+	 * @return The status named status, or UNKNOWN.
+	 */
+	public static ReservationStatus fromString(String status)
+	{
+		ReservationStatus known = (status == null) ? null : byName.get(status);
+
+		return (known == null) ? UNKNOWN : known;
+	}
+
+	/**
+	 * @return The status with the given ordinal, without the copy values() makes.
+	 */
+	public static ReservationStatus fromOrdinal(int ordinal)
+	{
+		return byOrdinal[ordinal];
+	}
+}
@@ -0,0 +1,20 @@
+package multipath;
+
+/***********************************************************************************************************************
+* Receives the query result of each subrequest as soon as OSCARS answers for it, see
+* MultipathOSCARSClient.queryMPReservationAsync(String, SubrequestListener).
+*
+* Called on the thread that received the reply, possibly on several threads at once and not in index order. It should
+* not block, and must not throw (exceptions are logged and otherwise ignored).
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public interface SubrequestListener
+{
+	/**
+	 * @param index, Position of the subrequest in its MP-GRI (0 for a unicast GRI)
+	 * @param count, Number of subrequests queried
+	 * @param result, Unicast SubrequestTuple of the subrequest, BAD_GRI if it could not be queried
+	 */
+	void onSubrequest(int index, int count, SubrequestTuple result);
+}
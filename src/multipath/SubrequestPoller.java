@@ -0,0 +1,190 @@
+package multipath;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import net.es.oscars.api.soap.gen.v06.QueryResContent;
+import net.es.oscars.api.soap.gen.v06.QueryResReply;
+import net.es.oscars.api.soap.gen.v06.ResDetails;
+import net.es.oscars.common.soap.gen.OSCARSFaultMessage;
+import net.es.oscars.common.soap.gen.OSCARSFaultReport;
+
+import concurrency.TaskExecutors;
+import config.Configuration;
+import logging.Log;
+
+/***********************************************************************************************************************
+* Waits for unicast subrequests to reach a final state on behalf of every MultipathOSCARSClient of one OSCARS URL.
+*
+* Instead of each operation sleeping and querying its own subrequests, callers register the GRIs they wait for and get
+* a CompletableFuture back. Every Configuration.pollIntervalMillis a single poller thread queries all pending GRIs at
+* once (each GRI once, however many callers wait on it) and completes the futures of those which are final. Waiting
+* for OSCARS therefore holds no thread, which is what the *Async() methods of MultipathOSCARSClient build on.
+*
+* A GRI OSCARS does not know (fault reply) completes as BAD_GRI. A query that fails in the client/transport, e.g.
+* while the circuit breaker is open, is retried in the next round. A GRI whose last Configuration.pollMaxFailures
+* queries all failed, or which is still not final Configuration.pollTimeoutMillis after it was registered, completes
+* as UNKNOWN, so nobody waits on OSCARS forever.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class SubrequestPoller
+{
+	private static final Log log = Log.forClass(SubrequestPoller.class);
+
+	private static final Map<String, SubrequestPoller> pollers = new ConcurrentHashMap<String, SubrequestPoller>();
+
+	private final MultipathOSCARSClient client;		// Only used for invoke()
+	private final Map<String, PendingSubrequest> pending = new ConcurrentHashMap<String, PendingSubrequest>();
+
+	private final ScheduledExecutorService pollThread = Executors.newSingleThreadScheduledExecutor(r ->
+	{
+		Thread poller = new Thread(r, "subrequest-poller");
+		poller.setDaemon(true);
+		return poller;
+	});
+
+	private final ExecutorService queryPool = TaskExecutors.newBlockingExecutor("subrequest-poller-query", Configuration.oscarsClientPoolSize);
+
+	private SubrequestPoller(String oscarsURL)
+	{
+		client = new MultipathOSCARSClient(oscarsURL);
+		pollThread.scheduleWithFixedDelay(this::pollRound, Configuration.pollIntervalMillis, Configuration.pollIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return The poller shared by every MultipathOSCARSClient of oscarsURL.
+	 */
+	public static SubrequestPoller forURL(String oscarsURL)
+	{
+		return pollers.computeIfAbsent(oscarsURL, SubrequestPoller::new);
+	}
+
+	/*********************************************************************************************************************************************************
+	* Registers a subrequest to be polled. The first query is made in the next round, at most one poll interval from now.
+	*
+	* @param gri, Unicast GRI
+	* @return Future completed (never exceptionally) with the unicast SubrequestTuple of the first query that reports a final status, or UNKNOWN if
+	* the GRI could not be queried or did not become final in time.
+	*********************************************************************************************************************************************************/
+	public CompletableFuture<SubrequestTuple> awaitFinal(String gri)
+	{
+		return pending.computeIfAbsent(gri, g -> new PendingSubrequest()).future;
+	}
+
+	/**
+	 * @return Number of GRIs still waited on.
+	 */
+	public int getPendingCount()
+	{
+		return pending.size();
+	}
+
+	private void pollRound()
+	{
+		if(pending.isEmpty())
+			return;
+
+		List<String> gris = new ArrayList<String>(pending.keySet());
+		List<CompletableFuture<Void>> queries = new ArrayList<CompletableFuture<Void>>();
+
+		for(String oneGri : gris)
+			queries.add(CompletableFuture.runAsync(() -> pollOne(oneGri), queryPool));
+
+		try
+		{
+			CompletableFuture.allOf(queries.toArray(new CompletableFuture<?>[queries.size()])).join();		// The next round starts an interval after this one ends
+		}
+		catch(RuntimeException e)
+		{
+			log.error("Subrequest poll round failed: {}", e.getMessage(), e);
+		}
+
+		log.debug("Polled {} subrequests, {} still pending", gris.size(), pending.size());
+	}
+
+	private void pollOne(String gri)
+	{
+		PendingSubrequest waiting = pending.get(gri);
+
+		if(waiting == null)
+			return;
+
+		SubrequestTuple result;
+
+		try
+		{
+			QueryResContent queryRequest = new QueryResContent();
+			queryRequest.setGlobalReservationId(gri);
+
+			QueryResReply queryResponse = client.invoke("queryReservation", oscars -> oscars.queryReservation(queryRequest));
+			result = new SubrequestTuple(queryResponse.getReservationDetails(), queryResponse.getErrorReport());
+		}
+		catch(OSCARSFaultMessage fm)
+		{
+			result = statusOnly(gri, "BAD_GRI");
+		}
+		catch(Exception e)
+		{
+			if(++waiting.consecutiveFailures < Configuration.pollMaxFailures)
+			{
+				log.debug("Query of {} failed, retrying next round: {}", gri, e.getMessage());
+				return;
+			}
+
+			log.warn("Query of {} failed {} times in a row, giving up on it as UNKNOWN: {}", gri, waiting.consecutiveFailures, e.getMessage());
+			complete(gri, statusOnly(gri, "UNKNOWN"));
+			return;
+		}
+
+		waiting.consecutiveFailures = 0;
+
+		String status = result.getDetails().getStatus();
+		log.debug("STATUS ({}) = {}", gri, status);
+
+		if(MultipathOSCARSClient.isFinalStatus(status))
+			complete(gri, result);
+		else if(System.nanoTime() - waiting.registeredNanos > TimeUnit.MILLISECONDS.toNanos(Configuration.pollTimeoutMillis))
+		{
+			log.warn("{} is still {} after {} ms, giving up on it as UNKNOWN", gri, status, Configuration.pollTimeoutMillis);
+			complete(gri, statusOnly(gri, "UNKNOWN"));
+		}
+	}
+
+	private void complete(String gri, SubrequestTuple result)
+	{
+		PendingSubrequest waiting = pending.remove(gri);
+
+		if(waiting != null)
+			waiting.future.complete(result);
+	}
+
+	/**
+	 * @return Unicast SubrequestTuple of a GRI whose details could not be queried.
+	 */
+	private static SubrequestTuple statusOnly(String gri, String status)
+	{
+		ResDetails details = new ResDetails();
+		details.setGlobalReservationId(gri);
+		details.setStatus(status);
+
+		return new SubrequestTuple(details, new ArrayList<OSCARSFaultReport>());
+	}
+
+	/**
+	 * A GRI being waited on. Only its own pollOne() touches consecutiveFailures, and never two of those at once.
+	 */
+	private static class PendingSubrequest
+	{
+		final CompletableFuture<SubrequestTuple> future = new CompletableFuture<SubrequestTuple>();
+		final long registeredNanos = System.nanoTime();
+		volatile int consecutiveFailures;
+	}
+}
@@ -0,0 +1,24 @@
+package multipath;
+
+import net.es.oscars.client.OSCARSClient;
+import net.es.oscars.client.OSCARSClientException;
+
+import config.Configuration;
+import transport.TransportTuner;
+
+/***********************************************************************************************************************
+* OSCARSClient whose CXF proxy uses the MPC's transport settings (keep-alive, timeouts, gzip, metrics), see TransportTuner.
+* OSCARSClient keeps its proxy to itself, so the tuning has to be applied from a subclass.
+* OSCARSClient already has every OSCARSApi method.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class TunedOSCARSClient extends OSCARSClient implements OSCARSApi
+{
+	public TunedOSCARSClient(String oscarsURL) throws OSCARSClientException
+	{
+		super(oscarsURL);
+
+		TransportTuner.tune(portType, "oscars", Configuration.oscarsReceiveTimeoutMillis);
+	}
+}
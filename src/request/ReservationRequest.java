@@ -0,0 +1,74 @@
+package request;
+
+import topology.Urn;
+
+/***********************************************************************************************************************
+* A validated request to create a (multipath) reservation, as produced by ReservationRequestParser. Endpoints are
+* parsed URNs and times are OSCARS epoch seconds, so nothing is parsed again on the way to MultipathOSCARSClient.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public final class ReservationRequest
+{
+	private final String description;
+	private final Urn source;
+	private final Urn destination;
+	private final long startTime;
+	private final long endTime;
+	private final int bandwidth;			// Mbps
+	private final int numDisjointPaths;
+
+	public ReservationRequest(String description, Urn source, Urn destination, long startTime, long endTime, int bandwidth, int numDisjointPaths)
+	{
+		this.description = description;
+		this.source = source;
+		this.destination = destination;
+		this.startTime = startTime;
+		this.endTime = endTime;
+		this.bandwidth = bandwidth;
+		this.numDisjointPaths = numDisjointPaths;
+	}
+
+	/**
+	 * @return Is the destination a set of anycast candidates (see AnycastHandler)?
+	 */
+	public boolean isAnycast()
+	{
+		return destination.isAnycast();
+	}
+
+	public String getDescription()
+	{
+		return description;
+	}
+
+	public Urn getSource()
+	{
+		return source;
+	}
+
+	public Urn getDestination()
+	{
+		return destination;
+	}
+
+	public long getStartTime()
+	{
+		return startTime;
+	}
+
+	public long getEndTime()
+	{
+		return endTime;
+	}
+
+	public int getBandwidth()
+	{
+		return bandwidth;
+	}
+
+	public int getNumDisjointPaths()
+	{
+		return numDisjointPaths;
+	}
+}
@@ -0,0 +1,245 @@
+package request;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import topology.Urn;
+
+/***********************************************************************************************************************
+* Turns the strings of a reservation request, as typed into the GUI, sent over the WebSocket or read from a CLI
+* parameter file, into a validated ReservationRequest.
+*
+* - Endpoints are either full link URNs or GUI display names ('node : port : link' in the default domain,
+*   'domain : node : port : link' otherwise) and are parsed once into Urns.
+* - Start times are 'YYYY-MM-DD HH:mm' in the server's time zone, or "now" (also when empty). End times are
+*   'YYYY-MM-DD HH:mm' or a duration from the start time: '+<days>:<hours>:<minutes>', at least one minute long.
+* - Bad input is reported in the returned ValidationResult, nothing is logged or thrown.
+*
+* A parser holds no mutable state (the formatter is an immutable java.time constant), so one instance can be shared
+* by all threads. parseAll() validates a batch in parallel, before any OSCARS call is made for it.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class ReservationRequestParser
+{
+	// Field names of the map form of a request, the same as the parameters of the createMPReservation WebSocket action //
+	public static final String descriptionField = "description";
+	public static final String sourceField = "src";
+	public static final String destinationField = "dst";
+	public static final String startField = "start";
+	public static final String endField = "end";
+	public static final String bandwidthField = "bandwidth";
+	public static final String pathsField = "paths";
+
+	public static final String defaultDescription = "Reservation via MultipathUI";
+	public static final String defaultBandwidth = "25";
+	public static final String defaultPaths = "1";
+
+	private static final DateTimeFormatter timeFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+	private static final int minimumDurationSeconds = 60;
+
+	private final String defaultDomain;
+
+	/**
+	 * @param defaultDomain, Domain of endpoints given as 'node : port : link'
+	 */
+	public ReservationRequestParser(String defaultDomain)
+	{
+		this.defaultDomain = defaultDomain;
+	}
+
+	/*********************************************************************************************************************************************************
+	* @param description, Defaults to defaultDescription if null or empty
+	* @param source, Link URN or display name
+	* @param destination, Link URN or display name, may be an anycast set
+	* @param startTime, 'YYYY-MM-DD HH:mm', "now" or empty
+	* @param endTime, 'YYYY-MM-DD HH:mm' or '+<days>:<hours>:<minutes>'
+	* @param bandwidth, Mbps, a positive integer
+	* @param numDisjointPaths, A positive integer
+	* @return The request, or every problem found with the input.
+	*********************************************************************************************************************************************************/
+	public ValidationResult<ReservationRequest> parse(String description, String source, String destination, String startTime, String endTime, String bandwidth, String numDisjointPaths)
+	{
+		List<String> errors = new ArrayList<String>();
+
+		Urn sourceURN = parseEndpoint("source", source, errors);
+		Urn destinationURN = parseEndpoint("destination", destination, errors);
+		long[] startEnd = parseTimes(startTime, endTime, errors);
+		int bandwidthMbps = parsePositive("bandwidth", bandwidth, errors);
+		int paths = parsePositive("number of paths", numDisjointPaths, errors);
+
+		if(!errors.isEmpty())
+			return ValidationResult.invalid(errors);
+
+		if(description == null || description.trim().isEmpty())
+			description = defaultDescription;
+
+		return ValidationResult.valid(new ReservationRequest(description, sourceURN, destinationURN, startEnd[0], startEnd[1], bandwidthMbps, paths));
+	}
+
+	/**
+	 * parse() of a request in map form, see the *Field constants. Missing start, bandwidth and paths take their defaults.
+	 */
+	public ValidationResult<ReservationRequest> parse(Map<String, String> fields)
+	{
+		return parse(fields.get(descriptionField), fields.get(sourceField), fields.get(destinationField),
+						getOrDefault(fields, startField, "now"), fields.get(endField),
+						getOrDefault(fields, bandwidthField, defaultBandwidth), getOrDefault(fields, pathsField, defaultPaths));
+	}
+
+	/*********************************************************************************************************************************************************
+	* Validates a batch of requests in parallel.
+	*
+	* @param requests, In map form, see parse(Map)
+	* @return One result per request, in the order of requests.
+	*********************************************************************************************************************************************************/
+	public List<ValidationResult<ReservationRequest>> parseAll(List<Map<String, String>> requests)
+	{
+		return requests.parallelStream().map(this::parse).collect(Collectors.toList());
+	}
+
+	/*********************************************************************************************************************************************************
+	* Converts start/end times to the epoch seconds OSCARS expects.
+	*
+	* @param startTime, 'YYYY-MM-DD HH:mm', "now" or empty
+	* @param endTime, 'YYYY-MM-DD HH:mm' or '+<days>:<hours>:<minutes>'
+	* @return {start, end}
+	*********************************************************************************************************************************************************/
+	public ValidationResult<long[]> parseTimes(String startTime, String endTime)
+	{
+		List<String> errors = new ArrayList<String>();
+		long[] startEnd = parseTimes(startTime, endTime, errors);
+
+		return errors.isEmpty() ? ValidationResult.valid(startEnd) : ValidationResult.<long[]>invalid(errors);
+	}
+
+	private Urn parseEndpoint(String name, String endpoint, List<String> errors)
+	{
+		if(endpoint == null || endpoint.trim().isEmpty())
+		{
+			errors.add("No " + name + " specified.");
+			return null;
+		}
+
+		endpoint = endpoint.trim();
+
+		Urn urn = endpoint.startsWith("urn:") ? Urn.parse(endpoint) : Urn.fromDisplayName(endpoint, defaultDomain);
+
+		if(urn == null)
+			errors.add("Error parsing " + name + ": '" + endpoint + "' is neither a link URN nor in 'node : port : link' format.");
+
+		return urn;
+	}
+
+	private static long[] parseTimes(String startTime, String endTime, List<String> errors)
+	{
+		long start = -1;
+		long end = -1;
+
+		// Convert start time into epoch seconds for OSCARS to read //
+		if(startTime == null || startTime.trim().isEmpty() || startTime.trim().equals("now"))
+			start = System.currentTimeMillis() / 1000;
+		else
+			start = parseTime("start", startTime, errors);
+
+		// Convert end time into epoch seconds for OSCARS to read //
+		if(endTime == null || endTime.trim().isEmpty())
+		{
+			errors.add("No end time specified.");
+		}
+		else if(endTime.trim().startsWith("+"))		// Offset from start time
+		{
+			long seconds = parseDuration(endTime.trim().substring(1), errors);
+
+			if(seconds >= 0 && start >= 0)
+				end = start + seconds;
+		}
+		else										// Regular end-time specification
+		{
+			end = parseTime("end", endTime, errors);
+
+			if(start >= 0 && end >= 0 && end - start < minimumDurationSeconds)
+				errors.add("End time must be at least " + minimumDurationSeconds + " sec after the start time.");
+		}
+
+		return new long[] { start, end };
+	}
+
+	private static long parseTime(String name, String time, List<String> errors)
+	{
+		try
+		{
+			return LocalDateTime.parse(time.trim(), timeFormat).atZone(ZoneId.systemDefault()).toEpochSecond();
+		}
+		catch(DateTimeParseException e)
+		{
+			errors.add("Error parsing " + name + " date: '" + time.trim() + "' is not in 'YYYY-MM-DD HH:mm' format.");
+			return -1;
+		}
+	}
+
+	/**
+	 * @param duration, '<days>:<hours>:<minutes>'
+	 * @return The duration in seconds, -1 if it is malformed or too short.
+	 */
+	private static long parseDuration(String duration, List<String> errors)
+	{
+		String[] dhm = duration.split(":");
+
+		if(dhm.length != 3)
+		{
+			errors.add("Error parsing end date: a duration must be in '+<days>:<hours>:<minutes>' format.");
+			return -1;
+		}
+
+		try
+		{
+			long seconds = Long.parseLong(dhm[0].trim()) * 3600 * 24;		// days
+			seconds += Long.parseLong(dhm[1].trim()) * 3600;				// hours
+			seconds += Long.parseLong(dhm[2].trim()) * 60;					// minutes
+
+			if(seconds < minimumDurationSeconds)
+			{
+				errors.add("Duration must be >= " + minimumDurationSeconds + " sec.");
+				return -1;
+			}
+
+			return seconds;
+		}
+		catch(NumberFormatException e)
+		{
+			errors.add("Error parsing end date format: " + e.getMessage());
+			return -1;
+		}
+	}
+
+	private static int parsePositive(String name, String value, List<String> errors)
+	{
+		try
+		{
+			int parsed = Integer.parseInt(value == null ? "" : value.trim());
+
+			if(parsed > 0)
+				return parsed;
+		}
+		catch(NumberFormatException e)
+		{
+		}
+
+		errors.add("Error parsing " + name + ": '" + value + "' is not a positive integer.");
+		return -1;
+	}
+
+	private static String getOrDefault(Map<String, String> fields, String field, String defaultValue)
+	{
+		String value = fields.get(field);
+
+		return (value == null) ? defaultValue : value;
+	}
+}
@@ -0,0 +1,59 @@
+package request;
+
+import java.util.Collections;
+import java.util.List;
+
+/***********************************************************************************************************************
+* Outcome of parsing and validating user input: either the parsed value or the reasons it was rejected, never both.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public final class ValidationResult<T>
+{
+	private final T value;
+	private final List<String> errors;
+
+	private ValidationResult(T value, List<String> errors)
+	{
+		this.value = value;
+		this.errors = errors;
+	}
+
+	public static <T> ValidationResult<T> valid(T value)
+	{
+		return new ValidationResult<T>(value, Collections.<String>emptyList());
+	}
+
+	/**
+	 * @param errors, At least one message, each readable on its own (e.g. "Error parsing start date: ...")
+	 */
+	public static <T> ValidationResult<T> invalid(List<String> errors)
+	{
+		return new ValidationResult<T>(null, Collections.unmodifiableList(errors));
+	}
+
+	public boolean isValid()
+	{
+		return errors.isEmpty();
+	}
+
+	/**
+	 * @return The parsed value.
+	 * @throws IllegalStateException if the input was rejected.
+	 */
+	public T getValue()
+	{
+		if(!isValid())
+			throw new IllegalStateException("Invalid input: " + errors);
+
+		return value;
+	}
+
+	/**
+	 * @return Why the input was rejected, empty if it is valid.
+	 */
+	public List<String> getErrors()
+	{
+		return errors;
+	}
+}
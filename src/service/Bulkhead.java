@@ -0,0 +1,82 @@
+package service;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import config.Configuration;
+import logging.Log;
+
+/***********************************************************************************************************************
+* Concurrency limit for one kind of OSCARS operation (create, query, list, cancel), shared by every ServletController.
+*
+* When OSCARS slows down, calls of one kind can no longer take every container thread with them: once the limit is
+* reached, further callers wait at most Configuration.bulkheadWaitMillis and are then turned away, so that the
+* ServletController can fail fast or answer from its cache. Other kinds of operation keep their own limits.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class Bulkhead
+{
+	private static final Log log = Log.forClass(Bulkhead.class);
+	
+	private final String name;
+	private final int limit;
+	private final Semaphore permits;
+	private final AtomicLong rejected = new AtomicLong();
+
+	public Bulkhead(String name, int limit)
+	{
+		this.name = name;
+		this.limit = limit;
+		this.permits = new Semaphore(limit, true);
+	}
+
+	/*********************************************************************************************************************************************************
+	* Claims a slot, waiting up to Configuration.bulkheadWaitMillis for one to free up.
+	*
+	* @return true if the caller may proceed and must call exit() when done, false if the operation is saturated.
+	*********************************************************************************************************************************************************/
+	public boolean tryEnter()
+	{
+		try
+		{
+			if(permits.tryAcquire(Configuration.bulkheadWaitMillis, TimeUnit.MILLISECONDS))
+				return true;
+		}
+		catch(InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+		}
+
+		rejected.incrementAndGet();
+		log.warn("Bulkhead[{}]: all {} slots busy, request turned away", name, limit);
+
+		return false;
+	}
+
+	public void exit()
+	{
+		permits.release();
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public int getLimit()
+	{
+		return limit;
+	}
+
+	public int getActive()
+	{
+		return limit - permits.availablePermits();
+	}
+
+	public long getRejected()
+	{
+		return rejected.get();
+	}
+}
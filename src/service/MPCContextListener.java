@@ -0,0 +1,36 @@
+package service;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+import org.apache.log4j.LogManager;
+
+import multipath.OSCARSClientPool;
+import topology.TopologyRefresher;
+
+/**
+ * Web application lifecycle hooks. Background services started by the MPC are stopped here so that
+ * nothing pending is lost when the container undeploys or shuts down the application.
+ */
+@WebListener
+public class MPCContextListener implements ServletContextListener {
+
+	public void contextInitialized(ServletContextEvent event) {
+	}
+
+	public void contextDestroyed(ServletContextEvent event) {
+
+		// Write any coalesced user state changes that have not been flushed yet //
+		UserStateStore.shutdown();
+
+		// Stop re-fetching the topology //
+		TopologyRefresher.shutdown();
+
+		// Drop the pooled OSCARS proxies //
+		OSCARSClientPool.shutdownAll();
+
+		// Drain the asynchronous log appender //
+		LogManager.shutdown();
+	}
+}
@@ -0,0 +1,134 @@
+package service;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import metrics.MetricsRegistry;
+import multipath.OSCARSClientPool;
+import transport.CircuitBreaker;
+import transport.EndpointMetrics;
+
+/***********************************************************************************************************************
+* Scrape endpoint for Prometheus (or anything reading its text exposition format).
+*
+* Serves the latency histograms of MetricsRegistry (every OSCARS call by operation/outcome, end-to-end MPC operations),
+* followed by the current state of the OSCARSClientPools, EndpointMetrics, CircuitBreakers and Bulkheads.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+@WebServlet(name = "metrics",
+			urlPatterns = {"/metrics"}
+			)
+public class MetricsServlet extends HttpServlet
+{
+	private static final long serialVersionUID = 1L;
+
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+	{
+		response.setContentType("text/plain; version=0.0.4");
+		response.setCharacterEncoding("UTF-8");
+
+		PrintWriter out = response.getWriter();
+
+		MetricsRegistry.writeTo(out);
+		writeClientPools(out);
+		writeEndpoints(out);
+		writeCircuitBreakers(out);
+		writeBulkheads(out);
+
+		out.flush();
+	}
+
+	private static void writeClientPools(PrintWriter out)
+	{
+		MetricsRegistry.writeHeader(out, "mpc_oscars_pool_clients", "OSCARS client proxies by state.", "gauge");
+		for(OSCARSClientPool onePool : OSCARSClientPool.getAll())
+		{
+			MetricsRegistry.writeSample(out, "mpc_oscars_pool_clients", MetricsRegistry.labels("url", onePool.getURL(), "state", "in_use"), onePool.getInUse());
+			MetricsRegistry.writeSample(out, "mpc_oscars_pool_clients", MetricsRegistry.labels("url", onePool.getURL(), "state", "idle"), onePool.getIdle());
+			MetricsRegistry.writeSample(out, "mpc_oscars_pool_clients", MetricsRegistry.labels("url", onePool.getURL(), "state", "max"), onePool.getMaxSize());
+			MetricsRegistry.writeSample(out, "mpc_oscars_pool_clients", MetricsRegistry.labels("url", onePool.getURL(), "state", "peak_in_use"), onePool.getPeakInUse());
+		}
+
+		MetricsRegistry.writeHeader(out, "mpc_oscars_pool_events_total", "OSCARS client pool events (borrow, wait, timeout, created, discarded).", "counter");
+		for(OSCARSClientPool onePool : OSCARSClientPool.getAll())
+		{
+			MetricsRegistry.writeSample(out, "mpc_oscars_pool_events_total", MetricsRegistry.labels("url", onePool.getURL(), "event", "borrow"), onePool.getBorrows());
+			MetricsRegistry.writeSample(out, "mpc_oscars_pool_events_total", MetricsRegistry.labels("url", onePool.getURL(), "event", "wait"), onePool.getWaits());
+			MetricsRegistry.writeSample(out, "mpc_oscars_pool_events_total", MetricsRegistry.labels("url", onePool.getURL(), "event", "timeout"), onePool.getTimeouts());
+			MetricsRegistry.writeSample(out, "mpc_oscars_pool_events_total", MetricsRegistry.labels("url", onePool.getURL(), "event", "created"), onePool.getCreated());
+			MetricsRegistry.writeSample(out, "mpc_oscars_pool_events_total", MetricsRegistry.labels("url", onePool.getURL(), "event", "discarded"), onePool.getDiscarded());
+		}
+
+		MetricsRegistry.writeHeader(out, "mpc_oscars_pool_wait_seconds_total", "Time spent waiting for a pooled OSCARS client.", "counter");
+		for(OSCARSClientPool onePool : OSCARSClientPool.getAll())
+			MetricsRegistry.writeSample(out, "mpc_oscars_pool_wait_seconds_total", MetricsRegistry.labels("url", onePool.getURL()), onePool.getWaitMillis() / 1000.0);
+	}
+
+	private static void writeEndpoints(PrintWriter out)
+	{
+		MetricsRegistry.writeHeader(out, "mpc_endpoint_messages_total", "SOAP messages exchanged with each endpoint (request, response, gzip_response).", "counter");
+		for(EndpointMetrics oneEndpoint : EndpointMetrics.getAll())
+		{
+			MetricsRegistry.writeSample(out, "mpc_endpoint_messages_total", MetricsRegistry.labels("endpoint", oneEndpoint.getName(), "type", "request"), oneEndpoint.getRequests());
+			MetricsRegistry.writeSample(out, "mpc_endpoint_messages_total", MetricsRegistry.labels("endpoint", oneEndpoint.getName(), "type", "response"), oneEndpoint.getResponses());
+			MetricsRegistry.writeSample(out, "mpc_endpoint_messages_total", MetricsRegistry.labels("endpoint", oneEndpoint.getName(), "type", "gzip_response"), oneEndpoint.getCompressedResponses());
+		}
+
+		MetricsRegistry.writeHeader(out, "mpc_endpoint_bytes_total", "Wire bytes exchanged with each endpoint, after compression.", "counter");
+		for(EndpointMetrics oneEndpoint : EndpointMetrics.getAll())
+		{
+			MetricsRegistry.writeSample(out, "mpc_endpoint_bytes_total", MetricsRegistry.labels("endpoint", oneEndpoint.getName(), "direction", "sent"), oneEndpoint.getBytesSent());
+			MetricsRegistry.writeSample(out, "mpc_endpoint_bytes_total", MetricsRegistry.labels("endpoint", oneEndpoint.getName(), "direction", "received"), oneEndpoint.getBytesReceived());
+		}
+
+		MetricsRegistry.writeHeader(out, "mpc_endpoint_latency_seconds_total", "Total wire latency of each endpoint's responses.", "counter");
+		for(EndpointMetrics oneEndpoint : EndpointMetrics.getAll())
+			MetricsRegistry.writeSample(out, "mpc_endpoint_latency_seconds_total", MetricsRegistry.labels("endpoint", oneEndpoint.getName()), oneEndpoint.getTotalLatencyMillis() / 1000.0);
+
+		MetricsRegistry.writeHeader(out, "mpc_endpoint_latency_seconds_max", "Slowest wire latency of each endpoint.", "gauge");
+		for(EndpointMetrics oneEndpoint : EndpointMetrics.getAll())
+			MetricsRegistry.writeSample(out, "mpc_endpoint_latency_seconds_max", MetricsRegistry.labels("endpoint", oneEndpoint.getName()), oneEndpoint.getMaxLatencyMillis() / 1000.0);
+	}
+
+	private static void writeCircuitBreakers(PrintWriter out)
+	{
+		MetricsRegistry.writeHeader(out, "mpc_circuit_state", "1 for the current state of each circuit breaker.", "gauge");
+		for(CircuitBreaker oneBreaker : CircuitBreaker.getAll())
+		{
+			CircuitBreaker.State currentState = oneBreaker.getState();
+
+			for(CircuitBreaker.State oneState : CircuitBreaker.State.values())
+				MetricsRegistry.writeSample(out, "mpc_circuit_state", MetricsRegistry.labels("name", oneBreaker.getName(), "state", oneState.name().toLowerCase()), (oneState == currentState) ? 1 : 0);
+		}
+
+		MetricsRegistry.writeHeader(out, "mpc_circuit_rejected_total", "Calls rejected while a circuit was open.", "counter");
+		for(CircuitBreaker oneBreaker : CircuitBreaker.getAll())
+			MetricsRegistry.writeSample(out, "mpc_circuit_rejected_total", MetricsRegistry.labels("name", oneBreaker.getName()), oneBreaker.getRejected());
+
+		MetricsRegistry.writeHeader(out, "mpc_circuit_opened_total", "Times each circuit has opened.", "counter");
+		for(CircuitBreaker oneBreaker : CircuitBreaker.getAll())
+			MetricsRegistry.writeSample(out, "mpc_circuit_opened_total", MetricsRegistry.labels("name", oneBreaker.getName()), oneBreaker.getTimesOpened());
+	}
+
+	private static void writeBulkheads(PrintWriter out)
+	{
+		MetricsRegistry.writeHeader(out, "mpc_bulkhead_active", "Calls in progress in each bulkhead.", "gauge");
+		for(Bulkhead oneBulkhead : ServletController.getBulkheads())
+			MetricsRegistry.writeSample(out, "mpc_bulkhead_active", MetricsRegistry.labels("name", oneBulkhead.getName()), oneBulkhead.getActive());
+
+		MetricsRegistry.writeHeader(out, "mpc_bulkhead_limit", "Concurrency limit of each bulkhead.", "gauge");
+		for(Bulkhead oneBulkhead : ServletController.getBulkheads())
+			MetricsRegistry.writeSample(out, "mpc_bulkhead_limit", MetricsRegistry.labels("name", oneBulkhead.getName()), oneBulkhead.getLimit());
+
+		MetricsRegistry.writeHeader(out, "mpc_bulkhead_rejected_total", "Calls turned away by each bulkhead.", "counter");
+		for(Bulkhead oneBulkhead : ServletController.getBulkheads())
+			MetricsRegistry.writeSample(out, "mpc_bulkhead_rejected_total", MetricsRegistry.labels("name", oneBulkhead.getName()), oneBulkhead.getRejected());
+	}
+}
@@ -2,21 +2,38 @@ package service;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
+import javax.websocket.OnClose;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
 import javax.websocket.Session;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
 
+import concurrency.SerialExecutor;
+import concurrency.TaskExecutors;
+import data.models.UserState;
 import datastructs.MPReservation;
+import datastructs.QueryResult;
+import logging.Log;
+import request.ReservationRequest;
+import request.ValidationResult;
+import topology.TopologyDiff;
+import topology.TopologyLink;
+import topology.TopologyRefresher;
 
 
 
@@ -24,10 +41,37 @@ import datastructs.MPReservation;
 @ServerEndpoint("/Reservations/{username}")
 public class MultiPathReservationsServer {
 
+	private static final Log log = Log.forClass(MultiPathReservationsServer.class);
+
 	private ServletController mpcServletControl = new ServletController();
 	private static Map<Long,UserSession> sessionInfo = new Hashtable<>();
 	private static ObjectMapper mapper = new ObjectMapper();
 
+	// Sessions that asked to be told about topology changes, they receive one diff message per changed refresh //
+	private static final Set<Session> topologySubscribers = Collections.newSetFromMap(new ConcurrentHashMap<Session, Boolean>());
+
+	// On Java 21+ messages are handled on virtual threads (one SerialExecutor per session keeps replies in order), else on the container's thread //
+	private static final ExecutorService messageExecutor = TaskExecutors.isVirtual() ? TaskExecutors.newBlockingExecutor("ws-message", 1) : null;
+	private static final String messageQueueProperty = "mpc.messageQueue";
+
+	static
+	{
+		TopologyRefresher.addListener((diff, snapshot) ->
+		{
+			if(topologySubscribers.isEmpty())
+				return;
+
+			Object[] diffMessage = new Object[] { new sendTopologyDiff(diff) };
+
+			for (Session subscriber : topologySubscribers) {
+				if (subscriber.isOpen())
+					sendJsonMessage(subscriber, null, diffMessage);
+				else
+					topologySubscribers.remove(subscriber);
+			}
+		});
+	}
+
 	@OnOpen
 	public void onOpen(Session session, @PathParam("username") String username) {
 
@@ -37,12 +81,32 @@ public class MultiPathReservationsServer {
 		thisSession.userId = session;
 		thisSession.userSession  =  new UserSession(username);
 		
+		// Restore the user's UI state (from memory if they reconnected recently, else from the DB) and hand it to the client //
+		UserState restoredState = UserStateStore.connect(username);
+		sendJsonMessage(session, username, new Object[] { new sendUserState(restoredState) });
+	}
 
+	@OnClose
+	public void onClose(Session session, @PathParam("username") String username) {
+
+		UserStateStore.disconnect(username);
+		topologySubscribers.remove(session);
 	}
 
 	@OnMessage
 	public void onMessage(Session session, String message,
-			@PathParam("userId") String username) {
+			@PathParam("username") String username) {
+
+		if (messageExecutor == null) {
+			handleMessage(session, message, username);
+			return;
+		}
+
+		SerialExecutor messageQueue = (SerialExecutor) session.getUserProperties().computeIfAbsent(messageQueueProperty, p -> new SerialExecutor(messageExecutor));
+		messageQueue.execute(() -> handleMessage(session, message, username));
+	}
+
+	private void handleMessage(Session session, String message, String username) {
 
 		Gson JSONWriter = new Gson();
 
@@ -61,20 +125,106 @@ public class MultiPathReservationsServer {
 
 				String listUniGRIs = JSONWriter.toJson(mpcServletControl
 						.getAllUnicastGRIs());
+				sendTextMessage(session, listUniGRIs);
 	
+				break;
 			}
 			case ("listForSelectedMPGRI"): {
 
 				ArrayList<MPReservation> selectionDetails = new ArrayList<MPReservation>();
 
+				// Selection changes are frequent, only the in-memory state is updated here //
+				UserStateStore.updateSelection(username, selectedGRIs);
+
 				for (String GRI : selectedGRIs) {
 
 					selectionDetails.add(loadMPReservations(GRI,
 							mpcServletControl.getArrayOfGroupedGRIs(GRI)));
-					//this.sendJsonMessage();
 
 				}
 
+				sendJsonMessage(session, username, new Object[] { new sendForSelected(selectionDetails) });
+
+				break;
+			}
+			case ("subscribeTopology"): {
+
+				// Send the full endpoint list once, later changes arrive as diffs //
+				topologySubscribers.add(session);
+				sendJsonMessage(session, username, new Object[] { new sendTopology(TopologyRefresher.current().getDisplayNames()) });
+
+				break;
+			}
+			case ("unsubscribeTopology"): {
+
+				topologySubscribers.remove(session);
+
+				break;
+			}
+			case ("createMPReservation"): {
+
+				// src/dst in GUI display format, start/end as 'YYYY-MM-DD HH:mm' (start may be "now"), invalid requests are answered with their errors //
+				Map<String, String> fields = new HashMap<String, String>();
+
+				for (Map.Entry<String, List<String>> oneParameter : session.getRequestParameterMap().entrySet()) {
+					if (!oneParameter.getValue().isEmpty())
+						fields.put(oneParameter.getKey(), oneParameter.getValue().get(0));
+				}
+
+				ValidationResult<ReservationRequest> request = mpcServletControl.parseReservation(fields);
+				List<String> errors = request.getErrors();
+				String createdGRI = "";
+
+				if (request.isValid()) {
+					try {
+						createdGRI = mpcServletControl.createNewReservation(request.getValue());
+					}
+					catch (RuntimeException e) {
+						// Still answer, the client waits for a created message //
+						log.error("Reservation requested by {} failed", username, e);
+						errors = Collections.singletonList("Reservation failed: " + e.getMessage());
+					}
+				}
+				else {
+					log.info("Invalid reservation request from {}: {}", username, errors);
+				}
+
+				sendJsonMessage(session, username, new Object[] { new sendCreated(createdGRI, errors) });
+
+				break;
+			}
+			case ("queryMPReservation"): {
+
+				String queriedGRI = parameter(session, "MPGRI", "");
+
+				sendQueryResults(session, queriedGRI, mpcServletControl.queryReservations(queriedGRI));
+
+				break;
+			}
+			case ("streamMPReservation"): {
+
+				// One queryPart frame per subrequest as soon as OSCARS answers for it, then a queryDone frame, also if the query failed //
+				String queriedGRI = parameter(session, "MPGRI", "");
+
+				try {
+					mpcServletControl.streamQueryReservations(queriedGRI, (index, count, result) ->
+							sendQueryPart(session, queriedGRI, index, count, result))
+						.whenComplete((results, error) -> sendQueryDone(session, username, queriedGRI, error));
+				}
+				catch (RuntimeException e) {
+					sendQueryDone(session, username, queriedGRI, e);
+				}
+
+				break;
+			}
+			case ("setShowAll"): {
+
+				List<String> showAll = session.getRequestParameterMap().get("showAll");
+
+				if (showAll != null && !showAll.isEmpty()) {
+					UserStateStore.updateShowAll(username, Boolean.parseBoolean(showAll.get(0)));
+				}
+
 				break;
 			}
 			default:
@@ -95,15 +245,114 @@ public class MultiPathReservationsServer {
 	}
 	
 	
-	private void sendJsonMessage(Session session,  String username, Object[] objects)
+	/**
+	 * @return The first value of a session URL parameter, or defaultValue if it is absent.
+	 */
+	private static String parameter(Session session, String name, String defaultValue)
+	{
+		List<String> values = session.getRequestParameterMap().get(name);
+
+		return (values == null || values.isEmpty()) ? defaultValue : values.get(0);
+	}
+	
+	private static void sendJsonMessage(Session session,  String username, Object[] objects)
     {
         try
         {
-            session.getBasicRemote()
-                   .sendText(MultiPathReservationsServer.mapper.writeValueAsString(objects));
+            sendTextMessage(session, MultiPathReservationsServer.mapper.writeValueAsString(objects));
         }
         catch(IOException e)
         {
+            log.error("Could not serialize a reply to {}", username, e);
+        }
+    }
+
+	private static void sendQueryDone(Session session, String username, String gri, Throwable error)
+	{
+		if (error instanceof CompletionException && error.getCause() != null)
+			error = error.getCause();
+
+		if (error != null)
+			log.warn("Streaming query of {} failed: {}", gri, error);
+
+		sendJsonMessage(session, username, new Object[] { new sendQueryDone(gri, (error == null) ? null : String.valueOf(error.getMessage())) });
+	}
+
+	/**
+	 * Writes [{"data":"queryResult","gri":..,"results":[..]}] straight onto the session's writer, see QueryResult.writeTo().
+	 */
+	private static void sendQueryResults(Session session, String gri, List<QueryResult> results)
+	{
+		try
+		{
+			synchronized (session)
+			{
+				try (JsonGenerator json = mapper.getFactory().createGenerator(session.getBasicRemote().getSendWriter()))
+				{
+					json.writeStartArray();
+					json.writeStartObject();
+					json.writeStringField("data", "queryResult");
+					json.writeStringField("gri", gri);
+					json.writeArrayFieldStart("results");
+
+					for (QueryResult oneResult : results)
+						oneResult.writeTo(json);
+
+					json.writeEndArray();
+					json.writeEndObject();
+					json.writeEndArray();
+				}
+			}
+		}
+		catch(IOException e)
+		{
+			log.warn("Could not send the query results of {} to session {}: {}", gri, session.getId(), e.getMessage());
+		}
+	}
+
+	/**
+	 * Writes [{"data":"queryPart","gri":..,"index":..,"count":..,"result":{..}}] straight onto the session's writer.
+	 */
+	private static void sendQueryPart(Session session, String gri, int index, int count, QueryResult result)
+	{
+		try
+		{
+			synchronized (session)
+			{
+				try (JsonGenerator json = mapper.getFactory().createGenerator(session.getBasicRemote().getSendWriter()))
+				{
+					json.writeStartArray();
+					json.writeStartObject();
+					json.writeStringField("data", "queryPart");
+					json.writeStringField("gri", gri);
+					json.writeNumberField("index", index);
+					json.writeNumberField("count", count);
+					json.writeFieldName("result");
+					result.writeTo(json);
+					json.writeEndObject();
+					json.writeEndArray();
+				}
+			}
+		}
+		catch(IOException e)
+		{
+			log.warn("Could not send query part {} of {} of {} to session {}: {}", index + 1, count, gri, session.getId(), e.getMessage());
+		}
+	}
+
+	private static void sendTextMessage(Session session, String text)
+    {
+        try
+        {
+            // Topology diffs are sent from the refresher thread, don't interleave with replies to this session //
+            synchronized (session)
+            {
+                session.getBasicRemote().sendText(text);
+            }
+        }
+        catch(IOException e)
+        {
+            log.warn("Could not send a message to session {}: {}", session.getId(), e.getMessage());
         }
     }
 	
@@ -131,9 +380,105 @@ public class MultiPathReservationsServer {
         }
     }
 	
+	public static class sendUserState extends DataMessage
+	{
+		public boolean showAll;
+		public String selection;
+
+		public sendUserState(UserState state)
+		{
+			super("userState");
+			this.showAll = state.isShowAll();
+			this.selection = state.getSelection();
+		}
+	}
+
+	public static class sendTopology extends DataMessage
+	{
+		public List<String> endpoints;
+
+		public sendTopology(List<String> endpoints)
+		{
+			super("topology");
+			this.endpoints = endpoints;
+		}
+	}
+
+	public static class sendTopologyDiff extends DataMessage
+	{
+		public List<String> addedEndpoints = new ArrayList<String>();
+		public List<String> removedEndpoints = new ArrayList<String>();
+		public List<String> addedPorts;
+		public List<String> removedPorts;
+		public List<LinkCapacity> changedLinks = new ArrayList<LinkCapacity>();
+
+		public sendTopologyDiff(TopologyDiff diff)
+		{
+			super("topologyDiff");
+
+			for (TopologyLink link : diff.getAddedLinks())
+				addedEndpoints.add(TopologyRefresher.displayName(link));
+
+			for (TopologyLink link : diff.getRemovedLinks())
+				removedEndpoints.add(TopologyRefresher.displayName(link));
+
+			for (TopologyLink link : diff.getChangedLinks())
+				changedLinks.add(new LinkCapacity(link));
+
+			addedPorts = new ArrayList<String>(diff.getAddedPorts());
+			removedPorts = new ArrayList<String>(diff.getRemovedPorts());
+		}
+	}
+
+	public static class LinkCapacity
+	{
+		public String endpoint;
+		public String remoteLink;
+		public long capacity;
+		public long maximumReservableCapacity;
+		public long minimumReservableCapacity;
+		public long granularity;
+
+		public LinkCapacity(TopologyLink link)
+		{
+			this.endpoint = TopologyRefresher.displayName(link);
+			this.remoteLink = link.getRemoteLinkURN();
+			this.capacity = link.getCapacity();
+			this.maximumReservableCapacity = link.getMaximumReservableCapacity();
+			this.minimumReservableCapacity = link.getMinimumReservableCapacity();
+			this.granularity = link.getGranularity();
+		}
+	}
+
+	public static class sendCreated extends DataMessage
+	{
+		public String gri;				// Empty if the reservation could not be created
+		public List<String> errors;		// Why the request was rejected, empty if it was valid
+
+		public sendCreated(String gri, List<String> errors)
+		{
+			super("created");
+			this.gri = gri;
+			this.errors = errors;
+		}
+	}
+
+	public static class sendQueryDone extends DataMessage
+	{
+		public String gri;
+		public String error;			// Why the query failed, null if every part was sent
+
+		public sendQueryDone(String gri, String error)
+		{
+			super("queryDone");
+			this.gri = gri;
+			this.error = error;
+		}
+	}
+
 	public static class  sendForSelected extends DataMessage 
 	{
-		ArrayList<MPReservation> gRIsForSelected;
+		public ArrayList<MPReservation> gRIsForSelected;
 		
 		public  sendForSelected(ArrayList<MPReservation> gRIsForSelection)
 		{
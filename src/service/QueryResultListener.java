@@ -0,0 +1,21 @@
+package service;
+
+import datastructs.QueryResult;
+
+/***********************************************************************************************************************
+* Receives the result of each queried subrequest as soon as it is available, see
+* ServletController.streamQueryReservations().
+*
+* Called on the thread that received the OSCARS reply, possibly on several threads at once and not in index order.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public interface QueryResultListener
+{
+	/**
+	 * @param index, Position of the subrequest in its MP-GRI (0 for a unicast GRI)
+	 * @param count, Number of subrequests queried
+	 * @param result
+	 */
+	void onSubrequestResult(int index, int count, QueryResult result);
+}
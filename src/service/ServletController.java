@@ -5,36 +5,30 @@ import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStreamReader;
-import java.net.MalformedURLException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Date;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneDomainContent;
-import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneHopContent;
-import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneLinkContent;
-import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneNodeContent;
-import org.ogf.schema.network.topology.ctrlplane.CtrlPlanePathContent;
-import org.ogf.schema.network.topology.ctrlplane.CtrlPlanePortContent;
-import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneTopologyContent;
-
-
-import net.es.oscars.api.soap.gen.v06.PathInfo;
 import net.es.oscars.api.soap.gen.v06.ResDetails;
 import net.es.oscars.api.soap.gen.v06.ReservedConstraintType;
-import net.es.oscars.common.soap.gen.MessagePropertiesType;
-import net.es.oscars.common.soap.gen.OSCARSFaultMessage;
 import net.es.oscars.common.soap.gen.OSCARSFaultReport;
-import net.es.oscars.topoBridge.soap.gen.GetTopologyRequestType;
-import net.es.oscars.topoBridge.soap.gen.GetTopologyResponseType;
-import net.es.oscars.utils.clients.TopoBridgeClient;
-import net.es.oscars.utils.soap.OSCARSServiceException;
+import datastructs.QueryResult;
 import multipath.*;
+import request.ReservationRequest;
+import request.ReservationRequestParser;
+import request.ValidationResult;
 import config.*;
+import logging.Log;
+import topology.*;
+import transport.CircuitBreaker;
 
 /*****************************************************************************************************************************************
 * This class acts as the behavior controller for the MultipathUI GUI.
@@ -54,12 +48,32 @@ public class ServletController
 {	
 	private ArrayList<String> allShortMPGris = new ArrayList<String>();	// All existing short-format MP-GRIs
 	private ArrayList<String> allLongMPGris = new ArrayList<String>();	// All existing long-format MP-GRIs
-	private ArrayList<String> allUnicastGris = new ArrayList<String>();	// All existing unicast GRIs (obtained from OSCARS)
-	private ArrayList<SubrequestTuple> allQueryResults;		// List of results from issuing a query to MultipathOSCARSClient, contains ResDetails and OSCARSFaultMessages
-	private ArrayList<String> topologyNodes;				// List of all URNs in the network domain
+	private ReservationColumns allUnicastReservations = new ReservationColumns(16);	// All existing unicast reservations (obtained from OSCARS)
 		
+	private static final Log log = Log.forClass(ServletController.class);
+	
 	MultipathOSCARSClient multipathClient;			// Handles calls to OSCARS for Unicast/Multipath requests
-	String domain;						// Default topology (GUI currently only supports single-domain reservations)
+	String domain;						// Default topology, its URNs are displayed without the domain prefix
+	
+	private static final ReservationRequestParser requestParser = new ReservationRequestParser(Configuration.topologyDomain);
+	
+	// Per-operation concurrency limits shared by all controllers, so a slow OSCARS can't take every container thread //
+	private static final Bulkhead createBulkhead = new Bulkhead("create", Configuration.bulkheadCreateLimit);
+	private static final Bulkhead queryBulkhead = new Bulkhead("query", Configuration.bulkheadQueryLimit);
+	private static final Bulkhead listBulkhead = new Bulkhead("list", Configuration.bulkheadListLimit);
+	private static final Bulkhead cancelBulkhead = new Bulkhead("cancel", Configuration.bulkheadCancelLimit);
+	
+	// Last good OSCARS answers, served while OSCARS is unavailable or the operation is saturated //
+	private static volatile ReservationColumns lastUnicastReservations = new ReservationColumns(16);
+	private static final Map<String, List<QueryResult>> lastQueryResults = Collections.synchronizedMap(new LinkedHashMap<String, List<QueryResult>>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry<String, List<QueryResult>> eldest)
+		{
+			return size() > Configuration.queryOutputCacheSize;
+		}
+	});
 	
 	/*******************************************************************************************************
 	* Constructor 
@@ -68,10 +82,9 @@ public class ServletController
 	*******************************************************************************************************/
 	public ServletController()
 	{
-		System.out.println("Initializing connection to OSCARS...");
+		log.info("Initializing connection to OSCARS...");
 		
 		String oscarsURL = Configuration.oscarsURL;			// Where is the instance of OSCARS this client will use?
-		String topoBridgeURL = Configuration.topoBridgeURL;	// Where is the instance of TopologyBridge WS this client will use?
 		
 		// Connect to OSCARS -- enable Multipath functionality //
 		multipathClient = new MultipathOSCARSClient(oscarsURL);
@@ -79,18 +92,15 @@ public class ServletController
 		// Obtain the topology domain from Configuration.java //
 		domain = Configuration.topologyDomain;
 		
-		// Obtain the topology from the TopoBridge WS //
-		topologyNodes = getOSCARSTopology(topoBridgeURL, domain);
-		
-		Collections.sort(topologyNodes);
+		// Obtain the topology of all configured domains, shared by all controllers and kept current by TopologyRefresher //
+		TopologyRefresher.current();
 	}
 	
 	public ServletController(String keystorePath)
 	{
-		System.out.println("Initializing connection to OSCARS...");
+		log.info("Initializing connection to OSCARS...");
 		
 		String oscarsURL = Configuration.oscarsURL;			// Where is the instance of OSCARS this client will use?
-		String topoBridgeURL = Configuration.topoBridgeURL;	// Where is the instance of TopologyBridge WS this client will use?
 		
 		// Connect to OSCARS -- enable Multipath functionality //
 		multipathClient = new MultipathOSCARSClient(oscarsURL);
@@ -98,23 +108,27 @@ public class ServletController
 		// Obtain the topology domain from Configuration.java //
 		domain = Configuration.topologyDomain;
 		
-		// Obtain the topology from the TopoBridge WS //
-		topologyNodes = getOSCARSTopology(topoBridgeURL, domain);
-		
-		Collections.sort(topologyNodes);
+		// Obtain the topology of all configured domains, shared by all controllers and kept current by TopologyRefresher //
+		TopologyRefresher.current();
 	}
 	
 	/*******************************************************************************************************
 	* Returns the list of all nodes in the topology as an array of Objects (since that's what the GUI
-	* lists expect). this is just a getter, the list of nodes is precomputed only once in the constructor.
+	* lists expect). this is just a getter, the list of nodes is maintained by TopologyRefresher.
 	* 
-	* @return A complete list of Topology nodes in 'node : port : link' format. 
+	* @return A complete, sorted list of Topology nodes in 'node : port : link' or 'domain : node : port : link' format. 
 	*******************************************************************************************************/
 	public Object[] getTopologyNodes()
 	{
-		Collections.sort(topologyNodes);
-		
-		return topologyNodes.toArray();
+		return topologyNodes().toArray();
+	}
+	
+	/*******************************************************************************************************
+	* @return The current sorted, read-only endpoint list of the shared topology snapshot.
+	*******************************************************************************************************/
+	private List<String> topologyNodes()
+	{
+		return TopologyRefresher.current().getDisplayNames();
 	}
 	
 	/*******************************************************************************************************
@@ -126,22 +140,20 @@ public class ServletController
 	* @param selectedSource, The source that the user has already selected for the new reservation
 	* @return An updated list of Destination nodes. The GUI list treats the model as an array of Objects.
 	*******************************************************************************************************/
-	@SuppressWarnings("unchecked")
 	public Object[] updateDestinationNodeList(String selectedSource)
 	{		
 		// No source selected, let the destination list include all nodes in the topology //
 		if(selectedSource.equals(""))
 		{
-			return topologyNodes.toArray();
+			return topologyNodes().toArray();
 		}
 		// User has selected a source, remove it from destination list and return the updated list //
 		else		
 		{			
-			ArrayList<String> destinations = (ArrayList<String>)topologyNodes.clone();
+			// The snapshot list is already sorted and removing an element keeps it sorted //
+			ArrayList<String> destinations = new ArrayList<String>(topologyNodes());
 			destinations.remove(selectedSource);
 			
-			Collections.sort(destinations);
-			
 			return destinations.toArray();
 		}
 	}
@@ -156,7 +168,6 @@ public class ServletController
 	* @param selectedDestinations, List of destination nodes already selected by the user.
 	* @return An updated list of source nodes. The GUI list treats the model as an array of Objects.
 	*******************************************************************************************************/
-	@SuppressWarnings("unchecked")
 	public Object[] updateSourceNodeList(String[] selectedDestinations)
 	{			
 		// Nothing to update //
@@ -166,17 +177,17 @@ public class ServletController
 		// No destination selected, let the source list include all nodes in the topology //
 		if(selectedDestinations[0].equals(""))
 		{
-			return topologyNodes.toArray();
+			return topologyNodes().toArray();
 		}
 		// User has selected a destination(s), remove it/them from source list //
 		else	
 		{			
-			ArrayList<String> sources = (ArrayList<String>)topologyNodes.clone();
+			// The snapshot list is already sorted and removing elements keeps it sorted //
+			ArrayList<String> sources = new ArrayList<String>(topologyNodes());
 			
 			for(String oneDestination : selectedDestinations)
 				sources.remove(oneDestination);
 			
-			Collections.sort(sources);
 			return sources.toArray();
 		}
 	}
@@ -189,55 +200,104 @@ public class ServletController
 	*******************************************************************************************************/
 	protected void cancelExistingReservation(String griToCancel)
 	{
-		multipathClient.cancelMPReservation(griToCancel);
+		if(!multipathClient.isOSCARSAvailable())
+		{
+			log.warn("OSCARS is unavailable, {} was not cancelled.", griToCancel);
+			return;
+		}
+		
+		if(!cancelBulkhead.tryEnter())
+			return;
+		
+		try
+		{
+			multipathClient.cancelMPReservation(griToCancel);
+		}
+		finally
+		{
+			cancelBulkhead.exit();
+		}
 	}
 	
 	/*******************************************************************************************************
 	* This behavior is invoked when the user clicks the "Create Reservation" button on the GUI.
-	* Updates the source node list for proper display on the GUI.
-	* Parameters are parsed to identify the necessary values to pass to MultipathOSCARSClient to create a 
-	* new reservation.
+	* Parameters are parsed by the shared ReservationRequestParser, and the request is created if they are valid.
 	* 
-	* @param srcURN, In 'node : port : link' format.
-	* @param dstURN, In 'node : port : link' format.
+	* @param srcURN, In 'node : port : link' format, or 'domain : node : port : link' for other domains.
+	* @param dstURN, In 'node : port : link' format, or 'domain : node : port : link' for other domains.
 	* @param startTimeString, In 'YYYY-MM-DD HH:mm' format. 
 	* @param endTimeString, In 'YYYY-MM-DD HH:mm' format.
 	* @param bandwidth
 	* @param numDisjointPaths
-	* @return The GRI assigned to this reservation by OSCARS and MultipathOSCARSClient (for Multipath).
+	* @return The GRI assigned to this reservation by OSCARS and MultipathOSCARSClient (for Multipath), empty
+	* 		  if the parameters are invalid or the reservation could not be created.
 	*******************************************************************************************************/
 	public String createNewReservation(String srcURN, String dstURN, String startTimeString, String endTimeString, int bandwidth, int numDisjointPaths)
 	{
-		String[] piecesOfURN = new String[3];
-		String sourceString = "";
-		String destinationString = "";
-		long startTimestamp = 0;
-		long endTimestamp = 0;
-		long[] startEnd = new long[2];	
+		ValidationResult<ReservationRequest> request = requestParser.parse(null, srcURN, dstURN, startTimeString, endTimeString, String.valueOf(bandwidth), String.valueOf(numDisjointPaths));
+		
+		if(!request.isValid())
+		{
+			log.warn("Reservation not created: {}", request.getErrors());
+			return "";
+		}
+		
+		return createNewReservation(request.getValue());
+	}
+	
+	/*******************************************************************************************************
+	* Parses a reservation request sent by the GUI, see ReservationRequestParser.parse(Map).
+	* 
+	* @param fields, Request parameters by name (src, dst, start, end, bandwidth, paths)
+	* @return The validated request, or why it is invalid. 
+	*******************************************************************************************************/
+	public ValidationResult<ReservationRequest> parseReservation(Map<String, String> fields)
+	{
+		return requestParser.parse(fields);
+	}
+	
+	/*******************************************************************************************************
+	* Submits a validated reservation request to MultipathOSCARSClient.
+	* 
+	* @param request
+	* @return The GRI assigned to this reservation by OSCARS and MultipathOSCARSClient (for Multipath), empty
+	* 		  if OSCARS is unavailable or creates are saturated.
+	*******************************************************************************************************/
+	public String createNewReservation(ReservationRequest request)
+	{
+		String sourceString = request.getSource().toString();
+		String destinationString = request.getDestination().toString();
 		String griFromOSCARS = "";
 		
-		// Convert source node to OSCARS-readable format //
-		piecesOfURN = srcURN.split(" : ");
-		sourceString = "urn:ogf:network:domain=" + domain + ":node=" + piecesOfURN[0] + ":port=" + piecesOfURN[1] + ":link=" + piecesOfURN[2];
+		// Lets MultipathOSCARSClient compute the disjoint paths locally and submit them all at once //
+		multipathClient.setTopologyGraph(getTopologyGraph());
 		
-		// Convert destination node to OSCARS-readable format //
-		piecesOfURN = dstURN.split(" : ");
-		destinationString = "urn:ogf:network:domain=" + domain + ":node=" + piecesOfURN[0] + ":port=" + piecesOfURN[1] + ":link=" + piecesOfURN[2]; 
+		// Fail fast rather than queue up behind an OSCARS that isn't answering //
+		if(!multipathClient.isOSCARSAvailable())
+		{
+			log.warn("OSCARS is unavailable, reservation not created.");
+			return griFromOSCARS;
+		}
 		
-		// Convert start/end times into OSCARS-readable long format //
-		startEnd = parseTimes(startTimeString, endTimeString);
-		startTimestamp = startEnd[0];
-		endTimestamp = startEnd[1];
+		if(!createBulkhead.tryEnter())
+			return griFromOSCARS;
 		
-		// Submit the createMPReservation() request to OSCARSMultipathClient and get the assigned GRI back //
-		if(destinationString.contains("node=anycast"))
+		try
 		{
-			AnycastHandler handler = new AnycastHandler(multipathClient);
-			griFromOSCARS = handler.handleAnycastRequest("Reservation via MultipathUI", sourceString, true, "any", destinationString, true, "any", bandwidth, "timer-automatic", startTimestamp, endTimestamp, numDisjointPaths);
+			// Submit the createMPReservation() request to OSCARSMultipathClient and get the assigned GRI back //
+			if(request.isAnycast())
+			{
+				AnycastHandler handler = new AnycastHandler(multipathClient);
+				griFromOSCARS = handler.handleAnycastRequest(request.getDescription(), sourceString, true, "any", destinationString, true, "any", request.getBandwidth(), "timer-automatic", request.getStartTime(), request.getEndTime(), request.getNumDisjointPaths());
+			}
+			else
+			{
+				griFromOSCARS = multipathClient.createMPReservation(request.getDescription(), sourceString, true, "any", destinationString, true, "any", request.getBandwidth(), "timer-automatic", request.getStartTime(), request.getEndTime(), request.getNumDisjointPaths());
+			}
 		}
-		else
+		finally
 		{
-			griFromOSCARS = multipathClient.createMPReservation("Reservation via MultipathUI", sourceString, true, "any", destinationString, true, "any", bandwidth, "timer-automatic", startTimestamp, endTimestamp, numDisjointPaths);
+			createBulkhead.exit();
 		}
 		
 		// Update MP-GRI/GRI lists to include the new reservation //
@@ -247,214 +307,97 @@ public class ServletController
 		return griFromOSCARS;
 	}
 	
-	
 	/*******************************************************************************************************
-	* Convert readable date string-format to long-format compatible with OSCARS.
+	* Gets all URNs from the OSCARS topologies of the given domains. The domains are fetched in parallel
+	* and merged into a single index (see TopologyLoader). This always loads the topology anew, the GUI lists
+	* use the shared snapshot kept by TopologyRefresher instead.
+	* NOTE: In order for this method to work, the TopoBridge config files must be updated to broadcast the
+	* TopoBridge WebService on a specific IP, rather than just 'localhost'.
 	* 
-	* @param start_time, String in 'YYY-MM-DD HH:mm' format
-	* @param end_time, String in 'YYY-MM-DD HH:mm' format
-	* @return 2-element array containing corresponding long-format start/end times
+	* @param topoBridge_url, Where can the TopoBridge WS be found? Ex: http://localhost:9019/topoBridge
+	* @param topologyIDs, Which topologies are we looking to get the URNs from?
+	* @return sorted list of all URNs in the specified topologies, in 'node : port : link' format for the
+	* default domain and 'domain : node : port : link' format for every other domain.
 	*******************************************************************************************************/
-	private static long[] parseTimes(String start_time, String end_time) 
-	{     
-        Long startTime = 0L;
-        Long endTime = 0L;
-        
-        SimpleDateFormat date = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-        
-        // Convert start time into Long format for OSCARS to read //
-        if (start_time == null || start_time.equals("now") || start_time.equals("")) 
-        {
-            startTime = System.currentTimeMillis()/1000;
-        } 
-        else 
-        {
-            try 
-            {
-                startTime = date.parse(start_time.trim()).getTime()/1000;
-            } 
-            catch (java.text.ParseException ex) 
-            {
-                System.err.println("Error parsing start date: "+ ex.getMessage());
-                System.exit(-1);
-            }
-        }
-
-        // Convert end time into Long format for OSCARS to read //
-        if (end_time == null || end_time.equals("")) 
-        {
-            System.err.println("Error: No end time specified.");
-            System.exit(-1);
-        } 
-        else if (end_time.startsWith("+"))		// Offset from start time 
-        {
-            String[] hm = end_time.substring(1).split("\\:");
-            
-            if (hm.length != 3) 
-            {
-            	System.err.println("Error parsing end date.");
-                System.exit(-1);
-            } 
-            
-            try 
-            {
-                Integer seconds = Integer.valueOf(hm[0])*3600*24; 	// days
-                seconds += Integer.valueOf(hm[1])*3600; 			// hours
-                seconds += Integer.valueOf(hm[2])*60; 				// minutes
-                
-                if (seconds < 60) 
-                {
-                	System.err.println("Duration must be > 60 sec");System.exit(-1);
-                }
-                
-                endTime = startTime + seconds;
-            } 
-            catch (NumberFormatException ex) 
-            {
-            	System.err.println("Error parsing end date format: "+ex.getMessage());
-            	System.exit(-1);
-            }
-        } 
-        else 	// regular end-time specification
-        {
-            try 
-            {
-                endTime = date.parse(end_time.trim()).getTime()/1000;
-            } 
-            catch (java.text.ParseException ex) 
-            {
-                System.err.println("Error parsing emd date: "+ex.getMessage());
-                System.exit(-1);
-            }
-        }
-        
-        long[] startEnd = {startTime.longValue(), endTime.longValue()};
-        
-        return startEnd;
-	}
-
-	
+    public ArrayList<String> getOSCARSTopology(String topoBridge_url, List<String> topologyIDs) 
+    {
+    	TopologyIndex topologyIndex = TopologyLoader.loadDomains(topoBridge_url, topologyIDs);
+    	
+    	ArrayList<String> endPoints = topologyIndex.getDisplayNames(domain);
+    	
+    	// Domains other than the default are listed in index order, re-sort so the GUI list is ordered by display name //
+    	if(topologyIndex.getDomains().size() > 1)
+    		Collections.sort(endPoints);
+    	
+    	return endPoints;
+    }
+    
 	/*******************************************************************************************************
-	* Gets all URNs from the OSCARS topology corresponding to the global String variable 'domain'.
-	* NOTE: In order for this method to work, the TopoBridge config files must be updated to broadcast the
-	* TopoBridge WebService on a specific IP, rather than just 'localhost'.
+	* Gets all URNs from the OSCARS topology of a single domain.
 	* 
 	* @param topoBridge_url, Where can the TopoBridge WS be found? Ex: http://localhost:9019/topoBridge
 	* @param topologyID, Which topology are we looking to get the URNs from?
-	* @return list of all URNs in the specified topology in 'node : port : link' format
+	* @return sorted list of all URNs in the specified topology
 	*******************************************************************************************************/
     public ArrayList<String> getOSCARSTopology(String topoBridge_url, String topologyID) 
     {
-    	//Configuration clientConfig = new Configuration();
-    	TopoBridgeClient topoBridge = null;
-    	GetTopologyRequestType topologyRequest = new GetTopologyRequestType();
-    	MessagePropertiesType mt = new MessagePropertiesType();
-    	
-    	ArrayList<String> endPoints = new ArrayList<String>();
-    	
-    	/**
-         * GetTopologyResponseType					-->	List<CtrlPlaneTopologyContent>
-         * - CtrlPlaneTopologyContent				--> List<CtrlPlaneDomainContent>
-         * -- CtrlPlaneDomainContent				--> List<CtrlPlaneNodeContent>
-         * --- CtrlPlaneNodeContent					--> List<CtrlPlanePortContent>
-         * ---- CtrlPlanePortContent				--> List<CtrlPlaneLinkContent>, Port ID, Capacity, Granularity, Minimum Reservable Capacity, Maximum Reservable Capacity 
-         * ----- CtrlPlaneLinkContent				--> Link ID, Remote Link ID, Capacity, Granularity, Minimum Reservable Capacity, Maximum Reservable Capacity, VLAN Range
-         **/
-        GetTopologyResponseType topologyResponse;					//This is what comes back from OSCARS
-        List<CtrlPlaneTopologyContent> allTopologies;
-        List<CtrlPlaneDomainContent> allDomains;
-        List<CtrlPlaneNodeContent> allNodesInDomain;
-        List<CtrlPlanePortContent> allPortsOnNode;
-        List<CtrlPlaneLinkContent> allLinksOnPort;
-
-        try
-        {
-			// Connect to the TopoBridge WS to submit a getTopology() request //
-		  	topoBridge = TopoBridgeClient.getClient(topoBridge_url);
-		
-		  	topologyRequest = new GetTopologyRequestType();
-		  	topologyRequest.getDomainId().add(topologyID);
-	
-		  	// This is necessary to prevent Null-Pointer Exception //
-		  	mt.setGlobalTransactionId("made-up");
-		  	topologyRequest.setMessageProperties(mt);
-		                
-		  	// Submit getTopology request to OSCARS and get response back //
-	    	topologyResponse = topoBridge.getPortType().getTopology(topologyRequest);	
-	        
-	        allTopologies = topologyResponse.getTopology();
-	        allDomains = allTopologies.get(0).getDomain();
-	
-	        // Popluate the list of all URNS in format 'node : port : link' so it is readable on GUI //
-	        for (CtrlPlaneDomainContent oneDomain : allDomains) 
-	        {	            
-	            allNodesInDomain = oneDomain.getNode();
-	            
-	            for (CtrlPlaneNodeContent oneNode : allNodesInDomain) 
-	            {                
-	                allPortsOnNode = oneNode.getPort();
-	                
-	                for (CtrlPlanePortContent onePort : allPortsOnNode) 
-	                {
-	                	allLinksOnPort = onePort.getLink();
-	                	
-	                	for(CtrlPlaneLinkContent oneLink : allLinksOnPort)
-	                	{
-	                		String[] partsOfURN = oneLink.getId().split(":");
-	                		String nodeID = partsOfURN[4].substring(partsOfURN[4].indexOf("node=") + 5);
-	                		String portID = partsOfURN[5].substring(partsOfURN[5].indexOf("port=") + 5);
-	                		String linkID = partsOfURN[6].substring(partsOfURN[6].indexOf("link=") + 5);
-	                		
-	                		endPoints.add(nodeID + " : " + portID + " : " + linkID);
-	                	}
-	                }
-	            }
-	        }
-        }
-        catch (OSCARSFaultMessage fm) 
-        {
-            fm.printStackTrace();
-            System.err.println("Error: OSCARSFaultMessage [" + fm.getMessage() + "]");
-        }
-		catch (OSCARSServiceException se) 
-		{
-			se.printStackTrace();
-            System.err.println("Error: OSCARSClientException [" + se.getMessage() + "]");
-		}
-    	catch(MalformedURLException mue)
-    	{ 
-    		mue.printStackTrace(); 
-    	}
-        catch (Exception e) 
-        {
-            e.printStackTrace();
-            System.err.println("Error: Exception [" + e.getMessage() + "]");
-        } 
-        
-        return endPoints;
+    	return getOSCARSTopology(topoBridge_url, Collections.singletonList(topologyID));
+    }
+    
+    /*******************************************************************************************************
+    * @return The merged index of every configured domain, from the current topology snapshot.
+    *******************************************************************************************************/
+    public TopologyIndex getTopologyIndex()
+    {
+    	return TopologyRefresher.current().getIndex();
+    }
+    
+    /*******************************************************************************************************
+    * @return The graph (nodes, links, capacities) of every configured domain, from the current topology snapshot.
+    *******************************************************************************************************/
+    public TopologyGraph getTopologyGraph()
+    {
+    	return TopologyRefresher.current().getGraph();
     }
     
     /*******************************************************************************************************
-    * Get ALL Unicast GRIs from OSCARS and put them into the allUnicastGris ArrayList.   
+    * Get ALL Unicast reservations from OSCARS and put them into allUnicastReservations. Only the compact
+    * projection of each reservation is kept, see ReservationColumns.
     *******************************************************************************************************/
     private void populateUnicastList()
     {
     	ArrayList<String> allStatuses = new ArrayList<String>();
-    	List<ResDetails> allReservationDetails;								
+    	ReservationColumns listedReservations;								
     	
-    	allUnicastGris = new ArrayList<String>();
+    	// OSCARS is unavailable or busy listing for other users, show the last list it returned //
+    	if(!multipathClient.isOSCARSAvailable() || !listBulkhead.tryEnter())
+    	{
+    		allUnicastReservations = lastUnicastReservations;
+    		return;
+    	}
     	
-    	// Include ALL available OSCARS statuses in the list request //
-    	allStatuses.add("ALL");
+    	try
+    	{
+    		// Include ALL available OSCARS statuses in the list request //
+    		allStatuses.add("ALL");
     	
-    	// Invoke the list request in MultipathOSCARSClient and get Details back on every exsiting request //
-    	allReservationDetails = multipathClient.listUnicastByStatus(allStatuses);
+    		// Invoke the list request in MultipathOSCARSClient and get the projection of every existing request back //
+    		listedReservations = multipathClient.listUnicastColumns(allStatuses);
+    	}
+    	finally
+    	{
+    		listBulkhead.exit();
+    	}
     	
-    	// Put the GRIs of all Unicast reservations into the global list //
-    	for(ResDetails oneReservation : allReservationDetails)
+    	if(listedReservations == null)	// The list call failed
     	{
-    		allUnicastGris.add(oneReservation.getGlobalReservationId());
-    	}    	
+    		allUnicastReservations = lastUnicastReservations;
+    		return;
+    	}
+    	
+    	// Read-only once listed, so it is shared rather than copied //
+    	allUnicastReservations = listedReservations;
+    	lastUnicastReservations = listedReservations;
     }
     
     /*******************************************************************************************************
@@ -469,6 +412,8 @@ public class ServletController
     	
     	this.populateUnicastList();	// Invoke the list operation
     	
+    	ArrayList<String> allUnicastGris = allUnicastReservations.getGris();
+    	
     	// Sort them alphabetically and by length so that es.net-2 comes after es.net-1 not es.net-199 //
     	Collections.sort(allUnicastGris, griComparator);	
     	    	
@@ -515,7 +460,7 @@ public class ServletController
     		}
     		catch(Exception e)
     		{
-    			System.err.println("Error: Exception [" + e.getMessage() + "]");
+    			log.error("Error reading the MP-GRI lookup file", e);
     			System.exit(-1);
     		}
     	}
@@ -643,7 +588,7 @@ public class ServletController
     	
     	this.refreshMPGriLists();
     	
-    	System.out.println("RETURN = " + mpGriToReturn);
+    	log.debug("RETURN = {}", mpGriToReturn);
     	
     	return mpGriToReturn;
     }
@@ -652,99 +597,207 @@ public class ServletController
     * This is the behavior invoked by selecting a GRI in either the Multipath/Unicast GRI list on the GUI.
     * Submits a queryMPReservation() call to MultipathOSCARSClient which returns a set of details and
     * associated error messages for each request/subrequest queried. 
-    * - Results from query are formatted to be readable on the GUI output console.
+    * - Results are returned as QueryResults, which the GUI renders for its output console.
     * 
     * @param griToQuery
-    * @return The formatted, user-readable output representing the results of the query operation.
+    * @return One result per subrequest of an MP-GRI (in group order), or a single one for a unicast GRI.
     *******************************************************************************************************/
-    protected ArrayList<String> queryReservations(String griToQuery)
+    protected List<QueryResult> queryReservations(String griToQuery)
     {
-    	ArrayList<String> consoleDisplay = new ArrayList<String>();
-    	    	
-    	int whereToLook = allShortMPGris.indexOf(griToQuery);
+    	// OSCARS is unavailable or swamped with queries, show the last result it gave for this GRI //
+    	if(!multipathClient.isOSCARSAvailable() || !queryBulkhead.tryEnter())
+    		return cachedQueryResults(griToQuery);
     	
-    	if(whereToLook != -1)	// Multipath group GRI
+    	List<QueryResult> queryResults = new ArrayList<QueryResult>();
+    	
+    	try
     	{
-    		String longGRI = allLongMPGris.get(whereToLook);
+    		// Submit query to MultipathClient and get a list of ResDetails and OSCARSFaultReports back //
+    		multipathClient.silentQuery = true;
+    		ArrayList<SubrequestTuple> allQueryResults = multipathClient.queryMPReservation(griToQuery);
+    		multipathClient.silentQuery = false;
     		
-    		System.out.println("LONG GRI = " + longGRI);
+    		queryResults = toQueryResults(griToQuery, allQueryResults);
+    	}
+    	catch(RuntimeException e)	// The query failed part-way, there are no (complete) results
+    	{
+    		log.warn("Query of {} failed: {}", griToQuery, e);
+    		return cachedQueryResults(griToQuery);
+    	}
+    	finally
+    	{
+    		multipathClient.silentQuery = false;
+    		queryBulkhead.exit();
     	}
     	
-    	// Submit query to MultipathClient and get a list of ResDetails and OSCARSFaultReports back //
-    	multipathClient.silentQuery = true;
-    	allQueryResults = multipathClient.queryMPReservation(griToQuery);
-    	multipathClient.silentQuery = false;
+    	lastQueryResults.put(griToQuery, queryResults);
     	
+    	return queryResults;
+    }
+    
+    /*******************************************************************************************************
+    * Streaming queryReservations(). The result of each subrequest is handed to listener as soon as OSCARS
+    * answers for it, rather than once the whole group has been queried, so a GUI showing a large group gets
+    * its first result after a single OSCARS round trip.
+    * - While OSCARS is unavailable or queries are saturated (or the query fails), the cached results are 
+    *   handed over instead.
+    * 
+    * @param griToQuery
+    * @param listener, Receives the result of each subrequest
+    * @return Future of all results, the same that queryReservations() returns. It completes after the last 
+    * 		  call to listener. If the OSCARS query failed, it completes exceptionally with that failure once 
+    * 		  the cached results have been handed over, so the caller can tell the client they are stale.
+    *******************************************************************************************************/
+    protected CompletableFuture<List<QueryResult>> streamQueryReservations(String griToQuery, QueryResultListener listener)
+    {
+    	if(!multipathClient.isOSCARSAvailable() || !queryBulkhead.tryEnter())
+    		return CompletableFuture.completedFuture(streamCachedQueryResults(griToQuery, listener));
+    	
+    	Set<Integer> streamed = ConcurrentHashMap.newKeySet();		// Subrequests whose fresh result the listener has
+    	CompletableFuture<ArrayList<SubrequestTuple>> query;
+    	
+    	try
+    	{
+    		query = multipathClient.queryMPReservationAsync(griToQuery, (index, count, result) ->
+    		{
+    			QueryResult oneResult = toQueryResult(result.getDetails(), result.getErrors());
+    			
+    			streamed.add(index);
+    			listener.onSubrequestResult(index, count, oneResult);
+    		});
+    	}
+    	catch(RuntimeException e)
+    	{
+    		queryBulkhead.exit();
+    		throw e;
+    	}
+    	
+    	return query.handle((allQueryResults, error) ->
+    	{
+    		queryBulkhead.exit();
+    		
+    		if(error != null)
+    		{
+    			Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+    			
+    			log.warn("Query of {} failed: {}", griToQuery, cause);
+    			streamCachedQueryResults(griToQuery, listener, streamed);
+    			
+    			throw new CompletionException(cause);
+    		}
+    		
+    		List<QueryResult> queryResults = toQueryResults(griToQuery, allQueryResults);
+    		
+    		lastQueryResults.put(griToQuery, queryResults);
+    		
+    		return queryResults;
+    	});
+    }
+    
+    private List<QueryResult> streamCachedQueryResults(String griToQuery, QueryResultListener listener)
+    {
+    	return streamCachedQueryResults(griToQuery, listener, Collections.<Integer>emptySet());
+    }
+    
+    /**
+     * Hands the cached results to listener, except those of the subrequests in alreadyStreamed, whose fresh result it already has.
+     */
+    private List<QueryResult> streamCachedQueryResults(String griToQuery, QueryResultListener listener, Set<Integer> alreadyStreamed)
+    {
+    	List<QueryResult> cached = cachedQueryResults(griToQuery);
+    	
+    	for(int index = 0; index < cached.size(); index++)
+    	{
+    		if(!alreadyStreamed.contains(index))
+    			listener.onSubrequestResult(index, cached.size(), cached.get(index));
+    	}
+    	
+    	return cached;
+    }
+    
+    /*******************************************************************************************************
+    * Converts the reply of queryMPReservation() into QueryResults.
+    * 
+    * @param griToQuery
+    * @param allQueryResults, As returned by queryMPReservation(griToQuery)
+    * @return One result per subrequest of an MP-GRI (in group order), or a single one for a unicast GRI.
+    *******************************************************************************************************/
+    private static List<QueryResult> toQueryResults(String griToQuery, List<SubrequestTuple> allQueryResults)
+    {
+    	List<QueryResult> queryResults = new ArrayList<QueryResult>();
     	
     	if(griToQuery.startsWith("MP"))	// Multipath
-    		consoleDisplay.addAll(generateMultipathQueryOutput(allQueryResults.get(allQueryResults.size()-1), griToQuery));
+    	{
+    		SubrequestTuple groupResults = allQueryResults.get(allQueryResults.size()-1);
+    		
+    		for(int d = 0; d < groupResults.getAllDetails().size(); d++)
+    			queryResults.add(toQueryResult(groupResults.getAllDetails().get(d), groupResults.getAllErrors().get(d)));
+    	}
     	else							// Unicast
-    		consoleDisplay = generateUnicastQueryOutput(allQueryResults.get(0));
+    	{
+    		queryResults.add(toQueryResult(allQueryResults.get(0).getDetails(), allQueryResults.get(0).getErrors()));
+    	}
     	
-    	return consoleDisplay;
+    	return queryResults;
     }
     
+    /*******************************************************************************************************
+    * Results of the last successful query of a GRI, marked as stale, for when OSCARS can't be asked.
+    * 
+    * @param griToQuery
+    * @return The cached results, or a single QueryResult.unavailable() if this GRI has never been queried 
+    * 		  successfully.
+    *******************************************************************************************************/
+    private List<QueryResult> cachedQueryResults(String griToQuery)
+    {
+    	List<QueryResult> cached = lastQueryResults.get(griToQuery);
+    	List<QueryResult> queryResults = new ArrayList<QueryResult>();
+    	
+    	if(cached == null)
+    	{
+    		queryResults.add(QueryResult.unavailable(griToQuery));
+    		return queryResults;
+    	}
+    	
+    	for(QueryResult oneResult : cached)
+    		queryResults.add(oneResult.asStale());
+    	
+    	return queryResults;
+    }
     
     /*******************************************************************************************************
-    * Constructs the ArrayList which becomes the output for Multipath reservation queries.
-    * Generates output for each unicast subrequest.
-    * The returned ArrayList has length which is a mulitple of 3.
-    * - Every first entry is the MP-Group ID.
-    * - Every second entry is a Unicast subrequest query result.
-    * - Every third entry is a Unicast subrequest error report.
-    * @param queryResults, All the results returned from issuing a Query call. Contains ResDetails and Errors.
-    * @param groupID, The Multipath MP-GRI for the gruop to be output.
-    * @return List of output for this group and all its subrequests.
+    * @return State of the OSCARS circuit breaker (CLOSED = healthy, OPEN = failing fast, HALF_OPEN = probing).
     *******************************************************************************************************/
-    private ArrayList<String> generateMultipathQueryOutput(SubrequestTuple queryResults, String groupID)
+    public CircuitBreaker.State getOSCARSState()
     {
-    	ArrayList<String> consoleDisplay = new ArrayList<String>();
-    	ArrayList<ResDetails> listOfDetails = queryResults.getAllDetails();
-    	ArrayList<List<OSCARSFaultReport>> listOfErrors = queryResults.getAllErrors();
-    	    	    	    	    	    	
-        for(int d = 0; d < listOfDetails.size(); d++)
-        {
-        	ResDetails mpDetails = listOfDetails.get(d);				// Details of subrequest query
-        	List<OSCARSFaultReport> mpErrors = listOfErrors.get(d);		// Errors of subrequest query
-        			    		
-            // Generate the output for a single Unicast GRI //
-    		SubrequestTuple simplifiedTuple = new SubrequestTuple(mpDetails, mpErrors);
-    		ArrayList<String> subrequestDisplay = generateUnicastQueryOutput(simplifiedTuple); 
-    		
-    		consoleDisplay.addAll(subrequestDisplay);
-       	}// End-For loop through ResDetails
-   	
-  	    consoleDisplay.set(0, "< Multipath Group: " + groupID + ">\n"); // Update the output results for this entire group to include the group's MP-GRI	
-    	return consoleDisplay;    	
+    	return multipathClient.getCircuitBreaker().getState();
     }
     
     /*******************************************************************************************************
-    * Constructs the ArrayList which becomes the output for Unicast reservation queries.
-    * The returned ArrayList has length which is a mulitple of 3.
-    * - Every first entry is blank
-    * - Every second entry is a Unicast request query result.
-    * - Every third entry is a Unicast request error report. 
-    * @param queryResults, The results returned from issuing a Query call. Contains ResDetails and Errors.
-    * @return A list representing query output for this individual Unicast request.
+    * @return The bulkheads of every OSCARS operation, shared by all ServletControllers.
     *******************************************************************************************************/
-    private ArrayList<String> generateUnicastQueryOutput(SubrequestTuple queryResults)
-    {	
-    	ArrayList<String> consoleDisplay = new ArrayList<String>();
-    	ResDetails unicastDetails = queryResults.getDetails();
-		List<OSCARSFaultReport> unicastErrors = queryResults.getErrors();
-
-		String uniGRI = unicastDetails.getGlobalReservationId();
-		String uniStatus = unicastDetails.getStatus();
+    public static List<Bulkhead> getBulkheads()
+    {
+    	return Arrays.asList(createBulkhead, queryBulkhead, listBulkhead, cancelBulkhead);
+    }
+    
+    
+    /*******************************************************************************************************
+    * Converts the query reply of one Unicast reservation or subrequest into the QueryResult sent to the GUI.
+    * 
+    * @param details, ResDetails of the reservation
+    * @param errors, OSCARSFaultReports of the reservation, may be null
+    * @return Result with the reserved bandwidth, times and inter-node hops if a path is reserved.
+    *******************************************************************************************************/
+    private static QueryResult toQueryResult(ResDetails details, List<OSCARSFaultReport> errors)
+    {
 		int bandwidth = -1;
 		long startTime = -1;
 		long endTime = -1;
-		Date readableStart = null;
-		Date readableEnd = null;
-		String allHops = "";
-		String allErrorMessages = "";
-		//String allURNs = "";
+		List<String> hops = Collections.emptyList();
+		List<String> errorMessages = new ArrayList<String>();
 		
-		ReservedConstraintType uniResConst = unicastDetails.getReservedConstraint();
+		ReservedConstraintType uniResConst = details.getReservedConstraint();
 				
 		// Dealing with a RESERVED/ACTIVE/FINISHED/CANCELLED Unicast reservation //
 		if(uniResConst != null)
@@ -752,72 +805,21 @@ public class ServletController
 			bandwidth = uniResConst.getBandwidth();
 			startTime = uniResConst.getStartTime();
 			endTime = uniResConst.getEndTime();
-									
-			readableStart = new Date(startTime*1000);
-			readableEnd = new Date(endTime*1000);
-			
-			PathInfo pInfo = uniResConst.getPathInfo();
-			CtrlPlanePathContent path = pInfo.getPath();
-			List<CtrlPlaneHopContent> hops = path.getHop();
 			
-			// Format Hop output - Include only inter-nodal hops //
-			for(int h = 0; h < hops.size() - 1; h++)
-			{
-				CtrlPlaneHopContent currHop = hops.get(h);
-				CtrlPlaneHopContent nextHop = hops.get(h+1);
-				
-				String currLink = currHop.getLink().getId();
-				String nextLink = nextHop.getLink().getId();
-				
-				String currNode = currLink.substring(currLink.indexOf("node=") + 5, currLink.indexOf(":port="));
-				String nextNode = nextLink.substring(nextLink.indexOf("node=") + 5, nextLink.indexOf(":port="));
-				
-				if(h == 0)
-					//allHops += " - " + currNode + " --> ";		// First hop
-					allHops += " - " + currLink + " --> ";		// First hop
-
-				if(!currNode.equals(nextNode))
-					//	allHops += nextNode + " --> ";
-					allHops += nextLink + " --> ";
-			}
+			// Include only inter-nodal hops //
+			PathCache.CachedPath reservedPath = PathCache.fromDetails(details);
 			
-			if(allHops.endsWith(" --> "))
-				allHops = allHops.substring(0, allHops.lastIndexOf(" --> "));
+			if(reservedPath != null && reservedPath.getHopCount() > 1)
+				hops = reservedPath.getInterNodeHops();
 		}
 		
-		// Add all errors associated with this GRI to output list //
-		if(unicastErrors != null)
+		if(errors != null)
 		{
-			for(OSCARSFaultReport oneError : unicastErrors)
-			{
-				allErrorMessages += " ERROR: " + oneError.getErrorMsg() + "\n";
-			}
-			allErrorMessages += "\n";
-		}
-		
-		// Build the output String //
-		String result = "[ " + uniGRI + " ]\n";
-		result += uniStatus + "\n";
-
-		if(bandwidth != -1)
-		{
-			result += "Bandwidth: " + bandwidth + " Mbps\n";
-			result += "Start Time:" + readableStart + "\n";
-			result += "End Time: " + readableEnd + "\n";
-			result += "Hops in Path:  " + allHops + "\n";
-			
-			if(allErrorMessages.equals(""))
-				result += "\n";
+			for(OSCARSFaultReport oneError : errors)
+				errorMessages.add(oneError.getErrorMsg());
 		}
-		    			
-		// Element 1 = Blank -- Will be filled if necessary by the generateMultipathQueryOutput() method 
-		// Element 2 = Reservation Details
-		// Element 3 = Error Details
-		consoleDisplay.add("");
-		consoleDisplay.add(result);
-		consoleDisplay.add(allErrorMessages);
 		
-		return consoleDisplay;
+		return new QueryResult(details.getGlobalReservationId(), details.getStatus(), bandwidth, startTime, endTime, hops, errorMessages, false);
     }
     
 }
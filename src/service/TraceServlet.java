@@ -0,0 +1,175 @@
+package service;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import trace.Span;
+import trace.Trace;
+import trace.TraceBuffer;
+
+/***********************************************************************************************************************
+* Admin view of the recently finished traces kept in the TraceBuffer, as JSON.
+*
+* 	- /admin/traces				--> Newest traces first (ID, operation, start, duration, span count). ?limit=N, default 50.
+* 	- /admin/traces?id=<traceId>	--> Every span of one trace (offset from the start of the trace, duration, thread, attributes),
+* 								    plus the total time per span name, e.g. how much of an anycast went to "poll" vs. "oscars:createReservation".
+*
+* @author Jeremy
+***********************************************************************************************************************/
+@WebServlet(name = "traces",
+			urlPatterns = {"/admin/traces"}
+			)
+public class TraceServlet extends HttpServlet
+{
+	private static final long serialVersionUID = 1L;
+
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+	{
+		response.setContentType("application/json");
+		response.setCharacterEncoding("UTF-8");
+
+		String traceId = request.getParameter("id");
+		JsonObject responseMessage;
+
+		if(traceId == null)
+		{
+			responseMessage = listTraces(parseLimit(request.getParameter("limit")));
+		}
+		else
+		{
+			Trace trace = TraceBuffer.find(traceId);
+
+			if(trace == null)
+			{
+				response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+				responseMessage = new JsonObject();
+				responseMessage.addProperty("error", "No recent trace with ID " + traceId);
+			}
+			else
+			{
+				responseMessage = describeTrace(trace);
+			}
+		}
+
+		response.getWriter().print(responseMessage);
+	}
+
+	private static JsonObject listTraces(int limit)
+	{
+		JsonObject list = new JsonObject();
+		JsonArray traces = new JsonArray();
+
+		for(Trace oneTrace : TraceBuffer.recent(limit))
+		{
+			JsonObject summary = summarize(oneTrace);
+			summary.addProperty("spans", oneTrace.getSpans().size() + oneTrace.getDroppedSpans());
+			traces.add(summary);
+		}
+
+		list.addProperty("recorded", TraceBuffer.getRecorded());
+		list.add("traces", traces);
+
+		return list;
+	}
+
+	private static JsonObject describeTrace(Trace trace)
+	{
+		JsonObject description = summarize(trace);
+		List<Span> spans = trace.getSpans();
+		long traceStart = spans.get(0).getStartNanos();
+
+		Map<Span, Integer> indexes = new IdentityHashMap<Span, Integer>();
+		Map<String, long[]> totalsByName = new TreeMap<String, long[]>();	// name -> {count, total nanos}
+		JsonArray spanList = new JsonArray();
+
+		for(Span oneSpan : spans)
+		{
+			indexes.put(oneSpan, indexes.size());
+
+			JsonObject spanJSON = new JsonObject();
+			spanJSON.addProperty("index", indexes.get(oneSpan));
+
+			if(oneSpan.getParent() != null && indexes.containsKey(oneSpan.getParent()))
+				spanJSON.addProperty("parent", indexes.get(oneSpan.getParent()));
+
+			spanJSON.addProperty("name", oneSpan.getName());
+			spanJSON.addProperty("thread", oneSpan.getThreadName());
+			spanJSON.addProperty("offsetMs", toMillis(oneSpan.getStartNanos() - traceStart));
+			spanJSON.addProperty("durationMs", toMillis(oneSpan.getDurationNanos()));
+
+			JsonObject attributes = new JsonObject();
+			for(Map.Entry<String, String> oneAttribute : oneSpan.getAttributes().entrySet())
+				attributes.addProperty(oneAttribute.getKey(), oneAttribute.getValue());
+
+			spanJSON.add("attributes", attributes);
+			spanList.add(spanJSON);
+
+			if(oneSpan.getDurationNanos() >= 0)
+			{
+				long[] total = totalsByName.computeIfAbsent(oneSpan.getName(), n -> new long[2]);
+				total[0]++;
+				total[1] += oneSpan.getDurationNanos();
+			}
+		}
+
+		JsonObject totals = new JsonObject();
+		for(Map.Entry<String, long[]> oneTotal : totalsByName.entrySet())
+		{
+			JsonObject totalJSON = new JsonObject();
+			totalJSON.addProperty("count", oneTotal.getValue()[0]);
+			totalJSON.addProperty("totalMs", toMillis(oneTotal.getValue()[1]));
+			totals.add(oneTotal.getKey(), totalJSON);
+		}
+
+		description.addProperty("droppedSpans", trace.getDroppedSpans());
+		description.add("totals", totals);
+		description.add("spans", spanList);
+
+		return description;
+	}
+
+	private static JsonObject summarize(Trace trace)
+	{
+		JsonObject summary = new JsonObject();
+		summary.addProperty("id", trace.getId());
+		summary.addProperty("operation", trace.getOperation());
+		summary.addProperty("start", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(trace.getStartMillis())));
+		summary.addProperty("durationMs", toMillis(trace.getDurationNanos()));
+
+		return summary;
+	}
+
+	private static int parseLimit(String limit)
+	{
+		try
+		{
+			return (limit == null) ? 50 : Math.max(1, Integer.parseInt(limit));
+		}
+		catch(NumberFormatException nfe)
+		{
+			return 50;
+		}
+	}
+
+	/**
+	 * @return Milliseconds with microsecond precision, or -1 for a span that has not ended.
+	 */
+	private static double toMillis(long nanos)
+	{
+		return (nanos < 0) ? -1 : (nanos / 1000) / 1000.0;
+	}
+}
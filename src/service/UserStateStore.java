@@ -0,0 +1,289 @@
+package service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+import config.Configuration;
+import data.models.UserState;
+import logging.Log;
+
+/*****************************************************************************************************************************************
+* Write-behind store for the per-user UI state kept in the mpcUsersDB.userState table.
+*
+* Selection changes are high-frequency UI events, so they are never written to MySQL directly:
+* 	- Every change replaces the user's in-memory UserState and marks the user dirty. Repeated changes between flushes coalesce into one row.
+* 	- A background thread writes all dirty users in a single JDBC batch every Configuration.userStateFlushSeconds.
+* 	- When a user's last session disconnects, the user is flushed immediately and their state is moved into a small LRU cache.
+* 	- Reconnecting users are restored from the active map, then the LRU cache, and only then from MySQL.
+*
+* @author Jeremy
+/*****************************************************************************************************************************************/
+public class UserStateStore
+{
+	private static final Log log = Log.forClass(UserStateStore.class);
+
+	private static final String selectState = "SELECT showAll, selection FROM mpcUsersDB.userState WHERE username=?";
+	private static final String upsertState = "INSERT INTO mpcUsersDB.userState (username, showAll, selection) VALUES (?, ?, ?) "
+											+ "ON DUPLICATE KEY UPDATE showAll=VALUES(showAll), selection=VALUES(selection)";
+
+	private static final Map<String, UserState> activeStates = new ConcurrentHashMap<String, UserState>();		// Users with at least one open session
+	private static final Map<String, Integer> openSessions = new ConcurrentHashMap<String, Integer>();			// Open session count per user
+	private static final Set<String> dirtyUsers = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());	// Users changed since the last flush
+
+	// Recently disconnected users, least-recently-used entries are dropped once the cache is full //
+	private static final Map<String, UserState> recentStates = Collections.synchronizedMap(new LinkedHashMap<String, UserState>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry<String, UserState> eldest)
+		{
+			return size() > Configuration.userStateCacheSize;
+		}
+	});
+
+	private static final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r ->
+	{
+		Thread flushThread = new Thread(r, "userState-flusher");
+		flushThread.setDaemon(true);
+		return flushThread;
+	});
+
+	static
+	{
+		flusher.scheduleWithFixedDelay(UserStateStore::flush, Configuration.userStateFlushSeconds, Configuration.userStateFlushSeconds, TimeUnit.SECONDS);
+	}
+
+	private UserStateStore()
+	{
+	}
+
+	/*******************************************************************************************************
+	* Called when a user opens a session. Restores the user's state from memory if possible, otherwise
+	* from the userState table. Users without a stored state start from the defaults.
+	*
+	* @param username
+	* @return The current UI state for this user.
+	*******************************************************************************************************/
+	public static UserState connect(String username)
+	{
+		openSessions.merge(username, 1, Integer::sum);
+
+		UserState state = activeStates.get(username);
+
+		if(state == null)
+		{
+			state = recentStates.remove(username);
+
+			if(state == null)
+				state = loadFromDatabase(username);
+
+			UserState raced = activeStates.putIfAbsent(username, state);
+			if(raced != null)
+				state = raced;
+		}
+
+		return state;
+	}
+
+	/*******************************************************************************************************
+	* Called when a session closes. Once the user's last session is gone, any pending change is flushed
+	* on the background thread and the state is parked in the LRU cache for a fast reconnect.
+	*
+	* @param username
+	*******************************************************************************************************/
+	public static void disconnect(String username)
+	{
+		Integer remaining = openSessions.computeIfPresent(username, (user, count) -> (count > 1) ? count - 1 : null);
+
+		if(remaining != null)
+			return;
+
+		UserState state = activeStates.remove(username);
+
+		if(state != null)
+		{
+			recentStates.put(username, state);
+
+			if(dirtyUsers.contains(username))
+			{
+				flusher.execute(UserStateStore::flush);
+			}
+		}
+	}
+
+	/*******************************************************************************************************
+	* Returns the in-memory state of a connected user, or null if the user has no open session.
+	*******************************************************************************************************/
+	public static UserState get(String username)
+	{
+		return activeStates.get(username);
+	}
+
+	/*******************************************************************************************************
+	* Records a new selection for a connected user. Only memory is touched, the row is written on the next flush.
+	*
+	* @param username
+	* @param selectedGRIs, MP-GRIs currently selected in the UI.
+	*******************************************************************************************************/
+	public static void updateSelection(String username, List<String> selectedGRIs)
+	{
+		StringBuilder selection = new StringBuilder();
+
+		if(selectedGRIs != null)
+		{
+			for(String oneGRI : selectedGRIs)
+			{
+				if(selection.length() > 0)
+					selection.append(',');
+
+				selection.append(oneGRI);
+			}
+		}
+
+		String newSelection = selection.toString();
+
+		update(username, current -> new UserState(username, current.isShowAll(), newSelection));
+	}
+
+	/*******************************************************************************************************
+	* Records a new 'show all' setting for a connected user. Only memory is touched, the row is written on the next flush.
+	*******************************************************************************************************/
+	public static void updateShowAll(String username, boolean showAll)
+	{
+		update(username, current -> new UserState(username, showAll, current.getSelection()));
+	}
+
+	/*******************************************************************************************************
+	* Writes every dirty user state to MySQL in a single batch. Users whose write fails are marked dirty
+	* again so the next flush retries them.
+	*******************************************************************************************************/
+	public static synchronized void flush()
+	{
+		if(dirtyUsers.isEmpty())
+			return;
+
+		List<UserState> toWrite = new ArrayList<UserState>();
+
+		for(String username : dirtyUsers)
+		{
+			dirtyUsers.remove(username);
+
+			UserState state = activeStates.get(username);
+			if(state == null)
+				state = recentStates.get(username);
+
+			if(state != null)
+				toWrite.add(state);
+		}
+
+		if(toWrite.isEmpty())
+			return;
+
+		try
+		{
+			Class.forName("com.mysql.jdbc.Driver");
+			Connection conn = DriverManager.getConnection(Configuration.mysqlLocation, Configuration.mysqlUser, Configuration.mysqlPassword);
+
+			try
+			{
+				PreparedStatement stmt = conn.prepareStatement(upsertState);
+
+				for(UserState state : toWrite)
+				{
+					stmt.setString(1, state.getUsername());
+					stmt.setBoolean(2, state.isShowAll());
+					stmt.setString(3, state.getSelection());
+					stmt.addBatch();
+				}
+
+				stmt.executeBatch();
+				stmt.close();
+			}
+			finally
+			{
+				conn.close();
+			}
+		}
+		catch(ClassNotFoundException | SQLException e)
+		{
+			log.error("Could not write {} user state(s) to MySQL, will retry on next flush", toWrite.size(), e);
+
+			for(UserState state : toWrite)
+				dirtyUsers.add(state.getUsername());
+		}
+	}
+
+	/*******************************************************************************************************
+	* Stops the background flusher after writing any pending changes. Called when the web app shuts down.
+	*******************************************************************************************************/
+	public static void shutdown()
+	{
+		flusher.shutdown();
+		flush();
+	}
+
+	/**
+	 * Replaces the state of a connected user and marks it dirty. A message handled after the user's last session closed
+	 * is dropped, rather than starting from the defaults and overwriting the stored row with them.
+	 */
+	private static void update(String username, UnaryOperator<UserState> change)
+	{
+		if(activeStates.computeIfPresent(username, (user, current) -> change.apply(current)) == null)
+		{
+			log.debug("State change of {} dropped, the user is no longer connected", username);
+			return;
+		}
+
+		dirtyUsers.add(username);
+	}
+
+	private static UserState loadFromDatabase(String username)
+	{
+		UserState state = new UserState(username);
+
+		try
+		{
+			Class.forName("com.mysql.jdbc.Driver");
+			Connection conn = DriverManager.getConnection(Configuration.mysqlLocation, Configuration.mysqlUser, Configuration.mysqlPassword);
+
+			try
+			{
+				PreparedStatement stmt = conn.prepareStatement(selectState);
+				stmt.setString(1, username);
+
+				ResultSet result = stmt.executeQuery();
+				if(result.next())
+				{
+					state = new UserState(username, result.getBoolean("showAll"), result.getString("selection"));
+				}
+
+				result.close();
+				stmt.close();
+			}
+			finally
+			{
+				conn.close();
+			}
+		}
+		catch(ClassNotFoundException | SQLException e)
+		{
+			log.warn("Could not load user state for {}, using defaults", username, e);
+		}
+
+		return state;
+	}
+}
@@ -0,0 +1,53 @@
+package simulator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/***********************************************************************************************************************
+* Log-normal latency distribution: most samples close to the median, with a long tail of slow ones, the way PCE and
+* SOAP latencies of a real OSCARS behave. sigma = 0 makes every sample equal to the median.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class LatencyModel
+{
+	private final long medianMillis;
+	private final double sigma;
+
+	public LatencyModel(long medianMillis, double sigma)
+	{
+		this.medianMillis = Math.max(0, medianMillis);
+		this.sigma = Math.max(0, sigma);
+	}
+
+	public long getMedianMillis()
+	{
+		return medianMillis;
+	}
+
+	/**
+	 * @return One latency sample, in ms.
+	 */
+	public long sample()
+	{
+		if(medianMillis == 0 || sigma == 0)
+			return medianMillis;
+
+		return Math.round(medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+	}
+
+	/**
+	 * Blocks the calling thread for one latency sample.
+	 */
+	public void sleep() throws InterruptedException
+	{
+		long millis = sample();
+
+		if(millis > 0)
+			Thread.sleep(millis);
+	}
+
+	public String toString()
+	{
+		return medianMillis + "ms~" + sigma;
+	}
+}
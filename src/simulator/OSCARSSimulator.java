@@ -0,0 +1,599 @@
+package simulator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneHopContent;
+
+import net.es.oscars.api.soap.gen.v06.CancelResContent;
+import net.es.oscars.api.soap.gen.v06.CancelResReply;
+import net.es.oscars.api.soap.gen.v06.CreatePathContent;
+import net.es.oscars.api.soap.gen.v06.CreatePathResponseContent;
+import net.es.oscars.api.soap.gen.v06.CreateReply;
+import net.es.oscars.api.soap.gen.v06.ListReply;
+import net.es.oscars.api.soap.gen.v06.ListRequest;
+import net.es.oscars.api.soap.gen.v06.ModifyResContent;
+import net.es.oscars.api.soap.gen.v06.ModifyResReply;
+import net.es.oscars.api.soap.gen.v06.OptionalConstraintType;
+import net.es.oscars.api.soap.gen.v06.PathInfo;
+import net.es.oscars.api.soap.gen.v06.QueryResContent;
+import net.es.oscars.api.soap.gen.v06.QueryResReply;
+import net.es.oscars.api.soap.gen.v06.ResCreateContent;
+import net.es.oscars.api.soap.gen.v06.TeardownPathContent;
+import net.es.oscars.api.soap.gen.v06.TeardownPathResponseContent;
+import net.es.oscars.api.soap.gen.v06.UserRequestConstraintType;
+import net.es.oscars.client.OSCARSClientException;
+import net.es.oscars.common.soap.gen.MessagePropertiesType;
+import net.es.oscars.common.soap.gen.OSCARSFaultMessage;
+import net.es.oscars.topoBridge.soap.gen.GetTopologyRequestType;
+import net.es.oscars.topoBridge.soap.gen.GetTopologyResponseType;
+import net.es.oscars.topoBridge.soap.gen.TopoBridgePortType;
+
+import logging.Log;
+import multipath.DisjointConstraintBuilder;
+import multipath.OSCARSApi;
+import topology.TopologyGraph;
+
+/***********************************************************************************************************************
+* In-process stand-in for an OSCARS IDC and its TopoBridge, for load-testing and benchmarking the MPC without a real IDC.
+* Selected by giving the MPC a "sim://<domain>" URL instead of an http:// one (see SimulatorSettings for parameters):
+*
+* 		-Dmpc.oscarsURL=sim://es.net?pathCalcMillis=200 -Dmpc.topoBridgeURL=sim://es.net -Dmpc.pollIntervalMillis=100
+*
+* Behaves like OSCARS as far as the MPC can tell:
+* 	- Reservations go ACCEPTED -> INPATHCALCULATION -> RESERVED (or FAILED), and on request INCANCEL -> CANCELLED,
+*     INMODIFY -> RESERVED, INSETUP -> ACTIVE and INTEARDOWN -> RESERVED, each transition taking a sampled latency.
+* 	- Paths are computed on a SyntheticTopology: the user's strict path if one is given, otherwise a minimum-hop path
+*     avoiding the links of the BASIC_MULTIPATH_SERVICE constraint (except the endpoints) and links without enough
+*     residual capacity. Reserved bandwidth is held on every link of the path until the reservation is cancelled.
+* 	- Every API call takes a sampled latency, and fails at the configured fault/error rates.
+*
+* One simulator exists per domain and is shared by the OSCARS and TopoBridge URLs of that domain; the parameters of the
+* first URL seen for a domain apply. Reservations are kept in memory for the life of the JVM.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class OSCARSSimulator implements OSCARSApi, TopoBridgePortType
+{
+	private static final Log log = Log.forClass(OSCARSSimulator.class);
+
+	private static final Map<String, OSCARSSimulator> simulators = new ConcurrentHashMap<String, OSCARSSimulator>();
+
+	// Status transitions of every simulator //
+	private static final ScheduledExecutorService transitions = Executors.newScheduledThreadPool(2, r ->
+	{
+		Thread transitionThread = new Thread(r, "oscars-simulator");
+		transitionThread.setDaemon(true);
+		return transitionThread;
+	});
+
+	private final SimulatorSettings settings;
+	private final SyntheticTopology topology;
+	private final TopologyGraph graph;
+
+	private final Map<String, SimulatedReservation> reservations = new ConcurrentHashMap<String, SimulatedReservation>();
+	private final AtomicLong nextReservation = new AtomicLong(1);
+	private final long[] reservedBps;						// Bandwidth held on each graph link, guarded by this
+
+	/**
+	 * @return Is this the URL of a simulator rather than of a real OSCARS/TopoBridge?
+	 */
+	public static boolean isSimulatorURL(String url)
+	{
+		return url != null && url.startsWith(SimulatorSettings.SCHEME);
+	}
+
+	/*********************************************************************************************************************************************************
+	* @param simulatorURL, "sim://<domain>[?parameters]"
+	* @return The simulator of the URL's domain, created on first use.
+	*********************************************************************************************************************************************************/
+	public static OSCARSSimulator forURL(String simulatorURL)
+	{
+		SimulatorSettings urlSettings = new SimulatorSettings(simulatorURL);
+
+		return simulators.computeIfAbsent(urlSettings.domainID, domainID -> new OSCARSSimulator(urlSettings));
+	}
+
+	public OSCARSSimulator(SimulatorSettings settings)
+	{
+		this.settings = settings;
+		this.topology = new SyntheticTopology(settings.domainID, settings.nodes, settings.edgePorts, settings.capacityMbps);
+		this.graph = topology.getGraph();
+		this.reservedBps = new long[graph.linkCount()];
+
+		log.info("OSCARS simulator started: {} ({} links)", settings, graph.linkCount());
+	}
+
+	public SimulatorSettings getSettings()
+	{
+		return settings;
+	}
+
+	public SyntheticTopology getSyntheticTopology()
+	{
+		return topology;
+	}
+
+	/**
+	 * @return Number of reservations created so far.
+	 */
+	public int size()
+	{
+		return reservations.size();
+	}
+
+	/*******************************************************************************************************************
+	* OSCARS API
+	*******************************************************************************************************************/
+	public CreateReply createReservation(ResCreateContent createRequest) throws OSCARSFaultMessage, OSCARSClientException
+	{
+		simulateCall("createReservation");
+
+		if(createRequest.getUserRequestConstraint() == null)
+			throw new OSCARSFaultMessage("createReservation: userRequestConstraint is required");
+
+		long sequence = nextReservation.getAndIncrement();
+		String gri = settings.domainID + "-" + sequence;
+
+		SimulatedReservation reservation = new SimulatedReservation(sequence, gri, "simulator", createRequest.getDescription(), createRequest.getUserRequestConstraint(), createRequest.getOptionalConstraint());
+		reservations.put(gri, reservation);
+
+		// Before computePath() is scheduled, which may run first on another transitions thread and only proceeds from INPATHCALCULATION //
+		reservation.transition("ACCEPTED", "INPATHCALCULATION");
+		transitions.schedule(() -> computePath(reservation), settings.pathCalcLatency.sample(), TimeUnit.MILLISECONDS);
+
+		CreateReply createResponse = new CreateReply();
+		createResponse.setGlobalReservationId(gri);
+		createResponse.setStatus("ACCEPTED");
+		createResponse.setMessageProperties(messageProperties(createRequest.getMessageProperties()));
+
+		return createResponse;
+	}
+
+	public QueryResReply queryReservation(QueryResContent queryRequest) throws OSCARSFaultMessage, OSCARSClientException
+	{
+		simulateCall("queryReservation");
+
+		SimulatedReservation reservation = find(queryRequest.getGlobalReservationId());
+
+		QueryResReply queryResponse = new QueryResReply();
+		queryResponse.setReservationDetails(reservation.toDetails());
+		queryResponse.getErrorReport().addAll(reservation.getErrors());
+		queryResponse.setMessageProperties(messageProperties(queryRequest.getMessageProperties()));
+
+		return queryResponse;
+	}
+
+	public ListReply listReservations(ListRequest listRequest) throws OSCARSFaultMessage, OSCARSClientException
+	{
+		simulateCall("listReservations");
+
+		List<String> statuses = listRequest.getResStatus();
+		List<SimulatedReservation> matching = new ArrayList<SimulatedReservation>();
+
+		for(SimulatedReservation oneReservation : reservations.values())
+		{
+			if(statuses.isEmpty() || statuses.contains(oneReservation.getStatus()))
+				matching.add(oneReservation);
+		}
+
+		Collections.sort(matching, Comparator.comparingLong(SimulatedReservation::getSequence));
+
+		ListReply listResponse = new ListReply();
+
+		for(SimulatedReservation oneReservation : matching)
+			listResponse.getResDetails().add(oneReservation.toDetails());
+
+		listResponse.setTotalResults(matching.size());
+		listResponse.setMessageProperties(messageProperties(listRequest.getMessageProperties()));
+
+		return listResponse;
+	}
+
+	public CancelResReply cancelReservation(CancelResContent cancelRequest) throws OSCARSFaultMessage, OSCARSClientException
+	{
+		simulateCall("cancelReservation");
+
+		SimulatedReservation reservation = find(cancelRequest.getGlobalReservationId());
+
+		// Checked and set in one step, so a concurrent cancel or the end of path computation cannot come in between //
+		synchronized(reservation)
+		{
+			String status = reservation.getStatus();
+
+			if(status.equals("CANCELLED") || status.equals("FAILED") || status.equals("INCANCEL") || status.equals("FINISHED"))
+				throw new OSCARSFaultMessage("cancelReservation: reservation " + reservation.getGri() + " cannot be cancelled in state " + status);
+
+			reservation.setStatus("INCANCEL");
+		}
+
+		transitions.schedule(() ->
+		{
+			release(reservation);
+			reservation.transition("INCANCEL", "CANCELLED");
+		}, settings.cancelLatency.sample(), TimeUnit.MILLISECONDS);
+
+		CancelResReply cancelResponse = new CancelResReply();
+		cancelResponse.setStatus("INCANCEL");
+		cancelResponse.setMessageProperties(messageProperties(cancelRequest.getMessageProperties()));
+
+		return cancelResponse;
+	}
+
+	public ModifyResReply modifyReservation(ModifyResContent modifyRequest) throws OSCARSFaultMessage, OSCARSClientException
+	{
+		simulateCall("modifyReservation");
+
+		SimulatedReservation reservation = find(modifyRequest.getGlobalReservationId());
+		requireTransition(reservation, "RESERVED", "INMODIFY", "modifyReservation");
+
+		transitions.schedule(() -> applyModification(reservation, modifyRequest.getDescription(), modifyRequest.getUserRequestConstraint()), settings.setupLatency.sample(), TimeUnit.MILLISECONDS);
+
+		ModifyResReply modifyResponse = new ModifyResReply();
+		modifyResponse.setGlobalReservationId(reservation.getGri());
+		modifyResponse.setStatus("INMODIFY");
+		modifyResponse.setMessageProperties(messageProperties(modifyRequest.getMessageProperties()));
+
+		return modifyResponse;
+	}
+
+	public CreatePathResponseContent createPath(CreatePathContent setupRequest) throws OSCARSFaultMessage, OSCARSClientException
+	{
+		simulateCall("createPath");
+
+		SimulatedReservation reservation = find(setupRequest.getGlobalReservationId());
+		requireTransition(reservation, "RESERVED", "INSETUP", "createPath");
+
+		transitions.schedule(() -> reservation.transition("INSETUP", "ACTIVE"), settings.setupLatency.sample(), TimeUnit.MILLISECONDS);
+
+		CreatePathResponseContent setupResponse = new CreatePathResponseContent();
+		setupResponse.setGlobalReservationId(reservation.getGri());
+		setupResponse.setStatus("INSETUP");
+		setupResponse.setMessageProperties(messageProperties(setupRequest.getMessageProperties()));
+
+		return setupResponse;
+	}
+
+	public TeardownPathResponseContent teardownPath(TeardownPathContent teardownRequest) throws OSCARSFaultMessage, OSCARSClientException
+	{
+		simulateCall("teardownPath");
+
+		SimulatedReservation reservation = find(teardownRequest.getGlobalReservationId());
+		requireTransition(reservation, "ACTIVE", "INTEARDOWN", "teardownPath");
+
+		transitions.schedule(() -> reservation.transition("INTEARDOWN", "RESERVED"), settings.setupLatency.sample(), TimeUnit.MILLISECONDS);
+
+		TeardownPathResponseContent teardownResponse = new TeardownPathResponseContent();
+		teardownResponse.setGlobalReservationId(reservation.getGri());
+		teardownResponse.setStatus("INTEARDOWN");
+		teardownResponse.setMessageProperties(messageProperties(teardownRequest.getMessageProperties()));
+
+		return teardownResponse;
+	}
+
+	/*******************************************************************************************************************
+	* TopoBridge API
+	*******************************************************************************************************************/
+	public GetTopologyResponseType getTopology(GetTopologyRequestType topologyRequest) throws OSCARSFaultMessage
+	{
+		try
+		{
+			simulateCall("getTopology");
+		}
+		catch(OSCARSClientException ce)
+		{
+			throw new RuntimeException(ce.getMessage());		// TopoBridge transport failures surface as CXF runtime exceptions
+		}
+
+		if(!topologyRequest.getDomainId().contains(settings.domainID))
+			throw new OSCARSFaultMessage("getTopology: unknown domain(s) " + topologyRequest.getDomainId() + ", simulating " + settings.domainID);
+
+		GetTopologyResponseType topologyResponse = new GetTopologyResponseType();
+		topologyResponse.getTopology().add(topology.getTopology());
+		topologyResponse.setMessageProperties(messageProperties(topologyRequest.getMessageProperties()));
+
+		return topologyResponse;
+	}
+
+	/*******************************************************************************************************************
+	* Simulated PCE and resource manager
+	*******************************************************************************************************************/
+	private void computePath(SimulatedReservation reservation)
+	{
+		if(!reservation.getStatus().equals("INPATHCALCULATION"))
+			return;		// Cancelled during path computation
+
+		UserRequestConstraintType userConstraint = reservation.getUserConstraint();
+		PathInfo pathInfo = userConstraint.getPathInfo();
+		long bandwidthBps = userConstraint.getBandwidth() * 1000000L;
+
+		if(pathInfo == null || pathInfo.getLayer2Info() == null)
+		{
+			reservation.fail("PCE_ERROR", "Only layer 2 reservations are simulated", settings.domainID);
+			return;
+		}
+
+		int srcLink = graph.linkID(pathInfo.getLayer2Info().getSrcEndpoint());
+		int dstLink = graph.linkID(pathInfo.getLayer2Info().getDestEndpoint());
+
+		if(srcLink < 0 || dstLink < 0)
+		{
+			String unknownEndpoint = (srcLink < 0) ? pathInfo.getLayer2Info().getSrcEndpoint() : pathInfo.getLayer2Info().getDestEndpoint();
+			reservation.fail("PCE_ERROR", "Unknown endpoint " + unknownEndpoint, settings.domainID);
+			return;
+		}
+
+		synchronized(this)
+		{
+			if(!reservation.getStatus().equals("INPATHCALCULATION"))
+				return;
+
+			if(ThreadLocalRandom.current().nextDouble() < settings.failureRate)
+			{
+				reservation.fail("RESOURCE_ERROR", "Simulated reservation failure", settings.domainID);
+				return;
+			}
+
+			String[] hopURNs;
+			int[] links;
+
+			if(pathInfo.getPath() != null && !pathInfo.getPath().getHop().isEmpty())
+			{
+				// Strict path given by the user: reserve exactly these links //
+				List<CtrlPlaneHopContent> hops = pathInfo.getPath().getHop();
+				hopURNs = new String[hops.size()];
+				links = new int[hops.size()];
+
+				for(int h = 0; h < hops.size(); h++)
+				{
+					CtrlPlaneHopContent oneHop = hops.get(h);
+					hopURNs[h] = (oneHop.getLinkIdRef() != null) ? oneHop.getLinkIdRef() : (oneHop.getLink() == null) ? null : oneHop.getLink().getId();
+					links[h] = graph.linkID(hopURNs[h]);
+
+					if(links[h] < 0)
+					{
+						reservation.fail("PCE_ERROR", "Unknown hop " + hopURNs[h] + " in requested path", settings.domainID);
+						return;
+					}
+
+					if(residualBps(links[h]) < bandwidthBps)
+					{
+						reservation.fail("RESOURCE_ERROR", "Requested bandwidth not available on link " + hopURNs[h], settings.domainID);
+						return;
+					}
+				}
+			}
+			else
+			{
+				int[] edges = findPath(srcLink, dstLink, bandwidthBps, avoidedLinks(reservation.getOptionalConstraints(), srcLink, dstLink));
+
+				if(edges == null || residualBps(srcLink) < bandwidthBps || residualBps(dstLink) < bandwidthBps)
+				{
+					reservation.fail("PCE_ERROR", "No path with " + userConstraint.getBandwidth() + " Mbps available from " + graph.linkURN(srcLink) + " to " + graph.linkURN(dstLink), settings.domainID);
+					return;
+				}
+
+				hopURNs = graph.toHopURNs(srcLink, edges, dstLink);
+				links = new int[hopURNs.length];
+
+				for(int h = 0; h < hopURNs.length; h++)
+					links[h] = graph.linkID(hopURNs[h]);
+			}
+
+			links = distinct(links);
+
+			// Cancelled since the check above? Then the links were never taken, and the cancel has nothing to release //
+			if(!reservation.reserve(hopURNs, links))
+				return;
+
+			for(int oneLink : links)
+				reservedBps[oneLink] += bandwidthBps;
+		}
+	}
+
+	private void applyModification(SimulatedReservation reservation, String description, UserRequestConstraintType newConstraint)
+	{
+		synchronized(this)
+		{
+			if(!reservation.getStatus().equals("INMODIFY"))
+				return;
+
+			if(newConstraint != null)
+			{
+				long deltaBps = (newConstraint.getBandwidth() - reservation.getUserConstraint().getBandwidth()) * 1000000L;
+
+				for(int oneLink : reservation.getReservedLinks())
+				{
+					if(deltaBps > residualBps(oneLink))
+					{
+						log.debug("Simulated modify of {} rejected, {} Mbps not available on {}", reservation.getGri(), newConstraint.getBandwidth(), graph.linkURN(oneLink));
+						reservation.transition("INMODIFY", "RESERVED");
+						return;
+					}
+				}
+
+				for(int oneLink : reservation.getReservedLinks())
+					reservedBps[oneLink] += deltaBps;
+			}
+
+			reservation.modify(description, newConstraint);
+			reservation.transition("INMODIFY", "RESERVED");
+		}
+	}
+
+	private synchronized void release(SimulatedReservation reservation)
+	{
+		long bandwidthBps = reservation.getUserConstraint().getBandwidth() * 1000000L;
+
+		for(int oneLink : reservation.release())
+			reservedBps[oneLink] -= bandwidthBps;
+	}
+
+	/**
+	 * Minimum-hop path between the nodes of two links, over edges with enough residual capacity at both ends and not
+	 * touching an avoided link. Like TopologyGraph.shortestPath(), with per-link filtering.
+	 *
+	 * @return Edge IDs along the path, or null if there is none.
+	 */
+	private int[] findPath(int srcLink, int dstLink, long bandwidthBps, BitSet avoided)
+	{
+		int srcNode = graph.linkNode(srcLink);
+		int dstNode = graph.linkNode(dstLink);
+
+		if(srcNode == dstNode)
+			return new int[0];
+
+		int[] viaEdge = new int[graph.nodeCount()];
+		Arrays.fill(viaEdge, -1);
+		viaEdge[srcNode] = Integer.MAX_VALUE;
+
+		int[] queue = new int[graph.nodeCount()];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = srcNode;
+
+		while(head < tail)
+		{
+			int v = queue[head++];
+
+			for(int e = graph.firstEdge(v); e < graph.firstEdge(v + 1); e++)
+			{
+				int w = graph.edgeTarget(e);
+				int local = graph.edgeLink(e);
+				int remote = graph.edgeRemoteLink(e);
+
+				if(viaEdge[w] != -1 || avoided.get(local) || avoided.get(remote) || residualBps(local) < bandwidthBps || residualBps(remote) < bandwidthBps)
+					continue;
+
+				viaEdge[w] = e;
+
+				if(w == dstNode)
+				{
+					int length = 0;
+					for(int u = dstNode; u != srcNode; u = graph.edgeSource(viaEdge[u]))
+						length++;
+
+					int[] path = new int[length];
+					for(int u = dstNode; u != srcNode; u = graph.edgeSource(viaEdge[u]))
+						path[--length] = viaEdge[u];
+
+					return path;
+				}
+
+				queue[tail++] = w;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return Graph IDs of the links in the request's BASIC_MULTIPATH_SERVICE constraints. The reservation's own
+	 * endpoints are shared by every subrequest of an MP reservation and are never avoided.
+	 */
+	private BitSet avoidedLinks(List<OptionalConstraintType> constraints, int srcLink, int dstLink)
+	{
+		BitSet avoided = new BitSet(graph.linkCount());
+
+		for(OptionalConstraintType oneConstraint : constraints)
+		{
+			if(!DisjointConstraintBuilder.CATEGORY.equals(oneConstraint.getCategory()) || oneConstraint.getValue() == null || oneConstraint.getValue().getStringValue() == null)
+				continue;
+
+			for(String oneLink : oneConstraint.getValue().getStringValue().split(";"))
+			{
+				int link = graph.linkID(oneLink);
+
+				if(link >= 0)
+					avoided.set(link);
+			}
+		}
+
+		avoided.clear(srcLink);
+		avoided.clear(dstLink);
+
+		return avoided;
+	}
+
+	private long residualBps(int link)
+	{
+		long capacity = graph.linkMaximumReservableCapacity(link);
+
+		if(capacity < 0)
+			capacity = graph.linkCapacity(link);
+
+		return (capacity < 0) ? TopologyGraph.UNCONSTRAINED : capacity - reservedBps[link];
+	}
+
+	private static int[] distinct(int[] links)
+	{
+		return Arrays.stream(links).distinct().toArray();
+	}
+
+	/*******************************************************************************************************************
+	* Helpers
+	*******************************************************************************************************************/
+	/**
+	 * Takes one call latency sample and fails the call at the configured rates.
+	 */
+	private void simulateCall(String operation) throws OSCARSFaultMessage, OSCARSClientException
+	{
+		try
+		{
+			settings.callLatency.sleep();
+		}
+		catch(InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+			throw new OSCARSClientException("Interrupted during simulated " + operation);
+		}
+
+		double draw = ThreadLocalRandom.current().nextDouble();
+
+		if(draw < settings.errorRate)
+			throw new OSCARSClientException("Simulated transport failure in " + operation);
+
+		if(draw < settings.errorRate + settings.faultRate)
+			throw new OSCARSFaultMessage("Simulated fault in " + operation);
+	}
+
+	private SimulatedReservation find(String gri) throws OSCARSFaultMessage
+	{
+		SimulatedReservation reservation = (gri == null) ? null : reservations.get(gri);
+
+		if(reservation == null)
+			throw new OSCARSFaultMessage("No reservation with GRI " + gri);
+
+		return reservation;
+	}
+
+	private static void requireTransition(SimulatedReservation reservation, String expectedStatus, String newStatus, String operation) throws OSCARSFaultMessage
+	{
+		if(!reservation.transition(expectedStatus, newStatus))
+			throw new OSCARSFaultMessage(operation + ": reservation " + reservation.getGri() + " is " + reservation.getStatus() + ", not " + expectedStatus);
+	}
+
+	/**
+	 * @return Reply message properties carrying the request's transaction ID, as OSCARS echoes it.
+	 */
+	private static MessagePropertiesType messageProperties(MessagePropertiesType requestProperties)
+	{
+		MessagePropertiesType replyProperties = new MessagePropertiesType();
+
+		if(requestProperties != null)
+			replyProperties.setGlobalTransactionId(requestProperties.getGlobalTransactionId());
+
+		return replyProperties;
+	}
+}
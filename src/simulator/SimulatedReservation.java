@@ -0,0 +1,261 @@
+package simulator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneHopContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneLinkContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlanePathContent;
+
+import net.es.oscars.api.soap.gen.v06.Layer2Info;
+import net.es.oscars.api.soap.gen.v06.OptionalConstraintType;
+import net.es.oscars.api.soap.gen.v06.PathInfo;
+import net.es.oscars.api.soap.gen.v06.ResDetails;
+import net.es.oscars.api.soap.gen.v06.ReservedConstraintType;
+import net.es.oscars.api.soap.gen.v06.UserRequestConstraintType;
+import net.es.oscars.common.soap.gen.OSCARSFaultReport;
+
+/***********************************************************************************************************************
+* One reservation held by an OSCARSSimulator: the request as it was submitted, its current status, and once RESERVED
+* the path and the topology links whose capacity it holds.
+*
+* The request is copied on creation, since the MPC reuses and modifies its ResCreateContent between subrequests.
+* All state is guarded by the reservation's monitor; queries get a snapshot (toDetails(), getErrors()).
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class SimulatedReservation
+{
+	private final long sequence;
+	private final String gri;
+	private final String login;
+	private final long createTime;
+	private final List<OptionalConstraintType> optionalConstraints;
+
+	private String description;
+	private String status;
+	private UserRequestConstraintType userConstraint;
+	private ReservedConstraintType reservedConstraint;
+	private int[] reservedLinks = new int[0];			// TopologyGraph link IDs whose capacity this reservation holds
+	private final List<OSCARSFaultReport> errors = new ArrayList<OSCARSFaultReport>();
+
+	public SimulatedReservation(long sequence, String gri, String login, String description, UserRequestConstraintType userConstraint, List<OptionalConstraintType> optionalConstraints)
+	{
+		this.sequence = sequence;
+		this.gri = gri;
+		this.login = login;
+		this.createTime = System.currentTimeMillis() / 1000;
+		this.description = description;
+		this.userConstraint = copy(userConstraint);
+		this.optionalConstraints = new ArrayList<OptionalConstraintType>(optionalConstraints);
+		this.status = "ACCEPTED";
+	}
+
+	public long getSequence()
+	{
+		return sequence;
+	}
+
+	public String getGri()
+	{
+		return gri;
+	}
+
+	public List<OptionalConstraintType> getOptionalConstraints()
+	{
+		return optionalConstraints;
+	}
+
+	public synchronized String getStatus()
+	{
+		return status;
+	}
+
+	public synchronized void setStatus(String status)
+	{
+		this.status = status;
+	}
+
+	/**
+	 * Moves to newStatus only if the reservation is still in expectedStatus, so a transition scheduled before a cancel
+	 * does not undo it.
+	 *
+	 * @return Did the status change?
+	 */
+	public synchronized boolean transition(String expectedStatus, String newStatus)
+	{
+		if(!status.equals(expectedStatus))
+			return false;
+
+		status = newStatus;
+		return true;
+	}
+
+	public synchronized UserRequestConstraintType getUserConstraint()
+	{
+		return userConstraint;
+	}
+
+	public synchronized int[] getReservedLinks()
+	{
+		return reservedLinks;
+	}
+
+	/**
+	 * Records the path found for the reservation and makes it RESERVED, unless it has left INPATHCALCULATION (i.e. was
+	 * cancelled) since its path computation started.
+	 *
+	 * @return Does the reservation now hold the links?
+	 */
+	public synchronized boolean reserve(String[] hopURNs, int[] links)
+	{
+		if(!status.equals("INPATHCALCULATION"))
+			return false;
+
+		CtrlPlanePathContent path = new CtrlPlanePathContent();
+		path.setId("path-" + gri);
+
+		for(int h = 0; h < hopURNs.length; h++)
+		{
+			CtrlPlaneLinkContent link = new CtrlPlaneLinkContent();
+			link.setId(hopURNs[h]);
+
+			CtrlPlaneHopContent hop = new CtrlPlaneHopContent();
+			hop.setId("hop" + h);
+			hop.setLink(link);
+			path.getHop().add(hop);
+		}
+
+		PathInfo pathInfo = copy(userConstraint.getPathInfo());
+		pathInfo.setPathType("strict");
+		pathInfo.setPath(path);
+
+		reservedConstraint = new ReservedConstraintType();
+		reservedConstraint.setStartTime(userConstraint.getStartTime());
+		reservedConstraint.setEndTime(userConstraint.getEndTime());
+		reservedConstraint.setBandwidth(userConstraint.getBandwidth());
+		reservedConstraint.setPathInfo(pathInfo);
+
+		reservedLinks = links;
+		status = "RESERVED";
+		return true;
+	}
+
+	/**
+	 * Makes the reservation FAILED with the given error, as the OSCARS PCE/resource manager would report it, unless it
+	 * has left INPATHCALCULATION (i.e. was cancelled) since its path computation started.
+	 */
+	public synchronized void fail(String errorCode, String errorMessage, String domainID)
+	{
+		if(!status.equals("INPATHCALCULATION"))
+			return;
+
+		OSCARSFaultReport error = new OSCARSFaultReport();
+		error.setErrorCode(errorCode);
+		error.setErrorMsg(errorMessage);
+		error.setErrorType("system");
+		error.setGri(gri);
+		error.setModuleName("simulator");
+		error.setDomainId(domainID);
+		error.setTimestamp(System.currentTimeMillis() / 1000);
+		errors.add(error);
+
+		status = "FAILED";
+	}
+
+	/**
+	 * Releases the reservation's links, e.g. when it is cancelled.
+	 *
+	 * @return The links the reservation held.
+	 */
+	public synchronized int[] release()
+	{
+		int[] released = reservedLinks;
+		reservedLinks = new int[0];
+
+		return released;
+	}
+
+	/**
+	 * Applies a modifyReservation() request: new description, times and bandwidth.
+	 */
+	public synchronized void modify(String newDescription, UserRequestConstraintType newConstraint)
+	{
+		if(newDescription != null)
+			description = newDescription;
+
+		if(newConstraint == null)
+			return;
+
+		PathInfo pathInfo = userConstraint.getPathInfo();
+		userConstraint = copy(newConstraint);
+		userConstraint.setPathInfo(pathInfo);		// The path of a reservation cannot be modified
+
+		// Replaced rather than updated, so snapshots already handed out do not change //
+		if(reservedConstraint != null)
+		{
+			ReservedConstraintType modified = new ReservedConstraintType();
+			modified.setStartTime(newConstraint.getStartTime());
+			modified.setEndTime(newConstraint.getEndTime());
+			modified.setBandwidth(newConstraint.getBandwidth());
+			modified.setPathInfo(reservedConstraint.getPathInfo());
+			reservedConstraint = modified;
+		}
+	}
+
+	/**
+	 * @return A copy of the reservation as queryReservation()/listReservations() return it.
+	 */
+	public synchronized ResDetails toDetails()
+	{
+		ResDetails details = new ResDetails();
+		details.setGlobalReservationId(gri);
+		details.setLogin(login);
+		details.setDescription(description);
+		details.setCreateTime(createTime);
+		details.setStatus(status);
+		details.setUserRequestConstraint(userConstraint);
+		details.setReservedConstraint(reservedConstraint);
+		details.getOptionalConstraint().addAll(optionalConstraints);
+
+		return details;
+	}
+
+	public synchronized List<OSCARSFaultReport> getErrors()
+	{
+		return new ArrayList<OSCARSFaultReport>(errors);
+	}
+
+	private static UserRequestConstraintType copy(UserRequestConstraintType original)
+	{
+		UserRequestConstraintType copy = new UserRequestConstraintType();
+		copy.setStartTime(original.getStartTime());
+		copy.setEndTime(original.getEndTime());
+		copy.setBandwidth(original.getBandwidth());
+		copy.setPathInfo((original.getPathInfo() == null) ? null : copy(original.getPathInfo()));
+
+		return copy;
+	}
+
+	private static PathInfo copy(PathInfo original)
+	{
+		PathInfo copy = new PathInfo();
+		copy.setPathSetupMode(original.getPathSetupMode());
+		copy.setPathType(original.getPathType());
+		copy.setPath(original.getPath());
+		copy.setLayer3Info(original.getLayer3Info());
+		copy.setMplsInfo(original.getMplsInfo());
+
+		if(original.getLayer2Info() != null)
+		{
+			Layer2Info layer2Info = new Layer2Info();
+			layer2Info.setSrcEndpoint(original.getLayer2Info().getSrcEndpoint());
+			layer2Info.setDestEndpoint(original.getLayer2Info().getDestEndpoint());
+			layer2Info.setSrcVtag(original.getLayer2Info().getSrcVtag());
+			layer2Info.setDestVtag(original.getLayer2Info().getDestVtag());
+			copy.setLayer2Info(layer2Info);
+		}
+
+		return copy;
+	}
+}
@@ -0,0 +1,140 @@
+package simulator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import config.Configuration;
+
+/***********************************************************************************************************************
+* Parameters of one OSCARSSimulator, parsed from its URL:
+*
+* 		sim://<domain>[?<name>=<value>&...]
+*
+* e.g. "sim://es.net?nodes=400&pathCalcMillis=200&failureRate=0.05". Every parameter not in the URL takes its default
+* from Configuration.simulator*:
+* 	- nodes, edgePorts, capacityMbps:						Shape of the synthetic topology.
+* 	- callMillis, pathCalcMillis, setupMillis, cancelMillis: 	Median latencies (ms) of API calls and status transitions.
+* 	- jitter:												Spread (sigma) of the log-normal latency distributions.
+* 	- failureRate, faultRate, errorRate:					Fractions of reservations FAILED, calls answered with a fault,
+* 															and calls failing in the transport.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class SimulatorSettings
+{
+	public static final String SCHEME = "sim://";
+
+	public final String domainID;
+	public final int nodes;
+	public final int edgePorts;
+	public final int capacityMbps;
+	public final LatencyModel callLatency;
+	public final LatencyModel pathCalcLatency;
+	public final LatencyModel setupLatency;
+	public final LatencyModel cancelLatency;
+	public final double failureRate;
+	public final double faultRate;
+	public final double errorRate;
+
+	/*********************************************************************************************************************************************************
+	* @param simulatorURL, "sim://" URL as described above.
+	* @throws IllegalArgumentException if the URL is not a simulator URL or a parameter is malformed.
+	*********************************************************************************************************************************************************/
+	public SimulatorSettings(String simulatorURL)
+	{
+		if(simulatorURL == null || !simulatorURL.startsWith(SCHEME))
+			throw new IllegalArgumentException("Not a simulator URL: " + simulatorURL);
+
+		String rest = simulatorURL.substring(SCHEME.length());
+		int querySeparator = rest.indexOf('?');
+		String host = (querySeparator < 0) ? rest : rest.substring(0, querySeparator);
+
+		if(host.endsWith("/"))
+			host = host.substring(0, host.length() - 1);
+
+		Map<String, String> parameters = new HashMap<String, String>();
+
+		if(querySeparator >= 0)
+		{
+			for(String oneParameter : rest.substring(querySeparator + 1).split("&"))
+			{
+				int equals = oneParameter.indexOf('=');
+
+				if(equals > 0)
+					parameters.put(oneParameter.substring(0, equals), oneParameter.substring(equals + 1));
+			}
+		}
+
+		double jitter = doubleParameter(parameters, "jitter", Configuration.simulatorCallJitter);
+
+		domainID = host.isEmpty() ? Configuration.topologyDomain : host;
+		nodes = Math.max(2, intParameter(parameters, "nodes", Configuration.simulatorNodes));
+		edgePorts = Math.max(1, intParameter(parameters, "edgePorts", Configuration.simulatorEdgePortsPerNode));
+		capacityMbps = intParameter(parameters, "capacityMbps", Configuration.simulatorLinkCapacityMbps);
+		callLatency = new LatencyModel(longParameter(parameters, "callMillis", Configuration.simulatorCallMillis), jitter);
+		pathCalcLatency = new LatencyModel(longParameter(parameters, "pathCalcMillis", Configuration.simulatorPathCalcMillis), jitter);
+		setupLatency = new LatencyModel(longParameter(parameters, "setupMillis", Configuration.simulatorSetupMillis), jitter);
+		cancelLatency = new LatencyModel(longParameter(parameters, "cancelMillis", Configuration.simulatorCancelMillis), jitter);
+		failureRate = doubleParameter(parameters, "failureRate", Configuration.simulatorFailureRate);
+		faultRate = doubleParameter(parameters, "faultRate", Configuration.simulatorFaultRate);
+		errorRate = doubleParameter(parameters, "errorRate", Configuration.simulatorErrorRate);
+	}
+
+	/**
+	 * @return The longest a reservation can be expected to take to reach a final state after any one call, for callers
+	 * that wait instead of polling (e.g. the test harnesses).
+	 */
+	public long settleMillis()
+	{
+		return 2 * (callLatency.getMedianMillis() + pathCalcLatency.getMedianMillis() + setupLatency.getMedianMillis() + cancelLatency.getMedianMillis());
+	}
+
+	public String toString()
+	{
+		return "domain=" + domainID + " nodes=" + nodes + " edgePorts=" + edgePorts + " capacityMbps=" + capacityMbps
+				+ " call=" + callLatency + " pathCalc=" + pathCalcLatency + " setup=" + setupLatency + " cancel=" + cancelLatency
+				+ " failureRate=" + failureRate + " faultRate=" + faultRate + " errorRate=" + errorRate;
+	}
+
+	private static int intParameter(Map<String, String> parameters, String name, int defaultValue)
+	{
+		String value = parameters.get(name);
+
+		try
+		{
+			return (value == null) ? defaultValue : Integer.parseInt(value);
+		}
+		catch(NumberFormatException nfe)
+		{
+			throw new IllegalArgumentException("Simulator parameter " + name + " is not an integer: " + value);
+		}
+	}
+
+	private static long longParameter(Map<String, String> parameters, String name, long defaultValue)
+	{
+		String value = parameters.get(name);
+
+		try
+		{
+			return (value == null) ? defaultValue : Long.parseLong(value);
+		}
+		catch(NumberFormatException nfe)
+		{
+			throw new IllegalArgumentException("Simulator parameter " + name + " is not an integer: " + value);
+		}
+	}
+
+	private static double doubleParameter(Map<String, String> parameters, String name, double defaultValue)
+	{
+		String value = parameters.get(name);
+
+		try
+		{
+			return (value == null) ? defaultValue : Double.parseDouble(value);
+		}
+		catch(NumberFormatException nfe)
+		{
+			throw new IllegalArgumentException("Simulator parameter " + name + " is not a number: " + value);
+		}
+	}
+}
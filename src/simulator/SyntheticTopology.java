@@ -0,0 +1,117 @@
+package simulator;
+
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneDomainContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneLinkContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneNodeContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlanePortContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneTopologyContent;
+
+import topology.TopologyGraph;
+import topology.TopologyIndex;
+import topology.TopologyLoader;
+
+/***********************************************************************************************************************
+* The topology an OSCARSSimulator serves and reserves paths on, shaped so the URNs used against the real ESnet IDC work
+* unchanged (e.g. "urn:ogf:network:domain=es.net:node=ALBU:port=port-1:link=link1", anycast "DENV-4"):
+* 	- Nodes are named after ESnet hubs (ALBU, ATLA, ... WASH), then N22, N23, ... once those run out.
+* 	- Every node has edgePorts customer-facing ports port-1..port-N, each with a single link "link1" and no remote end.
+* 	- Nodes are connected in a ring, plus chords of a quarter of the ring once there are 8 or more nodes, so there are
+*     2 to 4 disjoint paths between most pairs of nodes. The port towards node X is "to-X".
+* 	- Every port can reserve capacityMbps.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class SyntheticTopology
+{
+	private static final String[] hubNames = {"ALBU", "ATLA", "BOIS", "BOST", "CHIC", "CLEV", "DENV", "ELPA", "HOUS", "KANS", "LASV",
+		"LOSA", "NASH", "NEWY", "PNWG", "SACR", "SALT", "SDSC", "SEAT", "SUNN", "WASH"};
+
+	private final String domainID;
+	private final CtrlPlaneTopologyContent topology;
+	private final TopologyGraph graph;
+
+	public SyntheticTopology(String domainID, int numNodes, int edgePorts, int capacityMbps)
+	{
+		this.domainID = domainID;
+
+		CtrlPlaneDomainContent domain = new CtrlPlaneDomainContent();
+		domain.setId("urn:ogf:network:domain=" + domainID);
+
+		String capacity = Long.toString(capacityMbps * 1000000L);
+		int chord = (numNodes >= 8) ? numNodes / 4 : 0;
+
+		for(int n = 0; n < numNodes; n++)
+		{
+			CtrlPlaneNodeContent node = new CtrlPlaneNodeContent();
+			node.setId(domain.getId() + ":node=" + nodeName(n));
+
+			for(int p = 1; p <= edgePorts; p++)
+				node.getPort().add(port(node.getId() + ":port=port-" + p, null, capacity));
+
+			// Ring neighbours, then chord neighbours //
+			int[] neighbours = (chord > 0) ? new int[] {n - 1, n + 1, n - chord, n + chord} : new int[] {n - 1, n + 1};
+
+			for(int oneNeighbour : neighbours)
+			{
+				int neighbour = (oneNeighbour + numNodes) % numNodes;
+
+				if(neighbour == n || (numNodes == 2 && oneNeighbour > n))		// Two nodes are only connected once
+					continue;
+
+				String remoteLink = domain.getId() + ":node=" + nodeName(neighbour) + ":port=to-" + nodeName(n) + ":link=link1";
+				node.getPort().add(port(node.getId() + ":port=to-" + nodeName(neighbour), remoteLink, capacity));
+			}
+
+			domain.getNode().add(node);
+		}
+
+		topology = new CtrlPlaneTopologyContent();
+		topology.setId(domainID);
+		topology.getDomain().add(domain);
+
+		TopologyIndex index = new TopologyIndex();
+		TopologyLoader.addTopology(index, topology);
+		graph = new TopologyGraph(index);
+	}
+
+	public String getDomainID()
+	{
+		return domainID;
+	}
+
+	/**
+	 * @return The topology as TopoBridge would return it.
+	 */
+	public CtrlPlaneTopologyContent getTopology()
+	{
+		return topology;
+	}
+
+	public TopologyGraph getGraph()
+	{
+		return graph;
+	}
+
+	private static CtrlPlanePortContent port(String portURN, String remoteLinkURN, String capacity)
+	{
+		CtrlPlanePortContent port = new CtrlPlanePortContent();
+		port.setId(portURN);
+		port.setCapacity(capacity);
+		port.setMaximumReservableCapacity(capacity);
+		port.setMinimumReservableCapacity("1000000");
+		port.setGranularity("1000000");
+
+		CtrlPlaneLinkContent link = new CtrlPlaneLinkContent();
+		link.setId(portURN + ":link=link1");
+		link.setRemoteLinkId(remoteLinkURN);
+
+		port.getLink().add(link);
+
+		return port;
+	}
+
+	private static String nodeName(int node)
+	{
+		return (node < hubNames.length) ? hubNames[node] : "N" + (node + 1);
+	}
+}
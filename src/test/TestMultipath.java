@@ -5,6 +5,8 @@ import java.util.List;
 
 import org.apache.log4j.PropertyConfigurator;
 
+import logging.Log;
+
 import net.es.oscars.api.soap.gen.v06.ResDetails;
 
 import multipath.AnycastHandler;
@@ -12,6 +14,8 @@ import multipath.MultipathOSCARSClient;
 import multipath.SubrequestTuple;
 
 import config.Configuration;
+import simulator.OSCARSSimulator;
+import simulator.SimulatorSettings;
 
 /*********************************************************************************************************
 * This class serves to give examples of how a a user-written program would interact with the 
@@ -24,9 +28,13 @@ import config.Configuration;
 @SuppressWarnings("unused")		// Suppresses unused library warnings when various code-portions are commented
 public class TestMultipath 
 {
+	// Time given to OSCARS between steps: 10s for a real IDC, just enough for a simulated one (sim:// URL) //
+	private static final long stepWaitMillis = OSCARSSimulator.isSimulatorURL(Configuration.oscarsURL) ? new SimulatorSettings(Configuration.oscarsURL).settleMillis() : 10000;
+	
 	public static void main(String[] args) throws InterruptedException
 	{     
 		PropertyConfigurator.configure("lib/log4j.properties");	// Eliminate Logger warnings.
+		Log.configureConsole();									// Print MPC status messages as they used to be
 	try{
 			
 		String oscarsURL = Configuration.oscarsURL;
@@ -101,7 +109,7 @@ public class TestMultipath
 		System.out.println("==============\n");
 		
 		System.out.println("Querying modified request");
-		Thread.sleep(10000);
+		Thread.sleep(stepWaitMillis);
 		multipathClient.queryMPReservation(gri_mod_mp_2);
 		System.out.println("Query done!");
 		System.out.println("==============\n");
@@ -114,7 +122,7 @@ public class TestMultipath
 		System.out.println("==============\n");
 		
 		System.out.println("Querying preliminary request");		
-		Thread.sleep(10000);
+		Thread.sleep(stepWaitMillis);
 		multipathClient.queryMPReservation(gri_xml_mp_2);
 		System.out.println("Query done!");
 		System.out.println("==============\n");
@@ -125,7 +133,7 @@ public class TestMultipath
 		System.out.println("==============\n");
 		
 		System.out.println("Querying reservation"); 		
-		Thread.sleep(10000);
+		Thread.sleep(stepWaitMillis);
 		multipathClient.queryMPReservation(gri_xml_mp_2);
 		System.out.println("Query done!");
 		System.out.println("==============\n");
@@ -136,7 +144,7 @@ public class TestMultipath
 		System.out.println("==============");
 		
 		System.out.println("Querying reservation"); 		
-		Thread.sleep(10000);
+		Thread.sleep(stepWaitMillis);
 		multipathClient.queryMPReservation(gri_xml_mp_2);	
 		System.out.println("Query done!");
 		System.out.println("==============\n");
@@ -148,7 +156,7 @@ public class TestMultipath
 		System.out.println("Creation done!");
 		System.out.println("==============\n");
 		
-		Thread.sleep(10000);
+		Thread.sleep(stepWaitMillis);
 		System.out.println("Disjoint-Cloning " + gri_uni_grp1);
 		ArrayList<String> groupMembers = new ArrayList<String>();
 		groupMembers.add(gri_uni_grp1);
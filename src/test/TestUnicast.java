@@ -5,11 +5,15 @@ import java.util.List;
 
 import org.apache.log4j.PropertyConfigurator;
 
+import logging.Log;
+
 import net.es.oscars.api.soap.gen.v06.ResDetails;
 
 import multipath.MultipathOSCARSClient;
 
 import config.Configuration;
+import simulator.OSCARSSimulator;
+import simulator.SimulatorSettings;
 
 /*********************************************************************************************************
 * This class serves to give examples of how a a user-written program would interact with the 
@@ -21,9 +25,13 @@ import config.Configuration;
 *********************************************************************************************************/
 public class TestUnicast 
 {
+	// Time given to OSCARS between steps: 10s for a real IDC, just enough for a simulated one (sim:// URL) //
+	private static final long stepWaitMillis = OSCARSSimulator.isSimulatorURL(Configuration.oscarsURL) ? new SimulatorSettings(Configuration.oscarsURL).settleMillis() : 10000;
+	
 	public static void main(String[] args)
 	{		
 		PropertyConfigurator.configure("lib/log4j.properties");	// Eliminate Logger warnings.
+		Log.configureConsole();									// Print MPC status messages as they used to be
 		
 	try{
 			
@@ -44,7 +52,7 @@ public class TestUnicast
 		        
 		// TEST queryMPReservation() //
 		System.out.println("Querying Reservation");
-		Thread.sleep(10000);	// Give the reservation time to be processed
+		Thread.sleep(stepWaitMillis);	// Give the reservation time to be processed
 		multipathClient.queryMPReservation(gri);
 		System.out.println("Query finished!");
 		System.out.println("==============\n");
@@ -64,7 +72,7 @@ public class TestUnicast
 		System.out.println("==============\n");
 		
 		System.out.println("Querying preliminary request");
-		Thread.sleep(10000);
+		Thread.sleep(stepWaitMillis);
 		multipathClient.queryMPReservation(gri2);
 		System.out.println("Query done!");
 		System.out.println("==============\n");
@@ -75,7 +83,7 @@ public class TestUnicast
 		System.out.println("==============\n");
 		
 		System.out.println("Querying modified request");
-		Thread.sleep(10000);
+		Thread.sleep(stepWaitMillis);
 		multipathClient.queryMPReservation(gri2);
 		System.out.println("Query done!");
 		System.out.println("==============\n");
@@ -88,7 +96,7 @@ public class TestUnicast
 		System.out.println("==============\n");
 		
 		System.out.println("Querying preliminary request");
-		Thread.sleep(10000);
+		Thread.sleep(stepWaitMillis);
 		multipathClient.queryMPReservation(gri3);			// RESERVED
 		System.out.println("Query done!");
 		System.out.println("==============\n");
@@ -99,7 +107,7 @@ public class TestUnicast
 		System.out.println("==============\n");
 		
 		System.out.println("Querying reservation"); 		
-		Thread.sleep(10000);
+		Thread.sleep(stepWaitMillis);
 		multipathClient.queryMPReservation(gri3);			// ACTIVE
 		System.out.println("Query done!");
 		System.out.println("==============\n");
@@ -110,7 +118,7 @@ public class TestUnicast
 		System.out.println("==============");
 		
 		System.out.println("Querying reservation"); 		
-		Thread.sleep(10000);
+		Thread.sleep(stepWaitMillis);
 		multipathClient.queryMPReservation(gri3);			// RESERVED
 		System.out.println("Query done!");
 		System.out.println("==============\n");
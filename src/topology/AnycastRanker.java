@@ -0,0 +1,162 @@
+package topology;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/***********************************************************************************************************************
+* Ranks the destinations of an anycast request from the cached topology alone, without reserving anything in OSCARS.
+*
+* Each destination is scored by:
+* 	(1) Number of link-disjoint paths (up to the number requested) whose links can all carry the requested bandwidth
+* 	(2) Total hop count of those paths, counted the way OSCARS reports reserved paths (both ends of every link)
+* 	(3) Bottleneck: the smallest bandwidth left over on any link of those paths after the reservation
+* Destinations earlier in the anycast set win ties, as they did when every destination was probed in OSCARS.
+*
+* The ranking is an estimate: OSCARS also knows about existing reservations, so AnycastHandler may still probe the
+* top-ranked destinations before committing to one.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class AnycastRanker
+{
+	/*********************************************************************************************************************************************************
+	* Score of one anycast destination.
+	*********************************************************************************************************************************************************/
+	public static class Ranking implements Comparable<Ranking>
+	{
+		private final int position;
+		private final String destURN;
+		private final boolean known;	// Are both endpoints in the topology graph?
+		private int numPaths = 0;
+		private int hopTotal = 0;
+		private long bottleneck = -1;	// bps left on the tightest link, TopologyGraph.UNCONSTRAINED if no link reports a capacity
+
+		Ranking(int position, String destURN, boolean known)
+		{
+			this.position = position;
+			this.destURN = destURN;
+			this.known = known;
+		}
+
+		public int getPosition()
+		{
+			return position;
+		}
+
+		public String getDestURN()
+		{
+			return destURN;
+		}
+
+		public boolean isKnown()
+		{
+			return known;
+		}
+
+		public int getNumPaths()
+		{
+			return numPaths;
+		}
+
+		public int getHopTotal()
+		{
+			return hopTotal;
+		}
+
+		public long getBottleneck()
+		{
+			return bottleneck;
+		}
+
+		/**
+		 * Better rankings sort first. Destinations missing from the topology sort after all known ones.
+		 */
+		public int compareTo(Ranking other)
+		{
+			if(known != other.known)
+				return known ? -1 : 1;
+			if(numPaths != other.numPaths)
+				return (numPaths > other.numPaths) ? -1 : 1;
+			if(hopTotal != other.hopTotal)
+				return (hopTotal < other.hopTotal) ? -1 : 1;
+			if(bottleneck != other.bottleneck)
+				return (bottleneck > other.bottleneck) ? -1 : 1;
+
+			return Integer.compare(position, other.position);
+		}
+
+		/**
+		 * @return Does this destination score strictly better than other on paths, hops or bottleneck (i.e. not just by position)?
+		 */
+		public boolean isStrictlyBetterThan(Ranking other)
+		{
+			return other == null || (known && other.known && (numPaths != other.numPaths || hopTotal != other.hopTotal || bottleneck != other.bottleneck) && compareTo(other) < 0);
+		}
+	}
+
+	private AnycastRanker()
+	{
+	}
+
+	/*********************************************************************************************************************************************************
+	* Scores every destination and returns them best first.
+	*
+	* @param graph
+	* @param srcURN, Source link URN
+	* @param destURNs, Unicast destination link URNs, in anycast set order
+	* @param numDisjointPaths
+	* @param bandwidth, In Mbps
+	* @return One Ranking per destination, best first
+	*********************************************************************************************************************************************************/
+	public static List<Ranking> rank(TopologyGraph graph, String srcURN, List<String> destURNs, int numDisjointPaths, int bandwidth)
+	{
+		List<Ranking> rankings = new ArrayList<Ranking>(destURNs.size());
+		int srcLink = graph.linkID(srcURN);
+
+		for(int position = 0; position < destURNs.size(); position++)
+		{
+			int dstLink = graph.linkID(destURNs.get(position));
+			Ranking oneRanking = new Ranking(position, destURNs.get(position), srcLink >= 0 && dstLink >= 0);
+
+			if(oneRanking.known)
+				score(graph, oneRanking, srcLink, dstLink, numDisjointPaths, bandwidth);
+
+			rankings.add(oneRanking);
+		}
+
+		Collections.sort(rankings);
+
+		return rankings;
+	}
+
+	private static void score(TopologyGraph graph, Ranking ranking, int srcLink, int dstLink, int numDisjointPaths, int bandwidth)
+	{
+		// Source and destination on the same node: a single path through the node, nothing to be disjoint from //
+		if(graph.linkNode(srcLink) == graph.linkNode(dstLink))
+		{
+			ranking.numPaths = 1;
+			ranking.hopTotal = 2;
+			ranking.bottleneck = TopologyGraph.UNCONSTRAINED;
+			return;
+		}
+
+		int[][] paths = DisjointPathSolver.solve(graph, graph.linkNode(srcLink), graph.linkNode(dstLink), numDisjointPaths, bandwidth);
+		long requested = bandwidth * 1000000L;
+		long bottleneck = TopologyGraph.UNCONSTRAINED;
+
+		for(int[] onePath : paths)
+		{
+			ranking.hopTotal += onePath.length * 2 + 2;
+
+			for(int e : onePath)
+			{
+				if(graph.edgeBandwidth(e) != TopologyGraph.UNCONSTRAINED)
+					bottleneck = Math.min(bottleneck, graph.edgeBandwidth(e) - requested);
+			}
+		}
+
+		ranking.numPaths = paths.length;
+		ranking.bottleneck = (paths.length > 0) ? bottleneck : -1;
+	}
+}
@@ -0,0 +1,189 @@
+package topology;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/***********************************************************************************************************************
+* Computes up to k link-disjoint paths between two nodes of a TopologyGraph with the minimum total hop count
+* (Suurballe/Bhandari, solved as successive shortest paths in the residual graph of a unit-capacity flow).
+*
+* - Every edge costs one hop and can carry one path. Edges that cannot carry the requested bandwidth are left out.
+* - The two directions of a physical link are treated as one link: once a path uses a link in one direction, no other
+*   path may use it in the other direction. A later path may still "undo" an earlier path's use of a link (the negative-cost
+*   residual step of Bhandari's algorithm), which is what lets the set as a whole beat greedy one-path-at-a-time routing.
+* - Finding all k paths costs k Bellman-Ford passes over the graph, which for an OSCARS topology is well under a millisecond.
+*
+* The result is only a hint for OSCARS: the PCE still has the final say on every path.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class DisjointPathSolver
+{
+	private static final int UNREACHED = Integer.MAX_VALUE;
+
+	private DisjointPathSolver()
+	{
+	}
+
+	/*********************************************************************************************************************************************************
+	* Finds up to k link-disjoint paths from srcNode to dstNode.
+	*
+	* @param graph
+	* @param srcNode
+	* @param dstNode
+	* @param k, Number of disjoint paths wanted.
+	* @param bandwidth, In Mbps, 0 to ignore capacities.
+	* @return Edge paths, shortest first. Fewer than k paths are returned if the topology does not have k disjoint paths
+	*   (none if the nodes are not connected or are the same node).
+	*********************************************************************************************************************************************************/
+	public static int[][] solve(TopologyGraph graph, int srcNode, int dstNode, int k, int bandwidth)
+	{
+		if(srcNode == dstNode || k <= 0)
+			return new int[0][];
+
+		int numNodes = graph.nodeCount();
+		int numEdges = graph.edgeCount();
+
+		// Incoming edges of each node in CSR form, for the backward residual steps //
+		int[] inOffsets = new int[numNodes + 1];
+		int[] inEdges = new int[numEdges];
+
+		for(int e = 0; e < numEdges; e++)
+			inOffsets[graph.edgeTarget(e) + 1]++;
+		for(int v = 0; v < numNodes; v++)
+			inOffsets[v + 1] += inOffsets[v];
+
+		int[] fill = Arrays.copyOf(inOffsets, numNodes);
+		for(int e = 0; e < numEdges; e++)
+			inEdges[fill[graph.edgeTarget(e)]++] = e;
+
+		boolean[] usable = new boolean[numEdges];
+		for(int e = 0; e < numEdges; e++)
+			usable[e] = graph.canCarry(e, bandwidth);
+
+		boolean[] flow = new boolean[numEdges];
+		int[] dist = new int[numNodes];
+		int[] via = new int[numNodes];			// e >= 0: reached over edge e forwards, -(e+1): reached by undoing edge e
+		boolean[] queued = new boolean[numNodes];
+		int[] queue = new int[numNodes + 1];	// Circular, each node is queued at most once at a time
+
+		int found = 0;
+
+		while(found < k)
+		{
+			// Shortest path in the residual graph (SPFA, costs are +1 forwards and -1 backwards) //
+			Arrays.fill(dist, UNREACHED);
+			dist[srcNode] = 0;
+
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = srcNode;
+			queued[srcNode] = true;
+
+			while(head != tail)
+			{
+				int v = queue[head];
+				head = (head + 1) % queue.length;
+				queued[v] = false;
+
+				for(int e = graph.firstEdge(v); e < graph.firstEdge(v + 1); e++)
+				{
+					int twin = graph.edgeTwin(e);
+
+					if(!usable[e] || flow[e] || (twin >= 0 && flow[twin]))
+						continue;
+
+					tail = relax(v, graph.edgeTarget(e), dist[v] + 1, e, dist, via, queued, queue, tail);
+				}
+
+				for(int i = inOffsets[v]; i < inOffsets[v + 1]; i++)
+				{
+					int e = inEdges[i];
+
+					if(flow[e])
+						tail = relax(v, graph.edgeSource(e), dist[v] - 1, -(e + 1), dist, via, queued, queue, tail);
+				}
+			}
+
+			if(dist[dstNode] == UNREACHED)
+				break;
+
+			// Push one more path along it //
+			for(int v = dstNode; v != srcNode; )
+			{
+				if(via[v] >= 0)
+				{
+					flow[via[v]] = true;
+					v = graph.edgeSource(via[v]);
+				}
+				else
+				{
+					int e = -via[v] - 1;
+					flow[e] = false;
+					v = graph.edgeTarget(e);
+				}
+			}
+
+			found++;
+		}
+
+		return decompose(graph, flow, srcNode, dstNode, found);
+	}
+
+	private static int relax(int from, int to, int newDist, int step, int[] dist, int[] via, boolean[] queued, int[] queue, int tail)
+	{
+		if(newDist >= dist[to])
+			return tail;
+
+		dist[to] = newDist;
+		via[to] = step;
+
+		if(!queued[to])
+		{
+			queued[to] = true;
+			queue[tail] = to;
+			tail = (tail + 1) % queue.length;
+		}
+
+		return tail;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Splits the final flow into individual paths by following flow-carrying edges from the source.
+	*********************************************************************************************************************************************************/
+	private static int[][] decompose(TopologyGraph graph, boolean[] flow, int srcNode, int dstNode, int numPaths)
+	{
+		int[][] paths = new int[numPaths][];
+		int[] buffer = new int[graph.edgeCount()];
+
+		for(int p = 0; p < numPaths; p++)
+		{
+			int length = 0;
+			int v = srcNode;
+
+			while(v != dstNode)
+			{
+				int next = -1;
+
+				for(int e = graph.firstEdge(v); e < graph.firstEdge(v + 1); e++)
+				{
+					if(flow[e])
+					{
+						next = e;
+						break;
+					}
+				}
+
+				flow[next] = false;
+				buffer[length++] = next;
+				v = graph.edgeTarget(next);
+			}
+
+			paths[p] = Arrays.copyOf(buffer, length);
+		}
+
+		Arrays.sort(paths, Comparator.comparingInt(path -> path.length));
+
+		return paths;
+	}
+}
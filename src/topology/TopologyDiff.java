@@ -0,0 +1,121 @@
+package topology;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/***********************************************************************************************************************
+* Structural difference between two topology snapshots.
+*
+* - Links are matched by URN. A link present only in the new snapshot is added, one present only in the old snapshot
+*   is removed, and one present in both whose capacities or remote link changed is reported as changed.
+* - Ports are reported when they appear or disappear entirely, i.e. their first link was added or their last link removed.
+*
+* Computing the diff walks each snapshot once and only does hash lookups into the other, so it costs O(links).
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class TopologyDiff
+{
+	private final List<TopologyLink> addedLinks = new ArrayList<TopologyLink>();
+	private final List<TopologyLink> removedLinks = new ArrayList<TopologyLink>();
+	private final List<TopologyLink> changedLinks = new ArrayList<TopologyLink>();		// The new version of each changed link
+	private final Set<String> addedPorts = new LinkedHashSet<String>();				// 'domain : node : port'
+	private final Set<String> removedPorts = new LinkedHashSet<String>();			// 'domain : node : port'
+
+	/*********************************************************************************************************************************************************
+	* Computes the diff that turns oldIndex into newIndex.
+	*
+	* @param oldIndex, Previous snapshot (may be null, in which case every link in newIndex is added).
+	* @param newIndex, Current snapshot.
+	* @return The structural diff between the two snapshots.
+	*********************************************************************************************************************************************************/
+	public static TopologyDiff compute(TopologyIndex oldIndex, TopologyIndex newIndex)
+	{
+		TopologyDiff diff = new TopologyDiff();
+
+		if(oldIndex == null)
+			oldIndex = new TopologyIndex();
+
+		for(TopologyLink newLink : newIndex.getAllLinks())
+		{
+			TopologyLink oldLink = oldIndex.getLink(newLink.getLinkURN());
+
+			if(oldLink == null)
+			{
+				diff.addedLinks.add(newLink);
+
+				if(oldIndex.getLinks(newLink.getDomainID(), newLink.getNodeID(), newLink.getPortID()).isEmpty())
+					diff.addedPorts.add(portName(newLink));
+			}
+			else if(!sameAttributes(oldLink, newLink))
+			{
+				diff.changedLinks.add(newLink);
+			}
+		}
+
+		for(TopologyLink oldLink : oldIndex.getAllLinks())
+		{
+			if(newIndex.getLink(oldLink.getLinkURN()) == null)
+			{
+				diff.removedLinks.add(oldLink);
+
+				if(newIndex.getLinks(oldLink.getDomainID(), oldLink.getNodeID(), oldLink.getPortID()).isEmpty())
+					diff.removedPorts.add(portName(oldLink));
+			}
+		}
+
+		return diff;
+	}
+
+	public boolean isEmpty()
+	{
+		return addedLinks.isEmpty() && removedLinks.isEmpty() && changedLinks.isEmpty();
+	}
+
+	public List<TopologyLink> getAddedLinks()
+	{
+		return Collections.unmodifiableList(addedLinks);
+	}
+
+	public List<TopologyLink> getRemovedLinks()
+	{
+		return Collections.unmodifiableList(removedLinks);
+	}
+
+	public List<TopologyLink> getChangedLinks()
+	{
+		return Collections.unmodifiableList(changedLinks);
+	}
+
+	public Set<String> getAddedPorts()
+	{
+		return Collections.unmodifiableSet(addedPorts);
+	}
+
+	public Set<String> getRemovedPorts()
+	{
+		return Collections.unmodifiableSet(removedPorts);
+	}
+
+	private static boolean sameAttributes(TopologyLink oldLink, TopologyLink newLink)
+	{
+		if(oldLink.getCapacity() != newLink.getCapacity() || oldLink.getMaximumReservableCapacity() != newLink.getMaximumReservableCapacity()
+				|| oldLink.getMinimumReservableCapacity() != newLink.getMinimumReservableCapacity() || oldLink.getGranularity() != newLink.getGranularity())
+		{
+			return false;
+		}
+
+		if(oldLink.getRemoteLinkURN() == null)
+			return newLink.getRemoteLinkURN() == null;
+
+		return oldLink.getRemoteLinkURN().equals(newLink.getRemoteLinkURN());
+	}
+
+	private static String portName(TopologyLink link)
+	{
+		return link.getDomainID() + " : " + link.getNodeID() + " : " + link.getPortID();
+	}
+}
@@ -0,0 +1,369 @@
+package topology;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/***********************************************************************************************************************
+* Compact, read-only graph of the OSCARS topology in compressed-sparse-row (CSR) form.
+*
+* - Vertices are topology nodes ('domain:node'), numbered 0..nodeCount()-1.
+* - Every link URN in the topology gets an int link ID, 0..linkCount()-1, with its capacities kept in parallel long[] arrays.
+* - A directed edge exists for every link whose remote link is also in the topology. Edge e runs from the node owning
+*   link edgeLink(e) to the node owning its remote link edgeRemoteLink(e).
+* - The outgoing edges of node v are edgeOffsets[v] .. edgeOffsets[v+1]-1, so walking a node's neighbours touches two
+*   contiguous int[] ranges and no objects.
+*
+* Capacities are in bps as reported by TopoBridge. The bandwidth an edge can carry is the smaller of the reservable
+* capacities at its two ends; ends that do not report a capacity are treated as unconstrained.
+*
+* Built once per topology snapshot (see TopologyRefresher.Snapshot.getGraph()) and safe to share between threads.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class TopologyGraph
+{
+	public static final long UNCONSTRAINED = Long.MAX_VALUE;
+
+	private final String[] nodeNames;
+	private final Map<String, Integer> nodeIDs;
+
+	private final String[] linkURNs;
+	private final int[] linkNodes;							// Node owning each link
+	private final long[] linkCapacities;
+	private final long[] linkMaxReservable;
+	private final long[] linkMinReservable;
+	private final long[] linkGranularities;
+	private final Map<String, Integer> linkIDs;
+
+	private final int[] edgeOffsets;						// nodeCount()+1 entries
+	private final int[] edgeTargets;
+	private final int[] edgeLinks;							// Local link of each edge
+	private final int[] edgeRemoteLinks;					// Remote link of each edge
+	private final int[] edgeTwins;							// Edge of the same physical link in the opposite direction, or -1
+	private final long[] edgeBandwidths;					// Reservable bps, UNCONSTRAINED if unknown
+
+	/*********************************************************************************************************************************************************
+	* Builds the graph of every link in the given index.
+	*
+	* @param index
+	*********************************************************************************************************************************************************/
+	public TopologyGraph(TopologyIndex index)
+	{
+		int numLinks = index.size();
+
+		nodeIDs = new HashMap<String, Integer>();
+		linkIDs = new HashMap<String, Integer>(numLinks * 2);
+		linkURNs = new String[numLinks];
+		linkNodes = new int[numLinks];
+		linkCapacities = new long[numLinks];
+		linkMaxReservable = new long[numLinks];
+		linkMinReservable = new long[numLinks];
+		linkGranularities = new long[numLinks];
+
+		String[] nodeNameBuffer = new String[numLinks];
+		int numNodes = 0;
+		int l = 0;
+
+		// Number links and nodes in index (sorted) order, so graph IDs are stable for an unchanged topology //
+		for(String domainID : index.getDomains())
+		{
+			for(String nodeID : index.getNodes(domainID))
+			{
+				String nodeName = domainID + ":" + nodeID;
+				int node = numNodes++;
+				nodeNameBuffer[node] = nodeName;
+				nodeIDs.put(nodeName, node);
+
+				for(String portID : index.getPorts(domainID, nodeID))
+				{
+					for(TopologyLink oneLink : index.getLinks(domainID, nodeID, portID).values())
+					{
+						linkURNs[l] = oneLink.getLinkURN();
+						linkNodes[l] = node;
+						linkCapacities[l] = oneLink.getCapacity();
+						linkMaxReservable[l] = oneLink.getMaximumReservableCapacity();
+						linkMinReservable[l] = oneLink.getMinimumReservableCapacity();
+						linkGranularities[l] = oneLink.getGranularity();
+						linkIDs.put(oneLink.getLinkURN(), l);
+						l++;
+					}
+				}
+			}
+		}
+
+		nodeNames = Arrays.copyOf(nodeNameBuffer, numNodes);
+
+		// Resolve remote links and count the outgoing edges of each node //
+		int[] remoteOf = new int[numLinks];
+		int[] degree = new int[numNodes];
+		int numEdges = 0;
+
+		for(l = 0; l < numLinks; l++)
+		{
+			TopologyLink oneLink = index.getLink(linkURNs[l]);
+			Integer remote = (oneLink.getRemoteLinkURN() == null) ? null : linkIDs.get(oneLink.getRemoteLinkURN());
+
+			if(remote == null || linkNodes[remote] == linkNodes[l])
+			{
+				remoteOf[l] = -1;
+				continue;
+			}
+
+			remoteOf[l] = remote;
+			degree[linkNodes[l]]++;
+			numEdges++;
+		}
+
+		edgeOffsets = new int[numNodes + 1];
+		for(int v = 0; v < numNodes; v++)
+			edgeOffsets[v + 1] = edgeOffsets[v] + degree[v];
+
+		edgeTargets = new int[numEdges];
+		edgeLinks = new int[numEdges];
+		edgeRemoteLinks = new int[numEdges];
+		edgeBandwidths = new long[numEdges];
+		edgeTwins = new int[numEdges];
+
+		int[] edgeOfLink = new int[numLinks];
+		Arrays.fill(edgeOfLink, -1);
+
+		int[] fill = Arrays.copyOf(edgeOffsets, numNodes);
+
+		for(l = 0; l < numLinks; l++)
+		{
+			if(remoteOf[l] < 0)
+				continue;
+
+			int e = fill[linkNodes[l]]++;
+			edgeTargets[e] = linkNodes[remoteOf[l]];
+			edgeLinks[e] = l;
+			edgeRemoteLinks[e] = remoteOf[l];
+			edgeBandwidths[e] = Math.min(reservable(l), reservable(remoteOf[l]));
+			edgeOfLink[l] = e;
+		}
+
+		// Pair up the two directions of each physical link //
+		for(int e = 0; e < numEdges; e++)
+		{
+			int reverse = edgeOfLink[edgeRemoteLinks[e]];
+
+			edgeTwins[e] = (reverse >= 0 && edgeRemoteLinks[reverse] == edgeLinks[e]) ? reverse : -1;
+		}
+	}
+
+	public int nodeCount()
+	{
+		return nodeNames.length;
+	}
+
+	public int linkCount()
+	{
+		return linkURNs.length;
+	}
+
+	public int edgeCount()
+	{
+		return edgeTargets.length;
+	}
+
+	/**
+	 * @return The node ID of 'domain:node', or -1 if there is no such node.
+	 */
+	public int nodeID(String domainID, String nodeID)
+	{
+		Integer node = nodeIDs.get(domainID + ":" + nodeID);
+
+		return (node == null) ? -1 : node;
+	}
+
+	public String nodeName(int node)
+	{
+		return nodeNames[node];
+	}
+
+	/**
+	 * @return The link ID of the given link URN, or -1 if it is not in the topology.
+	 */
+	public int linkID(String linkURN)
+	{
+		Integer link = linkIDs.get(linkURN);
+
+		return (link == null) ? -1 : link;
+	}
+
+	public String linkURN(int link)
+	{
+		return linkURNs[link];
+	}
+
+	/**
+	 * @return The node owning the given link.
+	 */
+	public int linkNode(int link)
+	{
+		return linkNodes[link];
+	}
+
+	public long linkCapacity(int link)
+	{
+		return linkCapacities[link];
+	}
+
+	public long linkMaximumReservableCapacity(int link)
+	{
+		return linkMaxReservable[link];
+	}
+
+	public long linkMinimumReservableCapacity(int link)
+	{
+		return linkMinReservable[link];
+	}
+
+	public long linkGranularity(int link)
+	{
+		return linkGranularities[link];
+	}
+
+	/**
+	 * @return Index of the first outgoing edge of node; the edges of node are firstEdge(node) .. firstEdge(node+1)-1.
+	 */
+	public int firstEdge(int node)
+	{
+		return edgeOffsets[node];
+	}
+
+	public int edgeSource(int edge)
+	{
+		return linkNodes[edgeLinks[edge]];
+	}
+
+	public int edgeTarget(int edge)
+	{
+		return edgeTargets[edge];
+	}
+
+	public int edgeLink(int edge)
+	{
+		return edgeLinks[edge];
+	}
+
+	public int edgeRemoteLink(int edge)
+	{
+		return edgeRemoteLinks[edge];
+	}
+
+	/**
+	 * @return The edge crossing the same physical link in the opposite direction, or -1 if the topology only reports one direction.
+	 */
+	public int edgeTwin(int edge)
+	{
+		return edgeTwins[edge];
+	}
+
+	public long edgeBandwidth(int edge)
+	{
+		return edgeBandwidths[edge];
+	}
+
+	/**
+	 * @param bandwidth, In Mbps, as passed to createReservation().
+	 * @return Can this edge carry a reservation of the given bandwidth?
+	 */
+	public boolean canCarry(int edge, int bandwidth)
+	{
+		return edgeBandwidths[edge] >= bandwidth * 1000000L;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Minimum-hop path between two nodes over edges that can carry the given bandwidth (breadth-first search).
+	*
+	* @param srcNode
+	* @param dstNode
+	* @param bandwidth, In Mbps, 0 to ignore capacities.
+	* @return Edge IDs along the path in order, an empty array if srcNode == dstNode, or null if no feasible path exists.
+	*********************************************************************************************************************************************************/
+	public int[] shortestPath(int srcNode, int dstNode, int bandwidth)
+	{
+		if(srcNode == dstNode)
+			return new int[0];
+
+		int[] viaEdge = new int[nodeCount()];
+		Arrays.fill(viaEdge, -1);
+
+		int[] queue = new int[nodeCount()];
+		int head = 0;
+		int tail = 0;
+
+		queue[tail++] = srcNode;
+		viaEdge[srcNode] = Integer.MAX_VALUE;	// Mark source visited
+
+		while(head < tail)
+		{
+			int v = queue[head++];
+
+			for(int e = edgeOffsets[v]; e < edgeOffsets[v + 1]; e++)
+			{
+				int w = edgeTargets[e];
+
+				if(viaEdge[w] != -1 || !canCarry(e, bandwidth))
+					continue;
+
+				viaEdge[w] = e;
+
+				if(w == dstNode)
+					return tracePath(viaEdge, srcNode, dstNode);
+
+				queue[tail++] = w;
+			}
+		}
+
+		return null;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Expands an edge path into the hop list OSCARS expects: the source link, both ends of every traversed edge, then the destination link.
+	*
+	* @param srcLink, Link ID of the reservation source.
+	* @param edges, Edge path from the source link's node to the destination link's node.
+	* @param dstLink, Link ID of the reservation destination.
+	* @return Hop URNs in path order.
+	*********************************************************************************************************************************************************/
+	public String[] toHopURNs(int srcLink, int[] edges, int dstLink)
+	{
+		String[] hops = new String[edges.length * 2 + 2];
+		int h = 0;
+
+		hops[h++] = linkURNs[srcLink];
+
+		for(int e : edges)
+		{
+			hops[h++] = linkURNs[edgeLinks[e]];
+			hops[h++] = linkURNs[edgeRemoteLinks[e]];
+		}
+
+		hops[h] = linkURNs[dstLink];
+
+		return hops;
+	}
+
+	private int[] tracePath(int[] viaEdge, int srcNode, int dstNode)
+	{
+		int length = 0;
+		for(int v = dstNode; v != srcNode; v = linkNodes[edgeLinks[viaEdge[v]]])
+			length++;
+
+		int[] path = new int[length];
+		for(int v = dstNode; v != srcNode; v = linkNodes[edgeLinks[viaEdge[v]]])
+			path[--length] = viaEdge[v];
+
+		return path;
+	}
+
+	private long reservable(int link)
+	{
+		long capacity = (linkMaxReservable[link] >= 0) ? linkMaxReservable[link] : linkCapacities[link];
+
+		return (capacity >= 0) ? capacity : UNCONSTRAINED;
+	}
+}
@@ -0,0 +1,232 @@
+package topology;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/***********************************************************************************************************************
+* Merged, indexed view of the topology of one or more OSCARS domains: domain --> node --> port --> link.
+*
+* - Links are keyed by canonical Urns (see Urn), so the many repeated node and port names share one String instance,
+*   also with other indexes and with reserved paths, and can be compared by reference.
+* - Link URNs are parsed at most once, when the link is added, and not at all if the URN is already pooled.
+* - Levels are kept in sorted maps, so walking the index always yields links in sorted order.
+*
+* An index is filled by a single thread (see TopologyLoader) and is treated as read-only once it has been published.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class TopologyIndex
+{
+	private final Map<String, Map<String, Map<String, Map<String, TopologyLink>>>> domains = new TreeMap<String, Map<String, Map<String, Map<String, TopologyLink>>>>();
+	private final Map<String, TopologyLink> linksByURN = new HashMap<String, TopologyLink>();
+
+	/*********************************************************************************************************************************************************
+	* Adds one link to the index. The URN is split into its domain/node/port/link components here, and capacities are parsed from the TopoBridge strings.
+	*
+	* @param linkURN, Full link URN: urn:ogf:network:domain=<d>:node=<n>:port=<p>:link=<l>
+	* @param remoteLinkURN, URN of the link on the far side, may be null
+	* @param capacity
+	* @param maximumReservableCapacity
+	* @param minimumReservableCapacity
+	* @param granularity
+	* @return The indexed link, or null if the URN could not be parsed.
+	*********************************************************************************************************************************************************/
+	public TopologyLink addLink(String linkURN, String remoteLinkURN, String capacity, String maximumReservableCapacity, String minimumReservableCapacity, String granularity)
+	{
+		Urn urn = Urn.parse(linkURN);
+
+		if(urn == null)
+			return null;
+
+		// Remote link IDs of edge ports are reported as "urn:ogf:network:domain=*:node=*:port=*:link=*" //
+		Urn remoteURN = (remoteLinkURN == null || remoteLinkURN.contains("=*")) ? null : Urn.parse(remoteLinkURN);
+
+		TopologyLink link = new TopologyLink(urn, remoteURN, parseCapacity(capacity), parseCapacity(maximumReservableCapacity), parseCapacity(minimumReservableCapacity), parseCapacity(granularity));
+
+		addLink(link);
+
+		return link;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Copies all links of another index into this one. Links are immutable and their Urns canonical, so they are shared rather than copied.
+	*
+	* @param other
+	*********************************************************************************************************************************************************/
+	public void merge(TopologyIndex other)
+	{
+		for(TopologyLink oneLink : other.getAllLinks())
+			addLink(oneLink);
+	}
+
+	/**
+	 * Copies the links of a single domain of another index into this one, shared like merge().
+	 */
+	public void mergeDomain(TopologyIndex other, String domainID)
+	{
+		for(TopologyLink oneLink : other.getAllLinks())
+		{
+			if(oneLink.getDomainID().equals(domainID))
+				addLink(oneLink);
+		}
+	}
+
+	private void addLink(TopologyLink link)
+	{
+		Map<String, Map<String, Map<String, TopologyLink>>> nodes = domains.get(link.getDomainID());
+		if(nodes == null)
+		{
+			nodes = new TreeMap<String, Map<String, Map<String, TopologyLink>>>();
+			domains.put(link.getDomainID(), nodes);
+		}
+
+		Map<String, Map<String, TopologyLink>> ports = nodes.get(link.getNodeID());
+		if(ports == null)
+		{
+			ports = new TreeMap<String, Map<String, TopologyLink>>();
+			nodes.put(link.getNodeID(), ports);
+		}
+
+		Map<String, TopologyLink> links = ports.get(link.getPortID());
+		if(links == null)
+		{
+			links = new TreeMap<String, TopologyLink>();
+			ports.put(link.getPortID(), links);
+		}
+
+		links.put(link.getLinkID(), link);
+		linksByURN.put(link.getLinkURN(), link);
+	}
+
+	public TopologyLink getLink(String linkURN)
+	{
+		return linksByURN.get(linkURN);
+	}
+
+	public TopologyLink getLink(String domainID, String nodeID, String portID, String linkID)
+	{
+		Map<String, TopologyLink> links = getLinks(domainID, nodeID, portID);
+
+		return links.get(linkID);
+	}
+
+	public Collection<String> getDomains()
+	{
+		return Collections.unmodifiableSet(domains.keySet());
+	}
+
+	public Collection<String> getNodes(String domainID)
+	{
+		Map<String, Map<String, Map<String, TopologyLink>>> nodes = domains.get(domainID);
+
+		if(nodes == null)
+			return Collections.emptySet();
+
+		return Collections.unmodifiableSet(nodes.keySet());
+	}
+
+	public Collection<String> getPorts(String domainID, String nodeID)
+	{
+		Map<String, Map<String, Map<String, TopologyLink>>> nodes = domains.get(domainID);
+
+		if(nodes == null || !nodes.containsKey(nodeID))
+			return Collections.emptySet();
+
+		return Collections.unmodifiableSet(nodes.get(nodeID).keySet());
+	}
+
+	public Map<String, TopologyLink> getLinks(String domainID, String nodeID, String portID)
+	{
+		Map<String, Map<String, Map<String, TopologyLink>>> nodes = domains.get(domainID);
+
+		if(nodes == null || !nodes.containsKey(nodeID) || !nodes.get(nodeID).containsKey(portID))
+			return Collections.emptyMap();
+
+		return Collections.unmodifiableMap(nodes.get(nodeID).get(portID));
+	}
+
+	public Collection<TopologyLink> getAllLinks()
+	{
+		return Collections.unmodifiableCollection(linksByURN.values());
+	}
+
+	public int size()
+	{
+		return linksByURN.size();
+	}
+
+	/*********************************************************************************************************************************************************
+	* Builds the endpoint list displayed by the GUI, in index (sorted) order.
+	* Links of the default domain are listed as 'node : port : link', links of any other domain as 'domain : node : port : link'.
+	*
+	* @param defaultDomain
+	* @return List of display strings for every link in the index.
+	*********************************************************************************************************************************************************/
+	public ArrayList<String> getDisplayNames(String defaultDomain)
+	{
+		ArrayList<String> endPoints = new ArrayList<String>(linksByURN.size());
+
+		for(Map<String, Map<String, Map<String, TopologyLink>>> nodes : domains.values())
+		{
+			for(Map<String, Map<String, TopologyLink>> ports : nodes.values())
+			{
+				for(Map<String, TopologyLink> links : ports.values())
+				{
+					for(TopologyLink oneLink : links.values())
+					{
+						endPoints.add(oneLink.getUrn().getDisplayName(defaultDomain));
+					}
+				}
+			}
+		}
+
+		return endPoints;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Splits a link URN into its components with a single left-to-right scan, without building intermediate arrays.
+	*
+	* @param linkURN, urn:ogf:network:domain=<d>:node=<n>:port=<p>:link=<l>
+	* @return {domain, node, port, link}, or null if the URN is not a fully-qualified link URN.
+	*********************************************************************************************************************************************************/
+	public static String[] parseLinkURN(String linkURN)
+	{
+		if(linkURN == null)
+			return null;
+
+		int domainStart = linkURN.indexOf("domain=");
+		int nodeStart = linkURN.indexOf(":node=", domainStart);
+		int portStart = linkURN.indexOf(":port=", nodeStart);
+		int linkStart = linkURN.indexOf(":link=", portStart);
+
+		if(domainStart < 0 || nodeStart < 0 || portStart < 0 || linkStart < 0)
+			return null;
+
+		String[] parts = new String[4];
+		parts[0] = linkURN.substring(domainStart + 7, nodeStart);
+		parts[1] = linkURN.substring(nodeStart + 6, portStart);
+		parts[2] = linkURN.substring(portStart + 6, linkStart);
+		parts[3] = linkURN.substring(linkStart + 6);
+
+		return parts;
+	}
+
+	private static long parseCapacity(String capacity)
+	{
+		if(capacity == null || capacity.trim().equals(""))
+			return -1;
+
+		try
+		{
+			return Long.parseLong(capacity.trim());
+		}
+		catch(NumberFormatException e)
+		{
+			return -1;
+		}
+	}
+}
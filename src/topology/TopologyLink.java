@@ -0,0 +1,103 @@
+package topology;
+
+/***********************************************************************************************************************
+* One link from the OSCARS topology, flattened out of the CtrlPlane tree returned by the TopoBridge WS.
+* Its URN and remote URN are canonical Urns, so links share their ID strings with every other holder of the same URN.
+* Capacities are kept in bps as reported by TopoBridge; a value of -1 means the topology did not specify it.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class TopologyLink
+{
+	private final Urn urn;
+	private final Urn remoteURN;		// URN of the link at the other end, or null for edge links
+
+	private final long capacity;
+	private final long maximumReservableCapacity;
+	private final long minimumReservableCapacity;
+	private final long granularity;
+
+	public TopologyLink(Urn urn, Urn remoteURN, long capacity, long maximumReservableCapacity, long minimumReservableCapacity, long granularity)
+	{
+		this.urn = urn;
+		this.remoteURN = remoteURN;
+		this.capacity = capacity;
+		this.maximumReservableCapacity = maximumReservableCapacity;
+		this.minimumReservableCapacity = minimumReservableCapacity;
+		this.granularity = granularity;
+	}
+
+	public Urn getUrn()
+	{
+		return urn;
+	}
+
+	/**
+	 * @return Full URN: urn:ogf:network:domain=<d>:node=<n>:port=<p>:link=<l>
+	 */
+	public String getLinkURN()
+	{
+		return urn.toString();
+	}
+
+	public String getDomainID()
+	{
+		return urn.getDomainID();
+	}
+
+	public String getNodeID()
+	{
+		return urn.getNodeID();
+	}
+
+	public String getPortID()
+	{
+		return urn.getPortID();
+	}
+
+	public String getLinkID()
+	{
+		return urn.getLinkID();
+	}
+
+	public Urn getRemoteUrn()
+	{
+		return remoteURN;
+	}
+
+	/**
+	 * @return Full URN of the link at the other end, or null for edge links.
+	 */
+	public String getRemoteLinkURN()
+	{
+		return (remoteURN == null) ? null : remoteURN.toString();
+	}
+
+	public long getCapacity()
+	{
+		return capacity;
+	}
+
+	public long getMaximumReservableCapacity()
+	{
+		return maximumReservableCapacity;
+	}
+
+	public long getMinimumReservableCapacity()
+	{
+		return minimumReservableCapacity;
+	}
+
+	public long getGranularity()
+	{
+		return granularity;
+	}
+
+	/**
+	 * @return The URN in the 'node : port : link' format displayed by the GUI lists.
+	 */
+	public String getDisplayName()
+	{
+		return urn.getDisplayName(urn.getDomainID());
+	}
+}
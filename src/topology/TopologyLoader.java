@@ -0,0 +1,229 @@
+package topology;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneDomainContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneLinkContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneNodeContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlanePortContent;
+import org.ogf.schema.network.topology.ctrlplane.CtrlPlaneTopologyContent;
+
+import net.es.oscars.common.soap.gen.MessagePropertiesType;
+import net.es.oscars.common.soap.gen.OSCARSFaultMessage;
+import net.es.oscars.topoBridge.soap.gen.GetTopologyRequestType;
+import net.es.oscars.topoBridge.soap.gen.GetTopologyResponseType;
+import net.es.oscars.topoBridge.soap.gen.TopoBridgePortType;
+import net.es.oscars.utils.clients.TopoBridgeClient;
+import net.es.oscars.utils.soap.OSCARSServiceException;
+
+import config.Configuration;
+import logging.Log;
+import simulator.OSCARSSimulator;
+import trace.Span;
+import trace.Tracer;
+import transport.CircuitBreaker;
+import transport.TransportTuner;
+
+/***********************************************************************************************************************
+* Loads the topology of a set of OSCARS domains from the TopoBridge WS and merges them into a single TopologyIndex.
+*
+* Each domain is requested by its own getTopology() call on its own TopoBridgeClient, and the calls run in parallel,
+* so loading N domains costs roughly one TopoBridge round trip instead of N. A domain that cannot be loaded is logged,
+* reported to the caller and skipped; the remaining domains are still returned.
+*
+* NOTE: In order for this to work, the TopoBridge config files must be updated to broadcast the TopoBridge WebService
+* on a specific IP, rather than just 'localhost'.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class TopologyLoader
+{
+	private static final Log log = Log.forClass(TopologyLoader.class);
+	
+	/*********************************************************************************************************************************************************
+	* Loads and merges the topology of every domain in domainIDs.
+	*
+	* @param topoBridgeURL, Where can the TopoBridge WS be found? Ex: http://localhost:9019/topoBridge
+	* @param domainIDs, Domains to load.
+	* @return The merged index of all domains that could be loaded.
+	*********************************************************************************************************************************************************/
+	public static TopologyIndex loadDomains(final String topoBridgeURL, List<String> domainIDs)
+	{
+		return loadDomains(topoBridgeURL, domainIDs, new ArrayList<String>());
+	}
+
+	/*********************************************************************************************************************************************************
+	* loadDomains() that also reports which domains are missing from the result, so a caller holding an older topology can keep their links.
+	*
+	* @param topoBridgeURL, Where can the TopoBridge WS be found? Ex: http://localhost:9019/topoBridge
+	* @param domainIDs, Domains to load.
+	* @param failedDomains, Receives every domain that could not be loaded (also those not merged before an interrupt).
+	* @return The merged index of all domains that could be loaded.
+	*********************************************************************************************************************************************************/
+	public static TopologyIndex loadDomains(final String topoBridgeURL, List<String> domainIDs, List<String> failedDomains)
+	{
+		TopologyIndex mergedIndex = new TopologyIndex();
+
+		if(domainIDs.isEmpty())
+			return mergedIndex;
+
+		ExecutorService loaderPool = Executors.newFixedThreadPool(Math.min(domainIDs.size(), Configuration.topologyLoaderThreads));
+		List<Future<TopologyIndex>> pendingDomains = new ArrayList<Future<TopologyIndex>>();
+		Span span = Tracer.startTrace("loadTopology").set("domains", domainIDs);
+		int merged = 0;			// Domains handled so far, in domainIDs order
+
+		try
+		{
+			// Issue every getTopology() call up front //
+			for(final String oneDomain : domainIDs)
+			{
+				pendingDomains.add(loaderPool.submit(Tracer.wrap(() -> fetchDomain(topoBridgeURL, oneDomain))));
+			}
+
+			// Merge the results as they come back //
+			for(int d = 0; d < pendingDomains.size(); d++, merged++)
+			{
+				try
+				{
+					mergedIndex.merge(pendingDomains.get(d).get());
+				}
+				catch(ExecutionException ee)
+				{
+					Throwable cause = ee.getCause();
+					failedDomains.add(domainIDs.get(d));
+
+					if(cause instanceof OSCARSFaultMessage)
+						log.error("Error: OSCARSFaultMessage [{}] loading domain {}", cause.getMessage(), domainIDs.get(d), cause);
+					else if(cause instanceof OSCARSServiceException)
+						log.error("Error: OSCARSClientException [{}] loading domain {}", cause.getMessage(), domainIDs.get(d), cause);
+					else
+						log.error("Error: Exception [{}] loading domain {}", cause, domainIDs.get(d), cause);
+				}
+			}
+		}
+		catch(InterruptedException ie)
+		{
+			Thread.currentThread().interrupt();
+			log.warn("Interrupted while loading topology, returning partial topology");
+
+			failedDomains.addAll(domainIDs.subList(merged, domainIDs.size()));
+		}
+		finally
+		{
+			loaderPool.shutdownNow();
+			span.end();
+		}
+
+		return mergedIndex;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Fetches the topology of a single domain and flattens it into its own index.
+	*
+	* GetTopologyResponseType					-->	List<CtrlPlaneTopologyContent>
+	* - CtrlPlaneTopologyContent				--> List<CtrlPlaneDomainContent>
+	* -- CtrlPlaneDomainContent				--> List<CtrlPlaneNodeContent>
+	* --- CtrlPlaneNodeContent					--> List<CtrlPlanePortContent>
+	* ---- CtrlPlanePortContent				--> List<CtrlPlaneLinkContent>, Port ID, Capacity, Granularity, Minimum Reservable Capacity, Maximum Reservable Capacity
+	* ----- CtrlPlaneLinkContent				--> Link ID, Remote Link ID, Capacity, Granularity, Minimum Reservable Capacity, Maximum Reservable Capacity, VLAN Range
+	*
+	* @param topoBridgeURL
+	* @param domainID
+	* @return Index containing only this domain's links.
+	*********************************************************************************************************************************************************/
+	public static TopologyIndex fetchDomain(String topoBridgeURL, String domainID) throws Exception
+	{
+		TopologyIndex domainIndex = new TopologyIndex();
+
+		GetTopologyRequestType topologyRequest = new GetTopologyRequestType();
+		topologyRequest.getDomainId().add(domainID);
+
+		// This is necessary to prevent Null-Pointer Exception. The ID ties TopoBridge's logs to the loadTopology trace. //
+		MessagePropertiesType mt = new MessagePropertiesType();
+		mt.setGlobalTransactionId(Tracer.transactionId());
+		topologyRequest.setMessageProperties(mt);
+
+		// Connect to the TopoBridge WS (or its in-process stand-in) to submit a getTopology() request //
+		TopoBridgePortType topoBridgePort;
+		
+		if(OSCARSSimulator.isSimulatorURL(topoBridgeURL))
+			topoBridgePort = OSCARSSimulator.forURL(topoBridgeURL);		// No transport to tune
+		else
+		{
+			topoBridgePort = TopoBridgeClient.getClient(topoBridgeURL).getPortType();
+			TransportTuner.tune(topoBridgePort, "topoBridge", Configuration.topoBridgeReceiveTimeoutMillis);
+		}
+		
+		// While TopoBridge is failing, give up immediately; TopologyRefresher keeps serving the previous snapshot //
+		CircuitBreaker topoBridgeBreaker = CircuitBreaker.forName("topoBridge");
+		
+		if(!topoBridgeBreaker.allowRequest())
+			throw new Exception("TopoBridge is unavailable, getTopology(" + domainID + ") not attempted (circuit open)");
+		
+		GetTopologyResponseType topologyResponse;
+		Span span = Tracer.startSpan("topoBridge:getTopology").set("domain", domainID);
+		String outcome = "error";		// Anything but an answer from TopoBridge, checked or not, counts against it
+		
+		try
+		{
+			topologyResponse = topoBridgePort.getTopology(topologyRequest);
+			outcome = "success";
+		}
+		catch(OSCARSFaultMessage fm)
+		{
+			outcome = "fault";
+			throw fm;
+		}
+		finally
+		{
+			// Record every attempt one way or the other, or a half-open breaker would wait for its probe forever //
+			if(outcome.equals("error"))
+				topoBridgeBreaker.recordFailure();
+			else
+				topoBridgeBreaker.recordSuccess();
+			
+			span.set("outcome", outcome).end();
+		}
+
+		for(CtrlPlaneTopologyContent oneTopology : topologyResponse.getTopology())
+		{
+			addTopology(domainIndex, oneTopology);
+		}
+
+		return domainIndex;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Flattens one CtrlPlane topology into the given index, keeping capacities and remote link IDs along with the URNs.
+	*
+	* @param index
+	* @param topology
+	*********************************************************************************************************************************************************/
+	public static void addTopology(TopologyIndex index, CtrlPlaneTopologyContent topology)
+	{
+		for(CtrlPlaneDomainContent oneDomain : topology.getDomain())
+		{
+			for(CtrlPlaneNodeContent oneNode : oneDomain.getNode())
+			{
+				for(CtrlPlanePortContent onePort : oneNode.getPort())
+				{
+					for(CtrlPlaneLinkContent oneLink : onePort.getLink())
+					{
+						// Links without their own capacity values inherit them from the port //
+						String capacity = (oneLink.getCapacity() != null) ? oneLink.getCapacity() : onePort.getCapacity();
+						String maxCapacity = (oneLink.getMaximumReservableCapacity() != null) ? oneLink.getMaximumReservableCapacity() : onePort.getMaximumReservableCapacity();
+						String minCapacity = (oneLink.getMinimumReservableCapacity() != null) ? oneLink.getMinimumReservableCapacity() : onePort.getMinimumReservableCapacity();
+						String granularity = (oneLink.getGranularity() != null) ? oneLink.getGranularity() : onePort.getGranularity();
+
+						index.addLink(oneLink.getId(), oneLink.getRemoteLinkId(), capacity, maxCapacity, minCapacity, granularity);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package topology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import config.Configuration;
+import logging.Log;
+
+/***********************************************************************************************************************
+* Keeps the shared topology snapshot of all Configuration.topologyDomains up to date.
+*
+* - The first call to current() loads the topology and starts a background refresh every Configuration.topologyRefreshSeconds.
+* - Each refresh reloads the topology and computes a TopologyDiff against the previous snapshot. If nothing changed,
+*   the old snapshot is kept and nobody is notified.
+* - Otherwise the sorted display list is patched in place of a full rebuild: removed endpoints are binary-searched
+*   out and added endpoints are binary-inserted, so the list never has to be re-sorted.
+* - The new snapshot is published atomically and every registered TopologyListener receives the diff.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class TopologyRefresher
+{
+	private static final Log log = Log.forClass(TopologyRefresher.class);
+	
+	/*********************************************************************************************************************************************************
+	* Receives the diff of every refresh that changed the topology.
+	*********************************************************************************************************************************************************/
+	public interface TopologyListener
+	{
+		void topologyChanged(TopologyDiff diff, Snapshot newSnapshot);
+	}
+
+	/*********************************************************************************************************************************************************
+	* One immutable version of the topology: the merged index and its sorted GUI display list.
+	*********************************************************************************************************************************************************/
+	public static class Snapshot
+	{
+		private final TopologyIndex index;
+		private final List<String> displayNames;
+		private volatile TopologyGraph graph;		// Built on first use, most snapshots are only displayed
+
+		Snapshot(TopologyIndex index, ArrayList<String> displayNames)
+		{
+			this.index = index;
+			this.displayNames = Collections.unmodifiableList(displayNames);
+		}
+
+		public TopologyIndex getIndex()
+		{
+			return index;
+		}
+
+		/**
+		 * @return The CSR graph of this snapshot, for local path and capacity computations.
+		 */
+		public TopologyGraph getGraph()
+		{
+			TopologyGraph built = graph;
+
+			if(built == null)
+			{
+				synchronized(this)
+				{
+					if(graph == null)
+						graph = new TopologyGraph(index);
+
+					built = graph;
+				}
+			}
+
+			return built;
+		}
+
+		/**
+		 * @return Every endpoint, sorted, in 'node : port : link' format for the default domain and 'domain : node : port : link' for the others.
+		 */
+		public List<String> getDisplayNames()
+		{
+			return displayNames;
+		}
+	}
+
+	private static final List<TopologyListener> listeners = new CopyOnWriteArrayList<TopologyListener>();
+	private static volatile Snapshot currentSnapshot;
+	private static ScheduledExecutorService refresher;
+
+	private TopologyRefresher()
+	{
+	}
+
+	/*********************************************************************************************************************************************************
+	* Returns the current topology snapshot, loading it (and starting the refresh loop) on first use.
+	*********************************************************************************************************************************************************/
+	public static Snapshot current()
+	{
+		Snapshot snapshot = currentSnapshot;
+
+		if(snapshot == null)
+			snapshot = initialize();
+
+		return snapshot;
+	}
+
+	public static void addListener(TopologyListener listener)
+	{
+		listeners.add(listener);
+	}
+
+	public static void removeListener(TopologyListener listener)
+	{
+		listeners.remove(listener);
+	}
+
+	/*********************************************************************************************************************************************************
+	* Reloads the topology now and publishes the diff if anything changed.
+	*
+	* @return The diff against the previous snapshot (empty if nothing changed).
+	*********************************************************************************************************************************************************/
+	public static synchronized TopologyDiff refresh()
+	{
+		if(currentSnapshot == null)
+		{
+			initialize();
+			return new TopologyDiff();
+		}
+
+		Snapshot oldSnapshot = currentSnapshot;
+		List<String> failedDomains = new ArrayList<String>();
+		TopologyIndex newIndex = TopologyLoader.loadDomains(Configuration.topoBridgeURL, Arrays.asList(Configuration.topologyDomains), failedDomains);
+
+		// A domain that failed to load (timeout, open circuit) has not lost its links, carry them over from the previous snapshot //
+		for(String oneDomain : failedDomains)
+		{
+			log.warn("Domain {} could not be loaded, keeping its previous links", oneDomain);
+			newIndex.mergeDomain(oldSnapshot.getIndex(), oneDomain);
+		}
+
+		// A failed load returns an empty index, don't let a TopoBridge outage wipe out the whole topology //
+		if(newIndex.size() == 0 && oldSnapshot != null && oldSnapshot.getIndex().size() > 0)
+		{
+			log.warn("TopoBridge returned no links, keeping previous topology");
+			return new TopologyDiff();
+		}
+
+		TopologyDiff diff = TopologyDiff.compute(oldSnapshot.getIndex(), newIndex);
+
+		if(diff.isEmpty())
+			return diff;
+
+		ArrayList<String> displayNames = new ArrayList<String>(oldSnapshot.getDisplayNames());
+
+		for(TopologyLink oneLink : diff.getRemovedLinks())
+		{
+			int position = Collections.binarySearch(displayNames, displayName(oneLink));
+
+			if(position >= 0)
+				displayNames.remove(position);
+		}
+
+		for(TopologyLink oneLink : diff.getAddedLinks())
+		{
+			String name = displayName(oneLink);
+			int position = Collections.binarySearch(displayNames, name);
+
+			if(position < 0)
+				displayNames.add(-position - 1, name);
+		}
+
+		Snapshot newSnapshot = new Snapshot(newIndex, displayNames);
+		currentSnapshot = newSnapshot;
+
+		log.info("{} link(s) added, {} removed, {} changed", diff.getAddedLinks().size(), diff.getRemovedLinks().size(), diff.getChangedLinks().size());
+
+		for(TopologyListener oneListener : listeners)
+		{
+			try
+			{
+				oneListener.topologyChanged(diff, newSnapshot);
+			}
+			catch(Exception e)
+			{
+				log.error("Topology listener {} failed", oneListener, e);
+			}
+		}
+
+		return diff;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Stops the refresh loop. Called when the web app shuts down.
+	*********************************************************************************************************************************************************/
+	public static synchronized void shutdown()
+	{
+		if(refresher != null)
+			refresher.shutdownNow();
+
+		refresher = null;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Formats a link the way the GUI lists display it.
+	*********************************************************************************************************************************************************/
+	public static String displayName(TopologyLink link)
+	{
+		if(link.getDomainID().equals(Configuration.topologyDomain))
+			return link.getDisplayName();
+
+		return link.getDomainID() + " : " + link.getDisplayName();
+	}
+
+	private static synchronized Snapshot initialize()
+	{
+		if(currentSnapshot != null)
+			return currentSnapshot;
+
+		TopologyIndex index = TopologyLoader.loadDomains(Configuration.topoBridgeURL, Arrays.asList(Configuration.topologyDomains));
+		ArrayList<String> displayNames = index.getDisplayNames(Configuration.topologyDomain);
+
+		// Sorted once here, every later refresh keeps it sorted by binary insertion //
+		Collections.sort(displayNames);
+
+		currentSnapshot = new Snapshot(index, displayNames);
+
+		refresher = Executors.newSingleThreadScheduledExecutor(r ->
+		{
+			Thread refreshThread = new Thread(r, "topology-refresher");
+			refreshThread.setDaemon(true);
+			return refreshThread;
+		});
+
+		refresher.scheduleWithFixedDelay(() ->
+		{
+			try
+			{
+				refresh();
+			}
+			catch(Exception e)
+			{
+				log.error("Topology refresh failed", e);
+			}
+		}, Configuration.topologyRefreshSeconds, Configuration.topologyRefreshSeconds, TimeUnit.SECONDS);
+
+		return currentSnapshot;
+	}
+}
@@ -0,0 +1,224 @@
+package topology;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/***********************************************************************************************************************
+* A link URN, parsed once into its domain/node/port/link components: urn:ogf:network:domain=<d>:node=<n>:port=<p>:link=<l>
+*
+* Instances are immutable and canonical: every factory method returns the pooled instance of its URN, so equal URNs are
+* the same object and can be compared with ==. Their domain/node/port/link strings are pooled too, so the thousands of
+* links of one node share a single node string. Both pools hold their entries weakly, a URN no longer referenced by the
+* topology, a cached path or a request is dropped by the next GC.
+*
+* Looking up a URN that is already pooled does not parse it again.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public final class Urn
+{
+	private static final String urnPrefix = "urn:ogf:network:";
+	private static final String displaySeparator = " : ";
+
+	// Keyed by the pooled instance's own (canonical) strings, so an entry lives exactly as long as its value is referenced elsewhere //
+	private static final Map<String, WeakReference<Urn>> urnPool = new WeakHashMap<String, WeakReference<Urn>>();
+	private static final Map<String, WeakReference<String>> idPool = new WeakHashMap<String, WeakReference<String>>();
+
+	private final String urn;
+	private final String domainID;
+	private final String nodeID;
+	private final String portID;
+	private final String linkID;
+
+	private Urn(String urn, String domainID, String nodeID, String portID, String linkID)
+	{
+		this.urn = urn;
+		this.domainID = domainID;
+		this.nodeID = nodeID;
+		this.portID = portID;
+		this.linkID = linkID;
+	}
+
+	/**
+	 * @param linkURN, urn:ogf:network:domain=<d>:node=<n>:port=<p>:link=<l>
+	 * @return The parsed URN, or null if linkURN is not a fully-qualified link URN. Input TopologyIndex.parseLinkURN() accepts in another
+	 * 		   form (e.g. without the urn:ogf:network: prefix) gives the URN of its components, i.e. the same instance as of() and a canonical toString().
+	 */
+	public static Urn parse(String linkURN)
+	{
+		if(linkURN == null)
+			return null;
+
+		Urn pooled = lookup(linkURN);		// Only canonical strings are pooled
+
+		if(pooled != null)
+			return pooled;
+
+		String[] parts = TopologyIndex.parseLinkURN(linkURN);
+
+		if(parts == null)
+			return null;
+
+		return of(parts[0], parts[1], parts[2], parts[3]);
+	}
+
+	/**
+	 * @return The URN of the given components.
+	 */
+	public static Urn of(String domainID, String nodeID, String portID, String linkID)
+	{
+		String urn = new StringBuilder(urnPrefix.length() + 25 + domainID.length() + nodeID.length() + portID.length() + linkID.length())
+						.append(urnPrefix).append("domain=").append(domainID).append(":node=").append(nodeID).append(":port=").append(portID).append(":link=").append(linkID)
+						.toString();
+
+		Urn pooled = lookup(urn);
+
+		return (pooled != null) ? pooled : intern(urn, domainID, nodeID, portID, linkID);
+	}
+
+	/**
+	 * @return Number of distinct URNs currently pooled (including any collected but not yet purged).
+	 */
+	public static int getPoolSize()
+	{
+		synchronized(urnPool)
+		{
+			return urnPool.size();
+		}
+	}
+
+	private static Urn lookup(String urn)
+	{
+		synchronized(urnPool)
+		{
+			WeakReference<Urn> pooled = urnPool.get(urn);
+
+			return (pooled == null) ? null : pooled.get();
+		}
+	}
+
+	private static Urn intern(String urn, String domainID, String nodeID, String portID, String linkID)
+	{
+		synchronized(urnPool)
+		{
+			Urn pooled = lookup(urn);		// Another thread may have pooled it since our lookup
+
+			if(pooled != null)
+				return pooled;
+
+			pooled = new Urn(urn, internID(domainID), internID(nodeID), internID(portID), internID(linkID));
+			urnPool.put(pooled.urn, new WeakReference<Urn>(pooled));
+
+			return pooled;
+		}
+	}
+
+	// Only called with urnPool locked //
+	private static String internID(String id)
+	{
+		WeakReference<String> pooled = idPool.get(id);
+		String pooledID = (pooled == null) ? null : pooled.get();
+
+		if(pooledID != null)
+			return pooledID;
+
+		idPool.put(id, new WeakReference<String>(id));
+
+		return id;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Parses an endpoint in the format the GUI lists it in (see TopologyIndex.getDisplayNames()).
+	*
+	* @param displayName, 'node : port : link' for defaultDomain, 'domain : node : port : link' for other domains
+	* @param defaultDomain
+	* @return The URN, or null if displayName has neither 3 nor 4 non-empty components.
+	*********************************************************************************************************************************************************/
+	public static Urn fromDisplayName(String displayName, String defaultDomain)
+	{
+		String[] parts = new String[4];
+		int count = 0;
+		int partStart = 0;
+
+		while(true)
+		{
+			int separator = displayName.indexOf(displaySeparator, partStart);
+			String part = ((separator < 0) ? displayName.substring(partStart) : displayName.substring(partStart, separator)).trim();
+
+			if(part.isEmpty() || count == parts.length)
+				return null;
+
+			parts[count++] = part;
+
+			if(separator < 0)
+				break;
+
+			partStart = separator + displaySeparator.length();
+		}
+
+		if(count < 3)
+			return null;
+
+		if(count == 3)
+			return of(defaultDomain, parts[0], parts[1], parts[2]);
+
+		return of(parts[0], parts[1], parts[2], parts[3]);
+	}
+
+	/**
+	 * @return Is this the URN of an anycast destination set, e.g. node=anycast(DENV-4,SUNN-5):port=anycast:link=link1?
+	 */
+	public boolean isAnycast()
+	{
+		return nodeID.startsWith("anycast");
+	}
+
+	/**
+	 * @return 'node : port : link' in defaultDomain, 'domain : node : port : link' otherwise.
+	 */
+	public String getDisplayName(String defaultDomain)
+	{
+		if(domainID.equals(defaultDomain))
+			return nodeID + displaySeparator + portID + displaySeparator + linkID;
+
+		return domainID + displaySeparator + nodeID + displaySeparator + portID + displaySeparator + linkID;
+	}
+
+	public String getDomainID()
+	{
+		return domainID;
+	}
+
+	public String getNodeID()
+	{
+		return nodeID;
+	}
+
+	public String getPortID()
+	{
+		return portID;
+	}
+
+	public String getLinkID()
+	{
+		return linkID;
+	}
+
+
+	/**
+	 * Urns are canonical, so identity is equality. Hashes by the URN string so hash order does not vary between runs.
+	 */
+	public int hashCode()
+	{
+		return urn.hashCode();
+	}
+
+	/**
+	 * @return The full URN.
+	 */
+	public String toString()
+	{
+		return urn;
+	}
+}
@@ -0,0 +1,107 @@
+package trace;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/***********************************************************************************************************************
+* One timed step of a Trace, e.g. a single SOAP call, a poll wait or a local path computation.
+*
+* Spans are started with Tracer.startSpan() and must be ended exactly once, normally in a finally block. Ending a span
+* makes its parent the current span of the thread again. Outside of any trace Tracer hands out a no-op span, so
+* instrumented code never has to check whether it is being traced.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class Span
+{
+	static final Span none = new Span(null, null, "none");
+
+	private final Trace trace;
+	private final Span parent;
+	private final String name;
+	private final String threadName;
+	private final long startNanos;
+	private volatile long endNanos = -1;
+	private final Map<String, String> attributes = Collections.synchronizedMap(new LinkedHashMap<String, String>());
+
+	Span(Trace trace, Span parent, String name)
+	{
+		this.trace = trace;
+		this.parent = parent;
+		this.name = name;
+		this.threadName = Thread.currentThread().getName();
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Attaches a detail to this span, e.g. the outcome of a call or the number of polls.
+	 */
+	public Span set(String key, Object value)
+	{
+		if(trace != null)
+			attributes.put(key, String.valueOf(value));
+
+		return this;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Ends this span. Ending the root span of a trace finishes the trace and hands it to the TraceBuffer.
+	*********************************************************************************************************************************************************/
+	public void end()
+	{
+		if(trace == null || endNanos >= 0)
+			return;
+
+		endNanos = System.nanoTime();
+		Tracer.ended(this);
+	}
+
+	public boolean isRecording()
+	{
+		return trace != null;
+	}
+
+	public Trace getTrace()
+	{
+		return trace;
+	}
+
+	public Span getParent()
+	{
+		return parent;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public String getThreadName()
+	{
+		return threadName;
+	}
+
+	public long getStartNanos()
+	{
+		return startNanos;
+	}
+
+	/**
+	 * @return Duration in nanoseconds, or -1 while the span is still running.
+	 */
+	public long getDurationNanos()
+	{
+		long end = endNanos;
+
+		return (end < 0) ? -1 : end - startNanos;
+	}
+
+	public Map<String, String> getAttributes()
+	{
+		synchronized(attributes)
+		{
+			return new LinkedHashMap<String, String>(attributes);
+		}
+	}
+}
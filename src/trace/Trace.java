@@ -0,0 +1,100 @@
+package trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import config.Configuration;
+
+/***********************************************************************************************************************
+* Everything one user-level operation (multipath create, anycast, group, topology load) did, as a tree of Spans.
+*
+* The trace ID is a random UUID. It is sent to OSCARS as the globalTransactionId of every request made while the trace
+* is current (see transport.TraceInterceptor), so OSCARS' own logs can be matched to the MPC operation.
+*
+* At most Configuration.traceMaxSpans spans are kept per trace; a long anycast with many polls only loses its latest
+* spans, and getDroppedSpans() says how many.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class Trace
+{
+	private final String id = UUID.randomUUID().toString();
+	private final String operation;
+	private final long startMillis = System.currentTimeMillis();
+	private final List<Span> spans = new ArrayList<Span>();
+	private final AtomicInteger droppedSpans = new AtomicInteger();
+	private final Span root;
+
+	Trace(String operation)
+	{
+		this.operation = operation;
+		this.root = new Span(this, null, operation);
+		spans.add(root);
+	}
+
+	Span newSpan(Span parent, String name)
+	{
+		Span span = new Span(this, parent, name);
+
+		synchronized(spans)
+		{
+			if(spans.size() < Configuration.traceMaxSpans)
+				spans.add(span);
+			else
+				droppedSpans.incrementAndGet();
+		}
+
+		return span;
+	}
+
+	Span getRoot()
+	{
+		return root;
+	}
+
+	public String getId()
+	{
+		return id;
+	}
+
+	public String getOperation()
+	{
+		return operation;
+	}
+
+	public long getStartMillis()
+	{
+		return startMillis;
+	}
+
+	/**
+	 * @return Duration of the root span in nanoseconds, or -1 while the operation is still running.
+	 */
+	public long getDurationNanos()
+	{
+		return root.getDurationNanos();
+	}
+
+	public boolean isFinished()
+	{
+		return root.getDurationNanos() >= 0;
+	}
+
+	/**
+	 * @return Every recorded span in the order they were started, the root span first.
+	 */
+	public List<Span> getSpans()
+	{
+		synchronized(spans)
+		{
+			return new ArrayList<Span>(spans);
+		}
+	}
+
+	public int getDroppedSpans()
+	{
+		return droppedSpans.get();
+	}
+}
@@ -0,0 +1,69 @@
+package trace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import config.Configuration;
+
+/***********************************************************************************************************************
+* Ring buffer of the last Configuration.traceBufferSize finished traces, read by the /admin/traces servlet.
+* Recording a trace overwrites the oldest one; nothing is ever written to disk.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class TraceBuffer
+{
+	private static final AtomicReferenceArray<Trace> slots = new AtomicReferenceArray<Trace>(Math.max(1, Configuration.traceBufferSize));
+	private static final AtomicLong recorded = new AtomicLong();
+
+	private TraceBuffer()
+	{
+	}
+
+	static void record(Trace trace)
+	{
+		slots.set((int)(recorded.getAndIncrement() % slots.length()), trace);
+	}
+
+	/**
+	 * @return Up to limit of the most recently finished traces, newest first.
+	 */
+	public static List<Trace> recent(int limit)
+	{
+		List<Trace> traces = new ArrayList<Trace>();
+		long newest = recorded.get() - 1;
+
+		for(long t = newest; t >= 0 && t > newest - slots.length() && traces.size() < limit; t--)
+		{
+			Trace oneTrace = slots.get((int)(t % slots.length()));
+
+			if(oneTrace != null)
+				traces.add(oneTrace);
+		}
+
+		return traces;
+	}
+
+	/**
+	 * @return The buffered trace with the given ID, or null if there is none (any more).
+	 */
+	public static Trace find(String traceId)
+	{
+		for(int s = 0; s < slots.length(); s++)
+		{
+			Trace oneTrace = slots.get(s);
+
+			if(oneTrace != null && oneTrace.getId().equals(traceId))
+				return oneTrace;
+		}
+
+		return null;
+	}
+
+	public static long getRecorded()
+	{
+		return recorded.get();
+	}
+}
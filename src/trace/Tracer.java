@@ -0,0 +1,197 @@
+package trace;
+
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import logging.LogContext;
+
+/***********************************************************************************************************************
+* Entry point for tracing. Keeps the current Span of each thread.
+*
+* - startTrace() begins a new Trace for a user-level operation. If the thread is already inside a trace (e.g. anycast
+*   calling createMPReservation()), the operation becomes a child span of that trace instead.
+* - startSpan() begins a child of the current span, or returns a no-op span if the thread is not being traced.
+* - wrap() carries the current span into tasks run on other threads (anycast evaluations, parallel subrequests), so
+*   their spans land in the same trace.
+* - detach() and within() do the same for asynchronous operations, whose span outlives the call that started it and is
+*   ended by whichever thread completes the operation.
+* - While a thread is inside a trace, its log messages carry the trace ID (see logging.LogContext).
+*
+* Typical use:
+* 		Span span = Tracer.startSpan("poll");
+* 		try { ... } finally { span.end(); }
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class Tracer
+{
+	private static final ThreadLocal<Span> current = new ThreadLocal<Span>();
+
+	private Tracer()
+	{
+	}
+
+	/*********************************************************************************************************************************************************
+	* Starts tracing a user-level operation.
+	*
+	* @param operation, e.g. "createMP", "anycast", "group"
+	* @return Root span of the new trace, or a child span of the current trace if there is one.
+	*********************************************************************************************************************************************************/
+	public static Span startTrace(String operation)
+	{
+		if(current.get() != null)
+			return startSpan(operation);
+
+		Span root = new Trace(operation).getRoot();
+		restore(root);
+
+		return root;
+	}
+
+	/**
+	 * @return A new child of the current span, or a no-op span if this thread is not inside a trace.
+	 */
+	public static Span startSpan(String name)
+	{
+		Span parent = current.get();
+
+		if(parent == null)
+			return Span.none;
+
+		Span span = parent.getTrace().newSpan(parent, name);
+		current.set(span);
+
+		return span;
+	}
+
+	/**
+	 * @return ID of the trace this thread is in, or null if it is not being traced.
+	 */
+	public static String currentTraceId()
+	{
+		Span span = current.get();
+
+		return (span == null) ? null : span.getTrace().getId();
+	}
+
+	/**
+	 * @return A globalTransactionId for an OSCARS/TopoBridge request: the current trace ID, or a fresh UUID outside of any trace.
+	 */
+	public static String transactionId()
+	{
+		String traceId = currentTraceId();
+
+		return (traceId == null) ? UUID.randomUUID().toString() : traceId;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Binds a task to the current span, so that spans it starts on a pool thread become children of that span.
+	*********************************************************************************************************************************************************/
+	public static <T> Callable<T> wrap(Callable<T> task)
+	{
+		final Span captured = current.get();
+
+		if(captured == null)
+			return task;
+
+		return () ->
+		{
+			Span previous = current.get();
+			restore(captured);
+
+			try
+			{
+				return task.call();
+			}
+			finally
+			{
+				restore(previous);
+			}
+		};
+	}
+
+	public static Runnable wrap(Runnable task)
+	{
+		final Span captured = current.get();
+
+		if(captured == null)
+			return task;
+
+		return () ->
+		{
+			Span previous = current.get();
+			restore(captured);
+
+			try
+			{
+				task.run();
+			}
+			finally
+			{
+				restore(previous);
+			}
+		};
+	}
+
+	/*********************************************************************************************************************************************************
+	* Makes the parent of span the current span of this thread again, without ending span. For a span that is ended later on another thread, once the
+	* asynchronous operation it measures completes.
+	*********************************************************************************************************************************************************/
+	public static void detach(Span span)
+	{
+		if(current.get() == span)
+			restore(span.getParent());
+	}
+
+	/*********************************************************************************************************************************************************
+	* Runs every task given to the returned Executor on executor, with span as the current span. Unlike wrap(), the span does not have to be current
+	* when the task is submitted, so the stages of a CompletableFuture chain stay in the trace whichever thread completed the stage before.
+	*********************************************************************************************************************************************************/
+	public static Executor within(Span span, Executor executor)
+	{
+		if(span == Span.none)
+			return executor;
+
+		return task -> executor.execute(() ->
+		{
+			Span previous = current.get();
+			restore(span);
+
+			try
+			{
+				task.run();
+			}
+			finally
+			{
+				restore(previous);
+			}
+		});
+	}
+
+	static void ended(Span span)
+	{
+		if(current.get() == span)
+			restore(span.getParent());
+
+		if(span.getParent() == null)
+			TraceBuffer.record(span.getTrace());
+	}
+
+	/**
+	 * Makes span the current span of this thread, and its trace ID the "trace" field of this thread's log messages.
+	 */
+	private static void restore(Span span)
+	{
+		if(span == null)
+		{
+			current.remove();
+			LogContext.put(LogContext.trace, null);
+		}
+		else
+		{
+			current.set(span);
+			LogContext.put(LogContext.trace, span.getTrace().getId());
+		}
+	}
+}
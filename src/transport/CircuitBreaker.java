@@ -0,0 +1,175 @@
+package transport;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import config.Configuration;
+import logging.Log;
+
+/***********************************************************************************************************************
+* Circuit breaker around calls to one remote service (e.g. "oscars", "topoBridge").
+*
+* - CLOSED: calls go through. Configuration.circuitBreakerFailureThreshold consecutive failures open the circuit.
+* - OPEN: calls are rejected immediately for Configuration.circuitBreakerOpenSeconds, so that callers fail fast (and can
+*   serve cached data) instead of each blocking a thread on a service that is not answering.
+* - HALF_OPEN: once the open period is over, a single probe call is let through. If it succeeds the circuit closes,
+*   if it fails the circuit opens again for another open period.
+*
+* Only transport-level problems count as failures. A fault returned by the service is a healthy answer.
+* Every allowRequest() that returns true must be followed by exactly one of recordSuccess(), recordFailure() or
+* recordAbandoned().
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class CircuitBreaker
+{
+	private static final Log log = Log.forClass(CircuitBreaker.class);
+	
+	public enum State { CLOSED, OPEN, HALF_OPEN }
+
+	private static final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<String, CircuitBreaker>();
+
+	private final String name;
+	private final int failureThreshold;
+	private final long openMillis;
+
+	private State state = State.CLOSED;
+	private int consecutiveFailures = 0;
+	private long openedAt = 0;
+	private boolean probeInFlight = false;
+
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong timesOpened = new AtomicLong();
+
+	/**
+	 * @return The breaker of the given service, created on first use.
+	 */
+	public static CircuitBreaker forName(String name)
+	{
+		return breakers.computeIfAbsent(name, n -> new CircuitBreaker(n, Configuration.circuitBreakerFailureThreshold, Configuration.circuitBreakerOpenSeconds * 1000L));
+	}
+
+	public static Collection<CircuitBreaker> getAll()
+	{
+		return Collections.unmodifiableCollection(breakers.values());
+	}
+
+	CircuitBreaker(String name, int failureThreshold, long openMillis)
+	{
+		this.name = name;
+		this.failureThreshold = failureThreshold;
+		this.openMillis = openMillis;
+	}
+
+	/*********************************************************************************************************************************************************
+	* Asks whether a call may be made now. While the circuit is open this returns false without waiting.
+	*
+	* @return true if the call may go ahead.
+	*********************************************************************************************************************************************************/
+	public synchronized boolean allowRequest()
+	{
+		switch(state)
+		{
+			case CLOSED:
+				return true;
+
+			case OPEN:
+				if(System.currentTimeMillis() - openedAt < openMillis)
+					break;
+
+				transitionTo(State.HALF_OPEN);
+				probeInFlight = true;
+				return true;
+
+			case HALF_OPEN:
+				if(probeInFlight)
+					break;
+
+				probeInFlight = true;
+				return true;
+		}
+
+		rejected.incrementAndGet();
+		return false;
+	}
+
+	/**
+	 * Would a call be allowed right now? Unlike allowRequest() this does not claim the half-open probe.
+	 */
+	public synchronized boolean isAvailable()
+	{
+		if(state == State.OPEN)
+			return System.currentTimeMillis() - openedAt >= openMillis;
+
+		return !(state == State.HALF_OPEN && probeInFlight);
+	}
+
+	public synchronized void recordSuccess()
+	{
+		consecutiveFailures = 0;
+		probeInFlight = false;
+
+		if(state != State.CLOSED)
+			transitionTo(State.CLOSED);
+	}
+
+	public synchronized void recordFailure()
+	{
+		consecutiveFailures++;
+		probeInFlight = false;
+
+		if(state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold))
+		{
+			openedAt = System.currentTimeMillis();
+			timesOpened.incrementAndGet();
+			transitionTo(State.OPEN);
+		}
+	}
+
+	/**
+	 * The allowed call was never made (e.g. no client was available), so it says nothing about the service.
+	 */
+	public synchronized void recordAbandoned()
+	{
+		probeInFlight = false;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public synchronized State getState()
+	{
+		return state;
+	}
+
+	public synchronized int getConsecutiveFailures()
+	{
+		return consecutiveFailures;
+	}
+
+	public long getRejected()
+	{
+		return rejected.get();
+	}
+
+	public long getTimesOpened()
+	{
+		return timesOpened.get();
+	}
+
+	public String toString()
+	{
+		return "CircuitBreaker[" + name + "] state=" + getState() + " consecutiveFailures=" + getConsecutiveFailures() + " rejected=" + getRejected() + " opened=" + getTimesOpened();
+	}
+
+	private void transitionTo(State newState)
+	{
+		log.warn("CircuitBreaker[{}]: {} -> {}", name, state, newState);
+		state = newState;
+	}
+}
@@ -0,0 +1,119 @@
+package transport;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***********************************************************************************************************************
+* Wire-level counters of one SOAP endpoint (e.g. "oscars", "topoBridge"), filled in by the interceptors TransportTuner
+* installs on every tuned client.
+*
+* - Bytes are counted on the wire, i.e. after compression, so compressedResponses/bytesReceived shows what gzip saves.
+* - Latency runs from the moment the request is set up until the last byte of the response has been read.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class EndpointMetrics
+{
+	private static final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<String, EndpointMetrics>();
+
+	private final String name;
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong responses = new AtomicLong();
+	private final AtomicLong compressedResponses = new AtomicLong();
+	private final AtomicLong bytesSent = new AtomicLong();
+	private final AtomicLong bytesReceived = new AtomicLong();
+	private final AtomicLong totalLatencyNanos = new AtomicLong();
+	private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+	/**
+	 * @return The metrics of the given endpoint, created on first use.
+	 */
+	public static EndpointMetrics forEndpoint(String name)
+	{
+		return endpoints.computeIfAbsent(name, EndpointMetrics::new);
+	}
+
+	public static Collection<EndpointMetrics> getAll()
+	{
+		return Collections.unmodifiableCollection(endpoints.values());
+	}
+
+	private EndpointMetrics(String name)
+	{
+		this.name = name;
+	}
+
+	void recordRequest(long bytes)
+	{
+		requests.incrementAndGet();
+		bytesSent.addAndGet(bytes);
+	}
+
+	void recordResponse(long bytes, long latencyNanos, boolean compressed)
+	{
+		responses.incrementAndGet();
+		bytesReceived.addAndGet(bytes);
+
+		if(compressed)
+			compressedResponses.incrementAndGet();
+
+		if(latencyNanos >= 0)
+		{
+			totalLatencyNanos.addAndGet(latencyNanos);
+			maxLatencyNanos.accumulateAndGet(latencyNanos, Math::max);
+		}
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public long getRequests()
+	{
+		return requests.get();
+	}
+
+	public long getResponses()
+	{
+		return responses.get();
+	}
+
+	public long getCompressedResponses()
+	{
+		return compressedResponses.get();
+	}
+
+	public long getBytesSent()
+	{
+		return bytesSent.get();
+	}
+
+	public long getBytesReceived()
+	{
+		return bytesReceived.get();
+	}
+
+	public long getTotalLatencyMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos.get());
+	}
+
+	public long getMaxLatencyMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos.get());
+	}
+
+	public String toString()
+	{
+		long numResponses = getResponses();
+
+		return "EndpointMetrics[" + name + "] requests=" + getRequests() + " responses=" + numResponses + " gzip=" + getCompressedResponses()
+				+ " sent=" + getBytesSent() + "B received=" + getBytesReceived() + "B avgLatencyMs=" + ((numResponses == 0) ? 0 : getTotalLatencyMillis() / numResponses)
+				+ " maxLatencyMs=" + getMaxLatencyMillis();
+	}
+}
@@ -0,0 +1,90 @@
+package transport;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+
+import net.es.oscars.common.soap.gen.MessagePropertiesType;
+
+import logging.Log;
+import trace.Tracer;
+
+/***********************************************************************************************************************
+* Stamps the current trace ID into the MessageProperties of every outgoing OSCARS/TopoBridge request, so that all
+* calls made for one MPC operation share a single globalTransactionId.
+*
+* Every OSCARS v0.6 request type (ResCreateContent, QueryResContent, CancelResContent, ...) and TopoBridge's
+* GetTopologyRequestType carries a MessagePropertiesType, but they share no common type, so the setter is looked up
+* once per class. Requests made outside of any trace are left untouched.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+class TraceInterceptor extends AbstractPhaseInterceptor<Message>
+{
+	private static final Log log = Log.forClass(TraceInterceptor.class);
+	
+	private static final ClassValue<Method[]> messagePropertiesAccessors = new ClassValue<Method[]>()
+	{
+		protected Method[] computeValue(Class<?> requestClass)
+		{
+			try
+			{
+				return new Method[]{ requestClass.getMethod("getMessageProperties"), requestClass.getMethod("setMessageProperties", MessagePropertiesType.class) };
+			}
+			catch(NoSuchMethodException nsme)
+			{
+				return null;
+			}
+		}
+	};
+
+	TraceInterceptor()
+	{
+		super(Phase.PRE_LOGICAL);
+	}
+
+	public void handleMessage(Message message) throws Fault
+	{
+		String traceId = Tracer.currentTraceId();
+
+		if(traceId == null)
+			return;
+
+		List<?> parameters = message.getContent(List.class);
+
+		if(parameters == null)
+			return;
+
+		for(Object oneParameter : parameters)
+		{
+			if(oneParameter == null)
+				continue;
+
+			Method[] accessors = messagePropertiesAccessors.get(oneParameter.getClass());
+
+			if(accessors == null)
+				continue;
+
+			try
+			{
+				MessagePropertiesType properties = (MessagePropertiesType)accessors[0].invoke(oneParameter);
+
+				if(properties == null)
+				{
+					properties = new MessagePropertiesType();
+					accessors[1].invoke(oneParameter, properties);
+				}
+
+				properties.setGlobalTransactionId(traceId);
+			}
+			catch(ReflectiveOperationException roe)
+			{
+				log.warn("Could not set the globalTransactionId of {}: {}", oneParameter.getClass().getSimpleName(), roe);
+			}
+		}
+	}
+}
@@ -0,0 +1,261 @@
+package transport;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.cxf.endpoint.Client;
+import org.apache.cxf.frontend.ClientProxy;
+import org.apache.cxf.interceptor.Fault;
+import org.apache.cxf.message.Message;
+import org.apache.cxf.phase.AbstractPhaseInterceptor;
+import org.apache.cxf.phase.Phase;
+import org.apache.cxf.transport.Conduit;
+import org.apache.cxf.transport.http.HTTPConduit;
+import org.apache.cxf.transports.http.configuration.ConnectionType;
+import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
+
+import config.Configuration;
+
+/***********************************************************************************************************************
+* Applies the MPC's HTTP transport settings to a CXF client proxy (OSCARS or TopoBridge port type).
+*
+* CXF's defaults leave the receive timeout unbounded, so a hung OSCARS call used to hold its thread forever. Every tuned
+* proxy gets:
+* 	- Persistent (keep-alive) connections, so successive calls on a pooled client reuse the same socket
+* 	- Configuration.transportConnectTimeoutMillis and a per-endpoint receive timeout
+* 	- Chunked requests only if Configuration.transportAllowChunking
+* 	- 'Accept-Encoding: gzip' if Configuration.transportGzip, with gzip-encoded replies inflated on arrival. CXF 2.2.5 has no
+*     gzip feature of its own, hence the interceptor below. Large listReservations/getTopology replies benefit most.
+* 	- Interceptors counting wire bytes and latency into the EndpointMetrics of the given endpoint name
+* 	- A TraceInterceptor sending the current trace ID as the globalTransactionId of every request
+*
+* Tuning the same proxy again is harmless: the policy is replaced and the interceptors are not added twice.
+*
+* @author Jeremy
+***********************************************************************************************************************/
+public class TransportTuner
+{
+	private static final String startTimeKey = TransportTuner.class.getName() + ".startNanos";
+
+	private TransportTuner()
+	{
+	}
+
+	/*********************************************************************************************************************************************************
+	* Tunes the HTTP conduit of a client proxy.
+	*
+	* @param portType, JAX-WS proxy returned by a CXF service (e.g. OSCARSClient's or TopoBridgeClient's port type).
+	* @param endpointName, Name under which the proxy's traffic is counted in EndpointMetrics.
+	* @param receiveTimeoutMillis, Maximum time to wait for a reply, 0 for no limit.
+	*********************************************************************************************************************************************************/
+	public static void tune(Object portType, String endpointName, long receiveTimeoutMillis)
+	{
+		Client client = ClientProxy.getClient(portType);
+		Conduit conduit = client.getConduit();
+
+		if(conduit instanceof HTTPConduit)
+		{
+			HTTPClientPolicy policy = new HTTPClientPolicy();
+			policy.setConnection(Configuration.transportKeepAlive ? ConnectionType.KEEP_ALIVE : ConnectionType.CLOSE);
+			policy.setConnectionTimeout(Configuration.transportConnectTimeoutMillis);
+			policy.setReceiveTimeout(receiveTimeoutMillis);
+			policy.setAllowChunking(Configuration.transportAllowChunking);
+
+			if(Configuration.transportGzip)
+				policy.setAcceptEncoding("gzip");
+
+			((HTTPConduit)conduit).setClient(policy);
+		}
+
+		List<?> inInterceptors = client.getInInterceptors();		// A List of raw Interceptors in CXF 2.2, only looked at here
+
+		for(Object oneInterceptor : inInterceptors)
+		{
+			if(oneInterceptor instanceof ResponseInterceptor)
+				return;
+		}
+
+		EndpointMetrics metrics = EndpointMetrics.forEndpoint(endpointName);
+
+		client.getOutInterceptors().add(new StartInterceptor());
+		client.getOutInterceptors().add(new RequestInterceptor(metrics));
+		client.getOutInterceptors().add(new TraceInterceptor());
+		client.getInInterceptors().add(new ResponseInterceptor(metrics));
+	}
+
+	/**
+	 * Notes when the exchange started, for the latency of its reply.
+	 */
+	static class StartInterceptor extends AbstractPhaseInterceptor<Message>
+	{
+		StartInterceptor()
+		{
+			super(Phase.SETUP);
+		}
+
+		public void handleMessage(Message message) throws Fault
+		{
+			message.getExchange().put(startTimeKey, System.nanoTime());
+		}
+	}
+
+	/**
+	 * Counts the bytes written to the connection.
+	 */
+	static class RequestInterceptor extends AbstractPhaseInterceptor<Message>
+	{
+		private final EndpointMetrics metrics;
+
+		RequestInterceptor(EndpointMetrics metrics)
+		{
+			super(Phase.PRE_STREAM);
+			this.metrics = metrics;
+		}
+
+		public void handleMessage(Message message) throws Fault
+		{
+			OutputStream connectionOut = message.getContent(OutputStream.class);
+
+			if(connectionOut == null)
+				return;
+
+			message.setContent(OutputStream.class, new FilterOutputStream(connectionOut)
+			{
+				private long count = 0;
+				private boolean recorded = false;
+
+				public void write(int b) throws IOException
+				{
+					out.write(b);
+					count++;
+				}
+
+				public void write(byte[] b, int off, int len) throws IOException
+				{
+					out.write(b, off, len);
+					count += len;
+				}
+
+				public void close() throws IOException
+				{
+					if(!recorded)
+					{
+						recorded = true;
+						metrics.recordRequest(count);
+					}
+
+					super.close();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Counts the bytes read from the connection and inflates gzip-encoded replies.
+	 */
+	static class ResponseInterceptor extends AbstractPhaseInterceptor<Message>
+	{
+		private final EndpointMetrics metrics;
+
+		ResponseInterceptor(EndpointMetrics metrics)
+		{
+			super(Phase.RECEIVE);
+			this.metrics = metrics;
+		}
+
+		public void handleMessage(Message message) throws Fault
+		{
+			InputStream connectionIn = message.getContent(InputStream.class);
+
+			if(connectionIn == null)
+				return;
+
+			Object start = message.getExchange().get(startTimeKey);
+			final long startNanos = (start instanceof Long) ? (Long)start : -1;
+			final boolean compressed = isGzipEncoded(message);
+
+			InputStream countedIn = new FilterInputStream(connectionIn)
+			{
+				private long count = 0;
+				private boolean recorded = false;
+
+				public int read() throws IOException
+				{
+					int b = in.read();
+
+					if(b < 0)
+						record();
+					else
+						count++;
+
+					return b;
+				}
+
+				public int read(byte[] b, int off, int len) throws IOException
+				{
+					int numRead = in.read(b, off, len);
+
+					if(numRead < 0)
+						record();
+					else
+						count += numRead;
+
+					return numRead;
+				}
+
+				public void close() throws IOException
+				{
+					record();
+					super.close();
+				}
+
+				private void record()
+				{
+					if(recorded)
+						return;
+
+					recorded = true;
+					metrics.recordResponse(count, (startNanos < 0) ? -1 : System.nanoTime() - startNanos, compressed);
+				}
+			};
+
+			try
+			{
+				message.setContent(InputStream.class, compressed ? new GZIPInputStream(countedIn) : countedIn);
+			}
+			catch(IOException ioe)
+			{
+				throw new Fault(ioe);
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		private static boolean isGzipEncoded(Message message)
+		{
+			Map<String, List<String>> headers = (Map<String, List<String>>)message.get(Message.PROTOCOL_HEADERS);
+
+			if(headers == null)
+				return false;
+
+			for(Map.Entry<String, List<String>> oneHeader : headers.entrySet())
+			{
+				if(oneHeader.getKey() == null || !oneHeader.getKey().equalsIgnoreCase("Content-Encoding"))
+					continue;
+
+				for(String oneValue : oneHeader.getValue())
+				{
+					if(oneValue.toLowerCase().contains("gzip"))
+						return true;
+				}
+			}
+
+			return false;
+		}
+	}
+}